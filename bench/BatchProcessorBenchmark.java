@@ -0,0 +1,82 @@
+package org.bunnys.bench;
+
+import org.bunnys.audio.batch.BatchPolicy;
+import org.bunnys.audio.batch.BatchProcessor;
+import org.bunnys.audio.batch.BatchResult;
+import org.bunnys.audio.recording.WavFileWriter;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One batch run over four 16-bit stereo recordings of {@code minutes} each, through a high-pass and a
+ * peaking biquad. {@code splitSeconds = 0} keeps files whole, so at most four workers are busy; splitting
+ * lets every thread work on every file. Compare {@code threads} to see how throughput scales with cores.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchProcessorBenchmark {
+    private static final int FILES = 4;
+    private static final int BLOCK_SAMPLES = 4096;
+    private static final String CHAIN = "biquad:highpass:80,biquad:peaking:3000:1.4:-6";
+
+    @Param({ "10" })
+    public int minutes;
+
+    @Param({ "1", "4" })
+    public int threads;
+
+    @Param({ "0", "30" })
+    public double splitSeconds;
+
+    private Path directory;
+    private List<Path> inputs;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("batch-bench");
+        AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, SyntheticSignal.SAMPLE_RATE, 16, 2, 4,
+                SyntheticSignal.SAMPLE_RATE, false);
+        float[] signal = SyntheticSignal.samples(BLOCK_SAMPLES);
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_SAMPLES * format.getFrameSize()).order(ByteOrder.LITTLE_ENDIAN);
+        for (float sample : signal)
+            block.putShort((short) (sample * 32767)).putShort((short) (sample * 16383));
+
+        long blocks = (long) (minutes * 60 * SyntheticSignal.SAMPLE_RATE / BLOCK_SAMPLES);
+        for (int i = 0; i < FILES; i++) {
+            try (WavFileWriter writer = new WavFileWriter(directory.resolve("recording-" + i + ".wav"), format)) {
+                for (long b = 0; b < blocks; b++)
+                    writer.write(block.clear());
+            }
+        }
+        inputs = BatchProcessor.findInputs(directory.toString());
+    }
+
+    @Benchmark
+    public List<BatchResult> batch() throws IOException, InterruptedException {
+        BatchPolicy policy = BatchPolicy.DEFAULT.withParallelism(threads).withSplitSeconds(splitSeconds);
+        try (BatchProcessor processor = new BatchProcessor(CHAIN, policy)) {
+            return processor.process(inputs, directory.resolve(BatchProcessor.REPORT_NAME));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList())
+                Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+}
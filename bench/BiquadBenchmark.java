@@ -0,0 +1,60 @@
+package org.bunnys.bench;
+
+import org.bunnys.audio.processing.BiquadCascade;
+import org.bunnys.audio.processing.BiquadCoefficients;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One 2048-sample block through a cascade of peaking sections. {@code modulated} republishes the
+ * coefficients before every block, so the whole block runs on the per-sample interpolation path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BiquadBenchmark {
+    private static final int BLOCK_SIZE = 2048;
+
+    @Param({ "1", "4", "8" })
+    public int sections;
+
+    @Param({ "false", "true" })
+    public boolean modulated;
+
+    private float[] input;
+    private float[] block;
+    private BiquadCascade cascade;
+    private BiquadCoefficients[][] settings;
+    private int setting;
+
+    @Setup
+    public void setup() {
+        input = SyntheticSignal.samples(BLOCK_SIZE);
+        block = new float[BLOCK_SIZE];
+
+        // Two EQ curves to alternate between, designed up front as a UI thread would
+        settings = new BiquadCoefficients[2][sections];
+        for (int i = 0; i < sections; i++) {
+            double frequency = 100 * Math.pow(2, i);
+            settings[0][i] = BiquadCoefficients.design(BiquadCoefficients.Type.PEAKING,
+                    SyntheticSignal.SAMPLE_RATE, frequency, 1.0, 6);
+            settings[1][i] = BiquadCoefficients.design(BiquadCoefficients.Type.PEAKING,
+                    SyntheticSignal.SAMPLE_RATE, frequency, 1.0, -6);
+        }
+        cascade = new BiquadCascade(sections, 1, BLOCK_SIZE, settings[0]);
+    }
+
+    @Benchmark
+    public float[] block() {
+        if (modulated)
+            cascade.setSections(settings[setting ^= 1]);
+
+        System.arraycopy(input, 0, block, 0, BLOCK_SIZE);
+        cascade.process(block, 0, BLOCK_SIZE);
+        return block;
+    }
+}
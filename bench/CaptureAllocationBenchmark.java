@@ -0,0 +1,136 @@
+package org.bunnys.bench;
+
+import org.bunnys.audio.AudioFormatFactory;
+import org.bunnys.audio.AudioHandler;
+import org.bunnys.audio.source.AudioSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import javax.sound.sampled.AudioFormat;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One read of a real {@link AudioHandler}'s capture thread per operation, from a synthetic source in
+ * place of a sound card: decode, optional rate conversion, ring write and the capture metrics, with the
+ * processing and recording consumers draining the ring as in the application. The source samples the
+ * capture thread's allocated-bytes counter as each read returns and again as the next one starts, so the
+ * {@code captureBytes} counter is what the capture path alone allocated in the iteration. It must stay at
+ * zero: a measurement iteration that allocates on the capture thread fails the run. The longer warm-up
+ * gives the capture loop time to be compiled, which allocates on the capture thread for a few seconds.
+ * {@code -prof gc} covers the whole handler, consumers included.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CaptureAllocationBenchmark {
+    @Param({ "false", "true" })
+    public boolean resample;
+
+    private AudioHandler handler;
+    private MeteredSource source;
+    private long iterationStartBytes;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Allocation {
+        public long captureBytes;
+    }
+
+    @Setup
+    public void setup() {
+        AudioFormat handlerFormat = AudioFormatFactory.createDefaultFormat();
+        AudioFormat sourceFormat = resample ? AudioFormatFactory.createDefaultFormat(48000f) : handlerFormat;
+        source = new MeteredSource(sourceFormat);
+        handler = new AudioHandler(handlerFormat, samples -> { });
+        handler.startCapture(source);
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        iterationStartBytes = source.allocatedBytes;
+    }
+
+    @Benchmark
+    public long captureRead(Allocation allocation) {
+        long next = source.reads + 1;
+        while (source.reads < next)
+            Thread.yield();
+        allocation.captureBytes = source.allocatedBytes - iterationStartBytes;
+        return next;
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkIteration(IterationParams params) {
+        long allocated = source.allocatedBytes - iterationStartBytes;
+        if (params.getType() == IterationType.MEASUREMENT && allocated > 0)
+            throw new IllegalStateException("Capture path allocated " + allocated + " bytes after warm-up");
+    }
+
+    @TearDown
+    public void tearDown() {
+        handler.close();
+    }
+
+    /**
+     * Hands out the same encoded block on every read, as fast as the capture thread asks. It reports
+     * itself as not real time, so the capture thread waits for the consumers instead of overrunning them.
+     */
+    private static final class MeteredSource implements AudioSource {
+        private static final com.sun.management.ThreadMXBean THREADS =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        private final AudioFormat format;
+        private final byte[] block;
+        private long readEndBytes = -1;
+
+        // Written by the capture thread only
+        volatile long reads;
+        volatile long allocatedBytes;
+
+        MeteredSource(AudioFormat format) {
+            this.format = format;
+            this.block = SyntheticSignal.pcm16BigEndian(16384);
+        }
+
+        @Override
+        public String getName() {
+            return "metered";
+        }
+
+        @Override
+        public AudioFormat getFormat() {
+            return format;
+        }
+
+        @Override
+        public void open() {
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            long readStartBytes = THREADS.getCurrentThreadAllocatedBytes();
+            if (readEndBytes >= 0)
+                allocatedBytes += readStartBytes - readEndBytes;
+
+            int count = Math.min(length, block.length);
+            System.arraycopy(block, 0, buffer, offset, count);
+            reads++;
+            readEndBytes = THREADS.getCurrentThreadAllocatedBytes();
+            return count;
+        }
+
+        @Override
+        public boolean isRealTime() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
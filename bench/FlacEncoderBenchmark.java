@@ -0,0 +1,50 @@
+package org.bunnys.bench;
+
+import org.bunnys.audio.AudioFormatFactory;
+import org.bunnys.audio.recording.flac.FlacFrameEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes one FLAC block of the synthetic signal per operation. The {@code rawBytes} and
+ * {@code encodedBytes} counters come out as rates: the first is encode throughput in PCM bytes per
+ * second on one core (WAV writes these bytes as they are), and {@code encodedBytes / rawBytes} is the
+ * compression ratio. Run with {@code -t 4} or more to see frames encoding in parallel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlacEncoderBenchmark {
+    @Param({ "1024", "4096" })
+    public int blockSize;
+
+    private FlacFrameEncoder encoder;
+    private byte[] pcm;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes {
+        public long rawBytes;
+        public long encodedBytes;
+    }
+
+    @Setup
+    public void setup() {
+        AudioFormat format = AudioFormatFactory.createDefaultFormat();
+        encoder = new FlacFrameEncoder(format, blockSize);
+        pcm = SyntheticSignal.pcm16BigEndian(blockSize);
+    }
+
+    @Benchmark
+    public byte[] encodeBlock(Sizes sizes) {
+        byte[] frame = encoder.encode(pcm, 0, blockSize, 0);
+        sizes.rawBytes += pcm.length;
+        sizes.encodedBytes += frame.length;
+        return frame;
+    }
+}
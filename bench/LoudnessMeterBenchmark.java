@@ -0,0 +1,37 @@
+package org.bunnys.bench;
+
+import org.bunnys.audio.processing.LoudnessMeter;
+import org.bunnys.constants.AudioConstants;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters one processing block per operation: K-weighting, peak, RMS and 4x-oversampled true peak, plus
+ * the step bookkeeping and snapshot that fall due every 100 ms of audio.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LoudnessMeterBenchmark {
+    @Param({ "256", "2048" })
+    public int blockSize;
+
+    private LoudnessMeter meter;
+    private float[] block;
+
+    @Setup
+    public void setup() {
+        meter = new LoudnessMeter(SyntheticSignal.SAMPLE_RATE, AudioConstants.FULL_SCALE);
+        block = SyntheticSignal.samples(blockSize);
+    }
+
+    @Benchmark
+    public LoudnessMeter block() {
+        meter.accept(block, 0, blockSize);
+        return meter;
+    }
+}
@@ -0,0 +1,44 @@
+package org.bunnys.bench;
+
+import org.bunnys.audio.processing.AudioProcessor;
+import org.bunnys.audio.processing.AudioProcessorAdapter;
+import org.bunnys.audio.processing.LowPassFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LowPassFilterBenchmark {
+    @Param({ "256", "2048", "16384" })
+    public int blockSize;
+
+    private float[] input;
+    private float[] block;
+    private LowPassFilter filter;
+    private AudioProcessor legacy;
+
+    @Setup
+    public void setup() {
+        input = SyntheticSignal.samples(blockSize);
+        block = new float[blockSize];
+        filter = new LowPassFilter(0.1f);
+        legacy = AudioProcessorAdapter.asAudioProcessor(new LowPassFilter(0.1f));
+    }
+
+    @Benchmark
+    public float[] inPlace() {
+        System.arraycopy(input, 0, block, 0, blockSize);
+        filter.process(block, 0, blockSize);
+        return block;
+    }
+
+    @Benchmark
+    public float[] legacyAdapter() {
+        return legacy.process(input);
+    }
+}
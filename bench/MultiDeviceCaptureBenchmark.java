@@ -0,0 +1,72 @@
+package org.bunnys.bench;
+
+import org.bunnys.audio.AudioFormatFactory;
+import org.bunnys.audio.multi.DeviceStatistics;
+import org.bunnys.audio.multi.MultiDeviceCapture;
+import org.bunnys.audio.processing.LowPassFilter;
+import org.bunnys.audio.source.SignalGeneratorSource;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import java.time.Duration;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ten seconds of audio from each of N unthrottled generator streams, each through its own LPF pipeline,
+ * optionally summed by the mixdown. Time per session should grow with the total amount of audio, not
+ * with thread count, and every stream must finish with zero overruns and nothing dropped.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MultiDeviceCaptureBenchmark {
+    private static final Duration SESSION = Duration.ofSeconds(10);
+
+    @Param({ "1", "8", "32", "64" })
+    public int streams;
+
+    @Param({ "virtual", "platform" })
+    public String threads;
+
+    @Param({ "false", "true" })
+    public boolean mixdown;
+
+    private AudioFormat format;
+
+    @Setup
+    public void setup() {
+        format = AudioFormatFactory.createDefaultFormat();
+    }
+
+    @Benchmark
+    public long session() throws InterruptedException {
+        ThreadFactory threadFactory = "virtual".equals(threads)
+                ? Thread.ofVirtual().factory()
+                : Thread.ofPlatform().daemon().factory();
+
+        try (MultiDeviceCapture capture = new MultiDeviceCapture(format, threadFactory)) {
+            for (int i = 0; i < streams; i++) {
+                capture.addSource("generator-" + i,
+                        SignalGeneratorSource.sine(format, 110.0 * (i + 1), 0.5f, SESSION, false), null)
+                        .getAudioHandler().applyAudioProcessor(new LowPassFilter(0.1f));
+            }
+            if (mixdown)
+                capture.enableMixdown(null);
+
+            capture.start();
+            capture.awaitEnd();
+
+            long captured = 0;
+            for (DeviceStatistics statistics : capture.getStatistics()) {
+                if (statistics.overruns() > 0 || statistics.droppedSamples() > 0)
+                    throw new IllegalStateException("Stream lost audio: " + statistics);
+                captured += statistics.capturedSamples();
+            }
+            return captured;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.bunnys.bench;
+
+import org.bunnys.audio.codec.PcmCodec;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PCM to float conversion as done on the capture thread for every line read, per codec format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PcmConversionBenchmark {
+    private static final int FRAMES = 2048;
+
+    @Param({ "16-be-mono", "16-le-mono", "24-le-mono", "32-le-mono", "float-le-mono", "16-le-stereo" })
+    public String format;
+
+    private PcmCodec codec;
+    private byte[] pcm;
+    private float[] samples;
+    private float[][] planar;
+
+    @Setup
+    public void setup() {
+        String[] parts = format.split("-");
+        int channels = "stereo".equals(parts[2]) ? 2 : 1;
+        boolean bigEndian = "be".equals(parts[1]);
+        AudioFormat audioFormat = "float".equals(parts[0])
+                ? new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, 44100f, 32, channels, 4 * channels, 44100f, bigEndian)
+                : new AudioFormat(44100f, Integer.parseInt(parts[0]), channels, true, bigEndian);
+
+        codec = PcmCodec.forFormat(audioFormat);
+        pcm = new byte[FRAMES * audioFormat.getFrameSize()];
+        codec.encode(SyntheticSignal.samples(FRAMES * channels), 0, pcm, 0, FRAMES * channels);
+        samples = new float[FRAMES * channels];
+        planar = new float[channels][FRAMES];
+    }
+
+    @Benchmark
+    public float[] decodeMono() {
+        codec.decodeMono(pcm, 0, FRAMES, samples, 0);
+        return samples;
+    }
+
+    @Benchmark
+    public float[][] deinterleave() {
+        codec.deinterleave(pcm, 0, FRAMES, planar, 0);
+        return planar;
+    }
+
+    // The original hand-written 16-bit big-endian loop, allocating per read, kept as the baseline
+    @Benchmark
+    public float[] legacyShiftLoop() {
+        float[] fresh = new float[pcm.length / 2];
+        for (int i = 0; i < fresh.length; i++) {
+            fresh[i] = (pcm[2 * i] << 8) | (pcm[2 * i + 1] & 0xFF);
+        }
+        return fresh;
+    }
+}
@@ -0,0 +1,81 @@
+package org.bunnys.bench;
+
+import org.bunnys.audio.AudioFormatFactory;
+import org.bunnys.audio.recording.AudioRecorder;
+import org.bunnys.audio.recording.FlacRecorder;
+import org.bunnys.audio.recording.GatePolicy;
+import org.bunnys.audio.recording.Recorder;
+import org.bunnys.audio.recording.SilenceGatingRecorder;
+import org.bunnys.audio.recording.StreamingWavRecorder;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole recording session: one {@code writeData} per 2048-sample block, then the final save.
+ * Run with {@code -prof gc} to see the in-memory recorder's heap churn next to the streaming one.
+ * {@code gated} is the streaming recorder behind a silence gate; the synthetic signal never goes quiet,
+ * so everything is still written and the difference is the cost of the activity detector.
+ * Recorders run in blocking mode, as they do for file sources, so the session is paced by the writer
+ * and every score covers the whole recording; a session that dropped anything fails.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class RecorderBenchmark {
+    private static final int BLOCK_SAMPLES = 2048;
+
+    @Param({ "1", "10" })
+    public int sessionMinutes;
+
+    @Param({ "memory", "streaming", "flac", "gated" })
+    public String recorderType;
+
+    private AudioFormat format;
+    private byte[] block;
+    private long blocks;
+    private Path directory;
+
+    @Setup
+    public void setup() throws IOException {
+        format = AudioFormatFactory.createDefaultFormat();
+        block = SyntheticSignal.pcm16BigEndian(BLOCK_SAMPLES);
+        blocks = (long) (sessionMinutes * 60 * format.getSampleRate() / BLOCK_SAMPLES);
+        directory = Files.createTempDirectory("recorder-bench");
+    }
+
+    @Benchmark
+    public Recorder session() {
+        Recorder recorder = switch (recorderType) {
+            case "memory" -> new AudioRecorder(format);
+            case "flac" -> new FlacRecorder(format);
+            case "gated" -> new SilenceGatingRecorder(new StreamingWavRecorder(format), format, GatePolicy.DEFAULT);
+            default -> new StreamingWavRecorder(format);
+        };
+
+        recorder.setBlocking(true);
+        recorder.start(directory.resolve("flac".equals(recorderType) ? "session.flac" : "session.wav").toString());
+        for (long i = 0; i < blocks; i++)
+            recorder.writeData(block, block.length);
+        recorder.stop();
+
+        if (recorder.getDroppedBytes() > 0)
+            throw new IllegalStateException("Recorder dropped " + recorder.getDroppedBytes() + " bytes");
+        return recorder;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("session.wav"));
+        Files.deleteIfExists(directory.resolve("session.flac"));
+        Files.deleteIfExists(directory.resolve("session.activity.csv"));
+        Files.deleteIfExists(directory);
+    }
+}
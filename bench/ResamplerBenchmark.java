@@ -0,0 +1,138 @@
+package org.bunnys.bench;
+
+import org.bunnys.audio.processing.PolyphaseResampler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts one 2048-sample input block per operation, for each conversion and quality level. Setup also
+ * prints what each quality level buys: the SNR of a 1 kHz tone after conversion against the exact tone at
+ * the output rate (delayed by the filter's latency), the passband droop at 0.8 and 0.9 of the lower Nyquist
+ * frequency, and the rejection of everything that should not come out: tones in the stopband when
+ * decimating (infinite when no input frequency can reach it), images of a tone at the passband edge when
+ * interpolating.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResamplerBenchmark {
+    private static final int BLOCK_SIZE = 2048;
+
+    @Param({ "48000:44100", "44100:48000", "48000:96000", "96000:44100" })
+    public String conversion;
+
+    @Param({ "FAST", "BALANCED", "BEST" })
+    public PolyphaseResampler.Quality quality;
+
+    private PolyphaseResampler resampler;
+    private float[] input;
+    private float[] output;
+
+    @Setup
+    public void setup() {
+        String[] rates = conversion.split(":");
+        int inputRate = Integer.parseInt(rates[0]);
+        int outputRate = Integer.parseInt(rates[1]);
+
+        resampler = new PolyphaseResampler(inputRate, outputRate, quality);
+        input = SyntheticSignal.samples(BLOCK_SIZE);
+        output = new float[resampler.maxOutputLength(BLOCK_SIZE)];
+
+        double nyquist = Math.min(inputRate, outputRate) / 2.0;
+        System.out.printf("%n%s %s: %d taps per phase, SNR %.1f dB, droop %.2f dB at 0.8 Nyquist, %.2f dB at 0.9,"
+                        + " alias rejection %.1f dB%n", conversion, quality, resampler.getTapsPerPhase(),
+                toneSnr(inputRate, outputRate), toneGainDb(inputRate, outputRate, 0.8 * nyquist),
+                toneGainDb(inputRate, outputRate, 0.9 * nyquist), aliasRejectionDb(inputRate, outputRate));
+    }
+
+    // Converts one second of a unit sine and returns the output's middle half
+    private double[] convertTone(int inputRate, int outputRate, double frequency) {
+        PolyphaseResampler tone = new PolyphaseResampler(inputRate, outputRate, quality);
+        float[] in = new float[inputRate];
+        for (int i = 0; i < in.length; i++)
+            in[i] = (float) Math.sin(2 * Math.PI * frequency * i / inputRate);
+        float[] out = new float[tone.maxOutputLength(in.length)];
+        int produced = tone.process(in, 0, in.length, out, 0);
+
+        double[] middle = new double[produced / 2];
+        for (int i = 0; i < middle.length; i++)
+            middle[i] = out[produced / 4 + i];
+        return middle;
+    }
+
+    // Least-squares fit of a sine and cosine at the tone's frequency: {tone power, power of everything else}
+    private static double[] fitTone(double[] samples, double frequency, int rate) {
+        double ss = 0, cc = 0, sc = 0, sy = 0, cy = 0, total = 0;
+        for (int i = 0; i < samples.length; i++) {
+            double s = Math.sin(2 * Math.PI * frequency * i / rate);
+            double c = Math.cos(2 * Math.PI * frequency * i / rate);
+            ss += s * s;
+            cc += c * c;
+            sc += s * c;
+            sy += s * samples[i];
+            cy += c * samples[i];
+            total += samples[i] * samples[i];
+        }
+        double det = ss * cc - sc * sc;
+        double a = (sy * cc - cy * sc) / det;
+        double b = (cy * ss - sy * sc) / det;
+        double tone = a * sy + b * cy;
+        return new double[] { tone / samples.length, Math.max(total - tone, 0) / samples.length };
+    }
+
+    private double toneGainDb(int inputRate, int outputRate, double frequency) {
+        double[] fit = fitTone(convertTone(inputRate, outputRate, frequency), frequency, outputRate);
+        return 10 * Math.log10(fit[0] / 0.5);
+    }
+
+    private double aliasRejectionDb(int inputRate, int outputRate) {
+        if (outputRate > inputRate) {
+            double frequency = quality.passband() * inputRate / 2.0;
+            double[] fit = fitTone(convertTone(inputRate, outputRate, frequency), frequency, outputRate);
+            return 10 * Math.log10(fit[0] / fit[1]);
+        }
+
+        // Worst output level for tones from just past the stopband edge up to just below the input's Nyquist
+        double nyquist = outputRate / 2.0;
+        double worst = 0;
+        for (double frequency = (2.01 - quality.passband()) * nyquist; frequency < 0.98 * inputRate / 2.0;
+                frequency += 0.05 * nyquist) {
+            double[] samples = convertTone(inputRate, outputRate, frequency);
+            double power = 0;
+            for (double sample : samples)
+                power += sample * sample;
+            worst = Math.max(worst, power / samples.length);
+        }
+        return 10 * Math.log10(0.5 / worst);
+    }
+
+    private double toneSnr(int inputRate, int outputRate) {
+        PolyphaseResampler tone = new PolyphaseResampler(inputRate, outputRate, quality);
+        int length = inputRate;
+        float[] in = new float[length];
+        for (int i = 0; i < length; i++)
+            in[i] = (float) (0.5 * Math.sin(2 * Math.PI * 1000 * i / inputRate));
+        float[] out = new float[tone.maxOutputLength(length)];
+        int produced = tone.process(in, 0, length, out, 0);
+
+        double delay = tone.getLatencySamples() / inputRate;
+        double signal = 0;
+        double noise = 0;
+        for (int i = produced / 4; i < produced * 3 / 4; i++) {
+            double expected = 0.5 * Math.sin(2 * Math.PI * 1000 * (i / (double) outputRate - delay));
+            signal += expected * expected;
+            noise += (out[i] - expected) * (out[i] - expected);
+        }
+        return 10 * Math.log10(signal / noise);
+    }
+
+    @Benchmark
+    public float[] block() {
+        resampler.process(input, 0, BLOCK_SIZE, output, 0);
+        return output;
+    }
+}
@@ -0,0 +1,74 @@
+package org.bunnys.bench;
+
+import org.bunnys.audio.processing.SpectrumAnalyzer;
+import org.bunnys.audio.processing.WindowFunction;
+import org.bunnys.constants.AudioConstants;
+import org.bunnys.ui.SpectrogramPanel;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The two halves of the spectrogram's per-frame cost: writing one FFT frame as a column (the analyser
+ * thread) and painting the panel at a typical on-screen size (the EDT), for short and long histories.
+ * The paint time should not move with {@code columns}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class SpectrogramBenchmark {
+    private static final int PANEL_WIDTH = 1280;
+    private static final int PANEL_HEIGHT = 360;
+
+    @Param({ "256", "1024", "8192" })
+    public int columns;
+
+    private SpectrogramPanel panel;
+    private float[] magnitudes;
+    private int binCount;
+    private float binWidth;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setup() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(AudioConstants.DEFAULT_FFT_SIZE,
+                AudioConstants.DEFAULT_FFT_SIZE, WindowFunction.HANN, SyntheticSignal.SAMPLE_RATE,
+                (frame, bins, width) -> {
+                    magnitudes = frame.clone();
+                    binCount = bins;
+                    binWidth = width;
+                });
+        float[] samples = SyntheticSignal.samples(AudioConstants.DEFAULT_FFT_SIZE);
+        analyzer.accept(samples, 0, samples.length);
+
+        panel = new SpectrogramPanel(AudioConstants.FULL_SCALE, SyntheticSignal.SAMPLE_RATE, columns,
+                AudioConstants.SPECTROGRAM_ROWS);
+        panel.setSize(PANEL_WIDTH, PANEL_HEIGHT);
+        for (int i = 0; i < columns / 2; i++)
+            panel.updateSpectrum(magnitudes, binCount, binWidth);
+
+        graphics = new BufferedImage(PANEL_WIDTH, PANEL_HEIGHT, BufferedImage.TYPE_INT_RGB).createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public SpectrogramPanel column() {
+        panel.updateSpectrum(magnitudes, binCount, binWidth);
+        return panel;
+    }
+
+    @Benchmark
+    public SpectrogramPanel paint() {
+        panel.paint(graphics);
+        return panel;
+    }
+}
@@ -0,0 +1,38 @@
+package org.bunnys.bench;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic test signal for the benchmarks: two tones plus a little noise, at roughly -6 dBFS,
+ * normalised like the capture pipeline's samples.
+ */
+public final class SyntheticSignal {
+    public static final float SAMPLE_RATE = 44100f;
+
+    private SyntheticSignal() {
+    } // Prevent instantiation
+
+    public static float[] samples(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        float[] samples = new float[count];
+        for (int i = 0; i < count; i++) {
+            double t = i / SAMPLE_RATE;
+            double value = 0.35 * Math.sin(2 * Math.PI * 440 * t)
+                    + 0.15 * Math.sin(2 * Math.PI * 3150 * t)
+                    + 0.02 * (random.nextDouble() * 2 - 1);
+            samples[i] = (float) value;
+        }
+        return samples;
+    }
+
+    public static byte[] pcm16BigEndian(int sampleCount) {
+        float[] samples = samples(sampleCount);
+        byte[] bytes = new byte[sampleCount * 2];
+        for (int i = 0; i < sampleCount; i++) {
+            int sample = Math.round(samples[i] * 32767);
+            bytes[2 * i] = (byte) (sample >> 8);
+            bytes[2 * i + 1] = (byte) sample;
+        }
+        return bytes;
+    }
+}
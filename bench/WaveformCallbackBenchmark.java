@@ -0,0 +1,64 @@
+package org.bunnys.bench;
+
+import org.bunnys.audio.AudioFormatFactory;
+import org.bunnys.audio.buffer.SampleRingBuffer;
+import org.bunnys.audio.metrics.PipelineMetrics;
+import org.bunnys.audio.processing.LowPassFilter;
+import org.bunnys.audio.processing.ProcessorChain;
+import org.bunnys.audio.recording.AudioRecorder;
+import org.bunnys.constants.AudioConstants;
+import org.bunnys.ui.PeakPyramid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One block through the path that feeds the waveform: ring write, ring read, processor chain and the
+ * pyramid update the chart renders from. Both ends run on the benchmark thread so it is deterministic.
+ * {@code instrumented=true} adds what {@link PipelineMetrics} costs the real pipeline per block: the
+ * capture mark, the latency record and per-stage timing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WaveformCallbackBenchmark {
+    @Param({ "false", "true" })
+    public boolean instrumented;
+
+    private float[] captured;
+    private float[] block;
+    private SampleRingBuffer ring;
+    private SampleRingBuffer.Reader reader;
+    private ProcessorChain chain;
+    private PeakPyramid pyramid;
+    private PipelineMetrics metrics;
+
+    @Setup
+    public void setup() {
+        captured = SyntheticSignal.samples(AudioConstants.PROCESSING_BLOCK_SIZE);
+        block = new float[AudioConstants.PROCESSING_BLOCK_SIZE];
+        ring = new SampleRingBuffer(AudioConstants.RING_BUFFER_CAPACITY);
+        reader = ring.newReader("benchmark");
+        chain = new ProcessorChain(new LowPassFilter(0.1f));
+        pyramid = new PeakPyramid((long) (SyntheticSignal.SAMPLE_RATE * 180));
+        if (instrumented)
+            metrics = new PipelineMetrics(ring, chain, () -> new AudioRecorder(AudioFormatFactory.createDefaultFormat()));
+    }
+
+    @Benchmark
+    public float[] captureToWaveform() {
+        ring.write(captured, 0, captured.length);
+        if (instrumented)
+            metrics.recordCapture(ring.writeSequence(), System.nanoTime(), captured.length * 2, 0);
+
+        int length = reader.read(block, 0, block.length);
+        if (instrumented)
+            metrics.recordBlock(reader.position());
+        chain.process(block, 0, length);
+        pyramid.append(block, 0, length);
+        return block;
+    }
+}
@@ -3,6 +3,8 @@ package org.bunnys;
 import org.bunnys.audio.AudioFormatFactory;
 import org.bunnys.audio.device.AudioDeviceManager;
 import org.bunnys.constants.AudioConstants;
+import org.bunnys.headless.HeadlessApplication;
+import org.bunnys.headless.HeadlessOptions;
 import org.bunnys.ui.MainWindow;
 
 import javax.sound.sampled.AudioFormat;
@@ -16,6 +18,12 @@ public class Main {
         Thread.setDefaultUncaughtExceptionHandler((thread, throwable) -> LOGGER.log(Level.SEVERE,
                 "Uncaught exception in thread " + thread.getName(), throwable));
 
+        // Headless mode must not load any AWT/Swing classes, so it branches off before the UI is touched
+        if (HeadlessOptions.isHeadless(args)) {
+            runHeadless(args);
+            return;
+        }
+
         try {
             MainWindow mainWindow = getMainWindow();
 
@@ -32,6 +40,56 @@ public class Main {
         }
     }
 
+    private static void runHeadless(String[] args) {
+        HeadlessOptions options;
+        try {
+            options = HeadlessOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        if (options.listDevices()) {
+            HeadlessApplication.listDevices();
+            return;
+        }
+
+        if (options.batch() != null) {
+            runBatch(options);
+            return;
+        }
+
+        try {
+            HeadlessApplication application = new HeadlessApplication(options);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                LOGGER.info("Shutting down");
+                application.close();
+            }));
+            if (!application.run())
+                System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Headless capture failed to start", e);
+            System.err.println("Fatal error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void runBatch(HeadlessOptions options) {
+        try {
+            if (!HeadlessApplication.runBatch(options))
+                System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Batch processing failed", e);
+            System.err.println("Fatal error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
     private static MainWindow getMainWindow() {
         AudioFormat format = AudioFormatFactory.createDefaultFormat();
         AudioDeviceManager deviceManager = new AudioDeviceManager(format);
@@ -42,6 +100,6 @@ public class Main {
         return new MainWindow(
                 format,
                 deviceManager,
-                AudioConstants.DEFAULT_SAMPLE_SIZE);
+                AudioConstants.DEFAULT_WAVEFORM_WINDOW_MS);
     }
 }
\ No newline at end of file
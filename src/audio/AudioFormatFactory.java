@@ -4,6 +4,24 @@ import javax.sound.sampled.AudioFormat;
 
 public class AudioFormatFactory {
     public static AudioFormat createDefaultFormat() {
-        return new AudioFormat(44100.0f, 16, 1, true, true);
+        return createDefaultFormat(44100.0f);
+    }
+
+    public static AudioFormat createDefaultFormat(float sampleRate) {
+        return new AudioFormat(sampleRate, 16, 1, true, true);
+    }
+
+    public static AudioFormat createMonoFormat(AudioFormat format) {
+        int sampleBytes = (format.getSampleSizeInBits() + 7) / 8;
+        return new AudioFormat(format.getEncoding(), format.getSampleRate(), format.getSampleSizeInBits(), 1,
+                sampleBytes, format.getSampleRate(), format.isBigEndian());
+    }
+
+    /**
+     * {@code format} with only its sample and frame rate changed, e.g. a device's encoding at the pipeline's rate.
+     */
+    public static AudioFormat withSampleRate(AudioFormat format, float sampleRate) {
+        return new AudioFormat(format.getEncoding(), sampleRate, format.getSampleSizeInBits(), format.getChannels(),
+                format.getFrameSize(), sampleRate, format.isBigEndian());
     }
 }
\ No newline at end of file
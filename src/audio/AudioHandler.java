@@ -1,11 +1,36 @@
 package org.bunnys.audio;
 
+import org.bunnys.audio.buffer.HistoryBuffer;
+import org.bunnys.audio.buffer.RingBufferConsumer;
+import org.bunnys.audio.buffer.SampleRingBuffer;
+import org.bunnys.audio.codec.PcmCodec;
+import org.bunnys.audio.device.AudioDeviceManager;
+import org.bunnys.audio.device.DeviceInfo;
+import org.bunnys.audio.device.DeviceRegistry;
+import org.bunnys.audio.metrics.PipelineMetrics;
 import org.bunnys.audio.processing.AudioProcessor;
+import org.bunnys.audio.processing.AudioProcessorAdapter;
+import org.bunnys.audio.processing.BlockProcessor;
+import org.bunnys.audio.processing.LoudnessMeter;
+import org.bunnys.audio.processing.PolyphaseResampler;
+import org.bunnys.audio.processing.ProcessorChain;
 import org.bunnys.constants.AudioConstants;
-import org.bunnys.audio.recording.AudioRecorder;
+import org.bunnys.audio.recording.Recorder;
+import org.bunnys.audio.recording.StreamingWavRecorder;
+import org.bunnys.audio.source.AudioSource;
+import org.bunnys.audio.source.LineAudioSource;
 
-import javax.sound.sampled.*;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.Mixer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -13,116 +38,498 @@ import java.util.logging.Logger;
 public class AudioHandler implements AutoCloseable {
     private static final Logger LOGGER = Logger.getLogger(AudioHandler.class.getName());
 
+    // While a pre-roll is still being written out, each live block also drains this many blocks of backlog
+    private static final int PRE_ROLL_CATCH_UP_BLOCKS = 8;
+    // Flushing the backlog on stop waits while the recorder has this many buffers queued
+    private static final int FLUSH_QUEUE_LIMIT = 8;
+    private static final long FLUSH_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
     private final AudioFormat audioFormat;
-    private final AudioRecorder recorder;
+    private final AudioFormat recordingFormat;
+    private final PcmCodec recordingCodec;
     private final Consumer<float[]> waveformUpdateCallback;
     private final AtomicBoolean isRecording;
+    private final ProcessorChain processorChain;
+
+    // The capture thread only ever writes here, everything else reads on its own thread
+    private final SampleRingBuffer ringBuffer;
+    private final RingBufferConsumer processingConsumer;
+    private final RingBufferConsumer recordingConsumer;
+    private final List<RingBufferConsumer> extraConsumers;
+    private final byte[] recordingBytes;
+    private final float[] historyBlock;
+    private final Object recordingLock = new Object();
+    private final ThreadFactory threadFactory;
+    private final PipelineMetrics metrics;
+    private final LoudnessMeter loudnessMeter;
 
-    private TargetDataLine targetLine;
+    private volatile AudioSource source;
     private Thread captureThread;
     private volatile boolean isCapturing;
-    private volatile float[] audioBuffer;
-    private AudioProcessor currentProcessor;
+    private volatile Recorder recorder;
+    private volatile PolyphaseResampler.Quality resamplingQuality = PolyphaseResampler.Quality.BALANCED;
+    private volatile CaptureSettings captureSettings = CaptureSettings.DEFAULT;
+
+    // Source frames per read, followed by the capture thread from one read to the next
+    private volatile int readFrames;
+    private volatile double sourceFill;
+    // Only touched on the processing thread once published
+    private volatile BlockSizeTuner tuner;
+
+    // Guarded by recordingLock: the raw stream's recent past, and how far into it the recorder has got
+    private HistoryBuffer history;
+    private long recordedPosition;
 
     public AudioHandler(AudioFormat audioFormat, Consumer<float[]> waveformUpdateCallback) {
+        this(audioFormat, waveformUpdateCallback, null);
+    }
+
+    /**
+     * @param threadFactory creates the capture and consumer threads, or {@code null} for named platform
+     *                      daemon threads. Lets many handlers share virtual threads instead of three
+     *                      platform threads each.
+     */
+    public AudioHandler(AudioFormat audioFormat, Consumer<float[]> waveformUpdateCallback, ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
         this.audioFormat = audioFormat;
+        this.recordingFormat = AudioFormatFactory.createMonoFormat(audioFormat);
+        this.recordingCodec = PcmCodec.forFormat(recordingFormat);
         this.waveformUpdateCallback = waveformUpdateCallback;
-        this.recorder = new AudioRecorder(audioFormat);
+        this.recorder = new StreamingWavRecorder(recordingFormat);
         this.isRecording = new AtomicBoolean(false);
-        this.currentProcessor = null;
+        this.processorChain = new ProcessorChain();
+
+        this.ringBuffer = new SampleRingBuffer(AudioConstants.RING_BUFFER_CAPACITY);
+        this.recordingBytes = new byte[AudioConstants.PROCESSING_BLOCK_SIZE * recordingFormat.getFrameSize()];
+        this.historyBlock = new float[AudioConstants.PROCESSING_BLOCK_SIZE];
+        this.history = new HistoryBuffer(preRollCapacity(AudioConstants.DEFAULT_PRE_ROLL_SECONDS));
+        this.processingConsumer = new RingBufferConsumer(ringBuffer.newReader("processing"),
+                AudioConstants.PROCESSING_BLOCK_SIZE, this::processBlock);
+        this.recordingConsumer = new RingBufferConsumer(ringBuffer.newReader("recording"),
+                AudioConstants.PROCESSING_BLOCK_SIZE, this::recordBlock);
+        this.extraConsumers = new CopyOnWriteArrayList<>();
+        this.metrics = new PipelineMetrics(ringBuffer, processorChain, () -> this.recorder);
+        this.loudnessMeter = new LoudnessMeter(audioFormat.getSampleRate(), AudioConstants.FULL_SCALE);
+
+        startConsumer(processingConsumer, "AudioProcessingThread");
+        startConsumer(recordingConsumer, "AudioRecordingThread");
+    }
+
+    private void startConsumer(RingBufferConsumer consumer, String threadName) {
+        if (threadFactory == null)
+            consumer.start(threadName);
+        else
+            consumer.start(threadFactory);
     }
 
+    /**
+     * Captures from a sound card in this handler's format, or in the device's closest native format
+     * (converted to this handler's rate) if it does not take ours.
+     */
     public void startCapture(Mixer.Info selectedDevice) {
         if (selectedDevice == null)
             throw new IllegalArgumentException("Selected device cannot be null");
 
+        DeviceInfo device = DeviceRegistry.getDefault().find(selectedDevice);
+        AudioFormat format = device == null || device.supports(audioFormat) ? audioFormat
+                : AudioDeviceManager.getNativeFormat(device, audioFormat.getSampleRate()).orElse(audioFormat);
+        startCapture(new LineAudioSource(selectedDevice, format,
+                captureSettings.lineBufferFrames() * format.getFrameSize()));
+    }
+
+    /**
+     * Starts pulling audio from {@code source}, replacing the current source. Any encoding and channel
+     * count the codecs support is accepted. A source at another sample rate is converted to this
+     * handler's rate on the capture thread, at the {@link #setResamplingQuality quality} set when it starts.
+     * Reads and blocks follow the current {@link #setCaptureSettings capture settings}.
+     */
+    public void startCapture(AudioSource source) {
+        float sourceRate = source.getFormat().getSampleRate();
+        PolyphaseResampler resampler = sourceRate == audioFormat.getSampleRate() ? null
+                : PolyphaseResampler.forRates(sourceRate, audioFormat.getSampleRate(), resamplingQuality);
+
         stopCapture();
 
         try {
-            setupTargetLine(selectedDevice);
-            startCaptureThread();
-        } catch (LineUnavailableException e) {
+            source.open();
+            this.source = source;
+            if (resampler != null)
+                LOGGER.info("Converting " + source.getName() + " from " + sourceRate + " Hz to "
+                        + audioFormat.getSampleRate() + " Hz");
+            startCaptureThread(source, resampler);
+        } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Failed to start capture", e);
         }
     }
 
-    private void setupTargetLine(Mixer.Info selectedDevice) throws LineUnavailableException {
-        Mixer mixer = AudioSystem.getMixer(selectedDevice);
-        DataLine.Info targetInfo = new DataLine.Info(TargetDataLine.class, audioFormat);
-
-        if (!mixer.isLineSupported(targetInfo))
-            throw new LineUnavailableException("Selected device does not support the required format");
+    private void startCaptureThread(AudioSource source, PolyphaseResampler resampler) {
+        float realTimeRate = source.isRealTime() ? audioFormat.getSampleRate() : 0;
+        for (RingBufferConsumer consumer : allConsumers()) {
+            consumer.setFlushPartialBlocks(false);
+            consumer.setRealTimeRate(realTimeRate);
+        }
+        // The ring already waits for the recording reader, so a recorder that waits too loses nothing
+        recorder.setBlocking(!source.isRealTime());
 
-        targetLine = (TargetDataLine) mixer.getLine(targetInfo);
-        targetLine.open(audioFormat);
-        targetLine.start();
-    }
+        CaptureSettings settings = captureSettings;
+        AudioFormat sourceFormat = source.getFormat();
+        readFrames = settings.readFramesFor(sourceFormat.getFrameSize());
+        sourceFill = 0;
+        loudnessMeter.reset();
+        processingConsumer.setBlockSize(settings.blockFrames());
+        tuner = settings.adaptive()
+                ? new BlockSizeTuner(settings.blockFrames(), CaptureSettings.MIN_BLOCK_FRAMES,
+                        CaptureSettings.MAX_BLOCK_FRAMES, audioFormat.getSampleRate())
+                : null;
+        metrics.setSourceFormat(sourceFormat.getFrameSize(), sourceFormat.getSampleRate());
+        metrics.setBlockSizes(readFrames, settings.blockFrames());
 
-    private void startCaptureThread() {
         isCapturing = true;
-        captureThread = new Thread(this::captureAudio, "AudioCaptureThread");
-        captureThread.setDaemon(true);
+        if (threadFactory == null) {
+            captureThread = new Thread(() -> captureAudio(source, resampler), "AudioCaptureThread");
+            captureThread.setDaemon(true);
+        } else {
+            captureThread = threadFactory.newThread(() -> captureAudio(source, resampler));
+        }
         captureThread.start();
     }
 
-    private void captureAudio() {
-        byte[] buffer = new byte[AudioConstants.BUFFER_SIZE];
-        while (isCapturing && targetLine.isOpen()) {
-            int bytesRead = targetLine.read(buffer, 0, buffer.length);
+    private void captureAudio(AudioSource source, PolyphaseResampler resampler) {
+        PcmCodec codec = PcmCodec.forFormat(source.getFormat());
+        int frameSize = codec.getFrameSize();
+        // Sized for the largest read the tuner could ask for
+        int maxReadFrames = Math.max(readFrames, CaptureSettings.MAX_BLOCK_FRAMES);
+        byte[] buffer = new byte[maxReadFrames * frameSize];
+        float[] samples = new float[maxReadFrames];
+        int sourceBufferSize = source.getBufferSize();
+        float[] resampled = resampler != null ? new float[resampler.maxOutputLength(samples.length)] : null;
+
+        // Sources faster than real time wait for the slowest consumer instead of overrunning it
+        boolean gated = !source.isRealTime();
+
+        try {
+            while (isCapturing) {
+                int bytesRead = source.read(buffer, 0, Math.min(readFrames, maxReadFrames) * frameSize);
+                long readTime = System.nanoTime();
+                if (bytesRead < 0) {
+                    LOGGER.info("Capture source ended: " + source.getName());
+                    for (RingBufferConsumer consumer : allConsumers())
+                        consumer.setFlushPartialBlocks(true);
+                    break;
+                }
 
-            if (bytesRead > 0)
-                processAudioData(buffer, bytesRead);
+                if (bytesRead > 0) {
+                    publishAudioData(codec, buffer, bytesRead / frameSize, samples, resampler, resampled, gated);
+                    int backlog = source.available();
+                    metrics.recordCapture(ringBuffer.writeSequence(), readTime, bytesRead, backlog);
+                    if (sourceBufferSize > 0)
+                        sourceFill = backlog / (double) sourceBufferSize;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Capture from " + source.getName() + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    private synchronized void processAudioData(byte[] buffer, int bytesRead) {
-        if (isRecording.get())
-            recorder.writeData(buffer, bytesRead);
+    // Runs on the capture thread: decode (mixing down to mono) into the reused sample array, convert the
+    // rate if needed and hand it to the ring
+    private void publishAudioData(PcmCodec codec, byte[] buffer, int frames, float[] samples,
+            PolyphaseResampler resampler, float[] resampled, boolean gated) throws InterruptedException {
+        codec.decodeMono(buffer, 0, frames, samples, 0);
+        if (resampler != null) {
+            frames = resampler.process(samples, 0, frames, resampled, 0);
+            samples = resampled;
+        }
+
+        if (gated)
+            ringBuffer.awaitCapacity(frames);
+        ringBuffer.write(samples, 0, frames);
+    }
+
+    /**
+     * Blocks until a finite source has ended and every consumer has handled all of its audio.
+     */
+    public void awaitSourceEnd() throws InterruptedException {
+        Thread thread = captureThread;
+        if (thread != null)
+            thread.join();
 
-        float[] samples = new float[bytesRead / 2];
-        for (int i = 0; i < samples.length; i++) {
-            samples[i] = (buffer[2 * i] << 8) | (buffer[2 * i + 1] & 0xFF);
+        for (RingBufferConsumer consumer : allConsumers()) {
+            while (!consumer.isCaughtUp())
+                Thread.sleep(1);
         }
+    }
+
+    private List<RingBufferConsumer> allConsumers() {
+        List<RingBufferConsumer> consumers = new ArrayList<>(extraConsumers);
+        consumers.add(processingConsumer);
+        consumers.add(recordingConsumer);
+        return consumers;
+    }
+
+    private void processBlock(float[] block, int length) {
+        long start = System.nanoTime();
+        metrics.recordBlock(processingConsumer.reader().position());
+        processorChain.process(block, 0, length);
+        loudnessMeter.accept(block, 0, length);
 
-        if (currentProcessor != null)
-            samples = currentProcessor.process(samples);
+        // Only the last block of a finished source is ever short
+        waveformUpdateCallback.accept(length == block.length ? block : Arrays.copyOf(block, length));
+
+        BlockSizeTuner currentTuner = tuner;
+        if (currentTuner != null) {
+            long now = System.nanoTime();
+            SampleRingBuffer.Reader reader = processingConsumer.reader();
+            int tuned = currentTuner.onBlock(now, now - start, reader.getOverrunCount(), reader.available(), sourceFill);
+            if (tuned != block.length)
+                resizeBlocks(tuned);
+        }
+    }
 
-        this.audioBuffer = samples;
-        waveformUpdateCallback.accept(samples);
+    // Reads follow the block size both ways, but stay within half a line buffer so the line never fills mid-read
+    private void resizeBlocks(int blockFrames) {
+        processingConsumer.setBlockSize(blockFrames);
+        int lineBufferFrames = captureSettings.lineBufferFrames();
+        readFrames = lineBufferFrames > 0 ? Math.max(1, Math.min(blockFrames, lineBufferFrames / 2)) : blockFrames;
+        metrics.setBlockSizes(readFrames, blockFrames);
+        LOGGER.fine("Block size tuned to " + blockFrames + " frames");
+    }
+
+    /*
+     * Every block goes into the history whether or not we are recording. A session starts its recorder
+     * at the oldest sample still held, and until it catches up each live block is only appended to the
+     * history while the recorder drains a few blocks of backlog, oldest first. Draining before appending
+     * keeps the unwritten backlog inside the ring, so the pre-roll and the live audio meet exactly.
+     */
+    private void recordBlock(float[] block, int length) {
+        synchronized (recordingLock) {
+            if (isRecording.get()) {
+                long backlogEnd = history.position();
+                if (recordedPosition < backlogEnd)
+                    writeHistory(Math.min(backlogEnd, recordedPosition + (long) PRE_ROLL_CATCH_UP_BLOCKS * block.length), false);
+
+                if (recordedPosition == backlogEnd) {
+                    writeSamples(block, length);
+                    recordedPosition += length;
+                }
+            }
+            history.write(block, 0, length);
+        }
+    }
+
+    // Caller holds recordingLock
+    private void writeHistory(long until, boolean paced) {
+        while (recordedPosition < until) {
+            if (paced) {
+                while (recorder.getQueueDepth() >= FLUSH_QUEUE_LIMIT)
+                    LockSupport.parkNanos(FLUSH_WAIT_NANOS);
+            }
+
+            int count = (int) Math.min(historyBlock.length, until - recordedPosition);
+            history.read(recordedPosition, historyBlock, 0, count);
+            writeSamples(historyBlock, count);
+            recordedPosition += count;
+        }
+    }
+
+    private void writeSamples(float[] samples, int length) {
+        recordingCodec.encode(samples, 0, recordingBytes, 0, length);
+        recorder.writeData(recordingBytes, length * recordingFormat.getFrameSize());
     }
 
     public void startRecording() {
-        recorder.reset();
-        isRecording.set(true);
+        startRecording(AudioConstants.DEFAULT_RECORDING_FILENAME);
     }
 
+    /**
+     * Starts a recording that begins with the pre-roll: the last {@link #getPreRollSeconds()} of audio
+     * captured before this call, followed seamlessly by the live stream.
+     */
+    public void startRecording(String filename) {
+        synchronized (recordingLock) {
+            recorder.start(filename);
+            recordedPosition = history.oldestPosition();
+            isRecording.set(true);
+        }
+    }
+
+    public boolean isRecording() {
+        return isRecording.get();
+    }
+
+    /**
+     * Stops recording. Any pre-roll not yet written out is flushed first, so this can take a moment
+     * right after a long pre-roll was started.
+     */
     public void stopRecording() {
-        isRecording.set(false);
-        recorder.saveRecording(AudioConstants.DEFAULT_RECORDING_FILENAME);
+        synchronized (recordingLock) {
+            if (isRecording.getAndSet(false))
+                writeHistory(history.position(), true);
+            recorder.stop();
+        }
     }
 
-    public void applyAudioProcessor(AudioProcessor processor) {
-        synchronized (this) {
-            if (audioBuffer == null || audioBuffer.length == 0) {
-                LOGGER.warning("Audio processor: No audio data to process.");
-                return;
-            }
+    /**
+     * Sets how much audio from before {@link #startRecording} is included in each recording, up to
+     * {@link AudioConstants#MAX_PRE_ROLL_SECONDS}. The history is held off-heap in a buffer of exactly
+     * that length and is started afresh by this call; 0 disables the pre-roll.
+     */
+    public void setPreRollSeconds(double seconds) {
+        if (!(seconds >= 0 && seconds <= AudioConstants.MAX_PRE_ROLL_SECONDS))
+            throw new IllegalArgumentException("Pre-roll must be between 0 and " + AudioConstants.MAX_PRE_ROLL_SECONDS
+                    + " seconds: " + seconds);
 
-            if (this.currentProcessor != processor) {
-                this.currentProcessor = processor;
-                float[] processed = processor.process(audioBuffer);
-                this.audioBuffer = processed;
-                waveformUpdateCallback.accept(processed);
-            }
+        synchronized (recordingLock) {
+            if (isRecording.get())
+                throw new IllegalStateException("Cannot change the pre-roll while recording");
+
+            int capacity = preRollCapacity(seconds);
+            if (capacity != history.capacity())
+                history = new HistoryBuffer(capacity);
+        }
+    }
+
+    public double getPreRollSeconds() {
+        synchronized (recordingLock) {
+            return history.capacity() / (double) audioFormat.getSampleRate();
         }
     }
 
+    private int preRollCapacity(double seconds) {
+        return (int) Math.round(seconds * audioFormat.getSampleRate());
+    }
+
+    public void setRecorder(Recorder recorder) {
+        if (recorder == null)
+            throw new IllegalArgumentException("Recorder cannot be null");
+        if (isRecording.get())
+            throw new IllegalStateException("Cannot change the recorder while recording");
+
+        AudioSource current = source;
+        recorder.setBlocking(current != null && !current.isRealTime());
+        this.recorder = recorder;
+    }
+
+    public Recorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Sets the read, line buffer and block sizes, and whether the block size adapts to the load. The block
+     * size changes at once; the rest applies from the next {@link #startCapture} on.
+     */
+    public void setCaptureSettings(CaptureSettings settings) {
+        if (settings == null)
+            throw new IllegalArgumentException("Capture settings cannot be null");
+
+        this.captureSettings = settings;
+        processingConsumer.setBlockSize(settings.blockFrames());
+        metrics.setBlockSizes(readFrames, settings.blockFrames());
+    }
+
+    public CaptureSettings getCaptureSettings() {
+        return captureSettings;
+    }
+
+    /**
+     * Samples per processing block right now, which the tuner may have moved away from the settings.
+     */
+    public int getBlockFrames() {
+        return processingConsumer.getBlockSize();
+    }
+
+    /**
+     * Filter quality used to convert sources captured at another sample rate, from the next
+     * {@link #startCapture} on.
+     */
+    public void setResamplingQuality(PolyphaseResampler.Quality quality) {
+        if (quality == null)
+            throw new IllegalArgumentException("Resampling quality cannot be null");
+        this.resamplingQuality = quality;
+    }
+
+    public PolyphaseResampler.Quality getResamplingQuality() {
+        return resamplingQuality;
+    }
+
+    public void applyAudioProcessor(BlockProcessor processor) {
+        processor.reset();
+        processorChain.setStages(processor);
+    }
+
+    public void applyAudioProcessor(AudioProcessor processor) {
+        processorChain.setStages(AudioProcessorAdapter.asBlockProcessor(processor));
+    }
+
     public void removeAudioProcessor() {
-        synchronized (this) {
-            this.currentProcessor = null;
+        processorChain.clear();
+    }
+
+    public ProcessorChain getProcessorChain() {
+        return processorChain;
+    }
+
+    /**
+     * Attaches another reader of the raw capture stream (before the processor chain), running on its own thread.
+     */
+    public RingBufferConsumer addConsumer(String name, int blockSize, RingBufferConsumer.BlockHandler handler) {
+        RingBufferConsumer consumer = new RingBufferConsumer(ringBuffer.newReader(name), blockSize, handler);
+        AudioSource current = source;
+        if (current != null && current.isRealTime())
+            consumer.setRealTimeRate(audioFormat.getSampleRate());
+        extraConsumers.add(consumer);
+        startConsumer(consumer, "Audio-" + name);
+        return consumer;
+    }
+
+    public void removeConsumer(RingBufferConsumer consumer) {
+        if (extraConsumers.remove(consumer)) {
+            consumer.stop();
+            ringBuffer.removeReader(consumer.reader());
         }
     }
 
+    public AudioFormat getAudioFormat() {
+        return audioFormat;
+    }
+
+    /**
+     * Format of the mono stream the recorder receives: the capture encoding and sample size, one channel.
+     */
+    public AudioFormat getRecordingFormat() {
+        return recordingFormat;
+    }
+
+    public SampleRingBuffer getRingBuffer() {
+        return ringBuffer;
+    }
+
+    /**
+     * Latency, backlog, drop and recorder figures for this pipeline; see {@link PipelineMetrics#register}
+     * to expose them over JMX.
+     */
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Peak, true peak, RMS and R128 loudness of the processed stream, as heard after the processor chain.
+     * Measurement restarts with each capture; poll {@link LoudnessMeter#getSnapshot()} from any thread.
+     */
+    public LoudnessMeter getLoudnessMeter() {
+        return loudnessMeter;
+    }
+
+    public long getOverrunCount() {
+        return ringBuffer.getOverrunCount();
+    }
+
+    public long getUnderrunCount() {
+        return ringBuffer.getUnderrunCount();
+    }
+
     public void stopCapture() {
         isCapturing = false;
         if (captureThread != null) {
@@ -133,14 +540,19 @@ public class AudioHandler implements AutoCloseable {
                 Thread.currentThread().interrupt();
             }
         }
-        if (targetLine != null) {
-            targetLine.stop();
-            targetLine.close();
+        if (source != null) {
+            source.close();
+            source = null;
         }
     }
 
     @Override
     public void close() {
         stopCapture();
+        processingConsumer.stop();
+        recordingConsumer.stop();
+        for (RingBufferConsumer consumer : extraConsumers)
+            removeConsumer(consumer);
+        metrics.unregister();
     }
 }
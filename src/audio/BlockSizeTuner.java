@@ -0,0 +1,87 @@
+package org.bunnys.audio;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the processing block size at runtime, on the processing thread: the smallest power of two the
+ * pipeline keeps up with.
+ * <p>
+ * Every {@link #EVALUATION_NANOS} it looks at what happened since the last look. Any overrun, a block
+ * that took more than {@link #LOAD_LIMIT} of its own duration to process, a backlog of more than two
+ * blocks in the ring, or a source buffer close to full counts as trouble: the size doubles at once and
+ * stays at least there for {@link #HOLD_NANOS}. After {@link #STABLE_EVALUATIONS} quiet evaluations in a
+ * row it halves again, so it probes back down and settles just above where trouble starts.
+ */
+final class BlockSizeTuner {
+    static final long EVALUATION_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    static final long HOLD_NANOS = TimeUnit.SECONDS.toNanos(10);
+    static final int STABLE_EVALUATIONS = 4;
+    static final double LOAD_LIMIT = 0.5;
+    private static final double SOURCE_FULL = 0.75;
+
+    private final int minFrames;
+    private final int maxFrames;
+    private final float sampleRate;
+
+    private int blockFrames;
+    private long windowStart;
+    private long lastOverruns;
+    private long maxProcessNanos;
+    private int maxBacklogFrames;
+    private double maxSourceFill;
+    private int stableEvaluations;
+    private long holdUntil;
+
+    BlockSizeTuner(int initialFrames, int minFrames, int maxFrames, float sampleRate) {
+        this.minFrames = Integer.highestOneBit(minFrames);
+        this.maxFrames = maxFrames;
+        this.sampleRate = sampleRate;
+        this.blockFrames = Math.max(this.minFrames, Math.min(maxFrames, initialFrames));
+    }
+
+    /**
+     * Records one processed block and returns the block size to use from now on.
+     *
+     * @param overruns   the consumer's cumulative overrun count
+     * @param sourceFill how full the source's own buffer was at the last read, 0 to 1, or 0 if unknown
+     */
+    int onBlock(long now, long processNanos, long overruns, int backlogFrames, double sourceFill) {
+        if (windowStart == 0) {
+            windowStart = now;
+            holdUntil = now;
+            lastOverruns = overruns;
+        }
+        maxProcessNanos = Math.max(maxProcessNanos, processNanos);
+        maxBacklogFrames = Math.max(maxBacklogFrames, backlogFrames);
+        maxSourceFill = Math.max(maxSourceFill, sourceFill);
+
+        if (now - windowStart < EVALUATION_NANOS)
+            return blockFrames;
+
+        double blockNanos = blockFrames / (double) sampleRate * 1e9;
+        boolean trouble = overruns != lastOverruns
+                || maxProcessNanos > LOAD_LIMIT * blockNanos
+                || maxBacklogFrames > 2 * blockFrames
+                || maxSourceFill > SOURCE_FULL;
+
+        if (trouble) {
+            blockFrames = Math.min(maxFrames, blockFrames * 2);
+            stableEvaluations = 0;
+            holdUntil = now + HOLD_NANOS;
+        } else if (++stableEvaluations >= STABLE_EVALUATIONS && now - holdUntil >= 0 && blockFrames > minFrames) {
+            blockFrames = Math.max(minFrames, blockFrames / 2);
+            stableEvaluations = 0;
+        }
+
+        windowStart = now;
+        lastOverruns = overruns;
+        maxProcessNanos = 0;
+        maxBacklogFrames = 0;
+        maxSourceFill = 0;
+        return blockFrames;
+    }
+
+    int getBlockFrames() {
+        return blockFrames;
+    }
+}
@@ -0,0 +1,61 @@
+package org.bunnys.audio;
+
+import org.bunnys.constants.AudioConstants;
+
+/**
+ * How audio is pulled from the source and cut into blocks, which sets the pipeline's latency floor.
+ * All sizes are in frames.
+ *
+ * @param readFrames       frames per source read, or 0 for {@link AudioConstants#BUFFER_SIZE} bytes
+ * @param lineBufferFrames size of a sound card line's buffer, or 0 for the driver's default
+ * @param blockFrames      samples per block handed to the processor chain and the waveform callback
+ * @param adaptive         let the block size (and with it the read size) follow the measured load,
+ *                         shrinking while the pipeline keeps up and backing off on overruns
+ */
+public record CaptureSettings(int readFrames, int lineBufferFrames, int blockFrames, boolean adaptive) {
+    public static final int MIN_BLOCK_FRAMES = 64;
+    public static final int MAX_BLOCK_FRAMES = AudioConstants.PROCESSING_BLOCK_SIZE;
+
+    public static final CaptureSettings DEFAULT = new CaptureSettings(0, 0, AudioConstants.PROCESSING_BLOCK_SIZE, false);
+
+    /**
+     * A few milliseconds per read and block with a short line buffer, tuned at runtime from there.
+     */
+    public static final CaptureSettings LOW_LATENCY = new CaptureSettings(256, 1024, 256, true);
+
+    public CaptureSettings {
+        if (readFrames < 0)
+            throw new IllegalArgumentException("Read size cannot be negative: " + readFrames);
+        if (lineBufferFrames < 0)
+            throw new IllegalArgumentException("Line buffer size cannot be negative: " + lineBufferFrames);
+        if (lineBufferFrames > 0 && lineBufferFrames < readFrames)
+            throw new IllegalArgumentException("Line buffer of " + lineBufferFrames
+                    + " frames cannot hold a read of " + readFrames);
+        if (blockFrames < MIN_BLOCK_FRAMES || blockFrames > MAX_BLOCK_FRAMES)
+            throw new IllegalArgumentException("Block size must be between " + MIN_BLOCK_FRAMES + " and "
+                    + MAX_BLOCK_FRAMES + " frames: " + blockFrames);
+    }
+
+    /**
+     * Frames per read for a source with the given frame size.
+     */
+    public int readFramesFor(int frameSize) {
+        return readFrames > 0 ? readFrames : AudioConstants.BUFFER_SIZE / frameSize;
+    }
+
+    public CaptureSettings withReadFrames(int readFrames) {
+        return new CaptureSettings(readFrames, lineBufferFrames, blockFrames, adaptive);
+    }
+
+    public CaptureSettings withLineBufferFrames(int lineBufferFrames) {
+        return new CaptureSettings(readFrames, lineBufferFrames, blockFrames, adaptive);
+    }
+
+    public CaptureSettings withBlockFrames(int blockFrames) {
+        return new CaptureSettings(readFrames, lineBufferFrames, blockFrames, adaptive);
+    }
+
+    public CaptureSettings withAdaptive(boolean adaptive) {
+        return new CaptureSettings(readFrames, lineBufferFrames, blockFrames, adaptive);
+    }
+}
@@ -0,0 +1,37 @@
+package org.bunnys.audio.batch;
+
+/**
+ * How a {@link BatchProcessor} spreads its work.
+ *
+ * @param parallelism   worker threads in the pool
+ * @param splitSeconds  files longer than this are cut into pieces of this length, processed in parallel;
+ *                      zero keeps every file whole
+ * @param warmUpSeconds audio run through a fresh chain ahead of each piece after the first, so filter state
+ *                      has settled by the piece's first sample; convolution kernels are covered on top of this
+ */
+public record BatchPolicy(int parallelism, double splitSeconds, double warmUpSeconds) {
+    public static final BatchPolicy DEFAULT = new BatchPolicy(Runtime.getRuntime().availableProcessors(), 300, 1);
+
+    public BatchPolicy {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        if (splitSeconds < 0)
+            throw new IllegalArgumentException("Split length cannot be negative: " + splitSeconds);
+        if (warmUpSeconds < 0)
+            throw new IllegalArgumentException("Warm-up length cannot be negative: " + warmUpSeconds);
+        if (splitSeconds > 0 && warmUpSeconds >= splitSeconds)
+            throw new IllegalArgumentException("Warm-up must be shorter than the split length");
+    }
+
+    public BatchPolicy withParallelism(int parallelism) {
+        return new BatchPolicy(parallelism, splitSeconds, warmUpSeconds);
+    }
+
+    public BatchPolicy withSplitSeconds(double splitSeconds) {
+        return new BatchPolicy(parallelism, splitSeconds, warmUpSeconds);
+    }
+
+    public BatchPolicy withWarmUpSeconds(double warmUpSeconds) {
+        return new BatchPolicy(parallelism, splitSeconds, warmUpSeconds);
+    }
+}
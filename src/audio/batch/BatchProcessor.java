@@ -0,0 +1,408 @@
+package org.bunnys.audio.batch;
+
+import org.bunnys.audio.AudioFormatFactory;
+import org.bunnys.audio.codec.PcmCodec;
+import org.bunnys.audio.processing.BlockProcessor;
+import org.bunnys.audio.processing.PartitionedConvolver;
+import org.bunnys.audio.processing.ProcessorChain;
+import org.bunnys.audio.processing.ProcessorChainSpec;
+import org.bunnys.audio.recording.MappedRecording;
+import org.bunnys.audio.recording.WavFileWriter;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Runs a processor chain over recordings on disk as fast as the machine allows, instead of replaying them
+ * in real time.
+ * <p>
+ * Each file is streamed out of a {@link MappedRecording} {@value #CHUNK_FRAMES} frames at a time through a
+ * chain built from the spec for that file alone, so memory use does not grow with the recording. Files are
+ * tasks on a work-stealing {@link ForkJoinPool}. A file longer than {@link BatchPolicy#splitSeconds()} forks
+ * one task per piece, and idle workers steal pieces of whichever file is still busy, so a single long
+ * recording spreads across every core too. Each piece after the first runs a fresh chain from a warm-up
+ * length before its start and discards that output, which leaves the filter state where one continuous
+ * pass would have had it, then writes its range of the output file in place.
+ * <p>
+ * Output is mono, in the input's sample format, written next to each input as {@code <name>.processed.wav}.
+ * A CSV row with each file's throughput is appended to the report as soon as the file is done.
+ */
+public class BatchProcessor implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(BatchProcessor.class.getName());
+
+    public static final String OUTPUT_SUFFIX = ".processed.wav";
+    public static final String REPORT_NAME = "batch-report.csv";
+
+    private static final int CHUNK_FRAMES = 8192;
+    private static final int PROGRESS_INTERVAL_SECONDS = 5;
+    private static final String REPORT_HEADER =
+            "input,output,frames,audio_seconds,pieces,elapsed_ms,realtime_factor,error";
+
+    private final String chainSpec;
+    private final BatchPolicy policy;
+    private final ForkJoinPool pool;
+
+    // Input bytes processed so far, warm-up excluded, for the progress log
+    private final LongAdder bytesDone = new LongAdder();
+
+    public BatchProcessor(String chainSpec, BatchPolicy policy) {
+        this.chainSpec = chainSpec;
+        this.policy = policy;
+        AtomicInteger workers = new AtomicInteger();
+        this.pool = new ForkJoinPool(policy.parallelism(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("BatchWorker-" + workers.incrementAndGet());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * The WAV files named by {@code pattern}, sorted: every {@code .wav} file directly inside a directory,
+     * a single file, or a glob such as {@code recordings/2024-*}{@code /recording*.wav}, matched relative
+     * to the directory before its first wildcard. Earlier outputs ({@value #OUTPUT_SUFFIX}) are left out.
+     */
+    public static List<Path> findInputs(String pattern) throws IOException {
+        Path base = baseDirectory(pattern);
+        PathMatcher matcher;
+        int depth;
+        if (isGlob(pattern)) {
+            String relative = pattern.substring(globBaseLength(pattern));
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + relative);
+            depth = relative.contains("**") ? Integer.MAX_VALUE : relative.split("[/\\\\]").length;
+        } else if (Files.isRegularFile(Path.of(pattern))) {
+            return List.of(Path.of(pattern));
+        } else {
+            matcher = path -> path.getFileName().toString().toLowerCase().endsWith(".wav");
+            depth = 1;
+        }
+
+        try (Stream<Path> paths = Files.walk(base, depth)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(base.relativize(path)))
+                    .filter(path -> !path.getFileName().toString().endsWith(OUTPUT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Where the report for {@code pattern} goes: the directory itself, the file's directory, or the
+     * directory before a glob's first wildcard.
+     */
+    public static Path baseDirectory(String pattern) {
+        if (!isGlob(pattern)) {
+            Path path = Path.of(pattern);
+            if (Files.isDirectory(path))
+                return path;
+            return path.toAbsolutePath().getParent();
+        }
+        int length = globBaseLength(pattern);
+        return length == 0 ? Path.of(".") : Path.of(pattern.substring(0, length));
+    }
+
+    private static boolean isGlob(String pattern) {
+        return firstWildcard(pattern) >= 0;
+    }
+
+    private static int firstWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if ("*?[{".indexOf(pattern.charAt(i)) >= 0)
+                return i;
+        }
+        return -1;
+    }
+
+    // Up to and including the last separator before the first wildcard
+    private static int globBaseLength(String pattern) {
+        int wildcard = firstWildcard(pattern);
+        return Math.max(pattern.lastIndexOf('/', wildcard), pattern.lastIndexOf(File.separatorChar, wildcard)) + 1;
+    }
+
+    public static Path outputPath(Path input) {
+        String name = input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return input.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + OUTPUT_SUFFIX);
+    }
+
+    /**
+     * Processes every input, logging overall progress periodically, and returns one result per input in the
+     * same order. A file that fails is reported and its partial output deleted; the others carry on.
+     */
+    public List<BatchResult> process(List<Path> inputs, Path report) throws IOException, InterruptedException {
+        long totalBytes = 0;
+        for (Path input : inputs)
+            totalBytes += Files.size(input);
+        bytesDone.reset();
+
+        boolean newReport = !Files.exists(report) || Files.size(report) == 0;
+        try (BufferedWriter reportWriter = Files.newBufferedWriter(report, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (newReport) {
+                reportWriter.write(REPORT_HEADER);
+                reportWriter.newLine();
+                reportWriter.flush();
+            }
+
+            Batch batch = new Batch(inputs.size(), reportWriter);
+            List<FileTask> tasks = new ArrayList<>(inputs.size());
+            for (Path input : inputs) {
+                FileTask task = new FileTask(batch, input);
+                tasks.add(task);
+                pool.execute(task);
+            }
+
+            long start = System.nanoTime();
+            while (!batch.remaining.await(PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS)) {
+                double seconds = (System.nanoTime() - start) / 1e9;
+                long done = bytesDone.sum();
+                LOGGER.info(String.format("Batch progress: %d/%d files, %.1f%% of input, %.1f MB/s",
+                        batch.completed.get(), inputs.size(), 100.0 * done / Math.max(1, totalBytes),
+                        done / 1e6 / seconds));
+            }
+
+            List<BatchResult> results = new ArrayList<>(tasks.size());
+            for (FileTask task : tasks)
+                results.add(task.join());
+            return results;
+        }
+    }
+
+    // Warm-up for the IIR stages, plus enough for every convolver's kernel and latency to have filled
+    private long warmUpFrames(ProcessorChain chain, float sampleRate) {
+        long frames = Math.round(policy.warmUpSeconds() * sampleRate);
+        for (BlockProcessor stage : chain.getStages()) {
+            if (stage instanceof PartitionedConvolver convolver)
+                frames += convolver.getLatencySamples() + convolver.getKernel().getLength();
+        }
+        return frames;
+    }
+
+    private static String csv(String value) {
+        return value == null ? "" : "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    // State shared by the files of one process() call
+    private static final class Batch {
+        final int fileCount;
+        final BufferedWriter report;
+        final CountDownLatch remaining;
+        final AtomicInteger completed = new AtomicInteger();
+
+        Batch(int fileCount, BufferedWriter report) {
+            this.fileCount = fileCount;
+            this.report = report;
+            this.remaining = new CountDownLatch(fileCount);
+        }
+    }
+
+    private final class FileTask extends RecursiveTask<BatchResult> {
+        private final Batch batch;
+        private final Path input;
+
+        FileTask(Batch batch, Path input) {
+            this.batch = batch;
+            this.input = input;
+        }
+
+        @Override
+        protected BatchResult compute() {
+            Path output = outputPath(input);
+            long start = System.nanoTime();
+            BatchResult result = null;
+            try {
+                result = processFile(output, start);
+            } catch (IOException | RuntimeException | InternalError e) {
+                // A mapped input truncated while it is being read faults with an InternalError
+                LOGGER.log(Level.WARNING, "Failed to process " + input, e);
+                try {
+                    Files.deleteIfExists(output);
+                } catch (IOException deleteFailure) {
+                    LOGGER.log(Level.WARNING, "Failed to delete partial output " + output, deleteFailure);
+                }
+                result = new BatchResult(input, output, 0, 0, 0, System.nanoTime() - start, String.valueOf(e.getMessage()));
+            } finally {
+                // Anything worse must still let process() stop waiting; it rethrows from join()
+                if (result == null)
+                    batch.remaining.countDown();
+            }
+
+            finish(result);
+            return result;
+        }
+
+        private BatchResult processFile(Path output, long start) throws IOException {
+            try (MappedRecording recording = MappedRecording.map(input)) {
+                float sampleRate = recording.getSampleRate();
+                long frames = recording.getFrameCount();
+                PcmCodec outputCodec = PcmCodec.forFormat(AudioFormatFactory.createMonoFormat(recording.getFormat()));
+                ProcessorChain chain = ProcessorChainSpec.parse(chainSpec, sampleRate);
+
+                long pieceFrames = policy.splitSeconds() > 0
+                        ? Math.max(1, Math.round(policy.splitSeconds() * sampleRate))
+                        : Math.max(1, frames);
+                int pieces = (int) Math.max(1, (frames + pieceFrames - 1) / pieceFrames);
+
+                try (WavFileWriter writer = new WavFileWriter(output, outputCodec.getFormat())) {
+                    AtomicBoolean failed = new AtomicBoolean();
+                    if (pieces == 1) {
+                        new Piece(recording, writer, outputCodec, chain, 0, frames, 0, failed).compute();
+                    } else {
+                        // The first piece starts at the beginning of the file, so it needs no warm-up
+                        long warmUp = warmUpFrames(chain, sampleRate);
+                        List<Piece> tasks = new ArrayList<>(pieces);
+                        for (int i = 0; i < pieces; i++) {
+                            long from = i * pieceFrames;
+                            tasks.add(new Piece(recording, writer, outputCodec, i == 0 ? chain : null,
+                                    from, Math.min(frames, from + pieceFrames), i == 0 ? 0 : warmUp, failed));
+                        }
+                        runAll(tasks);
+                    }
+                }
+                return new BatchResult(input, output, frames, sampleRate, pieces, System.nanoTime() - start, null);
+            }
+        }
+
+        // Unlike invokeAll, which throws at the first failure while other pieces may still be writing, this
+        // waits for every piece before the writer can be closed and the output deleted
+        private void runAll(List<Piece> tasks) {
+            for (Piece task : tasks)
+                task.fork();
+
+            Throwable failure = null;
+            for (int i = tasks.size() - 1; i >= 0; i--) {
+                Piece task = tasks.get(i);
+                task.quietlyJoin();
+                if (task.isCompletedAbnormally() && failure == null)
+                    failure = task.getException();
+            }
+
+            if (failure instanceof RuntimeException runtime)
+                throw runtime;
+            if (failure instanceof Error error)
+                throw error;
+            if (failure != null)
+                throw new IllegalStateException(failure);
+        }
+
+        private void finish(BatchResult result) {
+            int completed = batch.completed.incrementAndGet();
+            if (result.succeeded())
+                LOGGER.info(String.format("[%d/%d] %s: %.1f s of audio in %.2f s (%.0fx real time, %d piece(s))",
+                        completed, batch.fileCount, input.getFileName(), result.audioSeconds(),
+                        result.elapsedNanos() / 1e9, result.realTimeFactor(), result.pieces()));
+
+            try {
+                synchronized (batch.report) {
+                    batch.report.write(String.join(",", csv(result.input().toString()),
+                            csv(result.output().toString()), Long.toString(result.frames()),
+                            String.format("%.3f", result.audioSeconds()), Integer.toString(result.pieces()),
+                            Long.toString(TimeUnit.NANOSECONDS.toMillis(result.elapsedNanos())),
+                            String.format("%.1f", result.realTimeFactor()), csv(result.error())));
+                    batch.report.newLine();
+                    batch.report.flush();
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to write batch report row for " + input, e);
+            } finally {
+                batch.remaining.countDown();
+            }
+        }
+    }
+
+    /**
+     * Frames {@code [from, to)} of one file, processed from {@code from - warmUp} on a chain of its own.
+     */
+    private final class Piece extends RecursiveAction {
+        private final MappedRecording recording;
+        private final WavFileWriter writer;
+        private final PcmCodec codec;
+        private final ProcessorChain chain;
+        private final long from;
+        private final long to;
+        private final long warmUp;
+        private final AtomicBoolean failed;
+
+        Piece(MappedRecording recording, WavFileWriter writer, PcmCodec codec, ProcessorChain chain,
+                long from, long to, long warmUp, AtomicBoolean failed) {
+            this.recording = recording;
+            this.writer = writer;
+            this.codec = codec;
+            this.chain = chain;
+            this.from = from;
+            this.to = to;
+            this.warmUp = warmUp;
+            this.failed = failed;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                processRange();
+            } catch (RuntimeException | Error e) {
+                failed.set(true);
+                throw e;
+            }
+        }
+
+        private void processRange() {
+            // Built here rather than by the file task, so convolution kernels load on the worker that needs them
+            ProcessorChain pieceChain = chain != null ? chain : ProcessorChainSpec.parse(chainSpec, recording.getSampleRate());
+            int inputFrameSize = recording.getFormat().getFrameSize();
+            int outputFrameSize = codec.getFrameSize();
+            float[] samples = new float[CHUNK_FRAMES];
+            byte[] scratch = new byte[CHUNK_FRAMES * inputFrameSize];
+            byte[] encoded = new byte[CHUNK_FRAMES * outputFrameSize];
+            ByteBuffer buffer = ByteBuffer.wrap(encoded);
+
+            try {
+                // Once another piece of the file has failed, the output is going to be deleted anyway
+                for (long position = Math.max(0, from - warmUp); position < to && !failed.get(); ) {
+                    int count = (int) Math.min(CHUNK_FRAMES, to - position);
+                    recording.readMono(position, samples, 0, count, scratch);
+                    pieceChain.process(samples, 0, count);
+
+                    // Output from the warm-up only settles the chain; the previous piece writes those frames
+                    int skip = (int) Math.max(0, Math.min(count, from - position));
+                    if (skip < count) {
+                        codec.encode(samples, skip, encoded, 0, count - skip);
+                        buffer.clear().limit((count - skip) * outputFrameSize);
+                        writer.writeAt((position + skip) * outputFrameSize, buffer);
+                        bytesDone.add((long) (count - skip) * inputFrameSize);
+                    }
+                    position += count;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
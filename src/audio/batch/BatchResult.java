@@ -0,0 +1,33 @@
+package org.bunnys.audio.batch;
+
+import java.nio.file.Path;
+
+/**
+ * The outcome of processing one file in a batch.
+ *
+ * @param input        the recording that was read
+ * @param output       the processed recording, written next to the input
+ * @param frames       frames processed
+ * @param sampleRate   the recording's sample rate
+ * @param pieces       pieces the file was split into for parallel processing
+ * @param elapsedNanos wall-clock time from opening the input to closing the output
+ * @param error        why the file failed, or {@code null} if it succeeded
+ */
+public record BatchResult(Path input, Path output, long frames, float sampleRate, int pieces, long elapsedNanos,
+        String error) {
+
+    public boolean succeeded() {
+        return error == null;
+    }
+
+    public double audioSeconds() {
+        return sampleRate > 0 ? frames / (double) sampleRate : 0;
+    }
+
+    /**
+     * Seconds of audio processed per second of wall-clock time.
+     */
+    public double realTimeFactor() {
+        return elapsedNanos > 0 ? audioSeconds() / (elapsedNanos / 1e9) : 0;
+    }
+}
@@ -0,0 +1,86 @@
+package org.bunnys.audio.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Keeps the most recent {@code capacity} samples of a stream in a fixed off-heap ring, addressed by
+ * absolute stream position. Writing never allocates, so the footprint is the same after a minute as
+ * after a week, and minutes of audio stay out of the Java heap and away from the garbage collector.
+ * <p>
+ * Not thread-safe: the owner serialises writes and reads.
+ */
+public final class HistoryBuffer {
+    private final FloatBuffer samples;
+    private final int capacity;
+    private long position;
+
+    public HistoryBuffer(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+
+        this.capacity = capacity;
+        this.samples = ByteBuffer.allocateDirect(capacity * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Total samples ever written; the next write lands at this position.
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Position of the oldest sample still held.
+     */
+    public long oldestPosition() {
+        return Math.max(0, position - capacity);
+    }
+
+    /**
+     * Appends {@code length} samples, overwriting the oldest ones once full.
+     */
+    public void write(float[] source, int offset, int length) {
+        // Only the tail of a write longer than the whole ring survives it
+        int skipped = Math.max(0, length - capacity);
+        position += skipped;
+        offset += skipped;
+        length -= skipped;
+
+        while (length > 0) {
+            int index = (int) (position % capacity);
+            int chunk = Math.min(length, capacity - index);
+            samples.put(index, source, offset, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Copies {@code length} samples starting at stream position {@code from} into {@code target}.
+     *
+     * @throws IndexOutOfBoundsException if part of the range has been overwritten or not written yet
+     */
+    public void read(long from, float[] target, int offset, int length) {
+        if (from < oldestPosition() || from + length > position)
+            throw new IndexOutOfBoundsException("Samples " + from + ".." + (from + length) + " are not held, only "
+                    + oldestPosition() + ".." + position);
+
+        while (length > 0) {
+            int index = (int) (from % capacity);
+            int chunk = Math.min(length, capacity - index);
+            samples.get(index, target, offset, chunk);
+            from += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+}
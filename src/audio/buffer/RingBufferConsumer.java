@@ -0,0 +1,178 @@
+package org.bunnys.audio.buffer;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drains a {@link SampleRingBuffer.Reader} on its own thread and hands out fixed-size blocks.
+ * The block array is reused, so handlers must copy anything they want to keep. The block size can be
+ * changed while running; the new size takes effect at the next block boundary.
+ */
+public final class RingBufferConsumer implements Runnable {
+    private static final Logger LOGGER = Logger.getLogger(RingBufferConsumer.class.getName());
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @FunctionalInterface
+    public interface BlockHandler {
+        void onBlock(float[] block, int length);
+    }
+
+    private final SampleRingBuffer.Reader reader;
+    private float[] block;
+    private volatile int requestedBlockSize;
+    private final BlockHandler handler;
+
+    private volatile boolean running = true;
+    private volatile boolean flushPartialBlocks;
+    private volatile float realTimeRate;
+    private volatile long deliveredPosition;
+    private Thread thread;
+
+    // Owned by the consumer thread: when the current part-filled block last found the ring empty
+    private boolean waiting;
+    private long waitStart;
+    private boolean starved;
+
+    public RingBufferConsumer(SampleRingBuffer.Reader reader, int blockSize, BlockHandler handler) {
+        if (blockSize <= 0)
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+
+        this.reader = reader;
+        this.deliveredPosition = reader.position();
+        this.block = new float[blockSize];
+        this.requestedBlockSize = blockSize;
+        this.handler = handler;
+    }
+
+    public SampleRingBuffer.Reader reader() {
+        return reader;
+    }
+
+    public void start(String threadName) {
+        start(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts draining on a thread from {@code threadFactory}, e.g. a virtual thread factory.
+     */
+    public void start(ThreadFactory threadFactory) {
+        thread = threadFactory.newThread(this);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        int filled = 0;
+        while (running) {
+            // Only ever resized between blocks, and handlers can rely on a full block filling the array
+            if (filled == 0 && requestedBlockSize != block.length)
+                block = new float[requestedBlockSize];
+
+            int read = reader.read(block, filled, block.length - filled);
+            if (read == 0) {
+                // A finished source won't complete the last block, hand over what there is
+                if (filled > 0 && flushPartialBlocks) {
+                    deliver(filled);
+                    filled = 0;
+                } else if (filled > 0) {
+                    checkStarved();
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            waiting = false;
+            starved = false;
+            filled += read;
+            if (filled < block.length)
+                continue;
+
+            deliver(filled);
+            filled = 0;
+        }
+    }
+
+    // A live source that leaves a block part-filled for longer than the block lasts has starved this
+    // consumer, counted once per wait; idling between blocks is not an underrun
+    private void checkStarved() {
+        float rate = realTimeRate;
+        if (rate <= 0 || starved)
+            return;
+
+        long now = System.nanoTime();
+        if (!waiting) {
+            waiting = true;
+            waitStart = now;
+        } else if (now - waitStart > (long) (block.length / rate * 1e9)) {
+            reader.recordUnderrun();
+            starved = true;
+        }
+    }
+
+    private void deliver(int length) {
+        try {
+            handler.onBlock(block, length);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Consumer " + reader.name() + " failed to handle a block", e);
+        }
+        deliveredPosition = reader.position();
+    }
+
+    /**
+     * Requests a different block size, from any thread including the handler's own.
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize <= 0)
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        this.requestedBlockSize = blockSize;
+    }
+
+    public int getBlockSize() {
+        return requestedBlockSize;
+    }
+
+    /**
+     * When set, deliver a short block instead of waiting when the ring runs dry. Used once a finite
+     * source has ended so the tail of the stream is not held back.
+     */
+    public void setFlushPartialBlocks(boolean flushPartialBlocks) {
+        this.flushPartialBlocks = flushPartialBlocks;
+    }
+
+    /**
+     * Sample rate the ring is filled at by a real-time source, so that a block still incomplete a whole
+     * block's duration later counts as an underrun. 0, the default, for sources that are not real time,
+     * which are never late.
+     */
+    public void setRealTimeRate(float sampleRate) {
+        if (sampleRate < 0)
+            throw new IllegalArgumentException("Sample rate cannot be negative: " + sampleRate);
+        this.realTimeRate = sampleRate;
+    }
+
+    /**
+     * True when everything published so far has been handed to the handler.
+     */
+    public boolean isCaughtUp() {
+        return reader.available() == 0 && deliveredPosition == reader.position();
+    }
+
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.bunnys.audio.buffer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated, lock-free ring of float samples with a single producer and any number of readers.
+ * <p>
+ * The producer (the capture thread) never waits on a reader. Every reader keeps its own cursor and
+ * consumes at its own pace; a reader that falls more than {@code capacity} samples behind is lapped,
+ * which is counted as an overrun and the reader skips ahead to the live write position.
+ * <p>
+ * Producers that can run faster than real time (files, generators) call {@link #awaitCapacity} first,
+ * which turns the ring into a bounded queue that waits for the slowest reader instead.
+ */
+public final class SampleRingBuffer {
+    private static final VarHandle CLAIMED;
+    private static final VarHandle PUBLISHED;
+    private static final VarHandle READERS;
+    private static final long CAPACITY_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            CLAIMED = lookup.findVarHandle(SampleRingBuffer.class, "claimedSequence", long.class);
+            PUBLISHED = lookup.findVarHandle(SampleRingBuffer.class, "publishedSequence", long.class);
+            READERS = lookup.findVarHandle(SampleRingBuffer.class, "readers", Reader[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final float[] slots;
+    private final int capacity;
+    private final int mask;
+
+    // Sequence the producer is about to write up to, and the sequence readers may safely read up to
+    private volatile long claimedSequence;
+    private volatile long publishedSequence;
+    private volatile Reader[] readers = new Reader[0];
+
+    public SampleRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a positive power of two: " + capacity);
+
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slots = new float[capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Copies {@code length} samples into the ring. Must only be called from the producer thread.
+     */
+    public void write(float[] source, int offset, int length) {
+        if (length < 0 || length > capacity)
+            throw new IllegalArgumentException("Write length must be between 0 and " + capacity + ": " + length);
+        if (length == 0)
+            return;
+
+        long start = (long) PUBLISHED.getOpaque(this);
+        long end = start + length;
+
+        // Readers compare against the claim after copying, so they can tell if we overwrote what they read
+        CLAIMED.setRelease(this, end);
+        VarHandle.storeStoreFence();
+
+        int index = (int) (start & mask);
+        int firstPart = Math.min(length, capacity - index);
+        System.arraycopy(source, offset, slots, index, firstPart);
+        if (firstPart < length)
+            System.arraycopy(source, offset + firstPart, slots, 0, length - firstPart);
+
+        PUBLISHED.setRelease(this, end);
+    }
+
+    /**
+     * Waits until every reader has room for {@code length} more samples. Producer thread only.
+     */
+    public void awaitCapacity(int length) throws InterruptedException {
+        long required = writeSequence() + length - capacity;
+        while (minimumReaderSequence() < required) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            LockSupport.parkNanos(CAPACITY_WAIT_NANOS);
+        }
+    }
+
+    private long minimumReaderSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (Reader reader : readers)
+            minimum = Math.min(minimum, reader.sequence);
+        return minimum;
+    }
+
+    public long writeSequence() {
+        return (long) PUBLISHED.getAcquire(this);
+    }
+
+    /**
+     * Registers a new reader that starts at the current write position.
+     */
+    public Reader newReader(String name) {
+        Reader reader = new Reader(name, writeSequence());
+        Reader[] current;
+        Reader[] updated;
+        do {
+            current = readers;
+            updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = reader;
+        } while (!READERS.compareAndSet(this, current, updated));
+        return reader;
+    }
+
+    public void removeReader(Reader reader) {
+        Reader[] current;
+        Reader[] updated;
+        do {
+            current = readers;
+            int index = Arrays.asList(current).indexOf(reader);
+            if (index < 0)
+                return;
+
+            updated = new Reader[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+        } while (!READERS.compareAndSet(this, current, updated));
+    }
+
+    public long getOverrunCount() {
+        long total = 0;
+        for (Reader reader : readers)
+            total += reader.overruns;
+        return total;
+    }
+
+    public long getUnderrunCount() {
+        long total = 0;
+        for (Reader reader : readers)
+            total += reader.underruns;
+        return total;
+    }
+
+    public long getDroppedSamples() {
+        long total = 0;
+        for (Reader reader : readers)
+            total += reader.droppedSamples;
+        return total;
+    }
+
+    public final class Reader {
+        private final String name;
+
+        // Only ever written by the thread that owns this reader
+        private volatile long sequence;
+        private volatile long overruns;
+        private volatile long underruns;
+        private volatile long droppedSamples;
+
+        private Reader(String name, long sequence) {
+            this.name = name;
+            this.sequence = sequence;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public long position() {
+            return sequence;
+        }
+
+        public int available() {
+            long backlog = writeSequence() - sequence;
+            return (int) Math.min(backlog, capacity);
+        }
+
+        /**
+         * Copies up to {@code maxLength} of the oldest unread samples into {@code target}.
+         *
+         * @return the number of samples copied, 0 if nothing was available
+         */
+        public int read(float[] target, int offset, int maxLength) {
+            long published = writeSequence();
+            long start = sequence;
+
+            if (published - start > capacity) {
+                lapped(published);
+                return 0;
+            }
+
+            int length = (int) Math.min(published - start, maxLength);
+            if (length <= 0)
+                return 0;
+
+            int index = (int) (start & mask);
+            int firstPart = Math.min(length, capacity - index);
+            System.arraycopy(slots, index, target, offset, firstPart);
+            if (firstPart < length)
+                System.arraycopy(slots, 0, target, offset + firstPart, length - firstPart);
+
+            // If the producer has started overwriting anything we just copied, the copy is torn
+            VarHandle.loadLoadFence();
+            long claimed = (long) CLAIMED.getAcquire(SampleRingBuffer.this);
+            if (claimed - start > capacity) {
+                lapped(writeSequence());
+                return 0;
+            }
+
+            sequence = start + length;
+            return length;
+        }
+
+        private void lapped(long resumeAt) {
+            overruns++;
+            droppedSamples += resumeAt - sequence;
+            sequence = resumeAt;
+        }
+
+        public long getOverrunCount() {
+            return overruns;
+        }
+
+        /**
+         * Records that the owner was starved: it needed audio the producer should already have written.
+         * An empty ring between blocks is not an underrun, so {@link #read} leaves this to the caller.
+         */
+        public void recordUnderrun() {
+            underruns++;
+        }
+
+        public long getUnderrunCount() {
+            return underruns;
+        }
+
+        public long getDroppedSamples() {
+            return droppedSamples;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.bunnys.audio.codec;
+
+import javax.sound.sampled.AudioFormat;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * 32-bit IEEE float PCM in either byte order. Samples are already normalised, so this is a straight copy.
+ */
+final class FloatPcmCodec implements PcmCodec {
+    private static final VarHandle FLOAT_BIG = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle FLOAT_LITTLE = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final AudioFormat format;
+    private final int channels;
+    private final boolean bigEndian;
+
+    FloatPcmCodec(AudioFormat format) {
+        this.format = format;
+        this.channels = format.getChannels();
+        this.bigEndian = format.isBigEndian();
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public void decode(byte[] source, int sourceOffset, float[] target, int targetOffset, int sampleCount) {
+        if (bigEndian) {
+            for (int i = 0; i < sampleCount; i++)
+                target[targetOffset + i] = (float) FLOAT_BIG.get(source, sourceOffset + 4 * i);
+        } else {
+            for (int i = 0; i < sampleCount; i++)
+                target[targetOffset + i] = (float) FLOAT_LITTLE.get(source, sourceOffset + 4 * i);
+        }
+    }
+
+    @Override
+    public void deinterleave(byte[] source, int sourceOffset, int frames, float[][] planar, int channelOffset) {
+        int frameSize = 4 * channels;
+        for (int channel = 0; channel < channels; channel++) {
+            float[] target = planar[channel];
+            int position = sourceOffset + channel * 4;
+            for (int frame = 0; frame < frames; frame++, position += frameSize)
+                target[channelOffset + frame] = read(source, position);
+        }
+    }
+
+    @Override
+    public void decodeMono(byte[] source, int sourceOffset, int frames, float[] target, int targetOffset) {
+        if (channels == 1) {
+            decode(source, sourceOffset, target, targetOffset, frames);
+            return;
+        }
+
+        int position = sourceOffset;
+        for (int frame = 0; frame < frames; frame++) {
+            float sum = 0;
+            for (int channel = 0; channel < channels; channel++, position += 4)
+                sum += read(source, position);
+            target[targetOffset + frame] = sum / channels;
+        }
+    }
+
+    @Override
+    public void encode(float[] source, int sourceOffset, byte[] target, int targetOffset, int sampleCount) {
+        for (int i = 0; i < sampleCount; i++) {
+            float value = Math.max(-1f, Math.min(1f, source[sourceOffset + i]));
+            if (bigEndian)
+                FLOAT_BIG.set(target, targetOffset + 4 * i, value);
+            else
+                FLOAT_LITTLE.set(target, targetOffset + 4 * i, value);
+        }
+    }
+
+    private float read(byte[] source, int index) {
+        return bigEndian ? (float) FLOAT_BIG.get(source, index) : (float) FLOAT_LITTLE.get(source, index);
+    }
+}
@@ -0,0 +1,150 @@
+package org.bunnys.audio.codec;
+
+import javax.sound.sampled.AudioFormat;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Signed and unsigned integer PCM at 8, 16, 24 or 32 bits, either byte order, any channel count.
+ * 16 and 32-bit samples are read through {@link VarHandle} byte-array views so the JIT can use wide loads.
+ */
+final class IntegerPcmCodec implements PcmCodec {
+    private static final VarHandle SHORT_BIG = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle SHORT_LITTLE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_BIG = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT_LITTLE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final AudioFormat format;
+    private final int bytesPerSample;
+    private final int channels;
+    private final boolean bigEndian;
+    private final boolean unsigned;
+    private final float decodeScale;
+    private final double encodeScale;
+    private final long maxValue;
+
+    IntegerPcmCodec(AudioFormat format) {
+        this.format = format;
+        this.bytesPerSample = format.getSampleSizeInBits() / 8;
+        this.channels = format.getChannels();
+        this.bigEndian = format.isBigEndian();
+        this.unsigned = AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding());
+
+        long fullScale = 1L << (format.getSampleSizeInBits() - 1);
+        this.decodeScale = (float) (1.0 / fullScale);
+        this.encodeScale = fullScale;
+        this.maxValue = fullScale - 1;
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public void decode(byte[] source, int sourceOffset, float[] target, int targetOffset, int sampleCount) {
+        // The capture default (signed 16-bit) gets its own loops, everything else goes through read()
+        if (bytesPerSample == 2 && !unsigned) {
+            if (bigEndian) {
+                for (int i = 0; i < sampleCount; i++)
+                    target[targetOffset + i] = (short) SHORT_BIG.get(source, sourceOffset + 2 * i) * decodeScale;
+            } else {
+                for (int i = 0; i < sampleCount; i++)
+                    target[targetOffset + i] = (short) SHORT_LITTLE.get(source, sourceOffset + 2 * i) * decodeScale;
+            }
+            return;
+        }
+
+        for (int i = 0; i < sampleCount; i++)
+            target[targetOffset + i] = read(source, sourceOffset + i * bytesPerSample) * decodeScale;
+    }
+
+    @Override
+    public void deinterleave(byte[] source, int sourceOffset, int frames, float[][] planar, int channelOffset) {
+        int frameSize = bytesPerSample * channels;
+        for (int channel = 0; channel < channels; channel++) {
+            float[] target = planar[channel];
+            int position = sourceOffset + channel * bytesPerSample;
+            for (int frame = 0; frame < frames; frame++, position += frameSize)
+                target[channelOffset + frame] = read(source, position) * decodeScale;
+        }
+    }
+
+    @Override
+    public void decodeMono(byte[] source, int sourceOffset, int frames, float[] target, int targetOffset) {
+        if (channels == 1) {
+            decode(source, sourceOffset, target, targetOffset, frames);
+            return;
+        }
+
+        float frameScale = decodeScale / channels;
+        int position = sourceOffset;
+        for (int frame = 0; frame < frames; frame++) {
+            long sum = 0;
+            for (int channel = 0; channel < channels; channel++, position += bytesPerSample)
+                sum += read(source, position);
+            target[targetOffset + frame] = sum * frameScale;
+        }
+    }
+
+    @Override
+    public void encode(float[] source, int sourceOffset, byte[] target, int targetOffset, int sampleCount) {
+        for (int i = 0; i < sampleCount; i++) {
+            long value = Math.round(source[sourceOffset + i] * encodeScale);
+            value = Math.max(-maxValue - 1, Math.min(maxValue, value));
+            write(target, targetOffset + i * bytesPerSample, (int) value);
+        }
+    }
+
+    private int read(byte[] source, int index) {
+        switch (bytesPerSample) {
+            case 1:
+                return unsigned ? (source[index] & 0xFF) - 128 : source[index];
+            case 2: {
+                short value = bigEndian ? (short) SHORT_BIG.get(source, index) : (short) SHORT_LITTLE.get(source, index);
+                return unsigned ? (short) (value ^ 0x8000) : value;
+            }
+            case 3: {
+                int value = bigEndian
+                        ? (source[index] << 16) | ((source[index + 1] & 0xFF) << 8) | (source[index + 2] & 0xFF)
+                        : (source[index + 2] << 16) | ((source[index + 1] & 0xFF) << 8) | (source[index] & 0xFF);
+                return unsigned ? ((value ^ 0x800000) << 8) >> 8 : value;
+            }
+            default: {
+                int value = bigEndian ? (int) INT_BIG.get(source, index) : (int) INT_LITTLE.get(source, index);
+                return unsigned ? value ^ 0x80000000 : value;
+            }
+        }
+    }
+
+    private void write(byte[] target, int index, int value) {
+        switch (bytesPerSample) {
+            case 1:
+                target[index] = (byte) (unsigned ? value + 128 : value);
+                break;
+            case 2: {
+                short sample = (short) (unsigned ? value ^ 0x8000 : value);
+                if (bigEndian)
+                    SHORT_BIG.set(target, index, sample);
+                else
+                    SHORT_LITTLE.set(target, index, sample);
+                break;
+            }
+            case 3: {
+                int sample = unsigned ? value ^ 0x800000 : value;
+                target[index + (bigEndian ? 0 : 2)] = (byte) (sample >> 16);
+                target[index + 1] = (byte) (sample >> 8);
+                target[index + (bigEndian ? 2 : 0)] = (byte) sample;
+                break;
+            }
+            default: {
+                int sample = unsigned ? value ^ 0x80000000 : value;
+                if (bigEndian)
+                    INT_BIG.set(target, index, sample);
+                else
+                    INT_LITTLE.set(target, index, sample);
+            }
+        }
+    }
+}
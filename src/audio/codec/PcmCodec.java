@@ -0,0 +1,66 @@
+package org.bunnys.audio.codec;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Converts between raw PCM bytes in one {@link AudioFormat} and normalised float samples in [-1, 1).
+ * <p>
+ * "Samples" are individual channel values; interleaved buffers hold {@code frames * channels} of them.
+ * Implementations are stateless and never allocate, so one instance can be shared across threads.
+ */
+public interface PcmCodec {
+    AudioFormat getFormat();
+
+    default int getChannels() {
+        return getFormat().getChannels();
+    }
+
+    default int getFrameSize() {
+        return getFormat().getFrameSize();
+    }
+
+    void decode(byte[] source, int sourceOffset, float[] target, int targetOffset, int sampleCount);
+
+    /**
+     * Encodes samples, clamping anything outside [-1, 1).
+     */
+    void encode(float[] source, int sourceOffset, byte[] target, int targetOffset, int sampleCount);
+
+    /**
+     * Splits interleaved frames into one array per channel.
+     */
+    void deinterleave(byte[] source, int sourceOffset, int frames, float[][] channels, int channelOffset);
+
+    /**
+     * Decodes frames into a single channel by averaging all channels of each frame.
+     */
+    void decodeMono(byte[] source, int sourceOffset, int frames, float[] target, int targetOffset);
+
+    static PcmCodec forFormat(AudioFormat format) {
+        AudioFormat.Encoding encoding = format.getEncoding();
+        int bits = format.getSampleSizeInBits();
+
+        if (AudioFormat.Encoding.PCM_FLOAT.equals(encoding)) {
+            if (bits != 32)
+                throw new IllegalArgumentException("Only 32-bit float PCM is supported: " + format);
+            return new FloatPcmCodec(format);
+        }
+
+        if (AudioFormat.Encoding.PCM_SIGNED.equals(encoding) || AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding)) {
+            if (bits != 8 && bits != 16 && bits != 24 && bits != 32)
+                throw new IllegalArgumentException("Unsupported PCM sample size: " + format);
+            return new IntegerPcmCodec(format);
+        }
+
+        throw new IllegalArgumentException("Unsupported audio encoding: " + format);
+    }
+
+    static boolean isSupported(AudioFormat format) {
+        try {
+            forFormat(format);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -1,31 +1,122 @@
 package org.bunnys.audio.device;
 
+import org.bunnys.audio.codec.PcmCodec;
+
 import javax.sound.sampled.*;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 
 public class AudioDeviceManager {
     private final AudioFormat format;
+    private final DeviceRegistry registry;
 
     public AudioDeviceManager(AudioFormat format) {
+        this(format, DeviceRegistry.getDefault());
+    }
+
+    public AudioDeviceManager(AudioFormat format, DeviceRegistry registry) {
         this.format = format;
+        this.registry = registry;
     }
 
+    /**
+     * Capture devices that can feed this manager's format, answered from the registry's cache.
+     */
     public List<Mixer.Info> getInputDevices() {
         List<Mixer.Info> devices = new ArrayList<>();
-        DataLine.Info targetInfo = new DataLine.Info(TargetDataLine.class, format);
-
-        for (Mixer.Info mixerInfo : AudioSystem.getMixerInfo()) {
-            Mixer mixer = AudioSystem.getMixer(mixerInfo);
-            if (mixer.isLineSupported(targetInfo))
-                devices.add(mixerInfo);
+        for (DeviceInfo device : registry.getCaptureDevices()) {
+            if (supportsFormat(device))
+                devices.add(device.getMixerInfo());
         }
         return devices;
     }
 
+    /**
+     * True if the device takes this manager's format, or offers a decodable one at another rate that the
+     * capture path can convert.
+     */
+    public boolean supportsFormat(DeviceInfo device) {
+        return device.supports(format) || !getSupportedFormats(device, format.getSampleRate()).isEmpty();
+    }
+
+    public DeviceRegistry getRegistry() {
+        return registry;
+    }
+
     public TargetDataLine getTargetLine(Mixer.Info deviceInfo) throws LineUnavailableException {
         Mixer mixer = AudioSystem.getMixer(deviceInfo);
         DataLine.Info targetInfo = new DataLine.Info(TargetDataLine.class, format);
         return (TargetDataLine) mixer.getLine(targetInfo);
     }
+
+    /**
+     * Every mixer that offers a capture line, whatever formats it supports.
+     */
+    public static List<Mixer.Info> getCaptureDevices() {
+        List<Mixer.Info> devices = new ArrayList<>();
+        for (DeviceInfo device : DeviceRegistry.getDefault().getCaptureDevices())
+            devices.add(device.getMixerInfo());
+        return devices;
+    }
+
+    /**
+     * {@link #getSupportedFormats(DeviceInfo, float)} for a device in the default registry; empty if it is
+     * not there.
+     */
+    public static List<AudioFormat> getSupportedFormats(Mixer.Info deviceInfo, float sampleRate) {
+        DeviceInfo device = DeviceRegistry.getDefault().find(deviceInfo);
+        return device == null ? List.of() : getSupportedFormats(device, sampleRate);
+    }
+
+    /**
+     * Capture formats the device reports that a {@link PcmCodec} can decode, with unspecified sample
+     * rates filled in with {@code sampleRate}.
+     */
+    public static List<AudioFormat> getSupportedFormats(DeviceInfo device, float sampleRate) {
+        List<AudioFormat> formats = new ArrayList<>();
+        for (AudioFormat candidate : device.getFormats()) {
+            AudioFormat concrete = withSampleRate(candidate, sampleRate);
+            if (concrete != null && PcmCodec.isSupported(concrete))
+                formats.add(concrete);
+        }
+        return formats;
+    }
+
+    /**
+     * {@link #getNativeFormat(DeviceInfo, float)} for a device in the default registry; empty if it is not
+     * there.
+     */
+    public static Optional<AudioFormat> getNativeFormat(Mixer.Info deviceInfo, float sampleRate) {
+        DeviceInfo device = DeviceRegistry.getDefault().find(deviceInfo);
+        return device == null ? Optional.empty() : getNativeFormat(device, sampleRate);
+    }
+
+    /**
+     * The device format that needs the least conversion inside Java Sound: the sample rate closest to the
+     * requested one (which the capture path then resamples), the deepest sample size, the fewest channels
+     * and the platform's byte order, in that order of priority.
+     */
+    public static Optional<AudioFormat> getNativeFormat(DeviceInfo device, float sampleRate) {
+        boolean nativeBigEndian = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+        return getSupportedFormats(device, sampleRate).stream()
+                .max(Comparator.<AudioFormat>comparingDouble(f -> -Math.abs(f.getSampleRate() - sampleRate))
+                        .thenComparingInt(AudioFormat::getSampleSizeInBits)
+                        .thenComparing(f -> -f.getChannels())
+                        .thenComparing(f -> f.getSampleSizeInBits() <= 8 || f.isBigEndian() == nativeBigEndian));
+    }
+
+    private static AudioFormat withSampleRate(AudioFormat format, float sampleRate) {
+        if (format.getSampleSizeInBits() == AudioSystem.NOT_SPECIFIED || format.getChannels() == AudioSystem.NOT_SPECIFIED)
+            return null;
+        if (format.getSampleRate() != AudioSystem.NOT_SPECIFIED)
+            return format;
+
+        int frameSize = format.getChannels() * ((format.getSampleSizeInBits() + 7) / 8);
+        return new AudioFormat(format.getEncoding(), sampleRate, format.getSampleSizeInBits(),
+                format.getChannels(), frameSize, sampleRate, format.isBigEndian());
+    }
 }
@@ -0,0 +1,82 @@
+package org.bunnys.audio.device;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.Mixer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a mixer offered for capture when {@link DeviceRegistry} last probed it. Format checks are answered
+ * from the cached line descriptions, without opening or querying the mixer again.
+ */
+public final class DeviceInfo {
+    private final Mixer.Info mixerInfo;
+    private final List<DataLine.Info> captureLines;
+
+    DeviceInfo(Mixer.Info mixerInfo, List<DataLine.Info> captureLines) {
+        this.mixerInfo = mixerInfo;
+        this.captureLines = List.copyOf(captureLines);
+    }
+
+    /**
+     * Identifies the same physical device across enumerations, which may hand out new {@link Mixer.Info} objects.
+     */
+    static String keyOf(Mixer.Info mixerInfo) {
+        return mixerInfo.getName() + '\u0000' + mixerInfo.getVendor() + '\u0000' + mixerInfo.getDescription()
+                + '\u0000' + mixerInfo.getVersion();
+    }
+
+    String key() {
+        return keyOf(mixerInfo);
+    }
+
+    public Mixer.Info getMixerInfo() {
+        return mixerInfo;
+    }
+
+    public String getName() {
+        return mixerInfo.getName();
+    }
+
+    public boolean isCaptureDevice() {
+        return !captureLines.isEmpty();
+    }
+
+    /**
+     * The same answer {@code mixer.isLineSupported(new DataLine.Info(TargetDataLine.class, format))} gives.
+     */
+    public boolean supports(AudioFormat format) {
+        for (DataLine.Info line : captureLines) {
+            if (line.isFormatSupported(format))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Every capture format the mixer advertises, possibly with unspecified fields.
+     */
+    public List<AudioFormat> getFormats() {
+        List<AudioFormat> formats = new ArrayList<>();
+        for (DataLine.Info line : captureLines)
+            formats.addAll(List.of(line.getFormats()));
+        return formats;
+    }
+
+    // Equal when they describe the same device, even if probed in different enumerations
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof DeviceInfo device && key().equals(device.key());
+    }
+
+    @Override
+    public int hashCode() {
+        return key().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
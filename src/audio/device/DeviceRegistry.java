@@ -0,0 +1,176 @@
+package org.bunnys.audio.device;
+
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.Line;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.TargetDataLine;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cached view of the system's capture devices. The first lookup enumerates every mixer in parallel and
+ * keeps its capture line descriptions; later lookups are answered from the cache. An optional background
+ * refresh re-enumerates and tells listeners which devices appeared or disappeared.
+ */
+public final class DeviceRegistry {
+    private static final Logger LOGGER = Logger.getLogger(DeviceRegistry.class.getName());
+    private static final DeviceRegistry DEFAULT = new DeviceRegistry();
+
+    public interface DeviceListener {
+        void deviceAdded(DeviceInfo device);
+
+        void deviceRemoved(DeviceInfo device);
+    }
+
+    private final List<DeviceListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Map<String, DeviceInfo> devices;
+    private ScheduledExecutorService monitor;
+
+    public static DeviceRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Every mixer with a capture line, in {@link AudioSystem#getMixerInfo()} order. Enumerates on first use.
+     */
+    public List<DeviceInfo> getCaptureDevices() {
+        List<DeviceInfo> captureDevices = new ArrayList<>();
+        for (DeviceInfo device : snapshot().values()) {
+            if (device.isCaptureDevice())
+                captureDevices.add(device);
+        }
+        return captureDevices;
+    }
+
+    /**
+     * The cached entry for {@code mixerInfo}, or {@code null} if it was not present at the last enumeration.
+     */
+    public DeviceInfo find(Mixer.Info mixerInfo) {
+        return snapshot().get(DeviceInfo.keyOf(mixerInfo));
+    }
+
+    private Map<String, DeviceInfo> snapshot() {
+        Map<String, DeviceInfo> current = devices;
+        if (current != null)
+            return current;
+
+        synchronized (this) {
+            if (devices == null)
+                devices = enumerate();
+            return devices;
+        }
+    }
+
+    /**
+     * Re-enumerates now and notifies listeners of any change. The first enumeration never fires events.
+     */
+    public synchronized void refresh() {
+        Map<String, DeviceInfo> previous = devices;
+        Map<String, DeviceInfo> current = enumerate();
+        devices = current;
+        if (previous == null)
+            return;
+
+        for (Map.Entry<String, DeviceInfo> entry : previous.entrySet()) {
+            if (!current.containsKey(entry.getKey()))
+                fire(listener -> listener.deviceRemoved(entry.getValue()), entry.getValue());
+        }
+        for (Map.Entry<String, DeviceInfo> entry : current.entrySet()) {
+            if (!previous.containsKey(entry.getKey()))
+                fire(listener -> listener.deviceAdded(entry.getValue()), entry.getValue());
+        }
+    }
+
+    private void fire(Consumer<DeviceListener> event, DeviceInfo device) {
+        if (device.isCaptureDevice())
+            LOGGER.info("Capture device changed: " + device.getName());
+
+        for (DeviceListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Device listener failed", e);
+            }
+        }
+    }
+
+    // Probing is mostly native calls into the sound system, so mixers are probed side by side
+    private static Map<String, DeviceInfo> enumerate() {
+        List<DeviceInfo> probed = Arrays.stream(AudioSystem.getMixerInfo())
+                .parallel()
+                .map(DeviceRegistry::probe)
+                .filter(Objects::nonNull)
+                .toList();
+
+        Map<String, DeviceInfo> result = new LinkedHashMap<>();
+        for (DeviceInfo device : probed)
+            result.putIfAbsent(device.key(), device);
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static DeviceInfo probe(Mixer.Info mixerInfo) {
+        try {
+            List<DataLine.Info> captureLines = new ArrayList<>();
+            for (Line.Info lineInfo : AudioSystem.getMixer(mixerInfo).getTargetLineInfo()) {
+                if (lineInfo instanceof DataLine.Info dataLineInfo
+                        && TargetDataLine.class.isAssignableFrom(lineInfo.getLineClass()))
+                    captureLines.add(dataLineInfo);
+            }
+            return new DeviceInfo(mixerInfo, captureLines);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to probe mixer " + mixerInfo.getName(), e);
+            return null;
+        }
+    }
+
+    public void addListener(DeviceListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(DeviceListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Refreshes every {@code interval} on a background daemon thread until {@link #stopMonitoring()}.
+     */
+    public synchronized void startMonitoring(Duration interval) {
+        if (monitor != null)
+            return;
+
+        monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DeviceRegistryMonitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitor.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Device refresh failed", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopMonitoring() {
+        if (monitor == null)
+            return;
+
+        monitor.shutdownNow();
+        monitor = null;
+    }
+}
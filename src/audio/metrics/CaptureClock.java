@@ -0,0 +1,49 @@
+package org.bunnys.audio.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers when recent stretches of the ring buffer were written, so a consumer can tell how long ago
+ * a sample was captured. The capture thread is the only writer; entries are overwritten after
+ * {@link #CAPACITY} reads, which only matters for a consumer that is far behind anyway.
+ */
+final class CaptureClock {
+    static final int CAPACITY = 256;
+    private static final int MASK = CAPACITY - 1;
+
+    private final long[] endSequences = new long[CAPACITY];
+    private final long[] timestamps = new long[CAPACITY];
+    private final AtomicLong count = new AtomicLong();
+
+    // Capture thread only
+    void mark(long endSequence, long nanoTime) {
+        long next = count.get();
+        int slot = (int) (next & MASK);
+        endSequences[slot] = endSequence;
+        timestamps[slot] = nanoTime;
+        count.lazySet(next + 1);
+    }
+
+    /**
+     * When the write containing {@code sequence} (exclusive end, as reader positions are) was captured,
+     * or -1 if it has already been overwritten.
+     */
+    long captureTimeOf(long sequence) {
+        long newest = count.get() - 1;
+        long oldest = Math.max(0, newest - CAPACITY + 2);
+        long found = -1;
+
+        // Walk back to the earliest write that already covered the sample
+        for (long entry = newest; entry >= oldest; entry--) {
+            int slot = (int) (entry & MASK);
+            long endSequence = endSequences[slot];
+            long timestamp = timestamps[slot];
+            if (endSequence < sequence)
+                break;
+            found = timestamp;
+        }
+
+        // If the writer lapped us while we were looking, the slots we read may be newer than we think
+        return count.get() - 1 - newest >= CAPACITY - 1 ? -1 : found;
+    }
+}
@@ -0,0 +1,65 @@
+package org.bunnys.audio.metrics;
+
+/**
+ * Immutable copy of a {@link LatencyHistogram}. Values are in the units that were recorded (nanoseconds).
+ */
+public final class HistogramSnapshot {
+    private final long[] counts;
+    private final long totalCount;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long totalCount, long sum, long max) {
+        this.counts = counts;
+        this.totalCount = totalCount;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : sum / (double) totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * The value at or below which {@code percentile} percent of the recorded values fall, reported as
+     * the upper edge of its bucket so it never understates.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0)
+            return 0;
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target)
+                return Math.min(LatencyHistogram.highestValueAt(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * What was recorded between {@code earlier} and this snapshot of the same histogram. The exact
+     * maximum is not known for an interval, so it is taken from the highest non-empty bucket.
+     */
+    public HistogramSnapshot since(HistogramSnapshot earlier) {
+        long[] difference = new long[counts.length];
+        long total = 0;
+        long intervalMax = 0;
+        for (int i = 0; i < counts.length; i++) {
+            difference[i] = Math.max(0, counts[i] - earlier.counts[i]);
+            total += difference[i];
+            if (difference[i] > 0)
+                intervalMax = Math.min(LatencyHistogram.highestValueAt(i), max);
+        }
+        return new HistogramSnapshot(difference, total, Math.max(0, sum - earlier.sum), intervalMax);
+    }
+}
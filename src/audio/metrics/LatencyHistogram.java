@@ -0,0 +1,96 @@
+package org.bunnys.audio.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory histogram of nanosecond durations in the style of HdrHistogram: values below 128 get
+ * exact buckets, above that every power of two is split into 64 linear sub-buckets, so any recorded
+ * value is reported within about 1.6%. Recording is lock-free and never allocates.
+ */
+public final class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 7;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+
+    public static final long DEFAULT_HIGHEST_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram() {
+        this(DEFAULT_HIGHEST_NANOS);
+    }
+
+    /**
+     * @param highestTrackableValue larger values are counted in the top bucket
+     */
+    public LatencyHistogram(long highestTrackableValue) {
+        if (highestTrackableValue < SUB_BUCKET_COUNT)
+            throw new IllegalArgumentException("Highest trackable value must be at least " + SUB_BUCKET_COUNT);
+
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new AtomicLongArray(indexFor(highestTrackableValue) + 1);
+    }
+
+    static int indexFor(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+
+        int shift = index / SUB_BUCKET_HALF - 1;
+        return (long) (index - shift * SUB_BUCKET_HALF) << shift;
+    }
+
+    static long highestValueAt(int index) {
+        return lowestValueAt(index + 1) - 1;
+    }
+
+    public void record(long value) {
+        long clamped = Math.max(0, Math.min(value, highestTrackableValue));
+        counts.incrementAndGet(indexFor(clamped));
+        totalCount.incrementAndGet();
+        sum.addAndGet(clamped);
+
+        long currentMax = max.get();
+        while (clamped > currentMax && !max.compareAndSet(currentMax, clamped))
+            currentMax = max.get();
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * A copy of the counts so far. Recording can continue while it is taken; a snapshot may be off by the
+     * handful of values recorded during the copy.
+     */
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new HistogramSnapshot(copy, total, sum.get(), max.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++)
+            counts.set(i, 0);
+        totalCount.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
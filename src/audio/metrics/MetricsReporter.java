@@ -0,0 +1,145 @@
+package org.bunnys.audio.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs a summary of a {@link PipelineMetrics} every interval and optionally appends the same figures as a
+ * CSV row. Latency percentiles and rates cover just the last interval.
+ */
+public final class MetricsReporter implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(MetricsReporter.class.getName());
+
+    static final String CSV_HEADER = "timestamp,interval_s,capture_reads,captured_bytes,processed_blocks,"
+            + "overruns,dropped_samples,source_backlog_bytes,max_source_backlog_bytes,"
+            + "latency_mean_ms,latency_p50_ms,latency_p99_ms,latency_p999_ms,latency_max_ms,"
+            + "recorder_bytes_per_s,recorder_dropped_bytes,recorder_queue_depth,"
+            + "read_frames,block_frames,end_to_end_ms,stage_mean_us";
+
+    private final String name;
+    private final PipelineMetrics metrics;
+    private final ScheduledExecutorService executor;
+    private final BufferedWriter csvWriter;
+
+    private MetricsSnapshot previous;
+
+    /**
+     * @param csvFile file to append rows to (a header is written if it is new), or {@code null} to only log
+     */
+    public MetricsReporter(String name, PipelineMetrics metrics, Duration interval, Path csvFile) throws IOException {
+        if (interval.isZero() || interval.isNegative())
+            throw new IllegalArgumentException("Report interval must be positive");
+
+        this.name = name;
+        this.metrics = metrics;
+        this.previous = metrics.snapshot();
+        this.csvWriter = csvFile == null ? null : openCsv(csvFile);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MetricsReporter-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long intervalNanos = interval.toNanos();
+        executor.scheduleAtFixedRate(this::report, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static BufferedWriter openCsv(Path csvFile) throws IOException {
+        boolean isNew = !Files.exists(csvFile) || Files.size(csvFile) == 0;
+        BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (isNew) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+            writer.flush();
+        }
+        return writer;
+    }
+
+    private synchronized void report() {
+        try {
+            MetricsSnapshot current = metrics.snapshot();
+            double seconds = (current.nanoTime() - previous.nanoTime()) / 1e9;
+            HistogramSnapshot latency = current.captureLatency().since(previous.captureLatency());
+            // Recorder counters restart with every recording session
+            long recorded = current.recorderWrittenBytes() >= previous.recorderWrittenBytes()
+                    ? current.recorderWrittenBytes() - previous.recorderWrittenBytes()
+                    : current.recorderWrittenBytes();
+            String stages = stageSummary(current.stageTimes(), previous.stageTimes());
+            double endToEnd = current.bufferedMillis() + ms(latency.getValueAtPercentile(50));
+
+            LOGGER.info(String.format(Locale.ROOT,
+                    "[%s] end-to-end ~%.1f ms (read %d, block %d frames); latency p50 %.2f ms, p99 %.2f ms, "
+                            + "max %.2f ms; %d blocks, %d overruns, %d dropped samples; "
+                            + "source backlog %d B (max %d B); recorder %.1f KB/s, queue %d, dropped %d B; stages %s",
+                    name, endToEnd, current.readFrames(), current.blockFrames(),
+                    ms(latency.getValueAtPercentile(50)), ms(latency.getValueAtPercentile(99)),
+                    ms(latency.getMax()), current.processedBlocks() - previous.processedBlocks(),
+                    current.overruns(), current.droppedSamples(), current.sourceBacklogBytes(),
+                    current.maxSourceBacklogBytes(), recorded / seconds / 1024, current.recorderQueueDepth(),
+                    current.recorderDroppedBytes(), stages.isEmpty() ? "-" : stages));
+
+            if (csvWriter != null) {
+                csvWriter.write(String.format(Locale.ROOT,
+                        "%s,%.3f,%d,%d,%d,%d,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.1f,%d,%d,%d,%d,%.3f,\"%s\"",
+                        Instant.now(), seconds, current.captureReads(), current.capturedBytes(),
+                        current.processedBlocks(), current.overruns(), current.droppedSamples(),
+                        current.sourceBacklogBytes(), current.maxSourceBacklogBytes(), ms(latency.getMean()),
+                        ms(latency.getValueAtPercentile(50)), ms(latency.getValueAtPercentile(99)),
+                        ms(latency.getValueAtPercentile(99.9)), ms(latency.getMax()), recorded / seconds,
+                        current.recorderDroppedBytes(), current.recorderQueueDepth(), current.readFrames(),
+                        current.blockFrames(), endToEnd, stages));
+                csvWriter.newLine();
+                csvWriter.flush();
+            }
+
+            previous = current;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to write metrics row", e);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Metrics report failed", e);
+        }
+    }
+
+    private static String stageSummary(Map<String, HistogramSnapshot> current, Map<String, HistogramSnapshot> previous) {
+        StringBuilder summary = new StringBuilder();
+        current.forEach((stage, snapshot) -> {
+            HistogramSnapshot earlier = previous.get(stage);
+            HistogramSnapshot interval = earlier == null ? snapshot : snapshot.since(earlier);
+            if (!summary.isEmpty())
+                summary.append(' ');
+            summary.append(String.format(Locale.ROOT, "%s=%.1fus", stage, interval.getMean() / 1000.0));
+        });
+        return summary.toString();
+    }
+
+    private static double ms(double nanos) {
+        return PipelineMetrics.toMillis(nanos);
+    }
+
+    @Override
+    public synchronized void close() {
+        executor.shutdownNow();
+        if (csvWriter == null)
+            return;
+
+        try {
+            csvWriter.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to close metrics file", e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.bunnys.audio.metrics;
+
+import java.util.Map;
+
+/**
+ * Everything {@link PipelineMetrics} knows at one instant. Counters are cumulative; the reporter turns
+ * two snapshots into per-interval rates.
+ *
+ * @param stageTimes     per-stage processing time, keyed by position and class name, e.g. {@code 0:LowPassFilter}
+ * @param bufferedMillis audio waiting in buffers ahead of the callback, see {@link PipelineMetrics#getBufferedMillis()}
+ */
+public record MetricsSnapshot(
+        long nanoTime,
+        long captureReads,
+        long capturedBytes,
+        long processedBlocks,
+        long overruns,
+        long droppedSamples,
+        int sourceBacklogBytes,
+        long maxSourceBacklogBytes,
+        HistogramSnapshot captureLatency,
+        Map<String, HistogramSnapshot> stageTimes,
+        long recorderWrittenBytes,
+        long recorderDroppedBytes,
+        int recorderQueueDepth,
+        int readFrames,
+        int blockFrames,
+        double bufferedMillis) {
+}
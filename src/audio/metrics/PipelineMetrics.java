@@ -0,0 +1,307 @@
+package org.bunnys.audio.metrics;
+
+import org.bunnys.audio.buffer.SampleRingBuffer;
+import org.bunnys.audio.processing.BlockProcessor;
+import org.bunnys.audio.processing.ProcessorChain;
+import org.bunnys.audio.recording.Recorder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counters and latency histograms for one {@link org.bunnys.audio.AudioHandler} pipeline.
+ * <p>
+ * The capture thread marks every write into the ring, and the processing thread measures how long ago
+ * the last sample of each block was captured. Recording is a handful of atomic adds per block (one block
+ * is tens of milliseconds of audio), so it stays on all the time. Ring, recorder and stage figures are
+ * read from their owners when a snapshot is taken.
+ */
+public final class PipelineMetrics implements PipelineMetricsMXBean {
+    private static final Logger LOGGER = Logger.getLogger(PipelineMetrics.class.getName());
+
+    private final SampleRingBuffer ringBuffer;
+    private final ProcessorChain processorChain;
+    private final Supplier<Recorder> recorder;
+
+    private final CaptureClock captureClock = new CaptureClock();
+    private final LatencyHistogram captureLatency = new LatencyHistogram();
+    private final Map<BlockProcessor, LatencyHistogram> stageTimes = new ConcurrentHashMap<>();
+    private final LongAdder captureReads = new LongAdder();
+    private final LongAdder capturedBytes = new LongAdder();
+    private final LongAdder processedBlocks = new LongAdder();
+    private final AtomicLong maxSourceBacklog = new AtomicLong();
+    private volatile int sourceBacklog;
+
+    // What the capture is currently configured for, to turn buffer sizes into time
+    private volatile int sourceFrameSize = 1;
+    private volatile float sourceSampleRate;
+    private volatile int readFrames;
+    private volatile int blockFrames;
+
+    private ObjectName objectName;
+
+    public PipelineMetrics(SampleRingBuffer ringBuffer, ProcessorChain processorChain, Supplier<Recorder> recorder) {
+        this.ringBuffer = ringBuffer;
+        this.processorChain = processorChain;
+        this.recorder = recorder;
+        processorChain.setStageTimer(new ProcessorChain.StageTimer() {
+            @Override
+            public void onStage(BlockProcessor stage, long nanos) {
+                recordStage(stage, nanos);
+            }
+
+            // Histograms are keyed by stage instance, so replaced stages would otherwise be kept forever
+            @Override
+            public void stagesChanged(BlockProcessor[] stages) {
+                stageTimes.keySet().retainAll(Arrays.asList(stages));
+            }
+        });
+    }
+
+    /**
+     * Capture thread: {@code bytes} were read at {@code readTime} and the ring now ends at {@code endSequence}.
+     *
+     * @param backlogBytes what the source still had buffered after the read
+     */
+    public void recordCapture(long endSequence, long readTime, int bytes, int backlogBytes) {
+        captureClock.mark(endSequence, readTime);
+        captureReads.increment();
+        capturedBytes.add(bytes);
+
+        sourceBacklog = backlogBytes;
+        if (backlogBytes > maxSourceBacklog.get())
+            maxSourceBacklog.accumulateAndGet(backlogBytes, Math::max);
+    }
+
+    /**
+     * Frame size and rate of the source now being captured, which its backlog is measured in.
+     */
+    public void setSourceFormat(int frameSize, float sampleRate) {
+        this.sourceFrameSize = frameSize;
+        this.sourceSampleRate = sampleRate;
+    }
+
+    /**
+     * Frames per source read and per processing block, whenever either changes.
+     */
+    public void setBlockSizes(int readFrames, int blockFrames) {
+        this.readFrames = readFrames;
+        this.blockFrames = blockFrames;
+    }
+
+    /**
+     * Audio that can sit in buffers ahead of the processing callback: the source's backlog plus a read or
+     * a block, whichever is longer, since the oldest sample of a block waits for the rest of it. Adding the
+     * measured capture latency to this gives the end-to-end latency.
+     */
+    public double getBufferedMillis() {
+        float rate = sourceSampleRate;
+        if (rate <= 0)
+            return 0;
+        double frames = sourceBacklog / (double) sourceFrameSize + Math.max(readFrames, blockFrames);
+        return frames / rate * 1000;
+    }
+
+    /**
+     * Processing thread: a block ending at ring position {@code endSequence} has reached the callback.
+     */
+    public void recordBlock(long endSequence) {
+        processedBlocks.increment();
+        long captureTime = captureClock.captureTimeOf(endSequence);
+        if (captureTime >= 0)
+            captureLatency.record(System.nanoTime() - captureTime);
+    }
+
+    /**
+     * {@code System.nanoTime()} at which the read ending at or after ring position {@code endSequence} was
+     * captured, or -1 if it is no longer remembered. Safe from any consumer thread.
+     */
+    public long captureTimeOf(long endSequence) {
+        return captureClock.captureTimeOf(endSequence);
+    }
+
+    // Processing thread; a histogram is only allocated the first time a stage runs
+    private void recordStage(BlockProcessor stage, long nanos) {
+        stageTimes.computeIfAbsent(stage, key -> new LatencyHistogram()).record(nanos);
+    }
+
+    public MetricsSnapshot snapshot() {
+        Recorder currentRecorder = recorder.get();
+        return new MetricsSnapshot(
+                System.nanoTime(),
+                captureReads.sum(),
+                capturedBytes.sum(),
+                processedBlocks.sum(),
+                ringBuffer.getOverrunCount(),
+                ringBuffer.getDroppedSamples(),
+                sourceBacklog,
+                maxSourceBacklog.get(),
+                captureLatency.snapshot(),
+                stageSnapshots(),
+                currentRecorder.getWrittenBytes(),
+                currentRecorder.getDroppedBytes(),
+                currentRecorder.getQueueDepth(),
+                readFrames,
+                blockFrames,
+                getBufferedMillis());
+    }
+
+    // Keyed by the chain's current order; also drops a removed stage that was still finishing a block
+    // when the chain changed
+    private Map<String, HistogramSnapshot> stageSnapshots() {
+        BlockProcessor[] stages = processorChain.getStages();
+        Map<String, HistogramSnapshot> snapshots = new LinkedHashMap<>();
+        for (int i = 0; i < stages.length; i++) {
+            LatencyHistogram histogram = stageTimes.get(stages[i]);
+            if (histogram != null)
+                snapshots.put(i + ":" + stages[i].getClass().getSimpleName(), histogram.snapshot());
+        }
+        stageTimes.keySet().retainAll(Arrays.asList(stages));
+        return snapshots;
+    }
+
+    public void register(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName candidate = new ObjectName("org.bunnys.audio:type=Pipeline,name=" + ObjectName.quote(name));
+            if (server.isRegistered(candidate))
+                server.unregisterMBean(candidate);
+            server.registerMBean(this, candidate);
+            objectName = candidate;
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Failed to register pipeline metrics MBean " + name, e);
+        }
+    }
+
+    public void unregister() {
+        if (objectName == null)
+            return;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Failed to unregister pipeline metrics MBean", e);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public long getCaptureReads() {
+        return captureReads.sum();
+    }
+
+    @Override
+    public long getCapturedBytes() {
+        return capturedBytes.sum();
+    }
+
+    @Override
+    public long getProcessedBlocks() {
+        return processedBlocks.sum();
+    }
+
+    @Override
+    public long getOverrunCount() {
+        return ringBuffer.getOverrunCount();
+    }
+
+    @Override
+    public long getDroppedSamples() {
+        return ringBuffer.getDroppedSamples();
+    }
+
+    @Override
+    public int getSourceBacklogBytes() {
+        return sourceBacklog;
+    }
+
+    @Override
+    public long getMaxSourceBacklogBytes() {
+        return maxSourceBacklog.get();
+    }
+
+    @Override
+    public double getCaptureLatencyMeanMillis() {
+        return toMillis(captureLatency.snapshot().getMean());
+    }
+
+    @Override
+    public double getCaptureLatencyP50Millis() {
+        return toMillis(captureLatency.snapshot().getValueAtPercentile(50));
+    }
+
+    @Override
+    public double getCaptureLatencyP99Millis() {
+        return toMillis(captureLatency.snapshot().getValueAtPercentile(99));
+    }
+
+    @Override
+    public double getCaptureLatencyP999Millis() {
+        return toMillis(captureLatency.snapshot().getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public double getCaptureLatencyMaxMillis() {
+        return toMillis(captureLatency.snapshot().getMax());
+    }
+
+    @Override
+    public int getReadFrames() {
+        return readFrames;
+    }
+
+    @Override
+    public int getBlockFrames() {
+        return blockFrames;
+    }
+
+    @Override
+    public double getEndToEndLatencyMillis() {
+        return getBufferedMillis() + getCaptureLatencyP50Millis();
+    }
+
+    @Override
+    public Map<String, Double> getStageMeanMicros() {
+        Map<String, Double> means = new LinkedHashMap<>();
+        stageSnapshots().forEach((name, snapshot) -> means.put(name, snapshot.getMean() / 1000.0));
+        return means;
+    }
+
+    @Override
+    public long getRecorderWrittenBytes() {
+        return recorder.get().getWrittenBytes();
+    }
+
+    @Override
+    public long getRecorderDroppedBytes() {
+        return recorder.get().getDroppedBytes();
+    }
+
+    @Override
+    public int getRecorderQueueDepth() {
+        return recorder.get().getQueueDepth();
+    }
+
+    @Override
+    public void resetLatency() {
+        captureLatency.reset();
+        for (LatencyHistogram histogram : stageTimes.values())
+            histogram.reset();
+    }
+
+    static double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
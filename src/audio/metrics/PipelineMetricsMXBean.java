@@ -0,0 +1,52 @@
+package org.bunnys.audio.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link PipelineMetrics}, registered as {@code org.bunnys.audio:type=Pipeline,name=...}.
+ * Times are in milliseconds (latency) or microseconds (stages), counters are totals since start.
+ */
+public interface PipelineMetricsMXBean {
+    long getCaptureReads();
+
+    long getCapturedBytes();
+
+    long getProcessedBlocks();
+
+    long getOverrunCount();
+
+    long getDroppedSamples();
+
+    int getSourceBacklogBytes();
+
+    long getMaxSourceBacklogBytes();
+
+    double getCaptureLatencyMeanMillis();
+
+    double getCaptureLatencyP50Millis();
+
+    double getCaptureLatencyP99Millis();
+
+    double getCaptureLatencyP999Millis();
+
+    double getCaptureLatencyMaxMillis();
+
+    int getReadFrames();
+
+    int getBlockFrames();
+
+    /**
+     * Buffered audio ahead of the processing callback plus the median capture latency.
+     */
+    double getEndToEndLatencyMillis();
+
+    Map<String, Double> getStageMeanMicros();
+
+    long getRecorderWrittenBytes();
+
+    long getRecorderDroppedBytes();
+
+    int getRecorderQueueDepth();
+
+    void resetLatency();
+}
@@ -0,0 +1,13 @@
+package org.bunnys.audio.multi;
+
+/**
+ * Counters for one stream of a {@link MultiDeviceCapture}.
+ *
+ * @param capturedSamples       mono samples the device has delivered so far
+ * @param overruns              times one of the device's readers was lapped by the capture thread
+ * @param droppedSamples        samples the mixdown skipped because it fell behind this device
+ * @param droppedRecordingBytes bytes the device's own recorder dropped because its writer fell behind
+ */
+public record DeviceStatistics(String name, long capturedSamples, long overruns, long underruns,
+        long droppedSamples, long droppedRecordingBytes) {
+}
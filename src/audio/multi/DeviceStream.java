@@ -0,0 +1,100 @@
+package org.bunnys.audio.multi;
+
+import org.bunnys.audio.AudioFormatFactory;
+import org.bunnys.audio.AudioHandler;
+import org.bunnys.audio.buffer.SampleRingBuffer;
+import org.bunnys.audio.source.AudioSource;
+import org.bunnys.constants.AudioConstants;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+/**
+ * One input of a {@link MultiDeviceCapture}: a source with its own {@link AudioHandler}, so its own ring
+ * buffer, processor chain and recorder. Processed blocks are also published to a second ring the
+ * mixdown reads from.
+ */
+public final class DeviceStream {
+    private final String name;
+    private final AudioSource source;
+    private final AudioHandler audioHandler;
+    private final SampleRingBuffer processedBuffer;
+    private final Consumer<float[]> callback;
+
+    private volatile boolean ended;
+
+    DeviceStream(String name, AudioSource source, float sampleRate, Consumer<float[]> callback,
+            ThreadFactory threadFactory) {
+        this.name = name;
+        this.source = source;
+        this.callback = callback;
+        this.processedBuffer = new SampleRingBuffer(AudioConstants.RING_BUFFER_CAPACITY);
+        this.audioHandler = new AudioHandler(AudioFormatFactory.withSampleRate(source.getFormat(), sampleRate),
+                this::publishProcessed, threadFactory);
+    }
+
+    // Runs on the device's processing thread, the only producer of the processed ring
+    private void publishProcessed(float[] block) {
+        // Without a real-time clock the capture would lap the mixdown, so wait for it instead
+        if (!source.isRealTime()) {
+            try {
+                processedBuffer.awaitCapacity(block.length);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        processedBuffer.write(block, 0, block.length);
+
+        if (callback != null)
+            callback.accept(block);
+    }
+
+    void start() {
+        audioHandler.startCapture(source);
+    }
+
+    /**
+     * Waits for a finite source to end and its last block to reach the processed ring.
+     */
+    void awaitEnd() throws InterruptedException {
+        audioHandler.awaitSourceEnd();
+        ended = true;
+    }
+
+    boolean isEnded() {
+        return ended;
+    }
+
+    SampleRingBuffer processedBuffer() {
+        return processedBuffer;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AudioSource getSource() {
+        return source;
+    }
+
+    /**
+     * The device's own pipeline, for its processor chain, recorder and extra consumers.
+     */
+    public AudioHandler getAudioHandler() {
+        return audioHandler;
+    }
+
+    DeviceStatistics statistics(SampleRingBuffer.Reader mixdownReader) {
+        long dropped = mixdownReader == null ? 0 : mixdownReader.getDroppedSamples();
+        return new DeviceStatistics(name, audioHandler.getRingBuffer().writeSequence(),
+                audioHandler.getOverrunCount(), audioHandler.getUnderrunCount(), dropped,
+                audioHandler.getRecorder().getDroppedBytes());
+    }
+
+    void close() {
+        if (audioHandler.isRecording())
+            audioHandler.stopRecording();
+        audioHandler.close();
+    }
+}
@@ -0,0 +1,136 @@
+package org.bunnys.audio.multi;
+
+import org.bunnys.audio.buffer.RingBufferConsumer;
+import org.bunnys.audio.buffer.SampleRingBuffer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sums the processed output of several {@link DeviceStream}s sample by sample. Every input is read from
+ * the same position in its stream, so a block is only mixed once all inputs have it; an input that falls
+ * a whole ring behind is skipped ahead and loses alignment, which shows up as dropped samples.
+ * <p>
+ * Separate hardware devices run on separate clocks, so over long sessions their streams drift apart
+ * by a few samples per second. This only aligns by sample count, it does not resample.
+ */
+final class Mixdown implements Runnable {
+    private static final Logger LOGGER = Logger.getLogger(Mixdown.class.getName());
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final List<DeviceStream> streams;
+    private final SampleRingBuffer.Reader[] inputs;
+    private final float gain;
+    private final float[] mix;
+    private final float[] scratch;
+    private final RingBufferConsumer.BlockHandler output;
+
+    private volatile boolean running = true;
+    private volatile boolean finishing;
+    private Thread thread;
+
+    Mixdown(List<DeviceStream> streams, int blockSize, RingBufferConsumer.BlockHandler output) {
+        this.streams = streams;
+        this.inputs = new SampleRingBuffer.Reader[streams.size()];
+        for (int i = 0; i < inputs.length; i++)
+            inputs[i] = streams.get(i).processedBuffer().newReader("mixdown");
+
+        // Equal weights keep the sum of full-scale inputs within full scale
+        this.gain = 1.0f / Math.max(1, inputs.length);
+        this.mix = new float[blockSize];
+        this.scratch = new float[blockSize];
+        this.output = output;
+    }
+
+    SampleRingBuffer.Reader readerFor(DeviceStream stream) {
+        int index = streams.indexOf(stream);
+        return index < 0 ? null : inputs[index];
+    }
+
+    void start(ThreadFactory threadFactory) {
+        thread = threadFactory.newThread(this);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            int ready = Integer.MAX_VALUE;
+            int pending = 0;
+            for (SampleRingBuffer.Reader input : inputs) {
+                ready = Math.min(ready, input.available());
+                pending = Math.max(pending, input.available());
+            }
+
+            if (ready >= mix.length) {
+                mixBlock(mix.length);
+            } else if (finishing && allEnded()) {
+                // Ended streams contribute silence, so the longest one still reaches the output
+                if (pending == 0)
+                    return;
+                mixBlock(Math.min(pending, mix.length));
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private boolean allEnded() {
+        for (DeviceStream stream : streams) {
+            if (!stream.isEnded())
+                return false;
+        }
+        return true;
+    }
+
+    private void mixBlock(int length) {
+        Arrays.fill(mix, 0, length, 0f);
+        for (SampleRingBuffer.Reader input : inputs) {
+            int read = 0;
+            while (read < length) {
+                int count = input.read(scratch, read, length - read);
+                if (count == 0)
+                    break;
+                read += count;
+            }
+
+            for (int i = 0; i < read; i++)
+                mix[i] += scratch[i] * gain;
+        }
+
+        try {
+            output.onBlock(mix, length);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Mixdown output failed to handle a block", e);
+        }
+    }
+
+    /**
+     * Mixes whatever the ended streams left behind, then returns once the mix thread has exited.
+     */
+    void finish() throws InterruptedException {
+        finishing = true;
+        if (thread != null)
+            thread.join();
+    }
+
+    void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (int i = 0; i < inputs.length; i++)
+            streams.get(i).processedBuffer().removeReader(inputs[i]);
+    }
+}
@@ -0,0 +1,216 @@
+package org.bunnys.audio.multi;
+
+import org.bunnys.audio.AudioFormatFactory;
+import org.bunnys.audio.codec.PcmCodec;
+import org.bunnys.audio.recording.Recorder;
+import org.bunnys.audio.recording.StreamingWavRecorder;
+import org.bunnys.audio.source.AudioSource;
+import org.bunnys.audio.source.LineAudioSource;
+import org.bunnys.constants.AudioConstants;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.Mixer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Captures from several sources at once. Each device gets a full {@link org.bunnys.audio.AudioHandler}
+ * pipeline of its own, and all of their threads come from one factory (virtual threads by default), so
+ * dozens of streams don't need three platform threads each. An optional mixdown sums the processed
+ * streams sample by sample.
+ * <p>
+ * Devices are added first, then everything is started together so the streams line up from sample zero.
+ */
+public class MultiDeviceCapture implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(MultiDeviceCapture.class.getName());
+
+    private final AudioFormat format;
+    private final ThreadFactory threadFactory;
+    private final List<DeviceStream> streams;
+
+    private Mixdown mixdown;
+    private Recorder mixdownRecorder;
+    private PcmCodec mixdownCodec;
+    private byte[] mixdownBytes;
+    private volatile boolean mixdownRecording;
+    private Consumer<float[]> mixdownCallback;
+    private boolean mixdownEnabled;
+    private boolean started;
+
+    public MultiDeviceCapture(AudioFormat format) {
+        this(format, Thread.ofVirtual().name("capture-", 0).factory());
+    }
+
+    /**
+     * @param format        capture format for line devices; every stream must run at its sample rate
+     * @param threadFactory source of every capture, processing, recording and mixdown thread
+     */
+    public MultiDeviceCapture(AudioFormat format, ThreadFactory threadFactory) {
+        this.format = format;
+        this.threadFactory = threadFactory;
+        this.streams = new ArrayList<>();
+    }
+
+    public synchronized DeviceStream addDevice(Mixer.Info device, Consumer<float[]> callback) {
+        if (device == null)
+            throw new IllegalArgumentException("Device cannot be null");
+
+        return addSource(device.getName(), new LineAudioSource(device, format), callback);
+    }
+
+    /**
+     * @param callback receives every processed block of this stream on its processing thread, may be null
+     */
+    public synchronized DeviceStream addSource(String name, AudioSource source, Consumer<float[]> callback) {
+        if (started)
+            throw new IllegalStateException("Cannot add a stream after capture has started");
+
+        // Sources at other rates are converted by their stream's handler, so every stream mixes at one rate
+        DeviceStream stream = new DeviceStream(name, source, format.getSampleRate(), callback, threadFactory);
+        streams.add(stream);
+        return stream;
+    }
+
+    /**
+     * Sums all streams into one mono stream delivered to {@code callback} (may be null). Call before {@link #start()}.
+     */
+    public synchronized void enableMixdown(Consumer<float[]> callback) {
+        if (started)
+            throw new IllegalStateException("Mixdown must be enabled before capture starts");
+
+        AudioFormat mixFormat = AudioFormatFactory.createMonoFormat(format);
+        this.mixdownEnabled = true;
+        this.mixdownCallback = callback;
+        this.mixdownCodec = PcmCodec.forFormat(mixFormat);
+        this.mixdownBytes = new byte[AudioConstants.PROCESSING_BLOCK_SIZE * mixFormat.getFrameSize()];
+        this.mixdownRecorder = new StreamingWavRecorder(mixFormat);
+    }
+
+    public synchronized void start() {
+        if (started)
+            throw new IllegalStateException("Capture already started");
+        started = true;
+
+        // Mixdown readers are registered before any audio flows so every input starts at its first sample
+        if (mixdownEnabled) {
+            mixdown = new Mixdown(List.copyOf(streams), AudioConstants.PROCESSING_BLOCK_SIZE, this::handleMixdown);
+            mixdown.start(threadFactory);
+        }
+
+        for (DeviceStream stream : streams)
+            stream.start();
+        LOGGER.info("Capturing from " + streams.size() + " streams" + (mixdownEnabled ? " with mixdown" : ""));
+    }
+
+    // Runs on the mixdown thread
+    private void handleMixdown(float[] block, int length) {
+        if (mixdownRecording) {
+            mixdownCodec.encode(block, 0, mixdownBytes, 0, length);
+            mixdownRecorder.writeData(mixdownBytes, length * mixdownCodec.getFrameSize());
+        }
+
+        if (mixdownCallback != null)
+            mixdownCallback.accept(length == block.length ? block : Arrays.copyOf(block, length));
+    }
+
+    /**
+     * Records every stream to {@code <directory>/<stream name>.wav}, plus {@code mixdown.wav} if enabled.
+     */
+    public synchronized void startRecording(Path directory) {
+        for (int i = 0; i < streams.size(); i++) {
+            DeviceStream stream = streams.get(i);
+            String fileName = String.format("%02d-%s.wav", i, stream.getName().replaceAll("[^A-Za-z0-9._-]+", "_"));
+            stream.getAudioHandler().startRecording(directory.resolve(fileName).toString());
+        }
+
+        if (mixdownEnabled) {
+            // With no live input the mixdown can wait for its writer; the inputs wait for the mixdown in turn
+            boolean anyRealTime = false;
+            for (DeviceStream stream : streams)
+                anyRealTime |= stream.getSource().isRealTime();
+            mixdownRecorder.setBlocking(!anyRealTime);
+            mixdownRecorder.start(directory.resolve("mixdown.wav").toString());
+            mixdownRecording = true;
+        }
+    }
+
+    public synchronized void stopRecording() {
+        for (DeviceStream stream : streams) {
+            if (stream.getAudioHandler().isRecording())
+                stream.getAudioHandler().stopRecording();
+        }
+
+        if (mixdownRecording) {
+            mixdownRecording = false;
+            mixdownRecorder.stop();
+        }
+    }
+
+    /**
+     * Blocks until every (finite) source has ended and its audio, including the mixdown, has been handled.
+     */
+    public void awaitEnd() throws InterruptedException {
+        List<DeviceStream> current;
+        Mixdown currentMixdown;
+        synchronized (this) {
+            current = List.copyOf(streams);
+            currentMixdown = mixdown;
+        }
+
+        for (DeviceStream stream : current)
+            stream.awaitEnd();
+        if (currentMixdown != null)
+            currentMixdown.finish();
+    }
+
+    public synchronized List<DeviceStream> getStreams() {
+        return List.copyOf(streams);
+    }
+
+    public synchronized List<DeviceStatistics> getStatistics() {
+        List<DeviceStatistics> statistics = new ArrayList<>(streams.size());
+        for (DeviceStream stream : streams)
+            statistics.add(stream.statistics(mixdown == null ? null : mixdown.readerFor(stream)));
+        return statistics;
+    }
+
+    /**
+     * Exposes every stream's {@link org.bunnys.audio.metrics.PipelineMetrics} over JMX under its stream name.
+     */
+    public synchronized void registerMetrics() {
+        for (DeviceStream stream : streams)
+            stream.getAudioHandler().getMetrics().register(stream.getName());
+    }
+
+    /**
+     * Bytes the mixdown recorder dropped because its writer fell behind, 0 without a mixdown.
+     */
+    public synchronized long getMixdownDroppedBytes() {
+        return mixdownRecorder == null ? 0 : mixdownRecorder.getDroppedBytes();
+    }
+
+    public long getTotalOverrunCount() {
+        long total = 0;
+        for (DeviceStatistics statistics : getStatistics())
+            total += statistics.overruns();
+        return total;
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public synchronized void close() {
+        stopRecording();
+        if (mixdown != null)
+            mixdown.stop();
+        for (DeviceStream stream : streams)
+            stream.close();
+    }
+}
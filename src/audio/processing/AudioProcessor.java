@@ -1,5 +1,9 @@
 package org.bunnys.audio.processing;
 
+/**
+ * The original array-returning processor contract, kept for existing callers.
+ * New processors should implement {@link BlockProcessor}; see {@link AudioProcessorAdapter} to bridge the two.
+ */
 public interface AudioProcessor {
     float[] process(float[] input);
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package org.bunnys.audio.processing;
+
+/**
+ * Bridges between {@link AudioProcessor} and {@link BlockProcessor}.
+ */
+public final class AudioProcessorAdapter {
+    private AudioProcessorAdapter() {
+    } // Prevent instantiation
+
+    /**
+     * Exposes a block processor through the old interface. Every call allocates the returned array.
+     */
+    public static AudioProcessor asAudioProcessor(BlockProcessor processor) {
+        return input -> {
+            if (input == null || input.length == 0)
+                return new float[0];
+
+            float[] output = new float[input.length];
+            processor.process(input, 0, output, 0, input.length);
+            return output;
+        };
+    }
+
+    /**
+     * Runs an old-style processor as a chain stage. This allocates per block, so it is only meant to keep
+     * existing processors working until they are migrated.
+     */
+    public static BlockProcessor asBlockProcessor(AudioProcessor processor) {
+        return (input, inputOffset, output, outputOffset, length) -> {
+            float[] block = new float[length];
+            System.arraycopy(input, inputOffset, block, 0, length);
+
+            float[] processed = processor.process(block);
+            System.arraycopy(processed, 0, output, outputOffset, Math.min(length, processed.length));
+        };
+    }
+}
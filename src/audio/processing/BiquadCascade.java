@@ -0,0 +1,259 @@
+package org.bunnys.audio.processing;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A chain of second-order IIR sections in transposed direct form II, with double-precision state kept
+ * per channel across blocks.
+ * <p>
+ * Coefficients are replaced from any thread through {@link #setSections}, which publishes an immutable
+ * snapshot. The audio thread notices the new snapshot at its next block and glides every coefficient
+ * there linearly over {@code rampSamples} samples, so parameter changes don't click or zipper, and the
+ * audio thread never locks or allocates. Unused sections are identity and cost almost nothing.
+ */
+public class BiquadCascade implements BlockProcessor {
+    public static final int DEFAULT_RAMP_SAMPLES = 512;
+    private static final int COEFFICIENTS = 5;
+    private static final double DENORMAL_LIMIT = 1e-25;
+
+    private final int maxSections;
+    private final int channels;
+    private final int rampSamples;
+    private final AtomicReference<BiquadCoefficients[]> target;
+
+    // Audio thread only, one row per channel
+    private final BiquadCoefficients[][] applied;
+    private final double[][] live;
+    private final double[][] step;
+    private final int[] rampRemaining;
+    private final double[][] state;
+
+    public BiquadCascade(BiquadCoefficients... sections) {
+        this(sections.length, 1, DEFAULT_RAMP_SAMPLES, sections);
+    }
+
+    /**
+     * @param maxSections most sections {@link #setSections} will ever be given
+     * @param channels    independent filter states for {@link #processInterleaved} and {@link #processPlanar}
+     * @param rampSamples how long a coefficient change takes to complete, 0 to switch instantly
+     */
+    public BiquadCascade(int maxSections, int channels, int rampSamples, BiquadCoefficients... initial) {
+        if (maxSections <= 0)
+            throw new IllegalArgumentException("A cascade needs at least one section");
+        if (channels <= 0)
+            throw new IllegalArgumentException("Channel count must be positive: " + channels);
+        if (rampSamples < 0)
+            throw new IllegalArgumentException("Ramp length cannot be negative: " + rampSamples);
+
+        this.maxSections = maxSections;
+        this.channels = channels;
+        this.rampSamples = rampSamples;
+
+        BiquadCoefficients[] snapshot = padded(initial, maxSections);
+        this.target = new AtomicReference<>(snapshot);
+        this.applied = new BiquadCoefficients[channels][];
+        this.live = new double[channels][maxSections * COEFFICIENTS];
+        this.step = new double[channels][maxSections * COEFFICIENTS];
+        this.rampRemaining = new int[channels];
+        this.state = new double[channels][maxSections * 2];
+
+        for (int channel = 0; channel < channels; channel++)
+            snapTo(channel, snapshot);
+    }
+
+    private static BiquadCoefficients[] padded(BiquadCoefficients[] sections, int maxSections) {
+        if (sections.length > maxSections)
+            throw new IllegalArgumentException("At most " + maxSections + " sections, got " + sections.length);
+
+        BiquadCoefficients[] snapshot = new BiquadCoefficients[maxSections];
+        Arrays.fill(snapshot, BiquadCoefficients.IDENTITY);
+        for (int i = 0; i < sections.length; i++) {
+            if (sections[i] == null)
+                throw new IllegalArgumentException("Section cannot be null");
+            if (!sections[i].isStable())
+                throw new IllegalArgumentException("Section " + i + " is unstable: " + sections[i]);
+            snapshot[i] = sections[i];
+        }
+        return snapshot;
+    }
+
+    /**
+     * Publishes new coefficients; missing trailing sections become identity. Safe from any thread.
+     */
+    public void setSections(BiquadCoefficients... sections) {
+        target.set(padded(sections, maxSections));
+    }
+
+    public int getMaxSections() {
+        return maxSections;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public void process(float[] input, int inputOffset, float[] output, int outputOffset, int length) {
+        processChannel(0, input, inputOffset, 1, output, outputOffset, 1, length);
+    }
+
+    /**
+     * Filters interleaved frames in place, each channel with its own state.
+     */
+    public void processInterleaved(float[] buffer, int offset, int frames) {
+        for (int channel = 0; channel < channels; channel++)
+            processChannel(channel, buffer, offset + channel, channels, buffer, offset + channel, channels, frames);
+    }
+
+    /**
+     * Filters one array per channel in place, each channel with its own state.
+     */
+    public void processPlanar(float[][] planar, int offset, int frames) {
+        for (int channel = 0; channel < channels; channel++)
+            processChannel(channel, planar[channel], offset, 1, planar[channel], offset, 1, frames);
+    }
+
+    private void processChannel(int channel, float[] input, int inputOffset, int inputStride,
+            float[] output, int outputOffset, int outputStride, int frames) {
+        BiquadCoefficients[] latest = target.get();
+        if (latest != applied[channel])
+            startRamp(channel, latest);
+
+        int done = 0;
+        if (rampRemaining[channel] > 0) {
+            done = Math.min(frames, rampRemaining[channel]);
+            processRamping(channel, input, inputOffset, inputStride, output, outputOffset, outputStride, done);
+            rampRemaining[channel] -= done;
+            if (rampRemaining[channel] == 0)
+                snapTo(channel, applied[channel]);
+        }
+
+        if (done < frames) {
+            processSteady(channel, input, inputOffset + done * inputStride, inputStride,
+                    output, outputOffset + done * outputStride, outputStride, frames - done);
+        }
+
+        // Decaying state would otherwise drift into denormals during silence, which are very slow
+        double[] z = state[channel];
+        for (int i = 0; i < z.length; i++) {
+            if (Math.abs(z[i]) < DENORMAL_LIMIT)
+                z[i] = 0;
+        }
+    }
+
+    private void startRamp(int channel, BiquadCoefficients[] latest) {
+        applied[channel] = latest;
+        if (rampSamples == 0) {
+            snapTo(channel, latest);
+            return;
+        }
+
+        double[] c = live[channel];
+        double[] s = step[channel];
+        for (int section = 0; section < maxSections; section++) {
+            BiquadCoefficients to = latest[section];
+            int index = section * COEFFICIENTS;
+            s[index] = (to.b0() - c[index]) / rampSamples;
+            s[index + 1] = (to.b1() - c[index + 1]) / rampSamples;
+            s[index + 2] = (to.b2() - c[index + 2]) / rampSamples;
+            s[index + 3] = (to.a1() - c[index + 3]) / rampSamples;
+            s[index + 4] = (to.a2() - c[index + 4]) / rampSamples;
+        }
+        rampRemaining[channel] = rampSamples;
+    }
+
+    // Lands exactly on the target rather than on the accumulated steps
+    private void snapTo(int channel, BiquadCoefficients[] snapshot) {
+        applied[channel] = snapshot;
+        rampRemaining[channel] = 0;
+
+        double[] c = live[channel];
+        for (int section = 0; section < maxSections; section++) {
+            BiquadCoefficients coefficients = snapshot[section];
+            int index = section * COEFFICIENTS;
+            c[index] = coefficients.b0();
+            c[index + 1] = coefficients.b1();
+            c[index + 2] = coefficients.b2();
+            c[index + 3] = coefficients.a1();
+            c[index + 4] = coefficients.a2();
+        }
+    }
+
+    // Sample by sample, advancing every coefficient one step per sample
+    private void processRamping(int channel, float[] input, int inputOffset, int inputStride,
+            float[] output, int outputOffset, int outputStride, int frames) {
+        double[] c = live[channel];
+        double[] s = step[channel];
+        double[] z = state[channel];
+
+        for (int i = 0; i < frames; i++) {
+            double x = input[inputOffset + i * inputStride];
+            for (int section = 0; section < maxSections; section++) {
+                int index = section * COEFFICIENTS;
+                double b0 = c[index] += s[index];
+                double b1 = c[index + 1] += s[index + 1];
+                double b2 = c[index + 2] += s[index + 2];
+                double a1 = c[index + 3] += s[index + 3];
+                double a2 = c[index + 4] += s[index + 4];
+
+                double y = b0 * x + z[2 * section];
+                z[2 * section] = b1 * x - a1 * y + z[2 * section + 1];
+                z[2 * section + 1] = b2 * x - a2 * y;
+                x = y;
+            }
+            output[outputOffset + i * outputStride] = (float) x;
+        }
+    }
+
+    // Section by section over the whole block, with each section's coefficients held in locals
+    private void processSteady(int channel, float[] input, int inputOffset, int inputStride,
+            float[] output, int outputOffset, int outputStride, int frames) {
+        double[] c = live[channel];
+        double[] z = state[channel];
+        boolean copied = false;
+
+        for (int section = 0; section < maxSections; section++) {
+            int index = section * COEFFICIENTS;
+            double b0 = c[index], b1 = c[index + 1], b2 = c[index + 2], a1 = c[index + 3], a2 = c[index + 4];
+            if (b0 == 1 && b1 == 0 && b2 == 0 && a1 == 0 && a2 == 0) {
+                z[2 * section] = 0;
+                z[2 * section + 1] = 0;
+                continue;
+            }
+
+            float[] source = copied ? output : input;
+            int sourceOffset = copied ? outputOffset : inputOffset;
+            int sourceStride = copied ? outputStride : inputStride;
+            double z1 = z[2 * section];
+            double z2 = z[2 * section + 1];
+
+            for (int i = 0; i < frames; i++) {
+                double x = source[sourceOffset + i * sourceStride];
+                double y = b0 * x + z1;
+                z1 = b1 * x - a1 * y + z2;
+                z2 = b2 * x - a2 * y;
+                output[outputOffset + i * outputStride] = (float) y;
+            }
+
+            z[2 * section] = z1;
+            z[2 * section + 1] = z2;
+            copied = true;
+        }
+
+        // Every section was identity
+        if (!copied && (input != output || inputOffset != outputOffset || inputStride != outputStride)) {
+            for (int i = 0; i < frames; i++)
+                output[outputOffset + i * outputStride] = input[inputOffset + i * inputStride];
+        }
+    }
+
+    @Override
+    public void reset() {
+        BiquadCoefficients[] latest = target.get();
+        for (int channel = 0; channel < channels; channel++) {
+            Arrays.fill(state[channel], 0);
+            snapTo(channel, latest);
+        }
+    }
+}
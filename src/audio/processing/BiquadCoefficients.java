@@ -0,0 +1,112 @@
+package org.bunnys.audio.processing;
+
+/**
+ * Normalised coefficients of one second-order section,
+ * {@code y[n] = b0 x[n] + b1 x[n-1] + b2 x[n-2] - a1 y[n-1] - a2 y[n-2]}.
+ * Designs follow Robert Bristow-Johnson's Audio EQ Cookbook and are computed in double precision,
+ * which keeps low corner frequencies at high sample rates accurate.
+ */
+public record BiquadCoefficients(double b0, double b1, double b2, double a1, double a2) {
+    public static final BiquadCoefficients IDENTITY = new BiquadCoefficients(1, 0, 0, 0, 0);
+
+    public enum Type {
+        LOW_PASS, HIGH_PASS, BAND_PASS, NOTCH, PEAKING, LOW_SHELF, HIGH_SHELF
+    }
+
+    /**
+     * @param frequency corner or centre frequency in Hz, clamped to just below Nyquist
+     * @param q         quality factor; for shelves this is the shelf slope's Q
+     * @param gainDb    boost or cut, only used by the peaking and shelf types
+     */
+    public static BiquadCoefficients design(Type type, double sampleRate, double frequency, double q, double gainDb) {
+        if (sampleRate <= 0)
+            throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+        if (frequency <= 0)
+            throw new IllegalArgumentException("Frequency must be positive: " + frequency);
+        if (q <= 0)
+            throw new IllegalArgumentException("Q must be positive: " + q);
+
+        double w0 = 2 * Math.PI * Math.min(frequency, 0.49 * sampleRate) / sampleRate;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+        double a = Math.pow(10, gainDb / 40);
+
+        return switch (type) {
+            case LOW_PASS -> normalise((1 - cos) / 2, 1 - cos, (1 - cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+            case HIGH_PASS -> normalise((1 + cos) / 2, -(1 + cos), (1 + cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+            // Constant 0 dB peak gain
+            case BAND_PASS -> normalise(alpha, 0, -alpha, 1 + alpha, -2 * cos, 1 - alpha);
+            case NOTCH -> normalise(1, -2 * cos, 1, 1 + alpha, -2 * cos, 1 - alpha);
+            case PEAKING -> normalise(1 + alpha * a, -2 * cos, 1 - alpha * a, 1 + alpha / a, -2 * cos, 1 - alpha / a);
+            case LOW_SHELF -> {
+                double shelf = 2 * Math.sqrt(a) * alpha;
+                yield normalise(
+                        a * ((a + 1) - (a - 1) * cos + shelf),
+                        2 * a * ((a - 1) - (a + 1) * cos),
+                        a * ((a + 1) - (a - 1) * cos - shelf),
+                        (a + 1) + (a - 1) * cos + shelf,
+                        -2 * ((a - 1) + (a + 1) * cos),
+                        (a + 1) + (a - 1) * cos - shelf);
+            }
+            case HIGH_SHELF -> {
+                double shelf = 2 * Math.sqrt(a) * alpha;
+                yield normalise(
+                        a * ((a + 1) + (a - 1) * cos + shelf),
+                        -2 * a * ((a - 1) + (a + 1) * cos),
+                        a * ((a + 1) + (a - 1) * cos - shelf),
+                        (a + 1) - (a - 1) * cos + shelf,
+                        2 * ((a - 1) - (a + 1) * cos),
+                        (a + 1) - (a - 1) * cos - shelf);
+            }
+        };
+    }
+
+    /**
+     * First stage of the ITU-R BS.1770 K-weighting filter: a +4 dB high shelf modelling the head.
+     * Designed from the analogue prototype so it matches the published 48 kHz coefficients at any rate.
+     */
+    public static BiquadCoefficients kWeightingShelf(double sampleRate) {
+        double k = Math.tan(Math.PI * 1681.974450955533 / sampleRate);
+        double q = 0.7071752369554196;
+        double vh = Math.pow(10, 3.999843853973347 / 20);
+        double vb = Math.pow(vh, 0.4996667741545416);
+        return normalise(vh + vb * k / q + k * k, 2 * (k * k - vh), vh - vb * k / q + k * k,
+                1 + k / q + k * k, 2 * (k * k - 1), 1 - k / q + k * k);
+    }
+
+    /**
+     * Second stage of the K-weighting filter: the RLB high-pass at about 38 Hz.
+     */
+    public static BiquadCoefficients kWeightingHighPass(double sampleRate) {
+        double k = Math.tan(Math.PI * 38.13547087602444 / sampleRate);
+        double q = 0.5003270373238773;
+        double a0 = 1 + k / q + k * k;
+        return new BiquadCoefficients(1, -2, 1, 2 * (k * k - 1) / a0, (1 - k / q + k * k) / a0);
+    }
+
+    private static BiquadCoefficients normalise(double b0, double b1, double b2, double a0, double a1, double a2) {
+        return new BiquadCoefficients(b0 / a0, b1 / a0, b2 / a0, a1 / a0, a2 / a0);
+    }
+
+    /**
+     * True when both poles are inside the unit circle (the stability triangle test).
+     */
+    public boolean isStable() {
+        return Math.abs(a2) < 1 && Math.abs(a1) < 1 + a2;
+    }
+
+    /**
+     * Gain at {@code frequency} in Hz, as a linear magnitude.
+     */
+    public double magnitudeAt(double frequency, double sampleRate) {
+        double w = 2 * Math.PI * frequency / sampleRate;
+        double cos1 = Math.cos(w), sin1 = Math.sin(w);
+        double cos2 = Math.cos(2 * w), sin2 = Math.sin(2 * w);
+
+        double numeratorReal = b0 + b1 * cos1 + b2 * cos2;
+        double numeratorImaginary = -(b1 * sin1 + b2 * sin2);
+        double denominatorReal = 1 + a1 * cos1 + a2 * cos2;
+        double denominatorImaginary = -(a1 * sin1 + a2 * sin2);
+        return Math.hypot(numeratorReal, numeratorImaginary) / Math.hypot(denominatorReal, denominatorImaginary);
+    }
+}
@@ -0,0 +1,22 @@
+package org.bunnys.audio.processing;
+
+/**
+ * Processes audio in caller-owned buffers, one block at a time.
+ * <p>
+ * Implementations keep their state (filter memory, smoothing, etc.) across calls, so consecutive blocks
+ * behave exactly like one continuous signal. {@code input} and {@code output} may be the same array at the
+ * same offset, and implementations must not allocate on this path.
+ */
+public interface BlockProcessor {
+    void process(float[] input, int inputOffset, float[] output, int outputOffset, int length);
+
+    default void process(float[] buffer, int offset, int length) {
+        process(buffer, offset, buffer, offset, length);
+    }
+
+    /**
+     * Clears any state carried over from previous blocks.
+     */
+    default void reset() {
+    }
+}
@@ -0,0 +1,87 @@
+package org.bunnys.audio.processing;
+
+import org.bunnys.audio.codec.PcmCodec;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * An FIR kernel split into equal partitions, each already transformed for a {@link PartitionedConvolver}.
+ * <p>
+ * Partition {@code p} holds taps {@code [p * partitionSize, (p + 1) * partitionSize)} zero-padded to twice
+ * the partition size, as a packed {@link RealFFT} spectrum. Building one runs an FFT per partition and
+ * allocates, so kernels are prepared off the audio thread and handed over ready to use.
+ */
+public final class ConvolutionKernel {
+    private final int partitionSize;
+    private final int length;
+    private final float[][] partitions;
+
+    private ConvolutionKernel(int partitionSize, int length, float[][] partitions) {
+        this.partitionSize = partitionSize;
+        this.length = length;
+        this.partitions = partitions;
+    }
+
+    public static ConvolutionKernel of(float[] taps, int partitionSize) {
+        if (taps == null || taps.length == 0)
+            throw new IllegalArgumentException("A kernel needs at least one tap");
+
+        RealFFT fft = new RealFFT(2 * partitionSize);
+        int count = (taps.length + partitionSize - 1) / partitionSize;
+        float[][] partitions = new float[count][2 * partitionSize];
+
+        for (int p = 0; p < count; p++) {
+            int start = p * partitionSize;
+            System.arraycopy(taps, start, partitions[p], 0, Math.min(partitionSize, taps.length - start));
+            fft.forward(partitions[p]);
+        }
+        return new ConvolutionKernel(partitionSize, taps.length, partitions);
+    }
+
+    /**
+     * Loads an impulse response from an audio file, mixing multichannel files down to mono.
+     *
+     * @param sampleRate the rate the kernel will run at; the file must already be at this rate
+     */
+    public static ConvolutionKernel fromFile(Path path, float sampleRate, int partitionSize)
+            throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream stream = AudioSystem.getAudioInputStream(path.toFile())) {
+            AudioFormat format = stream.getFormat();
+            if (Math.abs(format.getSampleRate() - sampleRate) > 0.5f)
+                throw new IllegalArgumentException("Impulse response " + path + " is at " + format.getSampleRate()
+                        + " Hz, expected " + sampleRate + " Hz");
+
+            PcmCodec codec = PcmCodec.forFormat(format);
+            byte[] bytes = stream.readAllBytes();
+            int frames = bytes.length / codec.getFrameSize();
+
+            float[] taps = new float[frames];
+            codec.decodeMono(bytes, 0, frames, taps, 0);
+            return of(taps, partitionSize);
+        }
+    }
+
+    public int getPartitionSize() {
+        return partitionSize;
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * Number of taps the kernel was built from.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    float[] partition(int index) {
+        return partitions[index];
+    }
+}
@@ -0,0 +1,254 @@
+package org.bunnys.audio.processing;
+
+import java.util.Arrays;
+
+/**
+ * Level and loudness of a mono stream, measured as it goes: sample peak, 4x-oversampled true peak,
+ * RMS, and EBU R128 momentary, short-term and integrated loudness (ITU-R BS.1770 K-weighting and gating).
+ * <p>
+ * Each block is read once. Every sample is K-weighted by two inline biquads and squared into the running
+ * sums of the current 100 ms step; the true peak comes from a {@link PolyphaseResampler} run a short
+ * chunk at a time, so nothing grows with the block size. Completed steps go into two small rings, which
+ * give the 400 ms and 3 s windows, and every 400 ms gating block (one per step, 75% overlap) above the
+ * absolute gate goes into a fixed histogram of {@value #HISTOGRAM_RESOLUTION} LU bins, from which the
+ * relatively gated integrated loudness is read back without keeping any block history.
+ * <p>
+ * {@link #accept} must only be called from one thread, normally the processing thread. Readers on any
+ * other thread get immutable {@link LoudnessSnapshot}s through a volatile field and never hold up the
+ * audio. Readings cover a single channel, weighted 1.0 as BS.1770 weights the front channels.
+ */
+public class LoudnessMeter {
+    public static final double ABSOLUTE_GATE_LUFS = -70;
+    public static final double RELATIVE_GATE_LU = -10;
+    public static final int OVERSAMPLING = 4;
+
+    private static final double LOUDNESS_OFFSET = -0.691;
+    private static final double STEP_SECONDS = 0.1;
+    private static final int MOMENTARY_STEPS = 4;
+    private static final int SHORT_TERM_STEPS = 30;
+    private static final double HISTOGRAM_MAX_LUFS = 10;
+    private static final double HISTOGRAM_RESOLUTION = 0.1;
+    private static final int TRUE_PEAK_CHUNK = 64;
+
+    private final float sampleRate;
+    private final float fullScale;
+    private final int stepSamples;
+
+    private final BiquadCoefficients shelf;
+    private final BiquadCoefficients highPass;
+    private double shelfZ1, shelfZ2, highPassZ1, highPassZ2;
+
+    // Only the ratio matters to the oversampler, so it runs at 1 -> 4 "Hz"
+    private final PolyphaseResampler oversampler;
+    private final float[] oversampled;
+
+    // Sums of squares per completed step, newest at stepIndex - 1
+    private final double[] weightedSteps = new double[SHORT_TERM_STEPS];
+    private final double[] plainSteps = new double[MOMENTARY_STEPS];
+    private int stepIndex;
+    private int stepsFilled;
+
+    private int stepPosition;
+    private double weightedSum;
+    private double plainSum;
+    private float stepPeak;
+    private float stepTruePeak;
+    private float maxTruePeak;
+    private long totalSamples;
+
+    // Gating blocks above the absolute gate: per-bin counts and mean squares, plus running totals
+    private final long[] histogramCounts;
+    private final double[] histogramEnergy;
+    private long gatedBlocks;
+    private double gatedEnergy;
+
+    private volatile boolean resetRequested;
+    private volatile LoudnessSnapshot snapshot = LoudnessSnapshot.EMPTY;
+
+    public LoudnessMeter(float sampleRate, float fullScale) {
+        if (sampleRate <= 0)
+            throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+
+        this.sampleRate = sampleRate;
+        this.fullScale = fullScale;
+        this.stepSamples = Math.max(1, (int) Math.round(sampleRate * STEP_SECONDS));
+        this.shelf = BiquadCoefficients.kWeightingShelf(sampleRate);
+        this.highPass = BiquadCoefficients.kWeightingHighPass(sampleRate);
+        this.oversampler = new PolyphaseResampler(1, OVERSAMPLING, PolyphaseResampler.Quality.BALANCED);
+        this.oversampled = new float[oversampler.maxOutputLength(TRUE_PEAK_CHUNK)];
+
+        int bins = (int) Math.round((HISTOGRAM_MAX_LUFS - ABSOLUTE_GATE_LUFS) / HISTOGRAM_RESOLUTION);
+        this.histogramCounts = new long[bins];
+        this.histogramEnergy = new double[bins];
+    }
+
+    /**
+     * Measures {@code length} samples. Does not allocate, except for the snapshot published each step.
+     */
+    public void accept(float[] samples, int offset, int length) {
+        if (resetRequested) {
+            resetRequested = false;
+            clear();
+        }
+
+        int end = offset + length;
+        while (offset < end) {
+            int chunk = Math.min(Math.min(end - offset, TRUE_PEAK_CHUNK), stepSamples - stepPosition);
+            measure(samples, offset, chunk);
+            offset += chunk;
+            stepPosition += chunk;
+            if (stepPosition == stepSamples)
+                completeStep();
+        }
+    }
+
+    private void measure(float[] samples, int offset, int length) {
+        double b0s = shelf.b0(), b1s = shelf.b1(), b2s = shelf.b2(), a1s = shelf.a1(), a2s = shelf.a2();
+        double b0h = highPass.b0(), b1h = highPass.b1(), b2h = highPass.b2(), a1h = highPass.a1(), a2h = highPass.a2();
+        double sz1 = shelfZ1, sz2 = shelfZ2, hz1 = highPassZ1, hz2 = highPassZ2;
+        double weighted = 0;
+        double plain = 0;
+        float peak = stepPeak;
+
+        for (int i = offset; i < offset + length; i++) {
+            double x = samples[i] / fullScale;
+            peak = Math.max(peak, Math.abs(samples[i]));
+            plain += x * x;
+
+            // Transposed direct form II, shelf then high-pass
+            double y = b0s * x + sz1;
+            sz1 = b1s * x - a1s * y + sz2;
+            sz2 = b2s * x - a2s * y;
+            double k = b0h * y + hz1;
+            hz1 = b1h * y - a1h * k + hz2;
+            hz2 = b2h * y - a2h * k;
+            weighted += k * k;
+        }
+
+        shelfZ1 = sz1;
+        shelfZ2 = sz2;
+        highPassZ1 = hz1;
+        highPassZ2 = hz2;
+        weightedSum += weighted;
+        plainSum += plain;
+        stepPeak = peak;
+
+        int produced = oversampler.process(samples, offset, length, oversampled, 0);
+        float truePeak = Math.max(stepTruePeak, peak);
+        for (int i = 0; i < produced; i++)
+            truePeak = Math.max(truePeak, Math.abs(oversampled[i]));
+        stepTruePeak = truePeak;
+        totalSamples += length;
+    }
+
+    private void completeStep() {
+        weightedSteps[stepIndex % SHORT_TERM_STEPS] = weightedSum;
+        plainSteps[stepIndex % MOMENTARY_STEPS] = plainSum;
+        stepIndex = (stepIndex + 1) % (SHORT_TERM_STEPS * MOMENTARY_STEPS);
+        stepsFilled = Math.min(SHORT_TERM_STEPS, stepsFilled + 1);
+
+        double momentary = meanOfLastSteps(weightedSteps, MOMENTARY_STEPS);
+        if (stepsFilled >= MOMENTARY_STEPS && loudness(momentary) > ABSOLUTE_GATE_LUFS)
+            addGatingBlock(momentary);
+
+        maxTruePeak = Math.max(maxTruePeak, stepTruePeak);
+        snapshot = new LoudnessSnapshot(
+                decibels(stepPeak / fullScale),
+                decibels(stepTruePeak / fullScale),
+                decibels(maxTruePeak / fullScale),
+                decibels(Math.sqrt(meanOfLastSteps(plainSteps, MOMENTARY_STEPS))),
+                loudness(momentary),
+                loudness(meanOfLastSteps(weightedSteps, SHORT_TERM_STEPS)),
+                integratedLoudness(),
+                totalSamples / (double) sampleRate);
+
+        stepPosition = 0;
+        weightedSum = 0;
+        plainSum = 0;
+        stepPeak = 0;
+        stepTruePeak = 0;
+    }
+
+    // Before a window has filled, it is measured over what there is so far
+    private double meanOfLastSteps(double[] ring, int steps) {
+        int count = Math.min(steps, stepsFilled);
+        double sum = 0;
+        for (int i = 1; i <= count; i++)
+            sum += ring[Math.floorMod(stepIndex - i, ring.length)];
+        return count > 0 ? sum / ((double) count * stepSamples) : 0;
+    }
+
+    private void addGatingBlock(double meanSquare) {
+        int bin = Math.min(histogramCounts.length - 1,
+                (int) ((loudness(meanSquare) - ABSOLUTE_GATE_LUFS) / HISTOGRAM_RESOLUTION));
+        histogramCounts[bin]++;
+        histogramEnergy[bin] += meanSquare;
+        gatedBlocks++;
+        gatedEnergy += meanSquare;
+    }
+
+    // Blocks in bins wholly at or above the relative gate, the first one straddling it included
+    private double integratedLoudness() {
+        if (gatedBlocks == 0)
+            return Double.NEGATIVE_INFINITY;
+
+        double relativeGate = loudness(gatedEnergy / gatedBlocks) + RELATIVE_GATE_LU;
+        int first = Math.max(0, (int) ((relativeGate - ABSOLUTE_GATE_LUFS) / HISTOGRAM_RESOLUTION));
+        long count = 0;
+        double energy = 0;
+        for (int bin = first; bin < histogramCounts.length; bin++) {
+            count += histogramCounts[bin];
+            energy += histogramEnergy[bin];
+        }
+        return count > 0 ? loudness(energy / count) : Double.NEGATIVE_INFINITY;
+    }
+
+    private static double loudness(double meanSquare) {
+        return meanSquare > 0 ? LOUDNESS_OFFSET + 10 * Math.log10(meanSquare) : Double.NEGATIVE_INFINITY;
+    }
+
+    private static double decibels(double level) {
+        return level > 0 ? 20 * Math.log10(level) : Double.NEGATIVE_INFINITY;
+    }
+
+    private void clear() {
+        shelfZ1 = shelfZ2 = highPassZ1 = highPassZ2 = 0;
+        oversampler.reset();
+        Arrays.fill(weightedSteps, 0);
+        Arrays.fill(plainSteps, 0);
+        Arrays.fill(histogramCounts, 0);
+        Arrays.fill(histogramEnergy, 0);
+        stepIndex = 0;
+        stepsFilled = 0;
+        stepPosition = 0;
+        weightedSum = 0;
+        plainSum = 0;
+        stepPeak = 0;
+        stepTruePeak = 0;
+        maxTruePeak = 0;
+        totalSamples = 0;
+        gatedBlocks = 0;
+        gatedEnergy = 0;
+        snapshot = LoudnessSnapshot.EMPTY;
+    }
+
+    /**
+     * Starts a new measurement, e.g. for a new source. Safe from any thread: the state is cleared by the
+     * measuring thread at the start of its next block.
+     */
+    public void reset() {
+        resetRequested = true;
+        snapshot = LoudnessSnapshot.EMPTY;
+    }
+
+    /**
+     * The latest reading; never {@code null}.
+     */
+    public LoudnessSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public float getSampleRate() {
+        return sampleRate;
+    }
+}
@@ -0,0 +1,21 @@
+package org.bunnys.audio.processing;
+
+/**
+ * One reading of a {@link LoudnessMeter}, published every 100 ms. Levels are in dBFS (peaks in dBTP for
+ * the true peak), loudness in LUFS; anything with nothing to measure yet is negative infinity.
+ *
+ * @param samplePeakDb   highest absolute sample in the last 100 ms
+ * @param truePeakDb     highest 4x-oversampled peak in the last 100 ms, never below the sample peak
+ * @param maxTruePeakDb  highest true peak since the meter was reset
+ * @param rmsDb          unweighted RMS over the momentary window
+ * @param momentaryLufs  K-weighted loudness over the last 400 ms
+ * @param shortTermLufs  K-weighted loudness over the last 3 s
+ * @param integratedLufs gated loudness of everything since the meter was reset
+ * @param seconds        audio measured since the meter was reset
+ */
+public record LoudnessSnapshot(double samplePeakDb, double truePeakDb, double maxTruePeakDb, double rmsDb,
+        double momentaryLufs, double shortTermLufs, double integratedLufs, double seconds) {
+    public static final LoudnessSnapshot EMPTY = new LoudnessSnapshot(Double.NEGATIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, 0);
+}
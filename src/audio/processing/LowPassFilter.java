@@ -1,11 +1,19 @@
 package org.bunnys.audio.processing;
 
-public class LowPassFilter implements AudioProcessor {
+public class LowPassFilter implements BlockProcessor {
     // Makes this thread safe for any real time updates
     private volatile float alpha;
 
+    // The alpha the audio thread actually used last; changes glide from here across the next block
+    private float appliedAlpha;
+
+    // Output of the last sample of the previous block, so blocks join without a discontinuity
+    private float previous;
+    private boolean primed;
+
     public LowPassFilter(float alpha) {
         this.alpha = alpha;
+        this.appliedAlpha = alpha;
     }
 
     public void setAlpha(float alpha) {
@@ -13,33 +21,32 @@ public class LowPassFilter implements AudioProcessor {
     }
 
     @Override
-    public float[] process(float[] input) {
-        System.out.println("In LPF");
-        if (input == null || input.length == 0)
-            return new float[0];
-
-        float[] filtered = new float[input.length];
-        filtered[0] = input[0];
-
-        // Print before values (limit to 5), this is added just to ensure that the LPF works
-        System.out.println("Before LPF:");
-        for (int i = 0; i < Math.min(5, input.length); i++) {
-            System.out.print(input[i] + " ");
-        }
-        System.out.println();
-
-        // Apply LPF filtering
-        for (int i = 1; i < input.length; i++) {
-            filtered[i] = alpha * input[i] + (1 - alpha) * filtered[i - 1];
+    public void process(float[] input, int inputOffset, float[] output, int outputOffset, int length) {
+        if (length <= 0)
+            return;
+
+        float target = alpha;
+        float a = primed ? appliedAlpha : target;
+        float step = (target - a) / length;
+        float y = primed ? previous : input[inputOffset];
+
+        // Apply LPF filtering: filtered[i] = alpha * input[i] + (1 - alpha) * filtered[i - 1],
+        // with alpha moving linearly to its new value so slider changes don't zipper
+        for (int i = 0; i < length; i++) {
+            a += step;
+            y = a * input[inputOffset + i] + (1 - a) * y;
+            output[outputOffset + i] = y;
         }
 
-        // Print after values (limit to 5)
-        System.out.println("After LPF:");
-        for (int i = 0; i < Math.min(5, filtered.length); i++) {
-            System.out.print(filtered[i] + " ");
-        }
-        System.out.println();
+        previous = y;
+        appliedAlpha = target;
+        primed = true;
+    }
 
-        return filtered;
+    @Override
+    public void reset() {
+        appliedAlpha = alpha;
+        previous = 0;
+        primed = false;
     }
 }
@@ -0,0 +1,97 @@
+package org.bunnys.audio.processing;
+
+import java.util.Arrays;
+
+/**
+ * A fixed number of independently adjustable EQ bands, each one biquad section of a shared
+ * {@link BiquadCascade}. Bands can be changed from the UI thread while audio runs; the cascade
+ * glides to the new response.
+ */
+public class ParametricEqualizer implements BlockProcessor {
+    public static final double DEFAULT_Q = Math.sqrt(0.5);
+
+    public record Band(BiquadCoefficients.Type type, double frequency, double q, double gainDb, boolean enabled) {
+        public static Band peaking(double frequency, double q, double gainDb) {
+            return new Band(BiquadCoefficients.Type.PEAKING, frequency, q, gainDb, true);
+        }
+
+        public static Band disabled(double frequency) {
+            return new Band(BiquadCoefficients.Type.PEAKING, frequency, DEFAULT_Q, 0, false);
+        }
+
+        public Band withGain(double gainDb) {
+            return new Band(type, frequency, q, gainDb, enabled);
+        }
+
+        public Band withFrequency(double frequency) {
+            return new Band(type, frequency, q, gainDb, enabled);
+        }
+    }
+
+    private final float sampleRate;
+    private final Band[] bands;
+    private final BiquadCascade cascade;
+
+    public ParametricEqualizer(float sampleRate, int bandCount, int channels) {
+        if (bandCount <= 0)
+            throw new IllegalArgumentException("An equalizer needs at least one band");
+
+        this.sampleRate = sampleRate;
+        this.bands = new Band[bandCount];
+        Arrays.fill(bands, Band.disabled(1000));
+        this.cascade = new BiquadCascade(bandCount, channels, BiquadCascade.DEFAULT_RAMP_SAMPLES);
+    }
+
+    public synchronized void setBand(int index, Band band) {
+        if (band == null)
+            throw new IllegalArgumentException("Band cannot be null");
+
+        bands[index] = band;
+        cascade.setSections(designAll());
+    }
+
+    public synchronized Band getBand(int index) {
+        return bands[index];
+    }
+
+    public int getBandCount() {
+        return bands.length;
+    }
+
+    private BiquadCoefficients[] designAll() {
+        BiquadCoefficients[] sections = new BiquadCoefficients[bands.length];
+        for (int i = 0; i < bands.length; i++)
+            sections[i] = design(bands[i]);
+        return sections;
+    }
+
+    private BiquadCoefficients design(Band band) {
+        if (!band.enabled())
+            return BiquadCoefficients.IDENTITY;
+        return BiquadCoefficients.design(band.type(), sampleRate, band.frequency(), band.q(), band.gainDb());
+    }
+
+    /**
+     * Combined gain of all enabled bands at {@code frequency}, in dB, for drawing the response curve.
+     */
+    public synchronized double responseDbAt(double frequency) {
+        double magnitude = 1;
+        for (Band band : bands)
+            magnitude *= design(band).magnitudeAt(frequency, sampleRate);
+        return 20 * Math.log10(magnitude);
+    }
+
+    @Override
+    public void process(float[] input, int inputOffset, float[] output, int outputOffset, int length) {
+        cascade.process(input, inputOffset, output, outputOffset, length);
+    }
+
+    public void processInterleaved(float[] buffer, int offset, int frames) {
+        cascade.processInterleaved(buffer, offset, frames);
+    }
+
+    @Override
+    public void reset() {
+        cascade.reset();
+    }
+}
@@ -0,0 +1,178 @@
+package org.bunnys.audio.processing;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Convolves a stream with a long FIR kernel using uniformly partitioned overlap-save.
+ * <p>
+ * Every {@code partitionSize} input samples, the last two partitions of input are transformed once and
+ * pushed onto a frequency-domain delay line; the output partition is the inverse transform of the delay
+ * line multiplied bin by bin with the kernel's precomputed partitions. The cost per sample grows with
+ * {@code log(partitionSize) + taps / partitionSize} rather than with the tap count, so kernels of 100k
+ * taps run comfortably in real time. Output lags input by exactly {@code partitionSize} samples,
+ * whatever block sizes the caller uses.
+ * <p>
+ * {@link #setKernel} swaps kernels from any thread. The delay line holds input only, so the audio thread
+ * computes its next partition with both kernels and crossfades from the old to the new one across it.
+ */
+public class PartitionedConvolver implements BlockProcessor {
+    public static final int DEFAULT_PARTITION_SIZE = 1024;
+
+    private final int partitionSize;
+    private final int maxPartitions;
+    private final RealFFT fft;
+    private final AtomicReference<ConvolutionKernel> target;
+
+    // Audio thread only
+    private ConvolutionKernel applied;
+    private final float[][] delayLine;
+    private int head;
+    private final float[] inputPartition;
+    private final float[] previousInput;
+    private final float[] outputPartition;
+    private final float[] accumulator;
+    private final float[] fadeAccumulator;
+    private int filled;
+
+    public PartitionedConvolver(ConvolutionKernel kernel) {
+        this(kernel.getPartitionCount() * kernel.getPartitionSize(), kernel);
+    }
+
+    /**
+     * @param maxKernelLength longest kernel {@link #setKernel} will ever be given, in taps
+     */
+    public PartitionedConvolver(int maxKernelLength, ConvolutionKernel kernel) {
+        if (kernel == null)
+            throw new IllegalArgumentException("Kernel cannot be null");
+        if (maxKernelLength <= 0)
+            throw new IllegalArgumentException("Maximum kernel length must be positive: " + maxKernelLength);
+
+        this.partitionSize = kernel.getPartitionSize();
+        this.maxPartitions = (maxKernelLength + partitionSize - 1) / partitionSize;
+        this.fft = new RealFFT(2 * partitionSize);
+        this.target = new AtomicReference<>(validated(kernel));
+        this.applied = kernel;
+
+        this.delayLine = new float[maxPartitions][2 * partitionSize];
+        this.inputPartition = new float[partitionSize];
+        this.previousInput = new float[partitionSize];
+        this.outputPartition = new float[partitionSize];
+        this.accumulator = new float[2 * partitionSize];
+        this.fadeAccumulator = new float[2 * partitionSize];
+    }
+
+    private ConvolutionKernel validated(ConvolutionKernel kernel) {
+        if (kernel == null)
+            throw new IllegalArgumentException("Kernel cannot be null");
+        if (kernel.getPartitionSize() != partitionSize)
+            throw new IllegalArgumentException("Kernel partition size " + kernel.getPartitionSize()
+                    + " does not match the convolver's " + partitionSize);
+        if (kernel.getPartitionCount() > maxPartitions)
+            throw new IllegalArgumentException("Kernel of " + kernel.getLength() + " taps exceeds the maximum of "
+                    + maxPartitions * partitionSize);
+        return kernel;
+    }
+
+    /**
+     * Publishes a new kernel with the same partition size. Safe from any thread.
+     */
+    public void setKernel(ConvolutionKernel kernel) {
+        target.set(validated(kernel));
+    }
+
+    public ConvolutionKernel getKernel() {
+        return target.get();
+    }
+
+    /**
+     * Delay between a sample going in and its convolution coming out.
+     */
+    public int getLatencySamples() {
+        return partitionSize;
+    }
+
+    @Override
+    public void process(float[] input, int inputOffset, float[] output, int outputOffset, int length) {
+        int done = 0;
+        while (done < length) {
+            int count = Math.min(partitionSize - filled, length - done);
+
+            // Input first, so processing in place never overwrites samples not yet read
+            System.arraycopy(input, inputOffset + done, inputPartition, filled, count);
+            System.arraycopy(outputPartition, filled, output, outputOffset + done, count);
+
+            filled += count;
+            done += count;
+            if (filled == partitionSize) {
+                convolvePartition();
+                filled = 0;
+            }
+        }
+    }
+
+    private void convolvePartition() {
+        // Overlap-save frame: the previous partition of input followed by this one
+        float[] spectrum = delayLine[head];
+        System.arraycopy(previousInput, 0, spectrum, 0, partitionSize);
+        System.arraycopy(inputPartition, 0, spectrum, partitionSize, partitionSize);
+        System.arraycopy(inputPartition, 0, previousInput, 0, partitionSize);
+        fft.forward(spectrum);
+
+        ConvolutionKernel latest = target.get();
+        multiplyAccumulate(latest, accumulator);
+        fft.inverse(accumulator);
+
+        if (latest == applied) {
+            System.arraycopy(accumulator, partitionSize, outputPartition, 0, partitionSize);
+        } else {
+            multiplyAccumulate(applied, fadeAccumulator);
+            fft.inverse(fadeAccumulator);
+
+            float step = 1.0f / partitionSize;
+            for (int i = 0; i < partitionSize; i++) {
+                float gain = (i + 1) * step;
+                outputPartition[i] = fadeAccumulator[partitionSize + i]
+                        + gain * (accumulator[partitionSize + i] - fadeAccumulator[partitionSize + i]);
+            }
+            applied = latest;
+        }
+
+        head = head + 1 == maxPartitions ? 0 : head + 1;
+    }
+
+    // Sums delayLine[newest - p] * kernel[p] over all partitions, in the packed RealFFT layout
+    private void multiplyAccumulate(ConvolutionKernel kernel, float[] sum) {
+        Arrays.fill(sum, 0);
+        int size = 2 * partitionSize;
+        int slot = head;
+
+        for (int p = 0; p < kernel.getPartitionCount(); p++) {
+            float[] x = delayLine[slot];
+            float[] h = kernel.partition(p);
+
+            // DC and Nyquist are both real
+            sum[0] += x[0] * h[0];
+            sum[1] += x[1] * h[1];
+            for (int i = 2; i < size; i += 2) {
+                float xr = x[i], xi = x[i + 1];
+                float hr = h[i], hi = h[i + 1];
+                sum[i] += xr * hr - xi * hi;
+                sum[i + 1] += xr * hi + xi * hr;
+            }
+
+            slot = slot == 0 ? maxPartitions - 1 : slot - 1;
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (float[] spectrum : delayLine)
+            Arrays.fill(spectrum, 0);
+        Arrays.fill(previousInput, 0);
+        Arrays.fill(outputPartition, 0);
+        applied = target.get();
+        head = 0;
+        filled = 0;
+    }
+}
@@ -0,0 +1,223 @@
+package org.bunnys.audio.processing;
+
+import java.util.Arrays;
+
+/**
+ * Streaming sample-rate converter for any rational ratio, e.g. 48 kHz devices into a 44.1 kHz pipeline.
+ * <p>
+ * The ratio is reduced to {@code up / down} and a Kaiser-windowed sinc low-pass is designed once for the
+ * virtual rate {@code up} times the input rate, then split into {@code up} polyphase branches stored
+ * reversed, so every output sample is one contiguous dot product over the newest input samples and no
+ * zero-stuffed samples are ever touched. The transition band is centred on the lower of the two Nyquist
+ * frequencies, so the passband reaches {@link Quality#passband()} of it; the little that aliases or images
+ * lands above the passband edge, never inside it. Filter state carries across calls, so a stream
+ * converted in blocks of any size comes out identical to converting it in one go.
+ * <p>
+ * Unlike a {@link BlockProcessor}, a resampler changes the number of samples, so it belongs where the
+ * stream enters the pipeline rather than in the {@link ProcessorChain}.
+ */
+public class PolyphaseResampler {
+    public static final int MAX_PHASES = 4096;
+
+    /**
+     * Trades CPU for fidelity: how far up towards Nyquist the passband reaches, as a fraction of it, and the
+     * stopband attenuation. The taps per branch follow from both (and are scaled up further when decimating).
+     */
+    public enum Quality {
+        FAST(0.80, 60),
+        BALANCED(0.90, 90),
+        BEST(0.95, 120);
+
+        private final double passband;
+        private final double attenuationDb;
+        private final int taps;
+
+        Quality(double passband, double attenuationDb) {
+            this.passband = passband;
+            this.attenuationDb = attenuationDb;
+            // Kaiser's length estimate for a transition from passband to (2 - passband) of Nyquist
+            this.taps = (int) Math.ceil((attenuationDb - 8) / (2.285 * Math.PI * 2 * (1 - passband)));
+        }
+
+        public double passband() {
+            return passband;
+        }
+
+        public int taps() {
+            return taps;
+        }
+
+        public double attenuationDb() {
+            return attenuationDb;
+        }
+    }
+
+    private final int inputRate;
+    private final int outputRate;
+    private final int up;
+    private final int down;
+    private final int taps;
+    private final Quality quality;
+
+    // table[p * taps + j] is tap (taps - 1 - j) of branch p, so the oldest input lines up with j = 0
+    private final float[] table;
+
+    // Each input sample is stored twice, taps apart, so the newest taps are always one contiguous run
+    private final float[] history;
+    private int historyIndex;
+    private int phase;
+
+    public PolyphaseResampler(int inputRate, int outputRate, Quality quality) {
+        if (inputRate <= 0 || outputRate <= 0)
+            throw new IllegalArgumentException("Sample rates must be positive: " + inputRate + " -> " + outputRate);
+
+        int divisor = gcd(inputRate, outputRate);
+        this.up = outputRate / divisor;
+        this.down = inputRate / divisor;
+        if (up > MAX_PHASES)
+            throw new IllegalArgumentException("Ratio " + outputRate + "/" + inputRate + " needs " + up
+                    + " filter phases, more than " + MAX_PHASES);
+
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        this.quality = quality;
+        // Decimating narrows the passband relative to the input, which needs proportionally longer branches
+        this.taps = (int) Math.ceil(quality.taps * Math.max(1.0, (double) down / up));
+        this.table = design(up, down, taps, quality.attenuationDb);
+        this.history = new float[2 * taps];
+    }
+
+    /**
+     * Resampler for rates given as floats, as in {@code AudioFormat}; both must be whole numbers of hertz.
+     */
+    public static PolyphaseResampler forRates(float inputRate, float outputRate, Quality quality) {
+        if (inputRate != Math.rint(inputRate) || outputRate != Math.rint(outputRate))
+            throw new IllegalArgumentException("Only whole-hertz sample rates can be converted: "
+                    + inputRate + " -> " + outputRate);
+        return new PolyphaseResampler((int) inputRate, (int) outputRate, quality);
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static float[] design(int up, int down, int taps, double attenuationDb) {
+        int length = taps * up;
+        double beta = kaiserBeta(attenuationDb);
+
+        // Cut off at the lower Nyquist frequency, relative to the virtual rate's; the transition straddles it
+        double cutoff = 1.0 / Math.max(up, down);
+
+        double centre = (length - 1) / 2.0;
+        double norm = besselI0(beta);
+        double[] prototype = new double[length];
+        for (int n = 0; n < length; n++) {
+            double x = n - centre;
+            double sinc = x == 0 ? 1 : Math.sin(Math.PI * cutoff * x) / (Math.PI * cutoff * x);
+            double r = 2.0 * n / (length - 1) - 1;
+            double window = besselI0(beta * Math.sqrt(Math.max(0, 1 - r * r))) / norm;
+            prototype[n] = cutoff * sinc * window;
+        }
+
+        float[] table = new float[up * taps];
+        for (int p = 0; p < up; p++) {
+            // Normalise each branch to unit DC gain so a constant input comes out perfectly flat
+            double sum = 0;
+            for (int k = 0; k < taps; k++)
+                sum += prototype[p + k * up];
+            for (int k = 0; k < taps; k++)
+                table[p * taps + (taps - 1 - k)] = (float) (prototype[p + k * up] / sum);
+        }
+        return table;
+    }
+
+    private static double kaiserBeta(double attenuationDb) {
+        if (attenuationDb > 50)
+            return 0.1102 * (attenuationDb - 8.7);
+        if (attenuationDb >= 21)
+            return 0.5842 * Math.pow(attenuationDb - 21, 0.4) + 0.07886 * (attenuationDb - 21);
+        return 0;
+    }
+
+    private static double besselI0(double x) {
+        double sum = 1;
+        double term = 1;
+        double half = x / 2;
+        for (int k = 1; k < 64; k++) {
+            term *= (half / k) * (half / k);
+            sum += term;
+            if (term < sum * 1e-17)
+                break;
+        }
+        return sum;
+    }
+
+    /**
+     * Converts {@code length} input samples and appends the results to {@code output}, which must have
+     * room for {@link #maxOutputLength(int)} samples. Does not allocate.
+     *
+     * @return the number of samples written
+     */
+    public int process(float[] input, int inputOffset, int length, float[] output, int outputOffset) {
+        int out = outputOffset;
+        for (int i = inputOffset; i < inputOffset + length; i++) {
+            float sample = input[i];
+            history[historyIndex] = sample;
+            history[historyIndex + taps] = sample;
+            historyIndex = historyIndex + 1 == taps ? 0 : historyIndex + 1;
+
+            // Every output that falls between this input sample and the next
+            while (phase < up) {
+                int coefficients = phase * taps;
+                float acc = 0;
+                for (int j = 0; j < taps; j++)
+                    acc += table[coefficients + j] * history[historyIndex + j];
+                output[out++] = acc;
+                phase += down;
+            }
+            phase -= up;
+        }
+        return out - outputOffset;
+    }
+
+    /**
+     * Upper bound on what {@link #process} writes for {@code inputLength} samples, whatever the state.
+     */
+    public int maxOutputLength(int inputLength) {
+        return (int) (((long) inputLength * up + down - 1) / down) + 1;
+    }
+
+    /**
+     * Delay of the filter, in input samples.
+     */
+    public double getLatencySamples() {
+        return (taps * up - 1) / (2.0 * up);
+    }
+
+    public int getInputRate() {
+        return inputRate;
+    }
+
+    public int getOutputRate() {
+        return outputRate;
+    }
+
+    public Quality getQuality() {
+        return quality;
+    }
+
+    public int getTapsPerPhase() {
+        return taps;
+    }
+
+    public void reset() {
+        Arrays.fill(history, 0);
+        historyIndex = 0;
+        phase = 0;
+    }
+}
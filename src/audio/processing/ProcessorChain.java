@@ -0,0 +1,145 @@
+package org.bunnys.audio.processing;
+
+import java.util.Arrays;
+
+/**
+ * Runs a sequence of {@link BlockProcessor} stages over the same block. The first stage writes into the
+ * output buffer and every later stage works in place there, so the chain itself never allocates.
+ * <p>
+ * Stages can be changed from any thread; the audio thread picks up the new list at the next block.
+ */
+public class ProcessorChain implements BlockProcessor {
+    /**
+     * Told how long each stage took, on the audio thread, right after it ran.
+     */
+    @FunctionalInterface
+    public interface StageTimer {
+        void onStage(BlockProcessor stage, long nanos);
+
+        /**
+         * Told the new list whenever stages are added, removed or replaced, so timings of stages that are
+         * gone can be let go.
+         */
+        default void stagesChanged(BlockProcessor[] stages) {
+        }
+    }
+
+    private volatile BlockProcessor[] stages;
+    private volatile StageTimer stageTimer;
+
+    public ProcessorChain(BlockProcessor... stages) {
+        this.stages = validated(stages);
+    }
+
+    private static BlockProcessor[] validated(BlockProcessor[] stages) {
+        for (BlockProcessor stage : stages) {
+            if (stage == null)
+                throw new IllegalArgumentException("Stage cannot be null");
+        }
+        return stages.clone();
+    }
+
+    public synchronized void addStage(BlockProcessor stage) {
+        if (stage == null)
+            throw new IllegalArgumentException("Stage cannot be null");
+
+        BlockProcessor[] updated = Arrays.copyOf(stages, stages.length + 1);
+        updated[stages.length] = stage;
+        stages = updated;
+        notifyStagesChanged();
+    }
+
+    public synchronized boolean removeStage(BlockProcessor stage) {
+        BlockProcessor[] current = stages;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != stage)
+                continue;
+
+            BlockProcessor[] updated = new BlockProcessor[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, i);
+            System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+            stages = updated;
+            notifyStagesChanged();
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void setStages(BlockProcessor... stages) {
+        this.stages = validated(stages);
+        notifyStagesChanged();
+    }
+
+    public synchronized void clear() {
+        stages = new BlockProcessor[0];
+        notifyStagesChanged();
+    }
+
+    // Caller holds the lock, so listeners see the changes in order
+    private void notifyStagesChanged() {
+        StageTimer timer = stageTimer;
+        if (timer != null)
+            timer.stagesChanged(stages.clone());
+    }
+
+    public BlockProcessor[] getStages() {
+        return stages.clone();
+    }
+
+    /**
+     * Times every stage of every block with {@code timer}, or stops timing when {@code null}.
+     */
+    public void setStageTimer(StageTimer stageTimer) {
+        this.stageTimer = stageTimer;
+    }
+
+    public int size() {
+        return stages.length;
+    }
+
+    public boolean isEmpty() {
+        return stages.length == 0;
+    }
+
+    @Override
+    public void process(float[] input, int inputOffset, float[] output, int outputOffset, int length) {
+        BlockProcessor[] current = stages;
+
+        if (current.length == 0) {
+            if (input != output || inputOffset != outputOffset)
+                System.arraycopy(input, inputOffset, output, outputOffset, length);
+            return;
+        }
+
+        StageTimer timer = stageTimer;
+        if (timer != null) {
+            processTimed(current, timer, input, inputOffset, output, outputOffset, length);
+            return;
+        }
+
+        current[0].process(input, inputOffset, output, outputOffset, length);
+        for (int i = 1; i < current.length; i++)
+            current[i].process(output, outputOffset, output, outputOffset, length);
+    }
+
+    private static void processTimed(BlockProcessor[] current, StageTimer timer, float[] input, int inputOffset,
+            float[] output, int outputOffset, int length) {
+        long start = System.nanoTime();
+        current[0].process(input, inputOffset, output, outputOffset, length);
+        long end = System.nanoTime();
+        timer.onStage(current[0], end - start);
+
+        for (int i = 1; i < current.length; i++) {
+            start = end;
+            current[i].process(output, outputOffset, output, outputOffset, length);
+            end = System.nanoTime();
+            timer.onStage(current[i], end - start);
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (BlockProcessor stage : stages)
+            stage.reset();
+    }
+}
@@ -0,0 +1,100 @@
+package org.bunnys.audio.processing;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Builds a {@link ProcessorChain} from a compact text description, for command-line front ends.
+ * <p>
+ * Stages are separated by commas and take colon-separated arguments, e.g. {@code lpf:0.1,biquad:highpass:80}.
+ * Supported stages: {@code lpf:<alpha>}, {@code biquad:<type>:<hz>[:<q>[:<gain dB>]]}, where the type is
+ * one of lowpass, highpass, bandpass, notch, peaking, lowshelf or highshelf, {@code eq:<hz>:<q>:<gain dB>},
+ * a {@link ParametricEqualizer} with one peaking band per further {@code <hz>:<q>:<gain dB>} triple, and
+ * {@code convolve:<file>}, which convolves with an impulse response recorded at the stream's sample rate.
+ */
+public final class ProcessorChainSpec {
+    private ProcessorChainSpec() {
+    } // Prevent instantiation
+
+    public static ProcessorChain parse(String spec, float sampleRate) {
+        ProcessorChain chain = new ProcessorChain();
+        if (spec == null || spec.isBlank())
+            return chain;
+
+        for (String stageSpec : spec.split(",")) {
+            String[] parts = stageSpec.trim().split(":");
+            chain.addStage(createStage(parts, sampleRate));
+        }
+        return chain;
+    }
+
+    private static BlockProcessor createStage(String[] parts, float sampleRate) {
+        String name = parts[0].toLowerCase();
+        switch (name) {
+            case "lpf":
+                requireArguments(parts, 1);
+                return new LowPassFilter(Math.max(parseFloat(parts, 1), 0.01f));
+            case "biquad": {
+                requireArguments(parts, 2);
+                BiquadCoefficients.Type type = parseType(parts[1]);
+                double q = parts.length > 3 ? parseFloat(parts, 3) : ParametricEqualizer.DEFAULT_Q;
+                double gainDb = parts.length > 4 ? parseFloat(parts, 4) : 0;
+                return new BiquadCascade(BiquadCoefficients.design(type, sampleRate, parseFloat(parts, 2), q, gainDb));
+            }
+            case "eq": {
+                if (parts.length < 4 || (parts.length - 1) % 3 != 0)
+                    throw new IllegalArgumentException("Stage eq needs <hz>:<q>:<dB> for each band");
+
+                ParametricEqualizer equalizer = new ParametricEqualizer(sampleRate, (parts.length - 1) / 3, 1);
+                for (int band = 0; band < equalizer.getBandCount(); band++) {
+                    int index = 1 + band * 3;
+                    equalizer.setBand(band, ParametricEqualizer.Band.peaking(parseFloat(parts, index),
+                            parseFloat(parts, index + 1), parseFloat(parts, index + 2)));
+                }
+                // Start at the requested response instead of gliding to it from flat
+                equalizer.reset();
+                return equalizer;
+            }
+            case "convolve": {
+                requireArguments(parts, 1);
+                // Rejoin the path, which may itself contain colons (e.g. a Windows drive letter)
+                String path = joined(parts, 1);
+                try {
+                    return new PartitionedConvolver(ConvolutionKernel.fromFile(Path.of(path), sampleRate,
+                            PartitionedConvolver.DEFAULT_PARTITION_SIZE));
+                } catch (IOException | UnsupportedAudioFileException e) {
+                    throw new IllegalArgumentException("Cannot load impulse response " + path + ": " + e.getMessage());
+                }
+            }
+            default:
+                throw new IllegalArgumentException("Unknown processor stage: " + parts[0]);
+        }
+    }
+
+    private static BiquadCoefficients.Type parseType(String name) {
+        for (BiquadCoefficients.Type type : BiquadCoefficients.Type.values()) {
+            if (type.name().replace("_", "").equalsIgnoreCase(name))
+                return type;
+        }
+        throw new IllegalArgumentException("Unknown biquad type: " + name);
+    }
+
+    private static String joined(String[] parts, int from) {
+        return String.join(":", Arrays.copyOfRange(parts, from, parts.length));
+    }
+
+    private static void requireArguments(String[] parts, int count) {
+        if (parts.length - 1 < count)
+            throw new IllegalArgumentException("Stage " + parts[0] + " needs " + count + " argument(s)");
+    }
+
+    private static float parseFloat(String[] parts, int index) {
+        try {
+            return Float.parseFloat(parts[index]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in stage " + parts[0] + ": " + parts[index]);
+        }
+    }
+}
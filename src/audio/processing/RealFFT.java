@@ -0,0 +1,167 @@
+package org.bunnys.audio.processing;
+
+/**
+ * In-place radix-2 FFT of real signals, computed as a half-size complex FFT plus a split step.
+ * <p>
+ * Twiddle and bit-reversal tables are built once in the constructor, so transforms never allocate.
+ * The spectrum is stored packed in the input array: {@code data[0]} is the DC bin, {@code data[1]} the
+ * Nyquist bin, and {@code data[2k], data[2k + 1]} the real and imaginary parts of bin {@code k}.
+ * The forward transform is unscaled and {@link #inverse} undoes it exactly.
+ */
+public class RealFFT {
+    public static final int MIN_SIZE = 4;
+    public static final int MAX_SIZE = 1 << 16;
+
+    private final int size;
+    private final int half;
+    private final int[] bitReversal;
+
+    // e^(-2*pi*i*j / half) for the complex stages, e^(-2*pi*i*k / size) for the split step
+    private final float[] cos;
+    private final float[] sin;
+    private final float[] splitCos;
+    private final float[] splitSin;
+
+    public RealFFT(int size) {
+        if (size < MIN_SIZE || size > MAX_SIZE || Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException(
+                    "FFT size must be a power of two between " + MIN_SIZE + " and " + MAX_SIZE + ": " + size);
+
+        this.size = size;
+        this.half = size / 2;
+
+        this.bitReversal = new int[half];
+        int bits = Integer.numberOfTrailingZeros(half);
+        for (int i = 0; i < half; i++)
+            bitReversal[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+
+        this.cos = new float[half / 2];
+        this.sin = new float[half / 2];
+        for (int j = 0; j < half / 2; j++) {
+            double angle = 2 * Math.PI * j / half;
+            cos[j] = (float) Math.cos(angle);
+            sin[j] = (float) Math.sin(angle);
+        }
+
+        this.splitCos = new float[half / 2 + 1];
+        this.splitSin = new float[half / 2 + 1];
+        for (int k = 0; k <= half / 2; k++) {
+            double angle = 2 * Math.PI * k / size;
+            splitCos[k] = (float) Math.cos(angle);
+            splitSin[k] = (float) Math.sin(angle);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Replaces {@code size} real samples in {@code data} with their packed spectrum.
+     */
+    public void forward(float[] data) {
+        complexTransform(data, false);
+
+        float dc = data[0];
+        float im0 = data[1];
+        data[0] = dc + im0;
+        data[1] = dc - im0;
+
+        for (int k = 1; k <= half / 2; k++) {
+            int i = 2 * k;
+            int j = 2 * (half - k);
+            float a = data[i], b = data[i + 1];
+            float c = data[j], d = data[j + 1];
+
+            float evenRe = 0.5f * (a + c);
+            float evenIm = 0.5f * (b - d);
+            float oddRe = 0.5f * (b + d);
+            float oddIm = -0.5f * (a - c);
+
+            float wr = splitCos[k];
+            float wi = -splitSin[k];
+            float tr = wr * oddRe - wi * oddIm;
+            float ti = wr * oddIm + wi * oddRe;
+
+            data[i] = evenRe + tr;
+            data[i + 1] = evenIm + ti;
+            data[j] = evenRe - tr;
+            data[j + 1] = ti - evenIm;
+        }
+    }
+
+    /**
+     * Replaces a packed spectrum in {@code data} with the real signal it came from.
+     */
+    public void inverse(float[] data) {
+        float dc = data[0];
+        float nyquist = data[1];
+        data[0] = 0.5f * (dc + nyquist);
+        data[1] = 0.5f * (dc - nyquist);
+
+        for (int k = 1; k <= half / 2; k++) {
+            int i = 2 * k;
+            int j = 2 * (half - k);
+            float p = data[i], q = data[i + 1];
+            float r = data[j], s = data[j + 1];
+
+            float evenRe = 0.5f * (p + r);
+            float evenIm = 0.5f * (q - s);
+            float diffRe = 0.5f * (p - r);
+            float diffIm = 0.5f * (q + s);
+
+            // Multiply by the conjugate split twiddle
+            float wr = splitCos[k];
+            float wi = splitSin[k];
+            float oddRe = diffRe * wr - diffIm * wi;
+            float oddIm = diffRe * wi + diffIm * wr;
+
+            data[i] = evenRe - oddIm;
+            data[i + 1] = evenIm + oddRe;
+            data[j] = evenRe + oddIm;
+            data[j + 1] = oddRe - evenIm;
+        }
+
+        complexTransform(data, true);
+
+        float scale = 1.0f / half;
+        for (int n = 0; n < size; n++)
+            data[n] *= scale;
+    }
+
+    private void complexTransform(float[] data, boolean inverse) {
+        for (int i = 0; i < half; i++) {
+            int j = bitReversal[i];
+            if (j > i) {
+                float re = data[2 * i], im = data[2 * i + 1];
+                data[2 * i] = data[2 * j];
+                data[2 * i + 1] = data[2 * j + 1];
+                data[2 * j] = re;
+                data[2 * j + 1] = im;
+            }
+        }
+
+        float direction = inverse ? 1f : -1f;
+        for (int length = 2; length <= half; length <<= 1) {
+            int halfLength = length >> 1;
+            int step = half / length;
+
+            for (int start = 0; start < half; start += length) {
+                for (int k = 0; k < halfLength; k++) {
+                    float wr = cos[k * step];
+                    float wi = direction * sin[k * step];
+
+                    int even = 2 * (start + k);
+                    int odd = 2 * (start + k + halfLength);
+                    float oddRe = data[odd] * wr - data[odd + 1] * wi;
+                    float oddIm = data[odd] * wi + data[odd + 1] * wr;
+
+                    data[odd] = data[even] - oddRe;
+                    data[odd + 1] = data[even + 1] - oddIm;
+                    data[even] += oddRe;
+                    data[even + 1] += oddIm;
+                }
+            }
+        }
+    }
+}
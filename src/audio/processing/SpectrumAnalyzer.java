@@ -0,0 +1,136 @@
+package org.bunnys.audio.processing;
+
+import java.util.Arrays;
+
+/**
+ * Turns a sample stream into magnitude spectra using overlapping, windowed FFT frames.
+ * <p>
+ * Samples are pushed in blocks of any size through {@link #accept}; every {@code hopSize} samples the
+ * last {@code fftSize} samples are windowed, transformed, and the listener receives the amplitude of
+ * each bin (in sample units, so a full-scale sine reads as full scale). All buffers are allocated up
+ * front and reused, including the magnitude array handed to the listener.
+ */
+public class SpectrumAnalyzer {
+    public static final int MIN_FFT_SIZE = 256;
+    public static final int MAX_FFT_SIZE = 65536;
+
+    @FunctionalInterface
+    public interface SpectrumListener {
+        /**
+         * Called on the analysing thread. {@code magnitudes} is reused for the next frame.
+         */
+        void onSpectrum(float[] magnitudes, int binCount, float binWidthHz);
+    }
+
+    private final int fftSize;
+    private final int hopSize;
+    private final float sampleRate;
+    private final RealFFT fft;
+    private final float[] window;
+    private final float magnitudeScale;
+
+    private final float[] history;
+    private final float[] frame;
+    private final float[] magnitudes;
+    private final SpectrumListener listener;
+
+    private int writeIndex;
+    private int samplesUntilFrame;
+
+    public SpectrumAnalyzer(int fftSize, int hopSize, WindowFunction windowFunction, float sampleRate,
+            SpectrumListener listener) {
+        if (fftSize < MIN_FFT_SIZE || fftSize > MAX_FFT_SIZE || Integer.bitCount(fftSize) != 1)
+            throw new IllegalArgumentException("FFT size must be a power of two between "
+                    + MIN_FFT_SIZE + " and " + MAX_FFT_SIZE + ": " + fftSize);
+        if (hopSize <= 0 || hopSize > fftSize)
+            throw new IllegalArgumentException("Hop size must be between 1 and the FFT size: " + hopSize);
+
+        this.fftSize = fftSize;
+        this.hopSize = hopSize;
+        this.sampleRate = sampleRate;
+        this.fft = new RealFFT(fftSize);
+        this.window = windowFunction.table(fftSize);
+        this.magnitudeScale = 2.0f / (fftSize * windowFunction.coherentGain());
+        this.listener = listener;
+
+        this.history = new float[fftSize];
+        this.frame = new float[fftSize];
+        this.magnitudes = new float[fftSize / 2 + 1];
+        this.samplesUntilFrame = fftSize;
+    }
+
+    /**
+     * Convenience constructor with the given overlap, e.g. 0.75 for a hop of a quarter frame.
+     */
+    public static SpectrumAnalyzer withOverlap(int fftSize, double overlap, WindowFunction windowFunction,
+            float sampleRate, SpectrumListener listener) {
+        if (overlap < 0 || overlap >= 1)
+            throw new IllegalArgumentException("Overlap must be in [0, 1): " + overlap);
+
+        int hop = Math.max(1, (int) Math.round(fftSize * (1 - overlap)));
+        return new SpectrumAnalyzer(fftSize, hop, windowFunction, sampleRate, listener);
+    }
+
+    public int getFftSize() {
+        return fftSize;
+    }
+
+    public int getHopSize() {
+        return hopSize;
+    }
+
+    public float getBinWidth() {
+        return sampleRate / fftSize;
+    }
+
+    public void accept(float[] samples, int offset, int length) {
+        int remaining = length;
+        int position = offset;
+
+        while (remaining > 0) {
+            int chunk = Math.min(remaining, samplesUntilFrame);
+            int firstPart = Math.min(chunk, fftSize - writeIndex);
+            System.arraycopy(samples, position, history, writeIndex, firstPart);
+            if (firstPart < chunk)
+                System.arraycopy(samples, position + firstPart, history, 0, chunk - firstPart);
+
+            writeIndex = (writeIndex + chunk) & (fftSize - 1);
+            position += chunk;
+            remaining -= chunk;
+            samplesUntilFrame -= chunk;
+
+            if (samplesUntilFrame == 0) {
+                analyseFrame();
+                samplesUntilFrame = hopSize;
+            }
+        }
+    }
+
+    private void analyseFrame() {
+        // writeIndex points at the oldest sample, so the frame is history[writeIndex..] then history[..writeIndex]
+        int tail = fftSize - writeIndex;
+        for (int i = 0; i < tail; i++)
+            frame[i] = history[writeIndex + i] * window[i];
+        for (int i = 0; i < writeIndex; i++)
+            frame[tail + i] = history[i] * window[tail + i];
+
+        fft.forward(frame);
+
+        int bins = fftSize / 2;
+        magnitudes[0] = Math.abs(frame[0]) * magnitudeScale * 0.5f;
+        magnitudes[bins] = Math.abs(frame[1]) * magnitudeScale * 0.5f;
+        for (int k = 1; k < bins; k++) {
+            float re = frame[2 * k];
+            float im = frame[2 * k + 1];
+            magnitudes[k] = (float) Math.sqrt(re * re + im * im) * magnitudeScale;
+        }
+
+        listener.onSpectrum(magnitudes, bins + 1, getBinWidth());
+    }
+
+    public void reset() {
+        Arrays.fill(history, 0);
+        writeIndex = 0;
+        samplesUntilFrame = fftSize;
+    }
+}
@@ -0,0 +1,125 @@
+package org.bunnys.audio.processing;
+
+/**
+ * Decides, one short analysis window at a time, whether a stream carries anything worth keeping.
+ * <p>
+ * Each window is reduced to its energy (dBFS) and zero-crossing rate in a single pass, with no
+ * allocation. A window is active when its level reaches the open threshold, or the lower close threshold
+ * once the detector is already open (hysteresis). Fricatives such as "s" and "f" are quiet but cross
+ * zero often, so a window up to {@value #FRICATIVE_RANGE_DB} dB below the threshold still counts when
+ * its zero-crossing rate is high, provided it also stands clear of the tracked noise floor; otherwise
+ * steady hiss would hold the detector open. After the last active window the detector stays open for
+ * the hangover.
+ */
+public class VoiceActivityDetector {
+    private static final double FRICATIVE_RANGE_DB = 12;
+    private static final double FRICATIVE_ZERO_CROSSING_RATE = 0.25;
+    private static final double FRICATIVE_FLOOR_MARGIN_DB = 6;
+    private static final double FLOOR_RISE_DB_PER_SECOND = 1;
+    private static final double SILENCE_DB = -120;
+
+    private final double openDb;
+    private final double closeDb;
+    private final int hangoverSamples;
+    private final float sampleRate;
+
+    private double noiseFloorDb = 0;
+    private double levelDb = SILENCE_DB;
+    private double zeroCrossingRate;
+    private boolean active;
+    private int quietSamples;
+    private float lastSample;
+
+    /**
+     * @param openDb   level in dBFS at which the detector opens
+     * @param closeDb  level below which it starts to close, at most {@code openDb}
+     * @param hangover samples to stay open after the last active window
+     */
+    public VoiceActivityDetector(float sampleRate, double openDb, double closeDb, int hangover) {
+        if (closeDb > openDb)
+            throw new IllegalArgumentException("Close threshold " + closeDb + " dB is above the open threshold " + openDb);
+        if (hangover < 0)
+            throw new IllegalArgumentException("Hangover cannot be negative: " + hangover);
+
+        this.sampleRate = sampleRate;
+        this.openDb = openDb;
+        this.closeDb = closeDb;
+        this.hangoverSamples = hangover;
+    }
+
+    /**
+     * Analyses the next window of the stream and returns whether the detector is open after it.
+     */
+    public boolean update(float[] samples, int offset, int length) {
+        if (length <= 0)
+            return active;
+
+        double energy = 0;
+        int crossings = 0;
+        float previous = lastSample;
+        for (int i = offset; i < offset + length; i++) {
+            float sample = samples[i];
+            energy += sample * sample;
+            if ((sample >= 0) != (previous >= 0))
+                crossings++;
+            previous = sample;
+        }
+        lastSample = previous;
+
+        levelDb = Math.max(SILENCE_DB, 10 * Math.log10(energy / length + 1e-30));
+        zeroCrossingRate = (double) crossings / length;
+
+        // The floor follows dips at once and creeps up slowly, so it settles on the quietest recent level
+        if (levelDb < noiseFloorDb)
+            noiseFloorDb = levelDb;
+        else
+            noiseFloorDb += FLOOR_RISE_DB_PER_SECOND * length / sampleRate;
+
+        double threshold = active ? closeDb : openDb;
+        boolean loud = levelDb >= threshold;
+        boolean fricative = zeroCrossingRate >= FRICATIVE_ZERO_CROSSING_RATE
+                && levelDb >= threshold - FRICATIVE_RANGE_DB
+                && levelDb >= noiseFloorDb + FRICATIVE_FLOOR_MARGIN_DB;
+
+        if (loud || fricative) {
+            active = true;
+            quietSamples = 0;
+        } else if (active) {
+            quietSamples += length;
+            if (quietSamples > hangoverSamples)
+                active = false;
+        }
+        return active;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Level of the last window in dBFS.
+     */
+    public double getLevelDb() {
+        return levelDb;
+    }
+
+    /**
+     * Fraction of sample pairs in the last window that changed sign.
+     */
+    public double getZeroCrossingRate() {
+        return zeroCrossingRate;
+    }
+
+    public double getNoiseFloorDb() {
+        return noiseFloorDb;
+    }
+
+    public void reset() {
+        noiseFloorDb = 0;
+        levelDb = SILENCE_DB;
+        zeroCrossingRate = 0;
+        active = false;
+        quietSamples = 0;
+        lastSample = 0;
+    }
+}
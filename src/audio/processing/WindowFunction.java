@@ -0,0 +1,49 @@
+package org.bunnys.audio.processing;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Analysis windows. Tables are periodic (suited to overlapping FFT frames) and cached per size,
+ * so analyzers of the same size share one array.
+ */
+public enum WindowFunction {
+    RECTANGULAR(new double[] { 1.0 }),
+    HANN(new double[] { 0.5, 0.5 }),
+    BLACKMAN_HARRIS(new double[] { 0.35875, 0.48829, 0.14128, 0.01168 });
+
+    // Cosine-sum coefficients: w[n] = a0 - a1 cos(2 pi n / N) + a2 cos(4 pi n / N) - ...
+    private final double[] coefficients;
+    private final Map<Integer, float[]> tables = new ConcurrentHashMap<>();
+
+    WindowFunction(double[] coefficients) {
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * The shared window table for {@code size}. Callers must not modify it.
+     */
+    public float[] table(int size) {
+        return tables.computeIfAbsent(size, this::createTable);
+    }
+
+    /**
+     * Mean of the window, used to turn FFT magnitudes back into sinusoid amplitudes.
+     */
+    public float coherentGain() {
+        return (float) coefficients[0];
+    }
+
+    private float[] createTable(int size) {
+        float[] table = new float[size];
+        for (int n = 0; n < size; n++) {
+            double value = 0;
+            for (int k = 0; k < coefficients.length; k++) {
+                double sign = (k % 2 == 0) ? 1 : -1;
+                value += sign * coefficients[k] * Math.cos(2 * Math.PI * k * n / size);
+            }
+            table[n] = (float) value;
+        }
+        return table;
+    }
+}
@@ -5,22 +5,43 @@ import java.io.*;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
-public class AudioRecorder {
+public class AudioRecorder implements Recorder {
     private static final Logger LOGGER = Logger.getLogger(AudioRecorder.class.getName());
     private final ByteArrayOutputStream audioStream;
     private final AudioFormat format;
+    private String filename;
 
     public AudioRecorder(AudioFormat format) {
         this.format = format;
         this.audioStream = new ByteArrayOutputStream();
     }
 
+    @Override
+    public void start(String filename) {
+        this.filename = filename;
+        reset();
+    }
+
+    @Override
+    public void stop() {
+        if (filename != null)
+            saveRecording(filename);
+    }
+
+    @Override
     public void writeData(byte[] buffer, int bytesRead) {
         synchronized (audioStream) {
             audioStream.write(buffer, 0, bytesRead);
         }
     }
 
+    @Override
+    public long getWrittenBytes() {
+        synchronized (audioStream) {
+            return audioStream.size();
+        }
+    }
+
     public void reset() {
         synchronized (audioStream) {
             audioStream.reset();
@@ -0,0 +1,286 @@
+package org.bunnys.audio.recording;
+
+import org.bunnys.audio.recording.flac.FlacFileWriter;
+import org.bunnys.audio.recording.flac.FlacFrameEncoder;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records losslessly compressed FLAC instead of raw WAV, typically at half the size or less.
+ * <p>
+ * {@link #writeData} copies PCM into a pool of block-sized buffers; each full block is submitted to a
+ * fork-join pool and encoded as one FLAC frame there, so many frames compress in parallel while the
+ * recording thread only copies. A background writer thread collects the encoded frames strictly in
+ * submission order and appends them to the file. As with {@link StreamingWavRecorder}, memory is fixed by
+ * the pool size; if encoding falls behind, a live recording drops blocks rather than stall the recording
+ * thread, while a {@link #setBlocking blocking} one waits for a block to come free.
+ * <p>
+ * Segment limits are applied to the uncompressed audio, so compressed segments come out smaller than the
+ * size limit but always cover the same duration.
+ */
+public class FlacRecorder implements Recorder {
+    private static final Logger LOGGER = Logger.getLogger(FlacRecorder.class.getName());
+    private static final int BUFFER_COUNT = 32;
+
+    private record PendingFrame(ForkJoinTask<byte[]> encoded, byte[] pcm, int frames, long index) {
+    }
+
+    private final AudioFormat format;
+    private final SegmentPolicy segmentPolicy;
+    private final FlacFrameEncoder encoder;
+    private final ForkJoinPool pool;
+    private final int frameSize;
+    private final int blockBytes;
+    private final long blocksPerSegment;
+
+    private final BlockingQueue<byte[]> freeBlocks;
+    private final BlockingQueue<PendingFrame> pendingFrames;
+    private final PendingFrame endOfStream = new PendingFrame(null, null, 0, -1);
+
+    private byte[] current;
+    private int currentLength;
+    private long blockIndex;
+    private Thread writerThread;
+    private String filename;
+    private boolean active;
+    private volatile boolean blocking;
+    private volatile long droppedBytes;
+    private volatile long writtenBytes;
+    private volatile long encodedBytes;
+
+    public FlacRecorder(AudioFormat format) {
+        this(format, SegmentPolicy.NONE, FlacFrameEncoder.DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    public FlacRecorder(AudioFormat format, SegmentPolicy segmentPolicy) {
+        this(format, segmentPolicy, FlacFrameEncoder.DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param blockSize samples per channel in each FLAC frame
+     * @param pool      where frames are encoded
+     */
+    public FlacRecorder(AudioFormat format, SegmentPolicy segmentPolicy, int blockSize, ForkJoinPool pool) {
+        this.format = format;
+        this.segmentPolicy = segmentPolicy;
+        this.encoder = new FlacFrameEncoder(format, blockSize);
+        this.pool = pool;
+        this.frameSize = format.getFrameSize();
+        this.blockBytes = encoder.getBlockBytes();
+
+        long segmentBytes = segmentPolicy.segmentDataBytes(format);
+        this.blocksPerSegment = segmentBytes == Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(1, segmentBytes / blockBytes);
+
+        this.freeBlocks = new ArrayBlockingQueue<>(BUFFER_COUNT);
+        this.pendingFrames = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+        for (int i = 0; i < BUFFER_COUNT; i++)
+            freeBlocks.add(new byte[blockBytes]);
+    }
+
+    public static boolean isSupported(AudioFormat format) {
+        return FlacFrameEncoder.isSupported(format);
+    }
+
+    @Override
+    public synchronized void start(String filename) {
+        if (active)
+            stop();
+
+        this.filename = filename;
+        this.blockIndex = 0;
+        this.droppedBytes = 0;
+        this.writtenBytes = 0;
+        this.encodedBytes = 0;
+
+        FlacFileWriter writer;
+        try {
+            writer = openSegment(0);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to start recording", e);
+            return;
+        }
+
+        current = freeBlocks.poll();
+        currentLength = 0;
+        active = true;
+        writerThread = new Thread(() -> drain(writer), "FlacRecordingWriterThread");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private FlacFileWriter openSegment(int index) throws IOException {
+        return new FlacFileWriter(Path.of(segmentFilename(index)), encoder.initialStreamInfo());
+    }
+
+    private String segmentFilename(int index) {
+        if (!segmentPolicy.rotates())
+            return filename;
+
+        int extension = filename.lastIndexOf('.');
+        String base = extension > 0 ? filename.substring(0, extension) : filename;
+        String suffix = extension > 0 ? filename.substring(extension) : ".flac";
+        return String.format("%s-%03d%s", base, index, suffix);
+    }
+
+    @Override
+    public synchronized void writeData(byte[] buffer, int length) {
+        if (!active)
+            return;
+
+        int offset = 0;
+        while (offset < length) {
+            if (current == null && (current = nextBlock()) == null) {
+                // The encoders can't keep up with live capture; never block the recording thread
+                droppedBytes += length - offset;
+                return;
+            }
+
+            int chunk = Math.min(length - offset, blockBytes - currentLength);
+            chunk -= chunk % frameSize;
+            if (chunk == 0)
+                return; // Trailing partial frame
+
+            System.arraycopy(buffer, offset, current, currentLength, chunk);
+            currentLength += chunk;
+            offset += chunk;
+            if (currentLength == blockBytes)
+                submit();
+        }
+    }
+
+    private byte[] nextBlock() {
+        if (!blocking)
+            return freeBlocks.poll();
+
+        try {
+            return freeBlocks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void submit() {
+        byte[] pcm = current;
+        int frames = currentLength / frameSize;
+        long index = blockIndex++;
+        long frameNumber = index % blocksPerSegment;
+
+        ForkJoinTask<byte[]> encoded = pool.submit(() -> encoder.encode(pcm, 0, frames, frameNumber));
+        pendingFrames.add(new PendingFrame(encoded, pcm, frames, index));
+        current = null;
+        currentLength = 0;
+    }
+
+    private void drain(FlacFileWriter firstSegment) {
+        FlacFileWriter writer = firstSegment;
+        byte[] scratch = new byte[blockBytes];
+        boolean failed = false;
+
+        try {
+            while (true) {
+                PendingFrame frame = pendingFrames.take();
+                if (frame == endOfStream)
+                    break;
+
+                if (!failed) {
+                    try {
+                        byte[] encoded = frame.encoded().join();
+                        if (frame.index() > 0 && frame.index() % blocksPerSegment == 0) {
+                            writer.close();
+                            LOGGER.info("Recording segment saved to: " + writer.getPath().toAbsolutePath());
+                            writer = openSegment((int) (frame.index() / blocksPerSegment));
+                        }
+
+                        encoder.digest(writer.getDigest(), frame.pcm(), 0, frame.frames(), scratch);
+                        writer.writeFrame(encoded, frame.frames());
+                        writtenBytes += (long) frame.frames() * frameSize;
+                        encodedBytes += encoded.length;
+                    } catch (IOException | RuntimeException e) {
+                        LOGGER.log(Level.SEVERE, "Failed to write recording, discarding the rest of the session", e);
+                        failed = true;
+                    }
+                } else {
+                    frame.encoded().quietlyJoin();
+                }
+
+                freeBlocks.add(frame.pcm());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                writer.close();
+                LOGGER.info("Recording saved to: " + writer.getPath().toAbsolutePath());
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed to finalise recording", e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!active)
+            return;
+        active = false;
+
+        if (current != null && currentLength > 0)
+            submit();
+        else if (current != null)
+            freeBlocks.add(current);
+        current = null;
+
+        pendingFrames.add(endOfStream);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (droppedBytes > 0)
+            LOGGER.severe("Recording " + filename + " is incomplete: " + droppedBytes
+                    + " bytes were dropped because the encoders fell behind");
+        if (writtenBytes > 0)
+            LOGGER.info(String.format("FLAC recording compressed to %.1f%% of the raw audio",
+                    100.0 * encodedBytes / writtenBytes));
+    }
+
+    @Override
+    public void setBlocking(boolean blocking) {
+        this.blocking = blocking;
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Compressed bytes written for the current session, excluding file headers.
+     */
+    public long getEncodedBytes() {
+        return encodedBytes;
+    }
+
+    @Override
+    public long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    @Override
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return pendingFrames.size();
+    }
+}
@@ -0,0 +1,31 @@
+package org.bunnys.audio.recording;
+
+import java.time.Duration;
+
+/**
+ * When a {@link SilenceGatingRecorder} lets audio through. The gate opens once a window's level reaches
+ * {@code openDb} (dBFS) and closes again only after it has stayed below the lower {@code closeDb} for the
+ * whole {@code hangover}, so pauses between words don't chop a recording up. {@code lookback} of audio
+ * from before the gate opened is kept too, so soft onsets are not clipped.
+ */
+public record GatePolicy(double openDb, double closeDb, Duration hangover, Duration lookback) {
+    public static final GatePolicy DEFAULT = new GatePolicy(-45, -55, Duration.ofMillis(500), Duration.ofMillis(200));
+
+    public GatePolicy {
+        if (!(openDb <= 0))
+            throw new IllegalArgumentException("Open threshold must be at most 0 dBFS: " + openDb);
+        if (!(closeDb <= openDb))
+            throw new IllegalArgumentException("Close threshold must not be above the open threshold: " + closeDb);
+        if (hangover == null || hangover.isNegative())
+            throw new IllegalArgumentException("Hangover cannot be negative");
+        if (lookback == null || lookback.isNegative())
+            throw new IllegalArgumentException("Lookback cannot be negative");
+    }
+
+    /**
+     * The default timings around an open threshold of {@code openDb}, closing 10 dB below it.
+     */
+    public static GatePolicy atThreshold(double openDb) {
+        return new GatePolicy(openDb, openDb - 10, DEFAULT.hangover, DEFAULT.lookback);
+    }
+}
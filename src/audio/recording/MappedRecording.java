@@ -0,0 +1,276 @@
+package org.bunnys.audio.recording;
+
+import org.bunnys.audio.codec.PcmCodec;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A WAV recording opened for browsing without reading it onto the heap.
+ * <p>
+ * The data chunk is memory-mapped in segments of at most {@value #SEGMENT_BYTES} bytes, so recordings of
+ * any size open in constant time and memory; the OS pages audio in only where it is read. Whole-file views
+ * come from a {@link WaveformOverview} kept next to the recording, and {@link #query} drops down to the
+ * mapped samples only when zoomed in past the overview's finest level.
+ */
+public class MappedRecording implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(MappedRecording.class.getName());
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final int READ_FRAMES = 16 * 1024;
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_IEEE_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final AudioFormat format;
+    private final PcmCodec codec;
+    private final int frameSize;
+    private final long frameCount;
+    private final long segmentFrames;
+    private final MappedByteBuffer[] segments;
+    private WaveformOverview overview;
+
+    // Reused by query and the overview pass; both run on one thread at a time
+    private final byte[] readBytes;
+    private final float[] readSamples;
+
+    private MappedRecording(Path path, FileChannel channel, AudioFormat format, long dataOffset, long dataSize)
+            throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.format = format;
+        this.codec = PcmCodec.forFormat(format);
+        this.frameSize = format.getFrameSize();
+        this.frameCount = dataSize / frameSize;
+        this.segmentFrames = SEGMENT_BYTES / frameSize;
+
+        int segmentCount = (int) ((frameCount + segmentFrames - 1) / segmentFrames);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long firstFrame = i * segmentFrames;
+            long bytes = Math.min(segmentFrames, frameCount - firstFrame) * frameSize;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + firstFrame * frameSize, bytes);
+        }
+
+        this.readBytes = new byte[READ_FRAMES * frameSize];
+        this.readSamples = new float[READ_FRAMES];
+    }
+
+    /**
+     * Maps {@code path} and loads its overview, building and saving one first if it is missing or stale.
+     */
+    public static MappedRecording open(Path path) throws IOException {
+        MappedRecording recording = map(path);
+        try {
+            recording.overview = recording.loadOrBuildOverview();
+            return recording;
+        } catch (IOException | RuntimeException e) {
+            recording.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps {@code path} without touching any overview; {@link #query} then always reads samples.
+     */
+    public static MappedRecording map(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return parse(path, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Walks the RIFF chunks for fmt and data; only the small chunk headers are read
+    private static MappedRecording parse(Path path, FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header.limit(12), 0);
+        if (header.getInt(0) != 0x46464952 || header.getInt(8) != 0x45564157) // "RIFF", "WAVE"
+            throw new IOException("Not a WAV file: " + path);
+
+        AudioFormat format = null;
+        long position = 12;
+        while (position + 8 <= fileSize) {
+            header.clear();
+            readFully(channel, header.limit(8), position);
+            int id = header.getInt(0);
+            long size = header.getInt(4) & 0xFFFFFFFFL;
+            long body = position + 8;
+
+            if (id == 0x20746D66) { // "fmt "
+                header.clear();
+                readFully(channel, header.limit((int) Math.min(size, 40)), body);
+                format = parseFormat(header, path);
+            } else if (id == 0x61746164) { // "data"
+                if (format == null)
+                    throw new IOException("WAV data chunk comes before its format: " + path);
+
+                // A recording cut short may claim more data than the file holds
+                long dataSize = Math.min(size, fileSize - body);
+                if (size == 0 || size == 0xFFFFFFFFL)
+                    dataSize = fileSize - body;
+                return new MappedRecording(path, channel, format, body, dataSize);
+            }
+            position = body + size + (size & 1);
+        }
+        throw new IOException("WAV file has no data chunk: " + path);
+    }
+
+    private static AudioFormat parseFormat(ByteBuffer fmt, Path path) throws IOException {
+        int tag = fmt.getShort(0) & 0xFFFF;
+        int channels = fmt.getShort(2) & 0xFFFF;
+        int sampleRate = fmt.getInt(4);
+        int blockAlign = fmt.getShort(12) & 0xFFFF;
+        int bits = fmt.getShort(14) & 0xFFFF;
+        if (tag == FORMAT_EXTENSIBLE && fmt.limit() >= 26)
+            tag = fmt.getShort(24) & 0xFFFF; // First two bytes of the sub-format GUID
+
+        AudioFormat.Encoding encoding;
+        if (tag == FORMAT_IEEE_FLOAT)
+            encoding = AudioFormat.Encoding.PCM_FLOAT;
+        else if (tag == FORMAT_PCM)
+            encoding = bits == 8 ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED;
+        else
+            throw new IOException("Unsupported WAV encoding " + tag + ": " + path);
+
+        AudioFormat format = new AudioFormat(encoding, sampleRate, bits, channels, blockAlign, sampleRate, false);
+        if (!PcmCodec.isSupported(format))
+            throw new IOException("Unsupported WAV format " + format + ": " + path);
+        return format;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of WAV file");
+        }
+    }
+
+    private WaveformOverview loadOrBuildOverview() throws IOException {
+        Path indexPath = WaveformOverview.indexPathFor(path);
+        WaveformOverview.SourceStamp stamp = WaveformOverview.SourceStamp.of(path);
+
+        WaveformOverview loaded = WaveformOverview.load(indexPath, stamp);
+        if (loaded != null && loaded.getFrameCount() == frameCount)
+            return loaded;
+
+        WaveformOverview built = WaveformOverview.build(this);
+        try {
+            built.save(indexPath, stamp);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not save waveform overview next to " + path
+                    + ", it will be rebuilt next time", e);
+        }
+        return built;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public float getSampleRate() {
+        return format.getSampleRate();
+    }
+
+    public WaveformOverview getOverview() {
+        return overview;
+    }
+
+    /**
+     * Decodes {@code frames} frames starting at {@code firstFrame} into {@code target}, averaging channels.
+     * Only the mapped pages covering that range are touched.
+     */
+    public synchronized void readMono(long firstFrame, float[] target, int targetOffset, int frames) {
+        readMono(firstFrame, target, targetOffset, frames, readBytes);
+    }
+
+    /**
+     * Like {@link #readMono(long, float[], int, int)}, but decodes through the caller's {@code scratch}
+     * buffer, at least one frame long, instead of the shared one. The mappings are only ever read by
+     * absolute position, so any number of threads may read this way at once.
+     */
+    public void readMono(long firstFrame, float[] target, int targetOffset, int frames, byte[] scratch) {
+        if (firstFrame < 0 || frames < 0 || firstFrame + frames > frameCount)
+            throw new IndexOutOfBoundsException("Frames " + firstFrame + ".." + (firstFrame + frames)
+                    + " outside recording of " + frameCount);
+
+        int done = 0;
+        while (done < frames) {
+            long frame = firstFrame + done;
+            MappedByteBuffer segment = segments[(int) (frame / segmentFrames)];
+            int inSegment = (int) (frame % segmentFrames);
+            int count = (int) Math.min(Math.min(frames - done, scratch.length / frameSize), segmentFrames - inSegment);
+
+            segment.get(inSegment * frameSize, scratch, 0, count * frameSize);
+            codec.decodeMono(scratch, 0, count, target, targetOffset + done);
+            done += count;
+        }
+    }
+
+    /**
+     * Fills one min/max pair per column for frames {@code [from, to)}. Columns wider than the overview's
+     * finest bucket come from the overview; narrower ones read the mapped samples of just that range.
+     */
+    public synchronized void query(long from, long to, int columns, float[] min, float[] max) {
+        from = Math.max(0, from);
+        to = Math.min(frameCount, to);
+        double framesPerColumn = (double) (to - from) / columns;
+
+        if (overview != null && framesPerColumn >= overview.getBaseBucketSize()) {
+            overview.query(from, to, columns, min, max);
+            return;
+        }
+
+        for (int c = 0; c < columns; c++) {
+            long start = from + (long) Math.floor(c * framesPerColumn);
+            long end = Math.min(to, Math.max(start + 1, from + (long) Math.floor((c + 1) * framesPerColumn)));
+            if (start >= end) {
+                min[c] = Float.NaN;
+                max[c] = Float.NaN;
+                continue;
+            }
+
+            float columnMin = Float.POSITIVE_INFINITY;
+            float columnMax = Float.NEGATIVE_INFINITY;
+            for (long frame = start; frame < end; frame += READ_FRAMES) {
+                int count = (int) Math.min(READ_FRAMES, end - frame);
+                readMono(frame, readSamples, 0, count);
+                for (int i = 0; i < count; i++) {
+                    columnMin = Math.min(columnMin, readSamples[i]);
+                    columnMax = Math.max(columnMax, readSamples[i]);
+                }
+            }
+            min[c] = columnMin;
+            max[c] = columnMax;
+        }
+    }
+
+    /**
+     * Closes the file. The mappings themselves are released when they are garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,41 @@
+package org.bunnys.audio.recording;
+
+/**
+ * A recording session: {@link #start} opens it, {@link #writeData} receives PCM in the capture format
+ * from the recording thread, and {@link #stop} finalises whatever was written.
+ */
+public interface Recorder {
+    void start(String filename);
+
+    void writeData(byte[] buffer, int length);
+
+    void stop();
+
+    /**
+     * Whether {@link #writeData} waits for the writer to catch up instead of dropping audio when it falls
+     * behind. Set for sources that are not real time, which lose nothing by waiting; live capture leaves it off.
+     */
+    default void setBlocking(boolean blocking) {
+    }
+
+    /**
+     * Bytes accepted by the current session so far, for throughput metrics.
+     */
+    default long getWrittenBytes() {
+        return 0;
+    }
+
+    /**
+     * Bytes of the current session that were thrown away because the recorder could not keep up.
+     */
+    default long getDroppedBytes() {
+        return 0;
+    }
+
+    /**
+     * Buffers handed over but not yet written out, for recorders with a writer thread.
+     */
+    default int getQueueDepth() {
+        return 0;
+    }
+}
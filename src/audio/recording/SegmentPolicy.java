@@ -0,0 +1,46 @@
+package org.bunnys.audio.recording;
+
+import javax.sound.sampled.AudioFormat;
+import java.time.Duration;
+
+/**
+ * When a streaming recording should roll over to a new file. A limit of zero means unbounded.
+ */
+public record SegmentPolicy(long maxBytes, Duration maxDuration) {
+    public static final SegmentPolicy NONE = new SegmentPolicy(0, Duration.ZERO);
+
+    public SegmentPolicy {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("Segment size cannot be negative");
+        if (maxDuration == null || maxDuration.isNegative())
+            throw new IllegalArgumentException("Segment duration cannot be negative");
+    }
+
+    public static SegmentPolicy bySize(long maxBytes) {
+        return new SegmentPolicy(maxBytes, Duration.ZERO);
+    }
+
+    public static SegmentPolicy byDuration(Duration maxDuration) {
+        return new SegmentPolicy(0, maxDuration);
+    }
+
+    public boolean rotates() {
+        return maxBytes > 0 || !maxDuration.isZero();
+    }
+
+    /**
+     * Bytes of audio data per segment, rounded down to whole frames, or {@code Long.MAX_VALUE} if unbounded.
+     */
+    public long segmentDataBytes(AudioFormat format) {
+        int frameSize = format.getFrameSize();
+        long limit = Long.MAX_VALUE;
+
+        if (maxBytes > 0)
+            limit = Math.max(frameSize, maxBytes - WavFileWriter.HEADER_SIZE);
+        if (!maxDuration.isZero()) {
+            long frames = (long) (maxDuration.toNanos() / 1e9 * format.getFrameRate());
+            limit = Math.min(limit, Math.max(1, frames) * frameSize);
+        }
+        return limit == Long.MAX_VALUE ? limit : limit - limit % frameSize;
+    }
+}
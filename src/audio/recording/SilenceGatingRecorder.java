@@ -0,0 +1,276 @@
+package org.bunnys.audio.recording;
+
+import org.bunnys.audio.codec.PcmCodec;
+import org.bunnys.audio.processing.VoiceActivityDetector;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Wraps another recorder and only passes on the parts of the stream with something in them, so an
+ * unattended session that is mostly silence costs disk in proportion to what was actually heard.
+ * <p>
+ * Incoming PCM is cut into {@value #WINDOW_MILLIS} ms windows and classified by a
+ * {@link VoiceActivityDetector}; open windows go to the wrapped recorder and closed ones are held in a
+ * small lookback ring until either the gate opens (and they are written in front of the onset) or they
+ * are overwritten. All buffers are allocated up front.
+ * <p>
+ * The kept regions are concatenated in the output, and {@code <name>.activity.csv} next to it maps each
+ * one back to the original timeline: where it started and ended in the uncut stream and where it starts
+ * in the output, all in samples, plus the same start and duration in seconds.
+ */
+public class SilenceGatingRecorder implements Recorder {
+    private static final Logger LOGGER = Logger.getLogger(SilenceGatingRecorder.class.getName());
+    private static final int WINDOW_MILLIS = 10;
+    private static final String INDEX_SUFFIX = ".activity.csv";
+
+    private final Recorder delegate;
+    private final GatePolicy policy;
+    private final PcmCodec codec;
+    private final float sampleRate;
+    private final int frameSize;
+    private final VoiceActivityDetector detector;
+
+    // The window being filled, and closed windows held back in case the gate opens; slots are swapped, not copied
+    private byte[] window;
+    private final float[] windowSamples;
+    private final byte[][] lookback;
+
+    private int windowLength;
+    private int lookbackStart;
+    private int lookbackCount;
+    private boolean open;
+    private long sourceFrame;
+    private long outputFrame;
+    private long regionStart;
+    private long regionOutputStart;
+    private BufferedWriter index;
+    private volatile long skippedBytes;
+    private volatile int regionCount;
+
+    public SilenceGatingRecorder(Recorder delegate, AudioFormat format, GatePolicy policy) {
+        if (!PcmCodec.isSupported(format))
+            throw new IllegalArgumentException("Unsupported recording format: " + format);
+
+        this.delegate = delegate;
+        this.policy = policy;
+        this.codec = PcmCodec.forFormat(format);
+        this.sampleRate = format.getSampleRate();
+        this.frameSize = format.getFrameSize();
+
+        int windowFrames = Math.max(1, Math.round(sampleRate * WINDOW_MILLIS / 1000f));
+        this.detector = new VoiceActivityDetector(sampleRate, policy.openDb(), policy.closeDb(),
+                framesIn(policy.hangover()));
+        this.window = new byte[windowFrames * frameSize];
+        this.windowSamples = new float[windowFrames];
+
+        int lookbackWindows = (framesIn(policy.lookback()) + windowFrames - 1) / windowFrames;
+        this.lookback = new byte[lookbackWindows][window.length];
+    }
+
+    private int framesIn(Duration duration) {
+        return (int) Math.min(Integer.MAX_VALUE / 2, Math.round(duration.toNanos() / 1e9 * sampleRate));
+    }
+
+    public static Path indexPathFor(String filename) {
+        int extension = filename.lastIndexOf('.');
+        String base = extension > 0 ? filename.substring(0, extension) : filename;
+        return Path.of(base + INDEX_SUFFIX);
+    }
+
+    @Override
+    public synchronized void start(String filename) {
+        closeIndex();
+        detector.reset();
+        windowLength = 0;
+        lookbackCount = 0;
+        open = false;
+        sourceFrame = 0;
+        outputFrame = 0;
+        skippedBytes = 0;
+        regionCount = 0;
+
+        try {
+            index = Files.newBufferedWriter(indexPathFor(filename));
+            index.write("source_start,source_end,output_start,start_seconds,duration_seconds");
+            index.newLine();
+            index.flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not create the activity index for " + filename
+                    + ", recording without it", e);
+            index = null;
+        }
+        delegate.start(filename);
+    }
+
+    @Override
+    public synchronized void writeData(byte[] buffer, int length) {
+        int offset = 0;
+        while (offset < length) {
+            int chunk = Math.min(length - offset, window.length - windowLength);
+            System.arraycopy(buffer, offset, window, windowLength, chunk);
+            windowLength += chunk;
+            offset += chunk;
+
+            if (windowLength == window.length)
+                gateWindow();
+        }
+    }
+
+    private void gateWindow() {
+        int frames = windowLength / frameSize;
+        codec.decodeMono(window, 0, frames, windowSamples, 0);
+        boolean active = detector.update(windowSamples, 0, frames);
+
+        if (active && !open) {
+            // Backdate the region to cover the held-back windows written ahead of the onset
+            regionStart = sourceFrame - (long) lookbackCount * (window.length / frameSize);
+            regionOutputStart = outputFrame;
+            for (int i = 0; i < lookbackCount; i++)
+                emit(lookback[(lookbackStart + i) % lookback.length], window.length);
+            lookbackCount = 0;
+            open = true;
+        } else if (!active && open) {
+            endRegion(sourceFrame);
+            open = false;
+        }
+
+        if (open)
+            emit(window, frames * frameSize);
+        else
+            holdBack();
+
+        sourceFrame += frames;
+        windowLength = 0;
+    }
+
+    private void emit(byte[] bytes, int length) {
+        delegate.writeData(bytes, length);
+        outputFrame += length / frameSize;
+    }
+
+    // The window becomes the newest lookback slot; whatever falls out of the lookback is skipped for good
+    private void holdBack() {
+        if (lookback.length == 0) {
+            skippedBytes += window.length;
+            return;
+        }
+
+        if (lookbackCount == lookback.length) {
+            skippedBytes += window.length;
+            lookbackStart = (lookbackStart + 1) % lookback.length;
+            lookbackCount--;
+        }
+
+        int slot = (lookbackStart + lookbackCount) % lookback.length;
+        byte[] free = lookback[slot];
+        lookback[slot] = window;
+        window = free;
+        lookbackCount++;
+    }
+
+    private void endRegion(long end) {
+        regionCount++;
+        if (index == null)
+            return;
+
+        try {
+            index.write(String.format(Locale.ROOT, "%d,%d,%d,%.6f,%.6f", regionStart, end, regionOutputStart,
+                    regionStart / (double) sampleRate, (end - regionStart) / (double) sampleRate));
+            index.newLine();
+            index.flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to write the activity index, continuing without it", e);
+            closeIndex();
+        }
+    }
+
+    private void closeIndex() {
+        if (index == null)
+            return;
+
+        try {
+            index.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to close the activity index", e);
+        }
+        index = null;
+    }
+
+    @Override
+    public synchronized void stop() {
+        // A trailing partial window goes wherever the gate currently points
+        int frames = windowLength / frameSize;
+        if (open) {
+            emit(window, frames * frameSize);
+            endRegion(sourceFrame + frames);
+        } else {
+            skippedBytes += windowLength + (long) lookbackCount * window.length;
+        }
+        sourceFrame += frames;
+        windowLength = 0;
+        lookbackCount = 0;
+        open = false;
+
+        closeIndex();
+        delegate.stop();
+
+        long total = sourceFrame * frameSize;
+        if (total > 0)
+            LOGGER.info(String.format("Silence gate kept %d region(s), %.1f%% of the audio",
+                    regionCount, 100.0 * (total - skippedBytes) / total));
+    }
+
+    public Recorder getDelegate() {
+        return delegate;
+    }
+
+    public GatePolicy getPolicy() {
+        return policy;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Bytes of the current session left out as silence.
+     */
+    public long getSkippedBytes() {
+        return skippedBytes;
+    }
+
+    /**
+     * Active regions closed so far in the current session.
+     */
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    @Override
+    public void setBlocking(boolean blocking) {
+        delegate.setBlocking(blocking);
+    }
+
+    @Override
+    public long getWrittenBytes() {
+        return delegate.getWrittenBytes();
+    }
+
+    @Override
+    public long getDroppedBytes() {
+        return delegate.getDroppedBytes();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return delegate.getQueueDepth();
+    }
+}
@@ -0,0 +1,263 @@
+package org.bunnys.audio.recording;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records straight to disk instead of holding the session in memory.
+ * <p>
+ * {@link #writeData} converts into a small pool of direct buffers and hands full ones to a background
+ * writer thread, which appends them through a {@link WavFileWriter} and patches the header after every
+ * buffer. Memory use is fixed by the pool size, however long the session runs, and a crash leaves every
+ * segment written so far as a valid WAV file. When the pool runs dry a live recording drops audio rather
+ * than wait on the disk, while a {@link #setBlocking blocking} one waits for the writer.
+ */
+public class StreamingWavRecorder implements Recorder {
+    private static final Logger LOGGER = Logger.getLogger(StreamingWavRecorder.class.getName());
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BUFFER_COUNT = 16;
+
+    private final AudioFormat format;
+    private final SegmentPolicy segmentPolicy;
+    private final long segmentDataBytes;
+    private final int sampleBytes;
+    private final int usableBufferSize;
+    private final boolean swapBytes;
+    private final boolean flipSignBit;
+
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final BlockingQueue<ByteBuffer> filledBuffers;
+    private final ByteBuffer endOfStream = ByteBuffer.allocate(0);
+
+    private ByteBuffer current;
+    private Thread writerThread;
+    private String filename;
+    private int segmentIndex;
+    private boolean active;
+    private volatile boolean blocking;
+    private volatile long droppedBytes;
+    private volatile long writtenBytes;
+
+    public StreamingWavRecorder(AudioFormat format) {
+        this(format, SegmentPolicy.NONE);
+    }
+
+    public StreamingWavRecorder(AudioFormat format, SegmentPolicy segmentPolicy) {
+        this.format = format;
+        this.segmentPolicy = segmentPolicy;
+        this.segmentDataBytes = segmentPolicy.segmentDataBytes(format);
+        this.sampleBytes = (format.getSampleSizeInBits() + 7) / 8;
+        this.usableBufferSize = BUFFER_SIZE - BUFFER_SIZE % format.getFrameSize();
+        this.swapBytes = format.isBigEndian() && sampleBytes > 1;
+        this.flipSignBit = sampleBytes == 1 && AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding());
+
+        this.freeBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT);
+        this.filledBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+        for (int i = 0; i < BUFFER_COUNT; i++)
+            freeBuffers.add(ByteBuffer.allocateDirect(BUFFER_SIZE).limit(usableBufferSize));
+    }
+
+    @Override
+    public synchronized void start(String filename) {
+        if (active)
+            stop();
+
+        this.filename = filename;
+        this.segmentIndex = 0;
+        this.droppedBytes = 0;
+        this.writtenBytes = 0;
+
+        WavFileWriter writer;
+        try {
+            writer = openSegment();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to start recording", e);
+            return;
+        }
+
+        current = freeBuffers.poll();
+        active = true;
+        writerThread = new Thread(() -> drain(writer), "AudioRecordingWriterThread");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private WavFileWriter openSegment() throws IOException {
+        Path path = Path.of(segmentFilename(segmentIndex++));
+        return new WavFileWriter(path, format);
+    }
+
+    private String segmentFilename(int index) {
+        if (!segmentPolicy.rotates())
+            return filename;
+
+        int extension = filename.lastIndexOf('.');
+        String base = extension > 0 ? filename.substring(0, extension) : filename;
+        String suffix = extension > 0 ? filename.substring(extension) : ".wav";
+        return String.format("%s-%03d%s", base, index, suffix);
+    }
+
+    @Override
+    public synchronized void writeData(byte[] buffer, int length) {
+        if (!active)
+            return;
+
+        int offset = 0;
+        while (offset < length) {
+            if (current == null && (current = nextBuffer()) == null) {
+                // The writer can't keep up with live capture; never block the recording thread on disk
+                droppedBytes += length - offset;
+                return;
+            }
+
+            int chunk = Math.min(length - offset, current.remaining());
+            chunk -= chunk % sampleBytes;
+            if (chunk == 0)
+                return; // Trailing partial sample
+
+            if (swapBytes || flipSignBit)
+                putConverted(buffer, offset, chunk);
+            else
+                current.put(buffer, offset, chunk);
+
+            offset += chunk;
+            if (!current.hasRemaining())
+                handOff();
+        }
+    }
+
+    private ByteBuffer nextBuffer() {
+        if (!blocking)
+            return freeBuffers.poll();
+
+        try {
+            return freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void putConverted(byte[] buffer, int offset, int length) {
+        for (int sample = offset; sample < offset + length; sample += sampleBytes) {
+            if (flipSignBit) {
+                current.put((byte) (buffer[sample] ^ 0x80));
+            } else {
+                for (int b = sampleBytes - 1; b >= 0; b--)
+                    current.put(buffer[sample + b]);
+            }
+        }
+    }
+
+    private void handOff() {
+        filledBuffers.add(current.flip());
+        current = null;
+    }
+
+    private void drain(WavFileWriter firstSegment) {
+        WavFileWriter writer = firstSegment;
+        boolean failed = false;
+
+        try {
+            while (true) {
+                ByteBuffer buffer = filledBuffers.take();
+                if (buffer == endOfStream)
+                    break;
+
+                if (!failed) {
+                    try {
+                        writer = writeSegmented(writer, buffer);
+                        writer.updateHeader();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.SEVERE, "Failed to write recording, discarding the rest of the session", e);
+                        failed = true;
+                    }
+                }
+
+                buffer.clear().limit(usableBufferSize);
+                freeBuffers.add(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                writer.close();
+                LOGGER.info("Recording saved to: " + writer.getPath().toAbsolutePath());
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed to finalise recording", e);
+            }
+        }
+    }
+
+    private WavFileWriter writeSegmented(WavFileWriter writer, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            long room = segmentDataBytes - writer.getDataSize();
+            if (room <= 0) {
+                writer.close();
+                LOGGER.info("Recording segment saved to: " + writer.getPath().toAbsolutePath());
+                writer = openSegment();
+                continue;
+            }
+
+            int limit = buffer.limit();
+            if (buffer.remaining() > room)
+                buffer.limit(buffer.position() + (int) room);
+
+            int before = buffer.position();
+            writer.write(buffer);
+            writtenBytes += buffer.position() - before;
+            buffer.limit(limit);
+        }
+        return writer;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!active)
+            return;
+        active = false;
+
+        if (current != null && current.position() > 0)
+            handOff();
+        else if (current != null)
+            freeBuffers.add(current);
+        current = null;
+
+        filledBuffers.add(endOfStream);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (droppedBytes > 0)
+            LOGGER.severe("Recording " + filename + " is incomplete: " + droppedBytes
+                    + " bytes were dropped because the disk writer fell behind");
+    }
+
+    @Override
+    public void setBlocking(boolean blocking) {
+        this.blocking = blocking;
+    }
+
+    @Override
+    public long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    @Override
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return filledBuffers.size();
+    }
+}
@@ -0,0 +1,124 @@
+package org.bunnys.audio.recording;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a canonical 44-byte header WAV file through a {@link FileChannel}. The RIFF and data sizes can be
+ * patched at any point, so a file whose header was last updated before a crash is still readable.
+ * Payload buffers must already be in WAV byte order (little-endian, unsigned 8-bit).
+ */
+public class WavFileWriter implements AutoCloseable {
+    public static final int HEADER_SIZE = 44;
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_IEEE_FLOAT = 3;
+    private static final long MAX_DATA_SIZE = 0xFFFFFFFFL - (HEADER_SIZE - 8);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer sizeField;
+    private long dataSize;
+
+    public WavFileWriter(Path path, AudioFormat format) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.sizeField = ByteBuffer.allocateDirect(4).order(ByteOrder.LITTLE_ENDIAN);
+
+        ByteBuffer header = createHeader(format);
+        while (header.hasRemaining())
+            channel.write(header);
+    }
+
+    private static ByteBuffer createHeader(AudioFormat format) {
+        boolean isFloat = AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding());
+        int channels = format.getChannels();
+        int bitsPerSample = format.getSampleSizeInBits();
+        int sampleRate = Math.round(format.getSampleRate());
+        int blockAlign = channels * ((bitsPerSample + 7) / 8);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] { 'R', 'I', 'F', 'F' }).putInt(HEADER_SIZE - 8)
+                .put(new byte[] { 'W', 'A', 'V', 'E' })
+                .put(new byte[] { 'f', 'm', 't', ' ' }).putInt(16)
+                .putShort((short) (isFloat ? FORMAT_IEEE_FLOAT : FORMAT_PCM))
+                .putShort((short) channels)
+                .putInt(sampleRate)
+                .putInt(sampleRate * blockAlign)
+                .putShort((short) blockAlign)
+                .putShort((short) bitsPerSample)
+                .put(new byte[] { 'd', 'a', 't', 'a' }).putInt(0);
+        return header.flip();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public synchronized long getDataSize() {
+        return dataSize;
+    }
+
+    /**
+     * Appends the remaining bytes of {@code data}, leaving the buffer's position at its limit.
+     */
+    public void write(ByteBuffer data) throws IOException {
+        if (dataSize + data.remaining() > MAX_DATA_SIZE)
+            throw new IOException("WAV data chunk would exceed 4 GiB: " + path);
+
+        while (data.hasRemaining())
+            dataSize += channel.write(data, HEADER_SIZE + dataSize);
+    }
+
+    /**
+     * Writes the remaining bytes of {@code data} at {@code dataPosition} bytes into the data chunk, growing
+     * the chunk if they reach past its end. Several threads may write disjoint ranges at once, e.g. pieces
+     * of one file processed in parallel, but not while another thread appends with {@link #write}.
+     */
+    public void writeAt(long dataPosition, ByteBuffer data) throws IOException {
+        long end = dataPosition + data.remaining();
+        if (dataPosition < 0 || end > MAX_DATA_SIZE)
+            throw new IOException("WAV data range " + dataPosition + ".." + end + " is out of bounds: " + path);
+
+        while (data.hasRemaining())
+            channel.write(data, HEADER_SIZE + end - data.remaining());
+        growDataSize(end);
+    }
+
+    private synchronized void growDataSize(long end) {
+        dataSize = Math.max(dataSize, end);
+    }
+
+    /**
+     * Rewrites the RIFF and data chunk sizes so the file on disk is valid up to what was written so far.
+     */
+    public synchronized void updateHeader() throws IOException {
+        writeSizeField(4, HEADER_SIZE - 8 + dataSize);
+        writeSizeField(40, dataSize);
+    }
+
+    private void writeSizeField(long position, long value) throws IOException {
+        sizeField.clear();
+        sizeField.putInt((int) value).flip();
+        while (sizeField.hasRemaining())
+            channel.write(sizeField, position + sizeField.position());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen())
+            return;
+
+        try {
+            updateHeader();
+        } finally {
+            channel.close();
+        }
+    }
+}
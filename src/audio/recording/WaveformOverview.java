@@ -0,0 +1,224 @@
+package org.bunnys.audio.recording;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A persisted min/max index of a whole recording, for drawing it at any zoom without reading the audio.
+ * <p>
+ * Level 0 holds one min/max pair per {@value #BASE_BUCKET_SIZE} frames and each level above merges
+ * {@value #LEVEL_FACTOR} buckets of the one below, stopping once a level fits in a few hundred buckets.
+ * Values are stored as 16-bit fractions rounded outwards, so the drawn envelope never undershoots the
+ * audio and a one-hour 44.1 kHz recording indexes into well under 3 MB.
+ * <p>
+ * The index is saved next to the recording as {@code <name>.overview} together with the recording's size
+ * and modification time, and is rebuilt when either no longer matches.
+ */
+public class WaveformOverview {
+    public static final int BASE_BUCKET_SIZE = 256;
+    public static final int LEVEL_FACTOR = 8;
+
+    private static final String EXTENSION = ".overview";
+    private static final int MAGIC = 0x4143574F; // "ACWO"
+    private static final int VERSION = 1;
+    private static final int TOP_LEVEL_BUCKETS = 512;
+    private static final int MIN_BUCKETS_PER_COLUMN = 4;
+    private static final float SCALE = 32767f;
+
+    /**
+     * Identifies the exact recording an index was built from.
+     */
+    public record SourceStamp(long size, long lastModifiedMillis) {
+        public static SourceStamp of(Path path) throws IOException {
+            return new SourceStamp(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+        }
+    }
+
+    private final long frameCount;
+
+    // levels[l][2 * b] and levels[l][2 * b + 1] are the min and max of bucket b
+    private final short[][] levels;
+
+    private WaveformOverview(long frameCount, short[][] levels) {
+        this.frameCount = frameCount;
+        this.levels = levels;
+    }
+
+    public static Path indexPathFor(Path recording) {
+        return recording.resolveSibling(recording.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Builds the index in one sequential pass over the recording.
+     */
+    public static WaveformOverview build(MappedRecording recording) {
+        long frames = recording.getFrameCount();
+        int buckets = (int) ((frames + BASE_BUCKET_SIZE - 1) / BASE_BUCKET_SIZE);
+        short[] base = new short[2 * buckets];
+
+        float[] block = new float[BASE_BUCKET_SIZE * 64];
+        long frame = 0;
+        int bucket = 0;
+        while (frame < frames) {
+            int count = (int) Math.min(block.length, frames - frame);
+            recording.readMono(frame, block, 0, count);
+
+            for (int start = 0; start < count; start += BASE_BUCKET_SIZE) {
+                float min = Float.POSITIVE_INFINITY;
+                float max = Float.NEGATIVE_INFINITY;
+                for (int i = start; i < Math.min(count, start + BASE_BUCKET_SIZE); i++) {
+                    min = Math.min(min, block[i]);
+                    max = Math.max(max, block[i]);
+                }
+                base[2 * bucket] = quantise(min, true);
+                base[2 * bucket + 1] = quantise(max, false);
+                bucket++;
+            }
+            frame += count;
+        }
+
+        return new WaveformOverview(frames, buildLevels(base));
+    }
+
+    private static short[][] buildLevels(short[] base) {
+        int levelCount = 1;
+        for (long buckets = base.length / 2; buckets > TOP_LEVEL_BUCKETS; buckets = (buckets + LEVEL_FACTOR - 1) / LEVEL_FACTOR)
+            levelCount++;
+
+        short[][] levels = new short[levelCount][];
+        levels[0] = base;
+        for (int l = 1; l < levelCount; l++) {
+            short[] below = levels[l - 1];
+            int belowBuckets = below.length / 2;
+            short[] level = new short[2 * ((belowBuckets + LEVEL_FACTOR - 1) / LEVEL_FACTOR)];
+
+            for (int b = 0; b < level.length / 2; b++) {
+                short min = Short.MAX_VALUE;
+                short max = Short.MIN_VALUE;
+                for (int child = b * LEVEL_FACTOR; child < Math.min(belowBuckets, (b + 1) * LEVEL_FACTOR); child++) {
+                    min = (short) Math.min(min, below[2 * child]);
+                    max = (short) Math.max(max, below[2 * child + 1]);
+                }
+                level[2 * b] = min;
+                level[2 * b + 1] = max;
+            }
+            levels[l] = level;
+        }
+        return levels;
+    }
+
+    private static short quantise(float value, boolean down) {
+        float scaled = Math.max(-1f, Math.min(1f, value)) * SCALE;
+        return (short) (down ? Math.floor(scaled) : Math.ceil(scaled));
+    }
+
+    /**
+     * Reads a saved index, or returns {@code null} if there is none or it was built from a different file.
+     */
+    public static WaveformOverview load(Path indexPath, SourceStamp expected) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                return null;
+            if (in.readLong() != expected.size() || in.readLong() != expected.lastModifiedMillis())
+                return null;
+
+            long frameCount = in.readLong();
+            if (in.readInt() != BASE_BUCKET_SIZE || in.readInt() != LEVEL_FACTOR)
+                return null;
+
+            short[][] levels = new short[in.readInt()][];
+            for (int l = 0; l < levels.length; l++) {
+                short[] level = new short[in.readInt()];
+                for (int i = 0; i < level.length; i++)
+                    level[i] = in.readShort();
+                levels[l] = level;
+            }
+            return new WaveformOverview(frameCount, levels);
+        } catch (NoSuchFileException | EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index through a temporary file, so a reader never sees a partial one.
+     */
+    public void save(Path indexPath, SourceStamp source) throws IOException {
+        Path temporary = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(source.size());
+            out.writeLong(source.lastModifiedMillis());
+            out.writeLong(frameCount);
+            out.writeInt(BASE_BUCKET_SIZE);
+            out.writeInt(LEVEL_FACTOR);
+            out.writeInt(levels.length);
+            for (short[] level : levels) {
+                out.writeInt(level.length);
+                for (short value : level)
+                    out.writeShort(value);
+            }
+        }
+        Files.move(temporary, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public int getBaseBucketSize() {
+        return BASE_BUCKET_SIZE;
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * Fills one min/max pair per column for frames {@code [from, to)} from the coarsest level that still
+     * gives every column a few buckets, which keeps column edges tight. Columns past the end of the
+     * recording get NaN.
+     */
+    public void query(long from, long to, int columns, float[] min, float[] max) {
+        double framesPerColumn = (double) (to - from) / columns;
+
+        int chosen = 0;
+        long bucketSize = BASE_BUCKET_SIZE;
+        while (chosen + 1 < levels.length && bucketSize * LEVEL_FACTOR * MIN_BUCKETS_PER_COLUMN <= framesPerColumn) {
+            chosen++;
+            bucketSize *= LEVEL_FACTOR;
+        }
+
+        short[] level = levels[chosen];
+        int buckets = level.length / 2;
+        for (int c = 0; c < columns; c++) {
+            long start = from + (long) Math.floor(c * framesPerColumn);
+            long end = from + (long) Math.floor((c + 1) * framesPerColumn);
+            int first = (int) (start / bucketSize);
+            int last = (int) Math.min(buckets, Math.max(first + 1, (end + bucketSize - 1) / bucketSize));
+
+            if (first >= buckets || start >= frameCount) {
+                min[c] = Float.NaN;
+                max[c] = Float.NaN;
+                continue;
+            }
+
+            int columnMin = Short.MAX_VALUE;
+            int columnMax = Short.MIN_VALUE;
+            for (int b = first; b < last; b++) {
+                columnMin = Math.min(columnMin, level[2 * b]);
+                columnMax = Math.max(columnMax, level[2 * b + 1]);
+            }
+            min[c] = columnMin / SCALE;
+            max[c] = columnMax / SCALE;
+        }
+    }
+}
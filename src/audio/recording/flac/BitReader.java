@@ -0,0 +1,85 @@
+package org.bunnys.audio.recording.flac;
+
+import java.io.IOException;
+
+/**
+ * Reads big-endian, most-significant-bit-first fields from a byte array.
+ */
+final class BitReader {
+    private final byte[] bytes;
+    private final int limit;
+    private long bitPosition;
+
+    BitReader(byte[] bytes, int offset, int limit) {
+        this.bytes = bytes;
+        this.limit = limit;
+        this.bitPosition = (long) offset * 8;
+    }
+
+    /**
+     * Reads {@code count} bits, up to 32, as an unsigned value.
+     */
+    long read(int count) throws IOException {
+        long value = 0;
+        for (int i = 0; i < count; i++)
+            value = (value << 1) | readBit();
+        return value;
+    }
+
+    int readSigned(int count) throws IOException {
+        if (count == 0)
+            return 0;
+        long value = read(count);
+        return (int) (value << (64 - count) >> (64 - count));
+    }
+
+    int readUnary() throws IOException {
+        int zeros = 0;
+        while (readBit() == 0)
+            zeros++;
+        return zeros;
+    }
+
+    int readRice(int k) throws IOException {
+        long folded = ((long) readUnary() << k) | read(k);
+        return (int) (folded >>> 1) ^ -(int) (folded & 1);
+    }
+
+    long readUtf8() throws IOException {
+        int lead = (int) read(8);
+        int count = Integer.numberOfLeadingZeros(~lead << 24);
+        if (count == 0)
+            return lead;
+        if (count == 1 || count > 7)
+            throw new IOException("Invalid coded number in frame header");
+
+        long value = count == 7 ? 0 : lead & (0x7F >> count);
+        for (int i = 1; i < count; i++) {
+            int next = (int) read(8);
+            if ((next & 0xC0) != 0x80)
+                throw new IOException("Invalid coded number in frame header");
+            value = (value << 6) | (next & 0x3F);
+        }
+        return value;
+    }
+
+    void alignToByte() {
+        bitPosition = (bitPosition + 7) & ~7L;
+    }
+
+    /**
+     * Byte offset of the next whole byte; only meaningful when aligned.
+     */
+    int bytePosition() {
+        return (int) (bitPosition >>> 3);
+    }
+
+    private int readBit() throws IOException {
+        int index = (int) (bitPosition >>> 3);
+        if (index >= limit)
+            throw new IOException("Unexpected end of FLAC stream");
+        int bit = (bytes[index] >>> (7 - (int) (bitPosition & 7))) & 1;
+        bitPosition++;
+        return bit;
+    }
+}
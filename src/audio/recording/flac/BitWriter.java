@@ -0,0 +1,97 @@
+package org.bunnys.audio.recording.flac;
+
+import java.util.Arrays;
+
+/**
+ * Appends big-endian, most-significant-bit-first fields to a growing byte array.
+ */
+final class BitWriter {
+    private byte[] bytes;
+    private int length;
+
+    // Fewer than 8 pending bits, kept in the low end
+    private long cache;
+    private int cacheBits;
+
+    BitWriter(int initialCapacity) {
+        this.bytes = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Writes the low {@code count} bits of {@code value}, for {@code count} up to 32.
+     */
+    void write(int count, long value) {
+        if (count == 0)
+            return;
+
+        cache = (cache << count) | (value & ((1L << count) - 1));
+        cacheBits += count;
+        while (cacheBits >= 8) {
+            cacheBits -= 8;
+            put((byte) (cache >>> cacheBits));
+        }
+    }
+
+    /**
+     * Writes {@code zeros} zero bits followed by a one.
+     */
+    void writeUnary(int zeros) {
+        while (zeros >= 32) {
+            write(32, 0);
+            zeros -= 32;
+        }
+        write(zeros + 1, 1);
+    }
+
+    /**
+     * Writes a Rice code with parameter {@code k} for the zigzag-folded {@code value}.
+     */
+    void writeRice(int k, int value) {
+        long folded = ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+        writeUnary((int) (folded >>> k));
+        write(k, folded);
+    }
+
+    /**
+     * FLAC's extended UTF-8 style coding of frame and sample numbers, up to 36 bits.
+     */
+    void writeUtf8(long value) {
+        if (value < 0x80) {
+            write(8, value);
+            return;
+        }
+
+        int count = value < 0x800 ? 2 : value < 0x10000 ? 3 : value < 0x200000 ? 4
+                : value < 0x4000000 ? 5 : value < 0x80000000L ? 6 : 7;
+        int lead = (0xFF << (8 - count)) & 0xFF;
+        write(8, lead | (count == 7 ? 0 : value >>> (6 * (count - 1))));
+        for (int i = count - 2; i >= 0; i--)
+            write(8, 0x80 | ((value >>> (6 * i)) & 0x3F));
+    }
+
+    void alignToByte() {
+        if (cacheBits > 0)
+            write(8 - cacheBits, 0);
+    }
+
+    /**
+     * Bytes completed so far; pending bits are not included until {@link #alignToByte}.
+     */
+    int byteLength() {
+        return length;
+    }
+
+    byte[] buffer() {
+        return bytes;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    private void put(byte value) {
+        if (length == bytes.length)
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        bytes[length++] = value;
+    }
+}
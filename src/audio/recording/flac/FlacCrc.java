@@ -0,0 +1,41 @@
+package org.bunnys.audio.recording.flac;
+
+/**
+ * The two checksums of the FLAC frame format: CRC-8 (polynomial 0x07) over each frame header and
+ * CRC-16 (polynomial 0x8005) over each whole frame, both unreflected with a zero initial value.
+ */
+final class FlacCrc {
+    private static final int[] CRC8 = new int[256];
+    private static final int[] CRC16 = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc8 = i;
+            for (int bit = 0; bit < 8; bit++)
+                crc8 = (crc8 & 0x80) != 0 ? (crc8 << 1) ^ 0x07 : crc8 << 1;
+            CRC8[i] = crc8 & 0xFF;
+
+            int crc16 = i << 8;
+            for (int bit = 0; bit < 8; bit++)
+                crc16 = (crc16 & 0x8000) != 0 ? (crc16 << 1) ^ 0x8005 : crc16 << 1;
+            CRC16[i] = crc16 & 0xFFFF;
+        }
+    }
+
+    private FlacCrc() {
+    } // Prevent instantiation
+
+    static int crc8(byte[] data, int offset, int length) {
+        int crc = 0;
+        for (int i = offset; i < offset + length; i++)
+            crc = CRC8[crc ^ (data[i] & 0xFF)];
+        return crc;
+    }
+
+    static int crc16(byte[] data, int offset, int length) {
+        int crc = 0;
+        for (int i = offset; i < offset + length; i++)
+            crc = ((crc << 8) & 0xFFFF) ^ CRC16[(crc >>> 8) ^ (data[i] & 0xFF)];
+        return crc;
+    }
+}
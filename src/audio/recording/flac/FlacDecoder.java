@@ -0,0 +1,253 @@
+package org.bunnys.audio.recording.flac;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Decodes a whole FLAC stream back to interleaved, signed little-endian PCM, verifying every frame's CRC
+ * and, when the stream carries one, the MD5 signature of the audio. Meant for checking recordings
+ * round-trip bit-exactly rather than for playback, so it reads the file into memory in one go.
+ */
+public final class FlacDecoder {
+    private FlacDecoder() {
+    } // Prevent instantiation
+
+    public record Decoded(FlacStreamInfo streamInfo, AudioFormat format, byte[] pcm) {
+        public long frames() {
+            return pcm.length / format.getFrameSize();
+        }
+    }
+
+    public static Decoded decode(Path path) throws IOException {
+        return decode(Files.readAllBytes(path));
+    }
+
+    public static Decoded decode(byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        FlacStreamInfo info = FlacStreamInfo.read(buffer);
+
+        int sampleBytes = (info.bitsPerSample() + 7) / 8;
+        AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, info.sampleRate(), info.bitsPerSample(),
+                info.channels(), info.channels() * sampleBytes, info.sampleRate(), false);
+
+        ByteArrayOutputStream pcm = new ByteArrayOutputStream(
+                (int) Math.min(Integer.MAX_VALUE - 8, info.totalSamples() * format.getFrameSize()));
+        int[][] channels = new int[info.channels()][Math.max(1, info.maxBlockSize())];
+        byte[] block = new byte[channels[0].length * format.getFrameSize()];
+
+        int position = buffer.position();
+        while (position < data.length) {
+            BitReader reader = new BitReader(data, position, data.length);
+            int frames = readFrame(reader, data, position, info, channels);
+
+            int length = frames * format.getFrameSize();
+            int index = 0;
+            for (int i = 0; i < frames; i++) {
+                for (int[] channel : channels) {
+                    for (int b = 0; b < sampleBytes; b++)
+                        block[index++] = (byte) (channel[i] >> (8 * b));
+                }
+            }
+            pcm.write(block, 0, length);
+            position = reader.bytePosition();
+        }
+
+        byte[] decoded = pcm.toByteArray();
+        if (!Arrays.equals(info.md5(), new byte[16]) && !Arrays.equals(info.md5(), md5(decoded)))
+            throw new IOException("Decoded audio does not match the stream's MD5 signature");
+        if (info.totalSamples() != 0 && info.totalSamples() != decoded.length / format.getFrameSize())
+            throw new IOException("Stream declares " + info.totalSamples() + " samples but holds "
+                    + decoded.length / format.getFrameSize());
+
+        return new Decoded(info, format, decoded);
+    }
+
+    private static byte[] md5(byte[] data) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+
+    private static int readFrame(BitReader reader, byte[] data, int start, FlacStreamInfo info, int[][] channels)
+            throws IOException {
+        if (reader.read(14) != 0x3FFE)
+            throw new IOException("Lost frame sync at byte " + start);
+        reader.read(2);
+
+        int blockSizeCode = (int) reader.read(4);
+        int sampleRateCode = (int) reader.read(4);
+        int assignment = (int) reader.read(4);
+        int sampleSizeCode = (int) reader.read(3);
+        reader.read(1);
+        reader.readUtf8();
+
+        int frames = switch (blockSizeCode) {
+            case 0 -> throw new IOException("Reserved block size in frame at byte " + start);
+            case 1 -> 192;
+            case 2, 3, 4, 5 -> 576 << (blockSizeCode - 2);
+            case 6 -> (int) reader.read(8) + 1;
+            case 7 -> (int) reader.read(16) + 1;
+            default -> 256 << (blockSizeCode - 8);
+        };
+        if (sampleRateCode == 12)
+            reader.read(8);
+        else if (sampleRateCode == 13 || sampleRateCode == 14)
+            reader.read(16);
+
+        int headerEnd = reader.bytePosition();
+        if (reader.read(8) != FlacCrc.crc8(data, start, headerEnd - start))
+            throw new IOException("Frame header CRC mismatch at byte " + start);
+
+        int bitsPerSample = switch (sampleSizeCode) {
+            case 0 -> info.bitsPerSample();
+            case 1 -> 8;
+            case 2 -> 12;
+            case 4 -> 16;
+            case 5 -> 20;
+            case 6 -> 24;
+            case 7 -> 32;
+            default -> throw new IOException("Reserved sample size in frame at byte " + start);
+        };
+
+        int channelCount = assignment < 8 ? assignment + 1 : 2;
+        if (assignment > 10 || channelCount != info.channels())
+            throw new IOException("Unexpected channel assignment " + assignment + " in frame at byte " + start);
+        if (frames > channels[0].length)
+            throw new IOException("Frame of " + frames + " samples exceeds the stream's maximum block size");
+
+        for (int channel = 0; channel < channelCount; channel++) {
+            boolean side = assignment == 8 && channel == 1 || assignment == 9 && channel == 0
+                    || assignment == 10 && channel == 1;
+            readSubframe(reader, frames, bitsPerSample + (side ? 1 : 0), channels[channel]);
+        }
+
+        reader.alignToByte();
+        int frameEnd = reader.bytePosition();
+        if (reader.read(16) != FlacCrc.crc16(data, start, frameEnd - start))
+            throw new IOException("Frame CRC mismatch at byte " + start);
+
+        restoreChannels(assignment, channels, frames);
+        return frames;
+    }
+
+    private static void restoreChannels(int assignment, int[][] channels, int frames) {
+        int[] first = channels[0];
+        int[] second = frames > 0 && channels.length > 1 ? channels[1] : null;
+        for (int i = 0; i < frames && second != null; i++) {
+            switch (assignment) {
+                case 8 -> second[i] = first[i] - second[i];
+                case 9 -> first[i] += second[i];
+                case 10 -> {
+                    int side = second[i];
+                    int mid = (first[i] << 1) | (side & 1);
+                    first[i] = (mid + side) >> 1;
+                    second[i] = (mid - side) >> 1;
+                }
+                default -> {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void readSubframe(BitReader reader, int n, int bitsPerSample, int[] x) throws IOException {
+        if (reader.read(1) != 0)
+            throw new IOException("Invalid subframe padding");
+
+        int type = (int) reader.read(6);
+        int wasted = reader.read(1) == 1 ? reader.readUnary() + 1 : 0;
+        int bps = bitsPerSample - wasted;
+
+        if (type == 0) {
+            Arrays.fill(x, 0, n, reader.readSigned(bps));
+        } else if (type == 1) {
+            for (int i = 0; i < n; i++)
+                x[i] = reader.readSigned(bps);
+        } else if (type >= 8 && type <= 12) {
+            int order = type - 8;
+            for (int i = 0; i < order; i++)
+                x[i] = reader.readSigned(bps);
+            readResidual(reader, n, order, x);
+            restoreFixed(x, n, order);
+        } else if (type >= 32) {
+            int order = type - 31;
+            for (int i = 0; i < order; i++)
+                x[i] = reader.readSigned(bps);
+
+            int precision = (int) reader.read(4) + 1;
+            if (precision == 16)
+                throw new IOException("Invalid LPC coefficient precision");
+            int shift = reader.readSigned(5);
+            if (shift < 0)
+                throw new IOException("Negative LPC shift");
+
+            int[] coefficients = new int[order];
+            for (int j = 0; j < order; j++)
+                coefficients[j] = reader.readSigned(precision);
+
+            readResidual(reader, n, order, x);
+            for (int i = order; i < n; i++) {
+                long prediction = 0;
+                for (int j = 0; j < order; j++)
+                    prediction += (long) coefficients[j] * x[i - 1 - j];
+                x[i] += (int) (prediction >> shift);
+            }
+        } else {
+            throw new IOException("Reserved subframe type " + type);
+        }
+
+        if (wasted > 0) {
+            for (int i = 0; i < n; i++)
+                x[i] <<= wasted;
+        }
+    }
+
+    // Leaves the residual in x[order..n), to be turned into samples by the caller
+    private static void readResidual(BitReader reader, int n, int order, int[] x) throws IOException {
+        int method = (int) reader.read(2);
+        if (method > 1)
+            throw new IOException("Reserved residual coding method " + method);
+
+        int parameterBits = method == 0 ? 4 : 5;
+        int escape = (1 << parameterBits) - 1;
+        int partitionOrder = (int) reader.read(4);
+        int size = n >> partitionOrder;
+
+        int index = order;
+        for (int p = 0; p < 1 << partitionOrder; p++) {
+            int count = size - (p == 0 ? order : 0);
+            int k = (int) reader.read(parameterBits);
+            if (k == escape) {
+                int rawBits = (int) reader.read(5);
+                for (int i = 0; i < count; i++)
+                    x[index++] = reader.readSigned(rawBits);
+            } else {
+                for (int i = 0; i < count; i++)
+                    x[index++] = reader.readRice(k);
+            }
+        }
+    }
+
+    private static void restoreFixed(int[] x, int n, int order) {
+        for (int i = order; i < n; i++) {
+            switch (order) {
+                case 1 -> x[i] += x[i - 1];
+                case 2 -> x[i] += 2 * x[i - 1] - x[i - 2];
+                case 3 -> x[i] += 3 * x[i - 1] - 3 * x[i - 2] + x[i - 3];
+                case 4 -> x[i] += 4 * x[i - 1] - 6 * x[i - 2] + 4 * x[i - 3] - x[i - 4];
+                default -> {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.bunnys.audio.recording.flac;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Appends encoded frames to a FLAC file and rewrites STREAMINFO on close with the sample count, frame size
+ * range and MD5 signature. Until then the header says "unknown" for all three, which decoders accept, so
+ * a file cut short by a crash is still playable up to its last complete frame.
+ */
+public class FlacFileWriter implements AutoCloseable {
+    private final Path path;
+    private final FileChannel channel;
+    private final FlacStreamInfo initial;
+    private final MessageDigest md5;
+
+    private long position;
+    private long totalSamples;
+    private int minFrameSize = Integer.MAX_VALUE;
+    private int maxFrameSize;
+
+    public FlacFileWriter(Path path, FlacStreamInfo initial) throws IOException {
+        this.path = path;
+        this.initial = initial;
+        try {
+            this.md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        writeFully(initial.toHeader(), 0);
+        this.position = FlacStreamInfo.HEADER_SIZE;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Bytes of frames written so far, excluding the header.
+     */
+    public long getEncodedSize() {
+        return position - FlacStreamInfo.HEADER_SIZE;
+    }
+
+    public long getTotalSamples() {
+        return totalSamples;
+    }
+
+    /**
+     * The running signature; callers feed it each frame's audio in order, e.g. through
+     * {@link FlacFrameEncoder#digest}.
+     */
+    public MessageDigest getDigest() {
+        return md5;
+    }
+
+    public void writeFrame(byte[] frame, int samples) throws IOException {
+        writeFully(ByteBuffer.wrap(frame), position);
+        position += frame.length;
+        totalSamples += samples;
+        minFrameSize = Math.min(minFrameSize, frame.length);
+        maxFrameSize = Math.max(maxFrameSize, frame.length);
+    }
+
+    private void writeFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer, offset + buffer.position());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen())
+            return;
+
+        try {
+            FlacStreamInfo finished = new FlacStreamInfo(initial.minBlockSize(), initial.maxBlockSize(),
+                    totalSamples > 0 ? minFrameSize : 0, maxFrameSize, initial.sampleRate(), initial.channels(),
+                    initial.bitsPerSample(), totalSamples, md5.digest());
+            writeFully(finished.toHeader(), 0);
+        } finally {
+            channel.close();
+        }
+    }
+}
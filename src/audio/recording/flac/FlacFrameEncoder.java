@@ -0,0 +1,544 @@
+package org.bunnys.audio.recording.flac;
+
+import javax.sound.sampled.AudioFormat;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Encodes blocks of integer PCM into self-contained FLAC frames.
+ * <p>
+ * Each channel is tried as a constant, the fixed polynomial predictors of order 0 to 4 and quantised LPC
+ * predictors of several orders (autocorrelation of a Tukey-windowed block, then Levinson-Durbin), and the
+ * candidate with the smallest Rice-coded residual wins, falling back to verbatim samples. Stereo blocks
+ * additionally try left/side, right/side and mid/side decorrelation. Residuals are split into up to
+ * 2^8 partitions, each with its own Rice parameter.
+ * <p>
+ * Frames carry their own frame number and checksums, so any number of them can be encoded concurrently;
+ * {@link #encode} allocates its working arrays per call and keeps no state.
+ */
+public class FlacFrameEncoder {
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private static final int MAX_FIXED_ORDER = 4;
+    private static final int[] LPC_ORDERS = { 2, 4, 8, 12 };
+    private static final int MAX_PARTITION_ORDER = 8;
+    private static final int MAX_RICE_PARAMETER = 30;
+    private static final int MAX_LPC_SHIFT = 15;
+
+    private static final int TYPE_CONSTANT = 0;
+    private static final int TYPE_VERBATIM = 1;
+    private static final int TYPE_FIXED = 8;
+    private static final int TYPE_LPC = 32;
+
+    private static final int LEFT_SIDE = 8;
+    private static final int RIGHT_SIDE = 9;
+    private static final int MID_SIDE = 10;
+
+    private final int blockSize;
+    private final int channels;
+    private final int bitsPerSample;
+    private final int sampleBytes;
+    private final int sampleRate;
+    private final boolean bigEndian;
+    private final boolean unsigned;
+    private final int lpcPrecision;
+
+    public FlacFrameEncoder(AudioFormat format, int blockSize) {
+        if (!isSupported(format))
+            throw new IllegalArgumentException("FLAC recording needs 8, 16 or 24-bit integer PCM with 1 to 8 channels: "
+                    + format);
+        if (blockSize < 16 || blockSize > 65535)
+            throw new IllegalArgumentException("FLAC block size must be between 16 and 65535: " + blockSize);
+
+        this.blockSize = blockSize;
+        this.channels = format.getChannels();
+        this.bitsPerSample = format.getSampleSizeInBits();
+        this.sampleBytes = bitsPerSample / 8;
+        this.sampleRate = Math.round(format.getSampleRate());
+        this.bigEndian = format.isBigEndian();
+        this.unsigned = AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding());
+        this.lpcPrecision = bitsPerSample <= 16 ? 13 : 15;
+    }
+
+    public static boolean isSupported(AudioFormat format) {
+        AudioFormat.Encoding encoding = format.getEncoding();
+        int bits = format.getSampleSizeInBits();
+        float rate = format.getSampleRate();
+        return (AudioFormat.Encoding.PCM_SIGNED.equals(encoding) || AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding))
+                && (bits == 8 || bits == 16 || bits == 24)
+                && format.getChannels() >= 1 && format.getChannels() <= 8
+                && rate >= 1 && rate <= 655350 && rate == Math.round(rate);
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * PCM bytes making up one full block in the source format.
+     */
+    public int getBlockBytes() {
+        return blockSize * channels * sampleBytes;
+    }
+
+    public FlacStreamInfo initialStreamInfo() {
+        return FlacStreamInfo.initial(blockSize, sampleRate, channels, bitsPerSample);
+    }
+
+    /**
+     * Encodes {@code frames} (at most one block) of interleaved PCM in the source format as one FLAC frame.
+     * Only the final frame of a stream may be shorter than the block size.
+     */
+    public byte[] encode(byte[] pcm, int offset, int frames, long frameNumber) {
+        if (frames <= 0 || frames > blockSize)
+            throw new IllegalArgumentException("A frame holds 1 to " + blockSize + " samples per channel: " + frames);
+
+        int[][] samples = new int[channels][frames];
+        int position = offset;
+        for (int i = 0; i < frames; i++) {
+            for (int channel = 0; channel < channels; channel++) {
+                samples[channel][i] = readSample(pcm, position);
+                position += sampleBytes;
+            }
+        }
+
+        int assignment;
+        Subframe[] subframes;
+        if (channels == 2) {
+            int[] side = new int[frames];
+            int[] mid = new int[frames];
+            for (int i = 0; i < frames; i++) {
+                side[i] = samples[0][i] - samples[1][i];
+                mid[i] = (samples[0][i] + samples[1][i]) >> 1;
+            }
+
+            Subframe left = plan(samples[0], frames, bitsPerSample);
+            Subframe right = plan(samples[1], frames, bitsPerSample);
+            Subframe sideFrame = plan(side, frames, bitsPerSample + 1);
+            Subframe midFrame = plan(mid, frames, bitsPerSample);
+
+            long independent = left.bits + right.bits;
+            long leftSide = left.bits + sideFrame.bits;
+            long rightSide = sideFrame.bits + right.bits;
+            long midSide = midFrame.bits + sideFrame.bits;
+            long best = Math.min(Math.min(independent, leftSide), Math.min(rightSide, midSide));
+
+            if (best == independent) {
+                assignment = channels - 1;
+                subframes = new Subframe[] { left, right };
+            } else if (best == leftSide) {
+                assignment = LEFT_SIDE;
+                subframes = new Subframe[] { left, sideFrame };
+            } else if (best == rightSide) {
+                assignment = RIGHT_SIDE;
+                subframes = new Subframe[] { sideFrame, right };
+            } else {
+                assignment = MID_SIDE;
+                subframes = new Subframe[] { midFrame, sideFrame };
+            }
+        } else {
+            assignment = channels - 1;
+            subframes = new Subframe[channels];
+            for (int channel = 0; channel < channels; channel++)
+                subframes[channel] = plan(samples[channel], frames, bitsPerSample);
+        }
+
+        BitWriter out = new BitWriter(frames * channels * sampleBytes + 64);
+        writeHeader(out, frames, frameNumber, assignment);
+        for (Subframe subframe : subframes)
+            writeSubframe(out, subframe, frames);
+
+        out.alignToByte();
+        out.write(16, FlacCrc.crc16(out.buffer(), 0, out.byteLength()));
+        return out.toByteArray();
+    }
+
+    /**
+     * Feeds {@code frames} of PCM into {@code md5} as FLAC's signature expects: signed, little-endian samples.
+     * {@code scratch} must hold a block of PCM and is only used when the source format differs.
+     */
+    public void digest(MessageDigest md5, byte[] pcm, int offset, int frames, byte[] scratch) {
+        int length = frames * channels * sampleBytes;
+        if (!unsigned && (!bigEndian || sampleBytes == 1)) {
+            md5.update(pcm, offset, length);
+            return;
+        }
+
+        for (int i = 0; i < length; i += sampleBytes) {
+            int sample = readSample(pcm, offset + i);
+            for (int b = 0; b < sampleBytes; b++)
+                scratch[i + b] = (byte) (sample >> (8 * b));
+        }
+        md5.update(scratch, 0, length);
+    }
+
+    private int readSample(byte[] pcm, int position) {
+        int value = 0;
+        for (int b = 0; b < sampleBytes; b++) {
+            int index = bigEndian ? position + b : position + sampleBytes - 1 - b;
+            value = (value << 8) | (pcm[index] & 0xFF);
+        }
+        return unsigned
+                ? value - (1 << (bitsPerSample - 1))
+                : value << (32 - bitsPerSample) >> (32 - bitsPerSample);
+    }
+
+    private void writeHeader(BitWriter out, int frames, long frameNumber, int assignment) {
+        out.write(14, 0x3FFE); // Sync code
+        out.write(1, 0);
+        out.write(1, 0); // Fixed block size, so the header carries a frame number
+        out.write(4, 0x7); // Block size minus one follows as 16 bits
+        int rateCode = sampleRateCode();
+        out.write(4, rateCode);
+        out.write(4, assignment);
+        out.write(3, bitsPerSample == 8 ? 0x1 : bitsPerSample == 16 ? 0x4 : 0x6);
+        out.write(1, 0);
+        out.writeUtf8(frameNumber);
+        out.write(16, frames - 1);
+        if (rateCode == 0xC)
+            out.write(8, sampleRate / 1000);
+        else if (rateCode == 0xD)
+            out.write(16, sampleRate);
+        else if (rateCode == 0xE)
+            out.write(16, sampleRate / 10);
+        out.write(8, FlacCrc.crc8(out.buffer(), 0, out.byteLength()));
+    }
+
+    // Frames state their own rate so a stream can be picked up mid-way, as the streamable subset requires
+    private int sampleRateCode() {
+        return switch (sampleRate) {
+            case 88200 -> 0x1;
+            case 176400 -> 0x2;
+            case 192000 -> 0x3;
+            case 8000 -> 0x4;
+            case 16000 -> 0x5;
+            case 22050 -> 0x6;
+            case 24000 -> 0x7;
+            case 32000 -> 0x8;
+            case 44100 -> 0x9;
+            case 48000 -> 0xA;
+            case 96000 -> 0xB;
+            default -> sampleRate % 1000 == 0 && sampleRate / 1000 <= 255 ? 0xC
+                    : sampleRate <= 65535 ? 0xD
+                    : sampleRate % 10 == 0 && sampleRate / 10 <= 65535 ? 0xE
+                    : 0x0;
+        };
+    }
+
+    private static final class Subframe {
+        int type;
+        int bitsPerSample;
+        int[] samples;
+        int order;
+        int[] coefficients;
+        int precision;
+        int shift;
+        int[] residual;
+        Rice rice;
+        long bits;
+    }
+
+    private record Rice(int partitionOrder, int[] parameters, boolean wideParameters, long bits) {
+    }
+
+    private Subframe plan(int[] x, int n, int bps) {
+        Subframe best = new Subframe();
+        best.samples = x;
+        best.bitsPerSample = bps;
+
+        boolean constant = true;
+        for (int i = 1; i < n && constant; i++)
+            constant = x[i] == x[0];
+        if (constant) {
+            best.type = TYPE_CONSTANT;
+            best.bits = 8 + bps;
+            return best;
+        }
+
+        best.type = TYPE_VERBATIM;
+        best.bits = 8 + (long) n * bps;
+
+        for (int order = 0; order <= MAX_FIXED_ORDER && order < n; order++) {
+            int[] residual = fixedResidual(x, n, order);
+            if (residual == null)
+                continue;
+
+            Rice rice = planRice(residual, n, order);
+            long bits = 8 + (long) order * bps + rice.bits;
+            if (bits < best.bits) {
+                best.type = TYPE_FIXED;
+                best.order = order;
+                best.residual = residual;
+                best.rice = rice;
+                best.bits = bits;
+            }
+        }
+
+        int maxOrder = LPC_ORDERS[LPC_ORDERS.length - 1];
+        if (n <= 2 * maxOrder)
+            return best;
+
+        double[][] predictors = levinsonDurbin(autocorrelation(x, n, maxOrder), maxOrder);
+        if (predictors == null)
+            return best;
+
+        int[] coefficients = new int[maxOrder];
+        for (int order : LPC_ORDERS) {
+            int shift = quantise(predictors[order], order, coefficients);
+            if (shift < 0)
+                continue;
+
+            int[] residual = lpcResidual(x, n, order, coefficients, shift);
+            if (residual == null)
+                continue;
+
+            Rice rice = planRice(residual, n, order);
+            long bits = 8 + (long) order * bps + 4 + 5 + (long) order * lpcPrecision + rice.bits;
+            if (bits < best.bits) {
+                best.type = TYPE_LPC;
+                best.order = order;
+                best.coefficients = Arrays.copyOf(coefficients, order);
+                best.precision = lpcPrecision;
+                best.shift = shift;
+                best.residual = residual;
+                best.rice = rice;
+                best.bits = bits;
+            }
+        }
+        return best;
+    }
+
+    private static int[] fixedResidual(int[] x, int n, int order) {
+        int[] residual = new int[n];
+        for (int i = order; i < n; i++) {
+            long value = switch (order) {
+                case 0 -> x[i];
+                case 1 -> (long) x[i] - x[i - 1];
+                case 2 -> (long) x[i] - 2L * x[i - 1] + x[i - 2];
+                case 3 -> (long) x[i] - 3L * x[i - 1] + 3L * x[i - 2] - x[i - 3];
+                default -> (long) x[i] - 4L * x[i - 1] + 6L * x[i - 2] - 4L * x[i - 3] + x[i - 4];
+            };
+            if (value != (int) value)
+                return null;
+            residual[i] = (int) value;
+        }
+        return residual;
+    }
+
+    private static int[] lpcResidual(int[] x, int n, int order, int[] coefficients, int shift) {
+        int[] residual = new int[n];
+        for (int i = order; i < n; i++) {
+            long prediction = 0;
+            for (int j = 0; j < order; j++)
+                prediction += (long) coefficients[j] * x[i - 1 - j];
+
+            long value = x[i] - (prediction >> shift);
+            if (value != (int) value)
+                return null;
+            residual[i] = (int) value;
+        }
+        return residual;
+    }
+
+    // Autocorrelation of the block under a Tukey(0.5) window
+    private static double[] autocorrelation(int[] x, int n, int maxLag) {
+        double[] windowed = new double[n];
+        int taper = n / 4;
+        for (int i = 0; i < n; i++) {
+            double weight = 1;
+            if (i < taper)
+                weight = 0.5 * (1 - Math.cos(Math.PI * i / taper));
+            else if (i >= n - taper)
+                weight = 0.5 * (1 - Math.cos(Math.PI * (n - 1 - i) / taper));
+            windowed[i] = x[i] * weight;
+        }
+
+        double[] r = new double[maxLag + 1];
+        for (int lag = 0; lag <= maxLag; lag++) {
+            double sum = 0;
+            for (int i = lag; i < n; i++)
+                sum += windowed[i] * windowed[i - lag];
+            r[lag] = sum;
+        }
+        return r;
+    }
+
+    /**
+     * Predictor coefficients for every order up to {@code maxOrder}; row {@code k} predicts
+     * {@code x[i]} as {@code sum(row[j] * x[i - 1 - j])} for {@code j < k}.
+     */
+    private static double[][] levinsonDurbin(double[] r, int maxOrder) {
+        if (r[0] <= 0)
+            return null;
+
+        double[][] predictors = new double[maxOrder + 1][];
+        double[] a = new double[maxOrder];
+        double[] previous = new double[maxOrder];
+        double error = r[0] * (1 + 1e-9); // Slight lag-0 lift keeps near-singular blocks well conditioned
+
+        for (int order = 1; order <= maxOrder; order++) {
+            double acc = r[order];
+            for (int j = 0; j < order - 1; j++)
+                acc -= a[j] * r[order - 1 - j];
+            double k = acc / error;
+
+            System.arraycopy(a, 0, previous, 0, order - 1);
+            a[order - 1] = k;
+            for (int j = 0; j < order - 1; j++)
+                a[j] = previous[j] - k * previous[order - 2 - j];
+
+            error *= 1 - k * k;
+            predictors[order] = Arrays.copyOf(a, order);
+            if (error <= 0) {
+                for (int rest = order + 1; rest <= maxOrder; rest++)
+                    predictors[rest] = Arrays.copyOf(a, rest);
+                break;
+            }
+        }
+        return predictors;
+    }
+
+    /**
+     * Rounds {@code order} coefficients to {@link #lpcPrecision}-bit integers with error feedback,
+     * returning the shift they are scaled by, or -1 if they cannot be represented.
+     */
+    private int quantise(double[] predictor, int order, int[] target) {
+        double max = 0;
+        for (int j = 0; j < order; j++)
+            max = Math.max(max, Math.abs(predictor[j]));
+        if (max <= 0 || !Double.isFinite(max))
+            return -1;
+
+        int shift = Math.min(MAX_LPC_SHIFT, lpcPrecision - 1 - (Math.getExponent(max) + 1));
+        if (shift < 0)
+            return -1;
+
+        int limit = (1 << (lpcPrecision - 1)) - 1;
+        double error = 0;
+        for (int j = 0; j < order; j++) {
+            error += predictor[j] * (1 << shift);
+            long rounded = Math.round(error);
+            int value = (int) Math.max(-limit - 1, Math.min(limit, rounded));
+            target[j] = value;
+            error -= value;
+        }
+        return shift;
+    }
+
+    private static Rice planRice(int[] residual, int n, int predictorOrder) {
+        int maxOrder = 0;
+        while (maxOrder < MAX_PARTITION_ORDER && n % (1 << (maxOrder + 1)) == 0
+                && (n >> (maxOrder + 1)) > predictorOrder)
+            maxOrder++;
+
+        // Sums of the folded residuals over the finest partitions, merged pairwise for coarser orders
+        long[] sums = new long[1 << maxOrder];
+        int finest = n >> maxOrder;
+        for (int p = 0; p < sums.length; p++) {
+            long sum = 0;
+            for (int i = p == 0 ? predictorOrder : p * finest; i < (p + 1) * finest; i++)
+                sum += ((residual[i] << 1) ^ (residual[i] >> 31)) & 0xFFFFFFFFL;
+            sums[p] = sum;
+        }
+
+        Rice best = null;
+        for (int order = maxOrder; order >= 0; order--) {
+            int partitions = 1 << order;
+            int size = n >> order;
+            int[] parameters = new int[partitions];
+            long bits = 0;
+            int widest = 0;
+
+            for (int p = 0; p < partitions; p++) {
+                int count = size - (p == 0 ? predictorOrder : 0);
+                int k = riceParameter(sums[p], count);
+                parameters[p] = k;
+                widest = Math.max(widest, k);
+                bits += (long) count * (k + 1) + (sums[p] >>> k);
+            }
+
+            boolean wide = widest > 14;
+            bits += 2 + 4 + (long) partitions * (wide ? 5 : 4);
+            if (best == null || bits < best.bits)
+                best = new Rice(order, parameters, wide, bits);
+
+            if (order > 0) {
+                for (int p = 0; p < partitions / 2; p++)
+                    sums[p] = sums[2 * p] + sums[2 * p + 1];
+            }
+        }
+        return best;
+    }
+
+    private static int riceParameter(long sum, int count) {
+        if (count == 0 || sum == 0)
+            return 0;
+
+        long mean = sum / count;
+        int estimate = mean == 0 ? 0 : 63 - Long.numberOfLeadingZeros(mean);
+        int best = 0;
+        long bestBits = Long.MAX_VALUE;
+        for (int k = Math.max(0, estimate - 1); k <= Math.min(MAX_RICE_PARAMETER, estimate + 1); k++) {
+            long bits = (long) count * (k + 1) + (sum >>> k);
+            if (bits < bestBits) {
+                bestBits = bits;
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    private static void writeSubframe(BitWriter out, Subframe subframe, int n) {
+        int bps = subframe.bitsPerSample;
+        int[] x = subframe.samples;
+
+        out.write(1, 0);
+        switch (subframe.type) {
+            case TYPE_CONSTANT -> {
+                out.write(6, TYPE_CONSTANT);
+                out.write(1, 0);
+                out.write(bps, x[0]);
+            }
+            case TYPE_VERBATIM -> {
+                out.write(6, TYPE_VERBATIM);
+                out.write(1, 0);
+                for (int i = 0; i < n; i++)
+                    out.write(bps, x[i]);
+            }
+            case TYPE_FIXED -> {
+                out.write(6, TYPE_FIXED | subframe.order);
+                out.write(1, 0);
+                for (int i = 0; i < subframe.order; i++)
+                    out.write(bps, x[i]);
+                writeResidual(out, subframe, n);
+            }
+            default -> {
+                out.write(6, TYPE_LPC | (subframe.order - 1));
+                out.write(1, 0);
+                for (int i = 0; i < subframe.order; i++)
+                    out.write(bps, x[i]);
+                out.write(4, subframe.precision - 1);
+                out.write(5, subframe.shift);
+                for (int coefficient : subframe.coefficients)
+                    out.write(subframe.precision, coefficient);
+                writeResidual(out, subframe, n);
+            }
+        }
+    }
+
+    private static void writeResidual(BitWriter out, Subframe subframe, int n) {
+        Rice rice = subframe.rice;
+        int parameterBits = rice.wideParameters() ? 5 : 4;
+        int partitions = 1 << rice.partitionOrder();
+        int size = n >> rice.partitionOrder();
+
+        out.write(2, rice.wideParameters() ? 1 : 0);
+        out.write(4, rice.partitionOrder());
+        for (int p = 0; p < partitions; p++) {
+            int k = rice.parameters()[p];
+            out.write(parameterBits, k);
+            for (int i = p == 0 ? subframe.order : p * size; i < (p + 1) * size; i++)
+                out.writeRice(k, subframe.residual[i]);
+        }
+    }
+}
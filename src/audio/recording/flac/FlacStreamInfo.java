@@ -0,0 +1,90 @@
+package org.bunnys.audio.recording.flac;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The STREAMINFO metadata block that follows the {@code fLaC} marker at the start of every FLAC file.
+ * Zero frame sizes, a zero sample count and an all-zero MD5 each mean "unknown", which is what a
+ * recording still in progress carries.
+ */
+public record FlacStreamInfo(int minBlockSize, int maxBlockSize, int minFrameSize, int maxFrameSize,
+        int sampleRate, int channels, int bitsPerSample, long totalSamples, byte[] md5) {
+
+    /**
+     * Marker, metadata block header and STREAMINFO body.
+     */
+    public static final int HEADER_SIZE = 4 + 4 + 34;
+
+    private static final int MARKER = 0x664C6143; // "fLaC"
+
+    public FlacStreamInfo {
+        if (md5 == null || md5.length != 16)
+            throw new IllegalArgumentException("MD5 must be 16 bytes");
+    }
+
+    public static FlacStreamInfo initial(int blockSize, int sampleRate, int channels, int bitsPerSample) {
+        return new FlacStreamInfo(blockSize, blockSize, 0, 0, sampleRate, channels, bitsPerSample, 0, new byte[16]);
+    }
+
+    /**
+     * The file header: marker, then STREAMINFO flagged as the last metadata block.
+     */
+    public ByteBuffer toHeader() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MARKER);
+        header.putInt((1 << 31) | 34);
+        header.putShort((short) minBlockSize).putShort((short) maxBlockSize);
+        putInt24(header, minFrameSize);
+        putInt24(header, maxFrameSize);
+        header.putLong(((long) sampleRate << 44) | ((long) (channels - 1) << 41) | ((long) (bitsPerSample - 1) << 36)
+                | (totalSamples & 0xFFFFFFFFFL));
+        header.put(md5);
+        return header.flip();
+    }
+
+    private static void putInt24(ByteBuffer buffer, int value) {
+        buffer.put((byte) (value >>> 16)).put((byte) (value >>> 8)).put((byte) value);
+    }
+
+    /**
+     * Parses the marker and STREAMINFO, leaving {@code buffer} positioned after all metadata blocks.
+     */
+    public static FlacStreamInfo read(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MARKER)
+            throw new IOException("Not a FLAC stream");
+
+        int blockHeader = buffer.getInt();
+        if (((blockHeader >>> 24) & 0x7F) != 0 || (blockHeader & 0xFFFFFF) != 34)
+            throw new IOException("FLAC stream does not start with STREAMINFO");
+
+        int minBlockSize = buffer.getShort() & 0xFFFF;
+        int maxBlockSize = buffer.getShort() & 0xFFFF;
+        int minFrameSize = getInt24(buffer);
+        int maxFrameSize = getInt24(buffer);
+        long packed = buffer.getLong();
+        byte[] md5 = new byte[16];
+        buffer.get(md5);
+
+        // Skip any further metadata (seek tables, tags, padding)
+        boolean last = blockHeader < 0;
+        while (!last) {
+            if (buffer.remaining() < 4)
+                throw new IOException("Truncated FLAC metadata");
+            int next = buffer.getInt();
+            last = next < 0;
+            int length = next & 0xFFFFFF;
+            if (buffer.remaining() < length)
+                throw new IOException("Truncated FLAC metadata");
+            buffer.position(buffer.position() + length);
+        }
+
+        return new FlacStreamInfo(minBlockSize, maxBlockSize, minFrameSize, maxFrameSize,
+                (int) (packed >>> 44), (int) ((packed >>> 41) & 0x7) + 1, (int) ((packed >>> 36) & 0x1F) + 1,
+                packed & 0xFFFFFFFFFL, md5);
+    }
+
+    private static int getInt24(ByteBuffer buffer) {
+        return ((buffer.get() & 0xFF) << 16) | ((buffer.get() & 0xFF) << 8) | (buffer.get() & 0xFF);
+    }
+}
@@ -0,0 +1,45 @@
+package org.bunnys.audio.source;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+/**
+ * Where the capture loop gets its PCM bytes from: a sound card, a file or a generator.
+ * <p>
+ * Hardware sources deliver audio at wall-clock speed by nature. Other sources report
+ * {@link #isRealTime()} {@code false} when they run unthrottled, which makes the capture loop wait for
+ * slow consumers instead of letting them be overrun.
+ */
+public interface AudioSource extends AutoCloseable {
+    String getName();
+
+    AudioFormat getFormat();
+
+    void open() throws IOException;
+
+    /**
+     * Reads whole frames into {@code buffer}, blocking until some are available.
+     *
+     * @return the number of bytes read, or -1 once the source is exhausted
+     */
+    int read(byte[] buffer, int offset, int length) throws IOException;
+
+    boolean isRealTime();
+
+    /**
+     * Bytes that could be read right now without blocking, where the source can tell.
+     */
+    default int available() {
+        return 0;
+    }
+
+    /**
+     * Size in bytes of the source's own buffer, which {@link #available()} fills towards, or 0 if it has none.
+     */
+    default int getBufferSize() {
+        return 0;
+    }
+
+    @Override
+    void close();
+}
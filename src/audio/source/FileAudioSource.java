@@ -0,0 +1,99 @@
+package org.bunnys.audio.source;
+
+import javax.sound.sampled.*;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams a WAV (or any format Java Sound can parse) or headerless raw PCM file, without loading it into memory.
+ */
+public class FileAudioSource implements AudioSource {
+    private final Path path;
+    private final AudioFormat rawFormat;
+    private final boolean throttled;
+
+    private AudioInputStream stream;
+    private RealTimePacer pacer;
+
+    private FileAudioSource(Path path, AudioFormat rawFormat, boolean throttled) {
+        this.path = path;
+        this.rawFormat = rawFormat;
+        this.throttled = throttled;
+    }
+
+    public static FileAudioSource wav(Path path, boolean throttled) {
+        return new FileAudioSource(path, null, throttled);
+    }
+
+    public static FileAudioSource raw(Path path, AudioFormat format, boolean throttled) {
+        if (format == null)
+            throw new IllegalArgumentException("Raw files need an explicit format");
+        return new FileAudioSource(path, format, throttled);
+    }
+
+    @Override
+    public String getName() {
+        return path.getFileName().toString();
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        if (stream != null)
+            return stream.getFormat();
+        if (rawFormat != null)
+            return rawFormat;
+
+        try {
+            return AudioSystem.getAudioFileFormat(path.toFile()).getFormat();
+        } catch (UnsupportedAudioFileException | IOException e) {
+            throw new IllegalStateException("Cannot read the format of " + path, e);
+        }
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (rawFormat != null) {
+            InputStream input = new BufferedInputStream(Files.newInputStream(path));
+            stream = new AudioInputStream(input, rawFormat, AudioSystem.NOT_SPECIFIED);
+        } else {
+            try {
+                stream = AudioSystem.getAudioInputStream(path.toFile());
+            } catch (UnsupportedAudioFileException e) {
+                throw new IOException("Unsupported audio file: " + path, e);
+            }
+        }
+
+        if (throttled)
+            pacer = new RealTimePacer(stream.getFormat().getFrameRate());
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int frameSize = stream.getFormat().getFrameSize();
+        int bytesRead = stream.read(buffer, offset, length - length % frameSize);
+
+        if (bytesRead > 0 && pacer != null)
+            pacer.pace(bytesRead / frameSize);
+        return bytesRead;
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return throttled;
+    }
+
+    @Override
+    public void close() {
+        if (stream == null)
+            return;
+
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // Nothing useful to do, the file was only being read
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.bunnys.audio.source;
+
+import javax.sound.sampled.*;
+import java.io.IOException;
+
+/**
+ * Captures from a sound card through a {@link TargetDataLine}. The line buffer bounds how much audio can
+ * queue up in the driver, so a small one keeps latency down at the risk of losing audio if reads stall.
+ */
+public class LineAudioSource implements AudioSource {
+    private final Mixer.Info device;
+    private final AudioFormat format;
+    private final int lineBufferBytes;
+    private TargetDataLine targetLine;
+
+    public LineAudioSource(Mixer.Info device, AudioFormat format) {
+        this(device, format, 0);
+    }
+
+    /**
+     * @param lineBufferBytes line buffer to ask the driver for, or 0 for its default
+     */
+    public LineAudioSource(Mixer.Info device, AudioFormat format, int lineBufferBytes) {
+        if (device == null)
+            throw new IllegalArgumentException("Selected device cannot be null");
+        if (lineBufferBytes < 0)
+            throw new IllegalArgumentException("Line buffer size cannot be negative: " + lineBufferBytes);
+
+        this.device = device;
+        this.format = format;
+        this.lineBufferBytes = lineBufferBytes;
+    }
+
+    @Override
+    public String getName() {
+        return device.getName();
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    public Mixer.Info getDevice() {
+        return device;
+    }
+
+    @Override
+    public void open() throws IOException {
+        try {
+            Mixer mixer = AudioSystem.getMixer(device);
+            DataLine.Info targetInfo = new DataLine.Info(TargetDataLine.class, format);
+
+            if (!mixer.isLineSupported(targetInfo))
+                throw new LineUnavailableException("Selected device does not support the required format");
+
+            targetLine = (TargetDataLine) mixer.getLine(targetInfo);
+            // The driver may round the size to what it supports; getBufferSize reports what it chose
+            if (lineBufferBytes > 0)
+                targetLine.open(format, lineBufferBytes);
+            else
+                targetLine.open(format);
+            targetLine.start();
+        } catch (LineUnavailableException e) {
+            throw new IOException("Failed to open " + device.getName(), e);
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        if (!targetLine.isOpen())
+            return -1;
+        return targetLine.read(buffer, offset, length);
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return true;
+    }
+
+    @Override
+    public int available() {
+        return targetLine != null ? targetLine.available() : 0;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return targetLine != null ? targetLine.getBufferSize() : 0;
+    }
+
+    @Override
+    public void close() {
+        if (targetLine != null) {
+            targetLine.stop();
+            targetLine.close();
+        }
+    }
+}
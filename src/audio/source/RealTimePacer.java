@@ -0,0 +1,28 @@
+package org.bunnys.audio.source;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Slows a non-hardware source down to wall-clock speed, for when it should behave like a live input.
+ */
+final class RealTimePacer {
+    private final double nanosPerFrame;
+    private long startNanos = -1;
+    private long frames;
+
+    RealTimePacer(float frameRate) {
+        this.nanosPerFrame = TimeUnit.SECONDS.toNanos(1) / (double) frameRate;
+    }
+
+    void pace(int framesDelivered) {
+        if (startNanos < 0)
+            startNanos = System.nanoTime();
+
+        frames += framesDelivered;
+        long due = startNanos + (long) (frames * nanosPerFrame);
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted())
+            LockSupport.parkNanos(wait);
+    }
+}
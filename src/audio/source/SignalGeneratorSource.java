@@ -0,0 +1,148 @@
+package org.bunnys.audio.source;
+
+import org.bunnys.audio.codec.PcmCodec;
+
+import javax.sound.sampled.AudioFormat;
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic test signals (sine, logarithmic sweep, white noise), encoded in any codec-supported format.
+ * The same parameters always produce the same bytes, and every channel carries the same signal.
+ */
+public class SignalGeneratorSource implements AudioSource {
+    private static final int MAX_FRAMES_PER_READ = 8192;
+
+    public enum Waveform {
+        SINE, SWEEP, NOISE
+    }
+
+    private final AudioFormat format;
+    private final Waveform waveform;
+    private final double startFrequency;
+    private final double endFrequency;
+    private final long sweepFrames;
+    private final float amplitude;
+    private final long seed;
+    private final long totalFrames;
+    private final boolean throttled;
+
+    private PcmCodec codec;
+    private float[] scratch;
+    private SplittableRandom random;
+    private RealTimePacer pacer;
+    private double phase;
+    private long position;
+
+    /**
+     * @param duration how much audio to produce before reporting end of stream, or {@code null} for endless
+     */
+    public SignalGeneratorSource(AudioFormat format, Waveform waveform, double startFrequency, double endFrequency,
+            Duration sweepPeriod, float amplitude, long seed, Duration duration, boolean throttled) {
+        if (amplitude < 0 || amplitude > 1)
+            throw new IllegalArgumentException("Amplitude must be between 0 and 1: " + amplitude);
+        if (waveform != Waveform.NOISE && (startFrequency <= 0 || endFrequency <= 0))
+            throw new IllegalArgumentException("Frequencies must be positive");
+
+        this.format = format;
+        this.waveform = waveform;
+        this.startFrequency = startFrequency;
+        this.endFrequency = endFrequency;
+        this.sweepFrames = Math.max(1, toFrames(sweepPeriod, format));
+        this.amplitude = amplitude;
+        this.seed = seed;
+        this.totalFrames = duration == null ? Long.MAX_VALUE : toFrames(duration, format);
+        this.throttled = throttled;
+    }
+
+    public static SignalGeneratorSource sine(AudioFormat format, double frequency, float amplitude,
+            Duration duration, boolean throttled) {
+        return new SignalGeneratorSource(format, Waveform.SINE, frequency, frequency, Duration.ZERO, amplitude,
+                0, duration, throttled);
+    }
+
+    public static SignalGeneratorSource sweep(AudioFormat format, double startFrequency, double endFrequency,
+            Duration sweepPeriod, float amplitude, Duration duration, boolean throttled) {
+        return new SignalGeneratorSource(format, Waveform.SWEEP, startFrequency, endFrequency, sweepPeriod,
+                amplitude, 0, duration, throttled);
+    }
+
+    public static SignalGeneratorSource noise(AudioFormat format, float amplitude, long seed,
+            Duration duration, boolean throttled) {
+        return new SignalGeneratorSource(format, Waveform.NOISE, 0, 0, Duration.ZERO, amplitude, seed,
+                duration, throttled);
+    }
+
+    private static long toFrames(Duration duration, AudioFormat format) {
+        return (long) (duration.toNanos() / 1e9 * format.getFrameRate());
+    }
+
+    @Override
+    public String getName() {
+        return "Generator (" + waveform.name().toLowerCase() + ")";
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public void open() {
+        codec = PcmCodec.forFormat(format);
+        scratch = new float[MAX_FRAMES_PER_READ * format.getChannels()];
+        random = new SplittableRandom(seed);
+        pacer = throttled ? new RealTimePacer(format.getFrameRate()) : null;
+        phase = 0;
+        position = 0;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        if (position >= totalFrames)
+            return -1;
+
+        int channels = format.getChannels();
+        int frames = (int) Math.min(Math.min(length / format.getFrameSize(), MAX_FRAMES_PER_READ),
+                totalFrames - position);
+
+        for (int frame = 0; frame < frames; frame++) {
+            float value = amplitude * nextValue();
+            for (int channel = 0; channel < channels; channel++)
+                scratch[frame * channels + channel] = value;
+        }
+
+        codec.encode(scratch, 0, buffer, offset, frames * channels);
+        if (pacer != null)
+            pacer.pace(frames);
+        return frames * format.getFrameSize();
+    }
+
+    private float nextValue() {
+        long frame = position++;
+        if (waveform == Waveform.NOISE)
+            return (float) (random.nextDouble() * 2 - 1);
+
+        double frequency = startFrequency;
+        if (waveform == Waveform.SWEEP) {
+            double progress = (frame % sweepFrames) / (double) sweepFrames;
+            frequency = startFrequency * Math.pow(endFrequency / startFrequency, progress);
+        }
+
+        double value = Math.sin(phase);
+        phase += 2 * Math.PI * frequency / format.getSampleRate();
+        if (phase > 2 * Math.PI)
+            phase -= 2 * Math.PI;
+        return (float) value;
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return throttled;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,568 @@
+package org.bunnys.audio.streaming;
+
+import org.bunnys.audio.AudioHandler;
+import org.bunnys.audio.buffer.RingBufferConsumer;
+import org.bunnys.audio.codec.PcmCodec;
+import org.bunnys.audio.metrics.PipelineMetrics;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Broadcasts the captured stream as raw PCM to any number of local subscribers over TCP or a Unix domain
+ * socket, using non-blocking NIO on a single thread.
+ * <p>
+ * Each published block is encoded once into the next slot of a ring of direct {@link ByteBuffer}s, header
+ * and payload together. Every subscriber holds its own duplicate view of each slot (sharing the memory,
+ * not copying it) and is written from those views as its socket accepts data, so fan-out costs no copies
+ * per client. The publishing thread never waits: a subscriber that falls more than its
+ * {@link SubscriberPolicy#backlogFrames() backlog} behind is skipped ahead to the newest frame or
+ * disconnected, and one that stalls mid-frame long enough for the ring to come round again is
+ * disconnected, since the rest of that frame is gone.
+ * <p>
+ * The protocol is big-endian. A subscriber first receives a {@value #HELLO_BYTES}-byte hello:
+ * magic {@code "ACSH"} (int), sample rate (float), bits per sample (short), channels (short), flags (int,
+ * {@link #FLAG_BIG_ENDIAN} / {@link #FLAG_SIGNED} / {@link #FLAG_FLOAT} describing the payload). Then come
+ * frames, each a {@value #HEADER_BYTES}-byte header followed by the payload: magic {@code "ACSF"} (int),
+ * payload bytes (int), sequence number (long, +1 per frame, so a gap means frames were skipped), stream
+ * position of the first sample (long), and the capture time of the last sample in nanoseconds since the
+ * epoch (long). Anything a subscriber sends is ignored.
+ */
+public class AudioStreamServer implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(AudioStreamServer.class.getName());
+
+    public static final int HELLO_MAGIC = 0x41435348; // "ACSH"
+    public static final int FRAME_MAGIC = 0x41435346; // "ACSF"
+    public static final int HELLO_BYTES = 16;
+    public static final int HEADER_BYTES = 32;
+    public static final int FLAG_BIG_ENDIAN = 1;
+    public static final int FLAG_SIGNED = 2;
+    public static final int FLAG_FLOAT = 4;
+
+    private static final long SELECT_TIMEOUT_MS = 100;
+    private static final int DISCARD_BYTES = 512;
+    private static final int SEND_BUFFER_FRAMES = 4;
+    private static final int STALL_FRAMES = 64;
+
+    private final SocketAddress requestedAddress;
+    private final AudioFormat format;
+    private final PcmCodec codec;
+    private final SubscriberPolicy policy;
+    private final int maxBlockFrames;
+    private final long epochOffsetNanos;
+
+    // Written by the publishing thread only; a slot's sequence is -1 while it is being rewritten
+    private final Slot[] slots;
+    private final byte[] encoded;
+    private volatile long published = -1;
+    private long streamPosition;
+
+    // Selector thread only
+    private final ByteBuffer hello;
+    private final ByteBuffer discard = ByteBuffer.allocateDirect(DISCARD_BYTES);
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private int nextSubscriberId;
+
+    private final LongAdder skippedFrames = new LongAdder();
+    private final LongAdder droppedSubscribers = new LongAdder();
+    private volatile int subscriberCount;
+
+    private ServerSocketChannel serverChannel;
+    private SelectionKey acceptKey;
+    private boolean acceptPaused;
+    private long acceptResumeAt;
+    private volatile Selector selector;
+    private Thread selectorThread;
+    private volatile boolean running;
+    private volatile RingBufferConsumer consumer;
+    private AudioHandler attachedHandler;
+
+    private static final class Slot {
+        final ByteBuffer buffer;
+        volatile long sequence = -1;
+        int length;
+
+        Slot(int capacity) {
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+        }
+    }
+
+    private static final class Subscriber {
+        final SocketChannel channel;
+        final String name;
+        final ByteBuffer hello;
+        final ByteBuffer[] views;
+        SelectionKey key;
+        long next;
+        ByteBuffer sending;
+        long skipped;
+
+        Subscriber(SocketChannel channel, String name, ByteBuffer hello, Slot[] slots, long next) {
+            this.channel = channel;
+            this.name = name;
+            this.hello = hello;
+            this.views = new ByteBuffer[slots.length];
+            for (int i = 0; i < slots.length; i++)
+                views[i] = slots[i].buffer.duplicate();
+            this.next = next;
+        }
+    }
+
+    /**
+     * @param address        where to listen: an {@link InetSocketAddress} or a {@link UnixDomainSocketAddress}
+     * @param format         the mono PCM format the payload is encoded in, e.g. a handler's recording format
+     * @param maxBlockFrames largest frame payload in samples; longer blocks are split across frames
+     */
+    public AudioStreamServer(SocketAddress address, AudioFormat format, int maxBlockFrames, SubscriberPolicy policy) {
+        if (!PcmCodec.isSupported(format))
+            throw new IllegalArgumentException("Unsupported streaming format: " + format);
+        if (format.getChannels() != 1)
+            throw new IllegalArgumentException("Only mono streams can be served: " + format);
+        if (maxBlockFrames <= 0)
+            throw new IllegalArgumentException("Block size must be positive: " + maxBlockFrames);
+
+        this.requestedAddress = address;
+        this.format = format;
+        this.codec = PcmCodec.forFormat(format);
+        this.policy = policy;
+        this.maxBlockFrames = maxBlockFrames;
+        this.epochOffsetNanos = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+        int payloadBytes = maxBlockFrames * format.getFrameSize();
+        // Room for a full backlog, plus slack for a subscriber stuck part-way through a frame on a full socket
+        this.slots = new Slot[policy.backlogFrames() + STALL_FRAMES];
+        for (int i = 0; i < slots.length; i++)
+            slots[i] = new Slot(HEADER_BYTES + payloadBytes);
+        this.encoded = new byte[payloadBytes];
+        this.hello = createHello(format);
+    }
+
+    private static ByteBuffer createHello(AudioFormat format) {
+        int flags = (format.isBigEndian() ? FLAG_BIG_ENDIAN : 0)
+                | (AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding()) ? FLAG_SIGNED : 0)
+                | (AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding()) ? FLAG_FLOAT | FLAG_SIGNED : 0);
+        ByteBuffer hello = ByteBuffer.allocateDirect(HELLO_BYTES)
+                .putInt(HELLO_MAGIC)
+                .putFloat(format.getSampleRate())
+                .putShort((short) format.getSampleSizeInBits())
+                .putShort((short) format.getChannels())
+                .putInt(flags);
+        return hello.flip().asReadOnlyBuffer();
+    }
+
+    /**
+     * Parses {@code <port>} (loopback), {@code <host>:<port>} or {@code unix:<path>}.
+     */
+    public static SocketAddress parseAddress(String spec) {
+        if (spec.startsWith("unix:")) {
+            String path = spec.substring("unix:".length());
+            if (path.isBlank())
+                throw new IllegalArgumentException("Unix socket address needs a path: " + spec);
+            return UnixDomainSocketAddress.of(path);
+        }
+
+        int colon = spec.lastIndexOf(':');
+        String host = colon >= 0 ? spec.substring(0, colon) : null;
+        String port = spec.substring(colon + 1);
+        try {
+            int number = Integer.parseInt(port);
+            if (number < 0 || number > 65535)
+                throw new IllegalArgumentException("Port out of range: " + spec);
+            return host == null
+                    ? new InetSocketAddress(InetAddress.getLoopbackAddress(), number)
+                    : new InetSocketAddress(host, number);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected <port>, <host>:<port> or unix:<path> but got: " + spec);
+        }
+    }
+
+    /**
+     * Binds the address and starts accepting subscribers. A stale Unix socket file left at the path is
+     * replaced.
+     */
+    public synchronized void start() throws IOException {
+        if (running)
+            throw new IllegalStateException("Server already started");
+
+        if (requestedAddress instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+            serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            serverChannel = ServerSocketChannel.open();
+        }
+
+        Selector newSelector = Selector.open();
+        try {
+            serverChannel.bind(requestedAddress);
+            serverChannel.configureBlocking(false);
+            acceptKey = serverChannel.register(newSelector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            newSelector.close();
+            throw e;
+        }
+        selector = newSelector;
+
+        running = true;
+        selectorThread = new Thread(this::serve, "AudioStreamServer");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        LOGGER.info("Streaming " + format + " on " + getLocalAddress());
+    }
+
+    /**
+     * Streams a handler's capture from now on: a consumer of its ring buffer publishes every block, stamped
+     * with the time it was captured. The server's format must be the handler's recording format.
+     */
+    public synchronized void attach(AudioHandler handler) {
+        if (consumer != null)
+            throw new IllegalStateException("Server is already attached to a handler");
+        if (handler.getRecordingFormat().getSampleRate() != format.getSampleRate())
+            throw new IllegalArgumentException("Handler runs at " + handler.getRecordingFormat().getSampleRate()
+                    + " Hz but the server streams " + format.getSampleRate() + " Hz");
+
+        PipelineMetrics metrics = handler.getMetrics();
+        attachedHandler = handler;
+        // The consumer may deliver before it has been assigned; those first blocks are stamped when published
+        consumer = handler.addConsumer("stream", Math.min(maxBlockFrames, handler.getBlockFrames()),
+                (block, length) -> {
+                    RingBufferConsumer current = consumer;
+                    publish(block, 0, length, current != null ? metrics.captureTimeOf(current.reader().position()) : -1);
+                });
+    }
+
+    /**
+     * Encodes {@code length} mono samples into the ring and wakes the server. Must only be called from one
+     * thread; never blocks and does not allocate.
+     *
+     * @param captureNanos {@code System.nanoTime()} when the last sample was captured, or -1 for now
+     */
+    public void publish(float[] samples, int offset, int length, long captureNanos) {
+        long timestamp = (captureNanos >= 0 ? captureNanos : System.nanoTime()) + epochOffsetNanos;
+        int frameSize = format.getFrameSize();
+
+        while (length > 0) {
+            int frames = Math.min(length, maxBlockFrames);
+            int bytes = frames * frameSize;
+            long sequence = published + 1;
+            Slot slot = slots[index(sequence)];
+
+            // Invalidate first, so a subscriber still sending the old frame can tell it was overwritten
+            slot.sequence = -1;
+            VarHandle.storeStoreFence();
+
+            codec.encode(samples, offset, encoded, 0, frames);
+            slot.buffer.putInt(0, FRAME_MAGIC)
+                    .putInt(4, bytes)
+                    .putLong(8, sequence)
+                    .putLong(16, streamPosition)
+                    .putLong(24, timestamp)
+                    .put(HEADER_BYTES, encoded, 0, bytes);
+            slot.length = HEADER_BYTES + bytes;
+            slot.sequence = sequence;
+            published = sequence;
+
+            streamPosition += frames;
+            offset += frames;
+            length -= frames;
+        }
+
+        Selector current = selector;
+        if (current != null)
+            current.wakeup();
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % slots.length);
+    }
+
+    private void serve() {
+        try {
+            while (running) {
+                if (acceptPaused && System.nanoTime() - acceptResumeAt >= 0) {
+                    acceptPaused = false;
+                    acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+                }
+                selector.select(SELECT_TIMEOUT_MS);
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+
+                    if (key.isAcceptable())
+                        accept();
+                    else if (key.isReadable())
+                        drain((Subscriber) key.attachment());
+                }
+
+                // Backwards, since a subscriber can be removed while it is being served
+                for (int i = subscribers.size() - 1; i >= 0; i--)
+                    pump(subscribers.get(i));
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // Only the selector itself gets here; a failing connection is dealt with on its own
+            if (running)
+                LOGGER.log(Level.SEVERE, "Stream server stopped unexpectedly", e);
+        } finally {
+            for (int i = subscribers.size() - 1; i >= 0; i--)
+                remove(subscribers.get(i));
+        }
+    }
+
+    private void accept() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                // E.g. out of file descriptors: the connection stays queued, so stop selecting for it for a
+                // while rather than spin on a key that keeps firing
+                LOGGER.log(Level.WARNING, "Failed to accept a stream subscriber", e);
+                acceptKey.interestOps(0);
+                acceptPaused = true;
+                acceptResumeAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SELECT_TIMEOUT_MS);
+                return;
+            }
+            if (channel == null)
+                return;
+
+            try {
+                addSubscriber(channel);
+            } catch (IOException e) {
+                // Typically reset by the peer before it could be set up; the other subscribers carry on
+                LOGGER.log(Level.WARNING, "Failed to set up stream subscriber", e);
+                try {
+                    channel.close();
+                } catch (IOException closeFailure) {
+                    LOGGER.log(Level.FINE, "Failed to close rejected subscriber", closeFailure);
+                }
+            }
+        }
+    }
+
+    private void addSubscriber(SocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        if (channel.getRemoteAddress() instanceof InetSocketAddress)
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        // Keep the kernel from hiding a slow reader's backlog, so the policy sees it in whole frames
+        channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER_FRAMES * slots[0].buffer.capacity());
+
+        String name = "#" + ++nextSubscriberId + " (" + describe(channel.getRemoteAddress()) + ")";
+        // New subscribers join live, at the next frame to be published
+        Subscriber subscriber = new Subscriber(channel, name, hello.duplicate(), slots, published + 1);
+        subscriber.key = channel.register(selector, SelectionKey.OP_READ, subscriber);
+        subscribers.add(subscriber);
+        subscriberCount = subscribers.size();
+        LOGGER.info("Stream subscriber " + name + " connected");
+    }
+
+    private static String describe(SocketAddress address) {
+        return address instanceof UnixDomainSocketAddress unix && unix.getPath().toString().isEmpty()
+                ? "unix socket"
+                : String.valueOf(address);
+    }
+
+    // Subscribers have nothing to say; reading only notices when they hang up
+    private void drain(Subscriber subscriber) {
+        try {
+            int read;
+            do {
+                discard.clear();
+                read = subscriber.channel.read(discard);
+            } while (read > 0);
+
+            if (read < 0)
+                disconnect(subscriber, "closed the connection", false);
+        } catch (IOException e) {
+            disconnect(subscriber, e.getMessage(), false);
+        }
+    }
+
+    private void pump(Subscriber subscriber) {
+        try {
+            if (subscriber.hello.hasRemaining()) {
+                subscriber.channel.write(subscriber.hello);
+                if (subscriber.hello.hasRemaining()) {
+                    wantWrite(subscriber, true);
+                    return;
+                }
+            }
+
+            while (true) {
+                if (subscriber.sending == null && !startFrame(subscriber))
+                    return;
+
+                // A frame left half-sent while the socket was full may have been overwritten since; never send the rest
+                if (slots[index(subscriber.next)].sequence != subscriber.next) {
+                    disconnect(subscriber, "was overtaken in the middle of a frame", true);
+                    return;
+                }
+
+                subscriber.channel.write(subscriber.sending);
+                if (subscriber.sending.hasRemaining()) {
+                    wantWrite(subscriber, true);
+                    return;
+                }
+
+                if (slots[index(subscriber.next)].sequence != subscriber.next) {
+                    disconnect(subscriber, "was overtaken in the middle of a frame", true);
+                    return;
+                }
+                subscriber.sending = null;
+                subscriber.next++;
+            }
+        } catch (IOException e) {
+            disconnect(subscriber, e.getMessage(), false);
+        }
+    }
+
+    // Points the subscriber at its next frame, applying the backlog policy; false if there is nothing to send
+    private boolean startFrame(Subscriber subscriber) {
+        while (true) {
+            long latest = published;
+            if (subscriber.next > latest) {
+                wantWrite(subscriber, false);
+                return false;
+            }
+
+            Slot slot = slots[index(subscriber.next)];
+            long queued = latest - subscriber.next + 1;
+            long sequence = slot.sequence;
+            if (queued <= policy.backlogFrames() && sequence == subscriber.next) {
+                ByteBuffer view = subscriber.views[index(subscriber.next)];
+                view.limit(slot.length).position(0);
+                subscriber.sending = view;
+                return true;
+            }
+
+            if (policy.overflow() == SubscriberPolicy.Overflow.DISCONNECT) {
+                disconnect(subscriber, "fell " + queued + " frames behind", true);
+                return false;
+            }
+            skippedFrames.add(latest - subscriber.next);
+            subscriber.skipped += latest - subscriber.next;
+            subscriber.next = latest;
+        }
+    }
+
+    private void wantWrite(Subscriber subscriber, boolean write) {
+        int ops = SelectionKey.OP_READ | (write ? SelectionKey.OP_WRITE : 0);
+        if (subscriber.key.isValid() && subscriber.key.interestOps() != ops)
+            subscriber.key.interestOps(ops);
+    }
+
+    private void disconnect(Subscriber subscriber, String reason, boolean dropped) {
+        if (dropped)
+            droppedSubscribers.increment();
+        LOGGER.info("Stream subscriber " + subscriber.name + " disconnected: " + reason
+                + (subscriber.skipped > 0 ? ", " + subscriber.skipped + " frames skipped" : ""));
+        remove(subscriber);
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriberCount = subscribers.size();
+        subscriber.key.cancel();
+        try {
+            subscriber.channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to close subscriber " + subscriber.name, e);
+        }
+    }
+
+    /**
+     * The bound address, e.g. to find the port picked for port 0; {@code null} before {@link #start()}.
+     */
+    public SocketAddress getLocalAddress() {
+        try {
+            return serverChannel != null ? serverChannel.getLocalAddress() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    public SubscriberPolicy getPolicy() {
+        return policy;
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount;
+    }
+
+    /**
+     * Frames published since the server was created.
+     */
+    public long getPublishedFrames() {
+        return published + 1;
+    }
+
+    /**
+     * Frames subscribers have missed by being skipped ahead, summed over all subscribers.
+     */
+    public long getSkippedFrames() {
+        return skippedFrames.sum();
+    }
+
+    /**
+     * Subscribers disconnected for falling behind, as opposed to hanging up or failing.
+     */
+    public long getDroppedSubscribers() {
+        return droppedSubscribers.sum();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (consumer != null) {
+            attachedHandler.removeConsumer(consumer);
+            consumer = null;
+        }
+        if (!running)
+            return;
+        running = false;
+
+        selector.wakeup();
+        try {
+            selectorThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            serverChannel.close();
+            selector.close();
+            if (requestedAddress instanceof UnixDomainSocketAddress unix)
+                Files.deleteIfExists(unix.getPath());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to close the stream server", e);
+        }
+        LOGGER.info("Stream server stopped after " + getPublishedFrames() + " frames");
+    }
+}
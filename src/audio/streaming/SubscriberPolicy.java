@@ -0,0 +1,35 @@
+package org.bunnys.audio.streaming;
+
+/**
+ * How far an {@link AudioStreamServer} subscriber may fall behind the live stream, and what happens when
+ * it does. The capture side never waits for a subscriber.
+ *
+ * @param backlogFrames frames a subscriber may have queued before the overflow action is taken
+ * @param overflow      {@link Overflow#SKIP} jumps the subscriber to the newest frame, leaving a gap in
+ *                      the sequence numbers; {@link Overflow#DISCONNECT} closes its connection
+ */
+public record SubscriberPolicy(int backlogFrames, Overflow overflow) {
+    public static final int MAX_BACKLOG_FRAMES = 1024;
+
+    public static final SubscriberPolicy DEFAULT = new SubscriberPolicy(16, Overflow.SKIP);
+
+    public enum Overflow {
+        SKIP, DISCONNECT
+    }
+
+    public SubscriberPolicy {
+        if (backlogFrames < 1 || backlogFrames > MAX_BACKLOG_FRAMES)
+            throw new IllegalArgumentException("Backlog must be between 1 and " + MAX_BACKLOG_FRAMES
+                    + " frames: " + backlogFrames);
+        if (overflow == null)
+            throw new IllegalArgumentException("Overflow action cannot be null");
+    }
+
+    public SubscriberPolicy withBacklogFrames(int backlogFrames) {
+        return new SubscriberPolicy(backlogFrames, overflow);
+    }
+
+    public SubscriberPolicy withOverflow(Overflow overflow) {
+        return new SubscriberPolicy(backlogFrames, overflow);
+    }
+}
@@ -2,8 +2,19 @@ package org.bunnys.constants;
 
 public final class AudioConstants {
     public static final int BUFFER_SIZE = 4096;
-    public static final int DEFAULT_SAMPLE_SIZE = 100;
+    public static final int PROCESSING_BLOCK_SIZE = 2048;
+    public static final int RING_BUFFER_CAPACITY = 1 << 17; // ~3 seconds at 44.1 kHz
+    public static final int DEFAULT_WAVEFORM_WINDOW_MS = 5000;
+    public static final float FULL_SCALE = 1.0f; // Samples are normalised to [-1, 1) by the codecs
+    public static final int DEFAULT_FFT_SIZE = 4096;
+    public static final double DEFAULT_FFT_OVERLAP = 0.75;
+    public static final int ANALYSIS_BLOCK_SIZE = 512;
+    public static final int SPECTROGRAM_COLUMNS = 1024; // One per FFT frame, ~24 seconds at the default hop
+    public static final int SPECTROGRAM_ROWS = 256;
     public static final String DEFAULT_RECORDING_FILENAME = "recording.wav";
+    public static final double DEFAULT_PRE_ROLL_SECONDS = 10.0; // Audio from before Record that each recording starts with
+    public static final double MAX_PRE_ROLL_SECONDS = 600.0;
+    public static final int DEVICE_REFRESH_INTERVAL_MS = 2000;
 
     public static final int DEFAULT_WINDOW_WIDTH = 800;
     public static final int DEFAULT_WINDOW_HEIGHT = 500;
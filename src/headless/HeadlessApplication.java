@@ -0,0 +1,317 @@
+package org.bunnys.headless;
+
+import org.bunnys.audio.AudioFormatFactory;
+import org.bunnys.audio.CaptureSettings;
+import org.bunnys.audio.AudioHandler;
+import org.bunnys.audio.batch.BatchProcessor;
+import org.bunnys.audio.batch.BatchResult;
+import org.bunnys.audio.device.AudioDeviceManager;
+import org.bunnys.audio.device.DeviceInfo;
+import org.bunnys.audio.device.DeviceRegistry;
+import org.bunnys.audio.metrics.MetricsReporter;
+import org.bunnys.audio.processing.LoudnessSnapshot;
+import org.bunnys.audio.processing.ProcessorChain;
+import org.bunnys.audio.processing.ProcessorChainSpec;
+import org.bunnys.audio.recording.FlacRecorder;
+import org.bunnys.audio.recording.Recorder;
+import org.bunnys.audio.recording.SegmentPolicy;
+import org.bunnys.audio.recording.SilenceGatingRecorder;
+import org.bunnys.audio.recording.StreamingWavRecorder;
+import org.bunnys.audio.source.AudioSource;
+import org.bunnys.audio.source.FileAudioSource;
+import org.bunnys.audio.source.LineAudioSource;
+import org.bunnys.audio.source.SignalGeneratorSource;
+import org.bunnys.audio.streaming.AudioStreamServer;
+import org.bunnys.constants.AudioConstants;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.Mixer;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the capture engine from the command line without Swing: source, processor chain and recorder
+ * are wired from {@link HeadlessOptions}, and throughput and levels are logged periodically.
+ * Nothing in here touches {@code java.awt}.
+ */
+public class HeadlessApplication implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(HeadlessApplication.class.getName());
+
+    private final HeadlessOptions options;
+    private final AudioSource source;
+    private final AudioHandler audioHandler;
+    private final Recorder recorder;
+    private final LevelStatistics statistics;
+    private final ScheduledExecutorService statsExecutor;
+    private final AudioStreamServer streamServer;
+    private MetricsReporter metricsReporter;
+    private DeviceRegistry.DeviceListener deviceListener;
+    private final CountDownLatch closed;
+    private final boolean finite;
+
+    private boolean isClosed = false;
+    private volatile boolean recordingIncomplete;
+
+    public HeadlessApplication(HeadlessOptions options) {
+        this.options = options;
+        this.source = createSource(options);
+        this.finite = isFinite(options);
+        this.statistics = new LevelStatistics();
+        this.closed = new CountDownLatch(1);
+
+        // Files and generators set the pipeline rate; a line runs at --rate whatever the device offers, and is
+        // resampled if need be. Encoding and channels only matter to the capture codec
+        AudioFormat format = source instanceof LineAudioSource
+                ? AudioFormatFactory.withSampleRate(source.getFormat(), options.sampleRate())
+                : source.getFormat();
+        this.audioHandler = new AudioHandler(format, statistics::accept);
+        audioHandler.setResamplingQuality(options.resampleQuality());
+        audioHandler.setCaptureSettings(options.captureSettings());
+
+        ProcessorChain chain = ProcessorChainSpec.parse(options.chain(), format.getSampleRate());
+        audioHandler.getProcessorChain().setStages(chain.getStages());
+
+        SegmentPolicy segmentPolicy = new SegmentPolicy(options.segmentBytes(), Duration.ofSeconds(options.segmentSeconds()));
+        boolean flac = options.recordFile() != null && options.recordFile().toLowerCase().endsWith(".flac");
+        AudioFormat recordingFormat = audioHandler.getRecordingFormat();
+        Recorder recorder = flac
+                ? new FlacRecorder(recordingFormat, segmentPolicy)
+                : new StreamingWavRecorder(recordingFormat, segmentPolicy);
+        if (options.gate() != null)
+            recorder = new SilenceGatingRecorder(recorder, recordingFormat, options.gate());
+        audioHandler.setRecorder(recorder);
+        this.recorder = recorder;
+
+        this.streamServer = options.serveAddress() == null ? null
+                : new AudioStreamServer(AudioStreamServer.parseAddress(options.serveAddress()), recordingFormat,
+                        CaptureSettings.MAX_BLOCK_FRAMES, options.servePolicy());
+
+        this.statsExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "HeadlessStatsThread");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void listDevices() {
+        List<Mixer.Info> devices = AudioDeviceManager.getCaptureDevices();
+        for (int i = 0; i < devices.size(); i++)
+            System.out.println(i + ": " + devices.get(i).getName() + " - " + devices.get(i).getDescription());
+    }
+
+    /**
+     * Runs {@code --chain} over the files named by {@code --batch} and logs a summary.
+     *
+     * @return whether every file was processed
+     */
+    public static boolean runBatch(HeadlessOptions options) throws IOException, InterruptedException {
+        List<Path> inputs = BatchProcessor.findInputs(options.batch());
+        if (inputs.isEmpty()) {
+            LOGGER.warning("No WAV files found for " + options.batch());
+            return false;
+        }
+
+        Path report = BatchProcessor.baseDirectory(options.batch()).resolve(BatchProcessor.REPORT_NAME);
+        LOGGER.info("Processing " + inputs.size() + " file(s) on " + options.batchPolicy().parallelism()
+                + " thread(s), report in " + report);
+
+        long start = System.nanoTime();
+        List<BatchResult> results;
+        try (BatchProcessor processor = new BatchProcessor(options.chain(), options.batchPolicy())) {
+            results = processor.process(inputs, report);
+        }
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        double audioSeconds = results.stream().mapToDouble(BatchResult::audioSeconds).sum();
+        long failed = results.stream().filter(result -> !result.succeeded()).count();
+        LOGGER.info(String.format("Batch done: %d file(s), %.1f s of audio in %.2f s (%.0fx real time), %d failed",
+                results.size(), audioSeconds, elapsed, audioSeconds / elapsed, failed));
+        return failed == 0;
+    }
+
+    private static AudioSource createSource(HeadlessOptions options) {
+        String[] parts = options.source().split(":", 2);
+        AudioFormat defaultFormat = AudioFormatFactory.createDefaultFormat(options.sampleRate());
+        Duration duration = options.durationSeconds() > 0
+                ? Duration.ofMillis((long) (options.durationSeconds() * 1000))
+                : null;
+
+        switch (parts[0]) {
+            case "line": {
+                Mixer.Info device = selectDevice(parts.length > 1 ? parts[1] : null);
+                AudioFormat format = options.nativeFormat()
+                        ? AudioDeviceManager.getNativeFormat(device, options.sampleRate()).orElse(defaultFormat)
+                        : defaultFormat;
+                return new LineAudioSource(device, format,
+                        options.captureSettings().lineBufferFrames() * format.getFrameSize());
+            }
+            case "file":
+                return FileAudioSource.wav(Path.of(requireArgument(parts)), options.realTime());
+            case "raw":
+                return FileAudioSource.raw(Path.of(requireArgument(parts)), defaultFormat, options.realTime());
+            case "sine":
+                return SignalGeneratorSource.sine(defaultFormat, Double.parseDouble(requireArgument(parts)), 0.5f,
+                        duration, options.realTime());
+            case "sweep": {
+                String[] range = requireArgument(parts).split(":");
+                if (range.length != 2)
+                    throw new IllegalArgumentException("Sweep needs sweep:<from>:<to>");
+                return SignalGeneratorSource.sweep(defaultFormat, Double.parseDouble(range[0]),
+                        Double.parseDouble(range[1]), Duration.ofSeconds(10), 0.5f, duration, options.realTime());
+            }
+            case "noise":
+                return SignalGeneratorSource.noise(defaultFormat, 0.25f, 0, duration, options.realTime());
+            default:
+                throw new IllegalArgumentException("Unknown source: " + options.source() + System.lineSeparator()
+                        + HeadlessOptions.USAGE);
+        }
+    }
+
+    private static String requireArgument(String[] parts) {
+        if (parts.length < 2 || parts[1].isBlank())
+            throw new IllegalArgumentException("Source " + parts[0] + " needs an argument");
+        return parts[1];
+    }
+
+    private static Mixer.Info selectDevice(String selector) {
+        List<Mixer.Info> devices = AudioDeviceManager.getCaptureDevices();
+        if (devices.isEmpty())
+            throw new IllegalStateException("No audio capture devices found");
+        if (selector == null)
+            return devices.getFirst();
+
+        try {
+            return devices.get(Integer.parseInt(selector));
+        } catch (NumberFormatException e) {
+            return devices.stream()
+                    .filter(device -> device.getName().toLowerCase().contains(selector.toLowerCase()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("No capture device matches: " + selector));
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("No capture device with index " + selector);
+        }
+    }
+
+    private static boolean isFinite(HeadlessOptions options) {
+        String kind = options.source().split(":", 2)[0];
+        return kind.equals("file") || kind.equals("raw")
+                || (!kind.equals("line") && options.durationSeconds() > 0);
+    }
+
+    /**
+     * Captures until a finite source ends or {@link #close()} is called, typically from the shutdown hook.
+     *
+     * @return false if the recording is incomplete because the recorder had to drop audio
+     */
+    public boolean run() throws InterruptedException {
+        LOGGER.info("Headless capture from " + source.getName() + " (" + source.getFormat() + ")");
+
+        if (options.recordFile() != null)
+            audioHandler.startRecording(options.recordFile());
+        if (streamServer != null)
+            startStreaming();
+        audioHandler.startCapture(source);
+        if (source instanceof LineAudioSource)
+            watchDevices();
+
+        audioHandler.getMetrics().register("headless");
+        try {
+            metricsReporter = new MetricsReporter("headless", audioHandler.getMetrics(),
+                    Duration.ofSeconds(options.statsIntervalSeconds()),
+                    options.metricsCsv() == null ? null : Path.of(options.metricsCsv()));
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to open metrics file " + options.metricsCsv(), e);
+        }
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(options.statsIntervalSeconds());
+        long[] lastReport = { System.nanoTime() };
+        statsExecutor.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            logStatistics((now - lastReport[0]) / 1e9);
+            lastReport[0] = now;
+        }, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+
+        if (finite) {
+            audioHandler.awaitSourceEnd();
+            close();
+        } else {
+            closed.await();
+        }
+        return !recordingIncomplete;
+    }
+
+    private void startStreaming() {
+        try {
+            streamServer.start();
+            streamServer.attach(audioHandler);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serve the stream on " + options.serveAddress(), e);
+        }
+    }
+
+    // Hot-plug events are only reported; a vanished device simply stops delivering audio
+    private void watchDevices() {
+        deviceListener = new DeviceRegistry.DeviceListener() {
+            @Override
+            public void deviceAdded(DeviceInfo device) {
+                if (device.isCaptureDevice())
+                    LOGGER.info("Capture device connected: " + device.getName());
+            }
+
+            @Override
+            public void deviceRemoved(DeviceInfo device) {
+                if (device.getName().equals(source.getName()))
+                    LOGGER.warning("The capture device " + device.getName() + " was disconnected");
+            }
+        };
+
+        DeviceRegistry registry = DeviceRegistry.getDefault();
+        registry.addListener(deviceListener);
+        registry.startMonitoring(Duration.ofMillis(AudioConstants.DEVICE_REFRESH_INTERVAL_MS));
+    }
+
+    private void logStatistics(double intervalSeconds) {
+        LoudnessSnapshot loudness = audioHandler.getLoudnessMeter().getSnapshot();
+        LOGGER.info(statistics.report(intervalSeconds, audioHandler.getAudioFormat().getSampleRate())
+                + String.format(", loudness M %.1f S %.1f I %.1f LUFS, true peak %.1f dBTP",
+                        loudness.momentaryLufs(), loudness.shortTermLufs(), loudness.integratedLufs(),
+                        loudness.maxTruePeakDb())
+                + (streamServer == null ? "" : String.format(", %d subscriber(s), %d frames skipped",
+                        streamServer.getSubscriberCount(), streamServer.getSkippedFrames()))
+                + ", overruns " + audioHandler.getOverrunCount());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (isClosed)
+            return;
+        isClosed = true;
+
+        statsExecutor.shutdownNow();
+        if (deviceListener != null) {
+            DeviceRegistry.getDefault().removeListener(deviceListener);
+            DeviceRegistry.getDefault().stopMonitoring();
+        }
+        if (metricsReporter != null)
+            metricsReporter.close();
+        if (streamServer != null)
+            streamServer.close();
+        if (audioHandler.isRecording())
+            audioHandler.stopRecording();
+        audioHandler.close();
+        recordingIncomplete = recorder.getDroppedBytes() > 0;
+
+        LoudnessSnapshot loudness = audioHandler.getLoudnessMeter().getSnapshot();
+        LOGGER.info(String.format("Headless capture stopped, integrated loudness %.1f LUFS, true peak %.1f dBTP, overruns %d",
+                loudness.integratedLufs(), loudness.maxTruePeakDb(), audioHandler.getOverrunCount()));
+        closed.countDown();
+    }
+}
@@ -0,0 +1,192 @@
+package org.bunnys.headless;
+
+import org.bunnys.audio.CaptureSettings;
+import org.bunnys.audio.batch.BatchPolicy;
+import org.bunnys.audio.processing.PolyphaseResampler;
+import org.bunnys.audio.recording.GatePolicy;
+import org.bunnys.audio.streaming.SubscriberPolicy;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command-line options for headless mode. Arguments have the form {@code --name=value} or {@code --flag}.
+ */
+public record HeadlessOptions(
+        String source,
+        float sampleRate,
+        boolean nativeFormat,
+        PolyphaseResampler.Quality resampleQuality,
+        CaptureSettings captureSettings,
+        double durationSeconds,
+        boolean realTime,
+        String chain,
+        String recordFile,
+        long segmentBytes,
+        long segmentSeconds,
+        GatePolicy gate,
+        String serveAddress,
+        SubscriberPolicy servePolicy,
+        String batch,
+        BatchPolicy batchPolicy,
+        int statsIntervalSeconds,
+        String metricsCsv,
+        boolean listDevices) {
+
+    public static final String HEADLESS_FLAG = "--headless";
+
+    public static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: --headless [options]",
+            "  --source=line[:<device name or index>] | file:<path.wav> | raw:<path> | sine:<hz> | sweep:<from>:<to> | noise",
+            "  --rate=<hz>              pipeline sample rate for line/raw/generator sources (default 44100)",
+            "  --native-format          capture a line source in the device's own format",
+            "  --resample=<quality>     fast | balanced | best, for line sources at another rate (default balanced)",
+            "  --low-latency            small reads, blocks and line buffer, with the block size tuned to the load",
+            "  --read-frames=<n>        frames per source read (default 4096 bytes' worth)",
+            "  --line-buffer-frames=<n> line buffer to ask the sound card driver for (default: the driver's)",
+            "  --block-frames=<n>       frames per processing block, 64 to 2048 (default 2048)",
+            "  --adaptive               tune the block size at runtime from overruns and processing time",
+            "  --duration=<seconds>     stop generator sources after this long (default: run until stopped)",
+            "  --realtime               pace file and generator sources at wall-clock speed",
+            "  --chain=<spec>           processor chain, e.g. lpf:0.1 or biquad:highpass:80,biquad:peaking:3000:1.4:-6",
+            "                           stages: lpf:<alpha> | biquad:<type>:<hz>[:<q>[:<dB>]] | convolve:<ir.wav>",
+            "                           | eq:<hz>:<q>:<dB>[:<hz>:<q>:<dB>...] (one peaking band per triple)",
+            "  --record=<file>          record the unprocessed capture (before --chain) from the start,",
+            "                           as FLAC if the name ends in .flac",
+            "  --segment-mb=<n>         rotate recording files every n MiB",
+            "  --segment-seconds=<n>    rotate recording files every n seconds",
+            "  --gate[=<dBFS>]          leave silence out of the recording, opening at this level (default -45)",
+            "                           and listing the kept regions in <name>.activity.csv",
+            "  --serve=<address>        stream the capture as framed PCM to subscribers on <port> (loopback),",
+            "                           <host>:<port> or unix:<socket path>",
+            "  --serve-backlog=<n>      frames a subscriber may fall behind before it is skipped ahead (default 16)",
+            "  --serve-overflow=<mode>  skip | disconnect, what happens to a subscriber over its backlog",
+            "  --batch=<dir|glob>       run --chain over WAV files as fast as possible instead of capturing, writing",
+            "                           <name>.processed.wav and batch-report.csv next to the inputs",
+            "  --threads=<n>            worker threads for --batch (default: one per core)",
+            "  --split-seconds=<s>      split longer files into pieces processed in parallel, 0 to never split (default 300)",
+            "  --warmup-seconds=<s>     audio run through the chain ahead of each split piece (default 1)",
+            "  --stats-interval=<s>     seconds between throughput/level/latency log lines (default 5)",
+            "  --metrics-csv=<file>     also append pipeline metrics to a CSV file every interval",
+            "  --list-devices           print the capture devices and exit",
+            "  --help                   print this message");
+
+    public static boolean isHeadless(String[] args) {
+        for (String arg : args) {
+            if (HEADLESS_FLAG.equals(arg))
+                return true;
+        }
+        return false;
+    }
+
+    public static HeadlessOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--"))
+                throw new IllegalArgumentException("Unexpected argument: " + arg + System.lineSeparator() + USAGE);
+
+            int equals = arg.indexOf('=');
+            if (equals < 0)
+                values.put(arg.substring(2), "true");
+            else
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        values.remove("headless");
+        if (values.containsKey("help"))
+            throw new IllegalArgumentException(USAGE);
+
+        HeadlessOptions options = new HeadlessOptions(
+                take(values, "source", "line"),
+                (float) number(take(values, "rate", null), 44100),
+                take(values, "native-format", null) != null,
+                quality(take(values, "resample", "balanced")),
+                captureSettings(values),
+                number(take(values, "duration", null), 0),
+                take(values, "realtime", null) != null,
+                take(values, "chain", null),
+                take(values, "record", null),
+                (long) (number(take(values, "segment-mb", null), 0) * 1024 * 1024),
+                (long) number(take(values, "segment-seconds", null), 0),
+                gate(take(values, "gate", null)),
+                take(values, "serve", null),
+                servePolicy(values),
+                take(values, "batch", null),
+                batchPolicy(values),
+                (int) number(take(values, "stats-interval", null), 5),
+                take(values, "metrics-csv", null),
+                take(values, "list-devices", null) != null);
+
+        if (!values.isEmpty())
+            throw new IllegalArgumentException("Unknown option(s): " + values.keySet() + System.lineSeparator() + USAGE);
+        if (options.statsIntervalSeconds <= 0)
+            throw new IllegalArgumentException("Stats interval must be positive");
+        return options;
+    }
+
+    private static String take(Map<String, String> values, String name, String fallback) {
+        String value = values.remove(name);
+        return value != null ? value : fallback;
+    }
+
+    private static CaptureSettings captureSettings(Map<String, String> values) {
+        CaptureSettings settings = take(values, "low-latency", null) != null
+                ? CaptureSettings.LOW_LATENCY
+                : CaptureSettings.DEFAULT;
+
+        String readFrames = take(values, "read-frames", null);
+        String lineBufferFrames = take(values, "line-buffer-frames", null);
+        String blockFrames = take(values, "block-frames", null);
+        return new CaptureSettings(
+                (int) number(readFrames, settings.readFrames()),
+                (int) number(lineBufferFrames, settings.lineBufferFrames()),
+                (int) number(blockFrames, settings.blockFrames()),
+                settings.adaptive() || take(values, "adaptive", null) != null);
+    }
+
+    private static PolyphaseResampler.Quality quality(String value) {
+        for (PolyphaseResampler.Quality quality : PolyphaseResampler.Quality.values()) {
+            if (quality.name().equalsIgnoreCase(value))
+                return quality;
+        }
+        throw new IllegalArgumentException("Unknown resampling quality: " + value);
+    }
+
+    private static GatePolicy gate(String value) {
+        if (value == null)
+            return null;
+        return "true".equals(value) ? GatePolicy.DEFAULT : GatePolicy.atThreshold(number(value, 0));
+    }
+
+    private static SubscriberPolicy servePolicy(Map<String, String> values) {
+        SubscriberPolicy policy = SubscriberPolicy.DEFAULT
+                .withBacklogFrames((int) number(take(values, "serve-backlog", null), SubscriberPolicy.DEFAULT.backlogFrames()));
+
+        String overflow = take(values, "serve-overflow", null);
+        if (overflow == null)
+            return policy;
+        for (SubscriberPolicy.Overflow action : SubscriberPolicy.Overflow.values()) {
+            if (action.name().equalsIgnoreCase(overflow))
+                return policy.withOverflow(action);
+        }
+        throw new IllegalArgumentException("Unknown overflow action: " + overflow);
+    }
+
+    private static BatchPolicy batchPolicy(Map<String, String> values) {
+        BatchPolicy policy = BatchPolicy.DEFAULT;
+        return new BatchPolicy(
+                (int) number(take(values, "threads", null), policy.parallelism()),
+                number(take(values, "split-seconds", null), policy.splitSeconds()),
+                number(take(values, "warmup-seconds", null), policy.warmUpSeconds()));
+    }
+
+    private static double number(String value, double fallback) {
+        if (value == null)
+            return fallback;
+
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number but got: " + value);
+        }
+    }
+}
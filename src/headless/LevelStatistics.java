@@ -0,0 +1,42 @@
+package org.bunnys.headless;
+
+/**
+ * Sample count, peak and RMS of the processed stream since the last report.
+ */
+final class LevelStatistics {
+    private long samples;
+    private float peak;
+    private double sumSquares;
+    private long totalSamples;
+
+    synchronized void accept(float[] block) {
+        float blockPeak = peak;
+        double blockSum = 0;
+        for (float sample : block) {
+            blockPeak = Math.max(blockPeak, Math.abs(sample));
+            blockSum += sample * sample;
+        }
+
+        peak = blockPeak;
+        sumSquares += blockSum;
+        samples += block.length;
+        totalSamples += block.length;
+    }
+
+    synchronized String report(double intervalSeconds, float sampleRate) {
+        double seconds = samples / (double) sampleRate;
+        double rms = samples > 0 ? Math.sqrt(sumSquares / samples) : 0;
+        String line = String.format("%.1f s of audio in %.1f s (%.1fx real time), peak %.1f dBFS, RMS %.1f dBFS, total %.1f s",
+                seconds, intervalSeconds, seconds / intervalSeconds, toDecibels(peak), toDecibels(rms),
+                totalSamples / (double) sampleRate);
+
+        samples = 0;
+        peak = 0;
+        sumSquares = 0;
+        return line;
+    }
+
+    private static double toDecibels(double level) {
+        return level > 0 ? 20 * Math.log10(level) : Double.NEGATIVE_INFINITY;
+    }
+}
@@ -0,0 +1,121 @@
+package org.bunnys.ui;
+
+import org.bunnys.audio.processing.LoudnessMeter;
+import org.bunnys.audio.processing.LoudnessSnapshot;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+
+/**
+ * Bar meters for a {@link LoudnessMeter}: sample peak, true peak and RMS in dBFS, momentary and
+ * short-term loudness in LUFS, with the integrated loudness and the highest true peak written below.
+ * The EDT polls the meter's latest snapshot on a timer and repaints only when a new one has been published,
+ * so the audio thread is never waited on.
+ */
+public class LoudnessMeterPanel extends JComponent {
+    private static final int REFRESH_INTERVAL_MS = 33;
+    private static final double MIN_DB = -60.0;
+    private static final int BAR_WIDTH = 18;
+    private static final int BAR_GAP = 10;
+    private static final int TEXT_LINES = 2;
+    private static final String[] LABELS = { "Pk", "TP", "RMS", "M", "S" };
+
+    // Green up to the warning level, amber up to the alarm level, red above
+    private static final double WARNING_DB = -18.0;
+    private static final double ALARM_DB = -1.0;
+    private static final Color BACKGROUND = new Color(0x202020);
+    private static final Color TRACK = new Color(0x383838);
+
+    private final LoudnessMeter meter;
+    private final Timer refreshTimer;
+    private LoudnessSnapshot shown = LoudnessSnapshot.EMPTY;
+
+    public LoudnessMeterPanel(LoudnessMeter meter) {
+        this.meter = meter;
+        this.refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> refresh());
+        setPreferredSize(new Dimension(LABELS.length * (BAR_WIDTH + BAR_GAP) + BAR_GAP + 40, 200));
+        setOpaque(true);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refreshTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+
+    private void refresh() {
+        LoudnessSnapshot latest = meter.getSnapshot();
+        if (latest != shown) {
+            shown = latest;
+            repaint();
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Insets insets = getInsets();
+        int width = getWidth() - insets.left - insets.right;
+        int height = getHeight() - insets.top - insets.bottom;
+        if (width <= 0 || height <= 0)
+            return;
+
+        Graphics2D g2 = (Graphics2D) g.create(insets.left, insets.top, width, height);
+        try {
+            g2.setColor(BACKGROUND);
+            g2.fillRect(0, 0, width, height);
+
+            FontMetrics font = g2.getFontMetrics();
+            int lineHeight = font.getHeight();
+            int barTop = BAR_GAP;
+            int barHeight = Math.max(1, height - barTop - lineHeight * (TEXT_LINES + 1) - BAR_GAP);
+
+            LoudnessSnapshot snapshot = shown;
+            double[] levels = { snapshot.samplePeakDb(), snapshot.truePeakDb(), snapshot.rmsDb(),
+                    snapshot.momentaryLufs(), snapshot.shortTermLufs() };
+            for (int i = 0; i < levels.length; i++) {
+                int x = BAR_GAP + i * (BAR_WIDTH + BAR_GAP);
+                paintBar(g2, x, barTop, barHeight, levels[i]);
+
+                g2.setColor(Color.LIGHT_GRAY);
+                int labelWidth = font.stringWidth(LABELS[i]);
+                g2.drawString(LABELS[i], x + (BAR_WIDTH - labelWidth) / 2, barTop + barHeight + lineHeight);
+            }
+
+            int textTop = barTop + barHeight + lineHeight;
+            g2.setColor(Color.WHITE);
+            g2.drawString("I " + format(snapshot.integratedLufs()) + " LUFS", BAR_GAP, textTop + lineHeight);
+            g2.drawString("TP max " + format(snapshot.maxTruePeakDb()) + " dBTP", BAR_GAP, textTop + 2 * lineHeight);
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private static void paintBar(Graphics2D g2, int x, int top, int height, double level) {
+        g2.setColor(TRACK);
+        g2.fillRect(x, top, BAR_WIDTH, height);
+
+        double fraction = Double.isFinite(level) ? Math.max(0, Math.min(1, (level - MIN_DB) / -MIN_DB)) : 0;
+        int filled = (int) Math.round(fraction * height);
+        if (filled == 0)
+            return;
+
+        g2.setColor(level >= ALARM_DB ? Color.RED : level >= WARNING_DB ? Color.ORANGE : Color.GREEN);
+        g2.fillRect(x, top + height - filled, BAR_WIDTH, filled);
+    }
+
+    private static String format(double value) {
+        return Double.isFinite(value) ? String.format("%.1f", value) : "-inf";
+    }
+}
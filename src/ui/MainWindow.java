@@ -1,17 +1,26 @@
 package org.bunnys.ui;
 
 import org.bunnys.audio.device.AudioDeviceManager;
+import org.bunnys.audio.device.DeviceInfo;
+import org.bunnys.audio.device.DeviceRegistry;
 import org.bunnys.audio.processing.LowPassFilter;
+import org.bunnys.audio.processing.SpectrumAnalyzer;
+import org.bunnys.audio.processing.WindowFunction;
+import org.bunnys.audio.recording.MappedRecording;
 import org.bunnys.constants.AudioConstants;
 import org.bunnys.audio.AudioHandler;
 import org.jfree.chart.ChartPanel;
 
 import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.Mixer;
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class MainWindow {
@@ -19,10 +28,17 @@ public class MainWindow {
 
     private final JFrame frame;
     private final WaveformChart waveformChart;
+    private final SpectrumChart spectrumChart;
+    private final SpectrogramPanel spectrogramPanel;
     private final AudioHandler audioHandler;
     private final JButton recordButton;
     private final JButton stopButton;
     private final JButton lpfButton;
+    private final JButton openButton;
+
+    private final AudioDeviceManager deviceManager;
+    private final DefaultComboBoxModel<DeviceInfo> deviceModel;
+    private final DeviceRegistry.DeviceListener deviceListener;
 
     private boolean isCleanedUp = false;
 
@@ -31,27 +47,43 @@ public class MainWindow {
     private JLabel alphaLabel;
     private LowPassFilter lpf;
 
-    public MainWindow(AudioFormat format, AudioDeviceManager deviceManager, int sampleSize) {
+    private static final int[] WAVEFORM_WINDOWS_MS = { 100, 1000, 5000, 30_000, 60_000, 180_000 };
+
+    public MainWindow(AudioFormat format, AudioDeviceManager deviceManager, int waveformWindowMillis) {
         this.frame = createMainFrame();
-        this.waveformChart = new WaveformChart(sampleSize);
+        this.waveformChart = new WaveformChart(format.getSampleRate(), AudioConstants.FULL_SCALE,
+                Duration.ofMillis(waveformWindowMillis));
+        this.spectrumChart = new SpectrumChart(AudioConstants.FULL_SCALE, format.getSampleRate());
+        this.spectrogramPanel = new SpectrogramPanel(AudioConstants.FULL_SCALE, format.getSampleRate(),
+                AudioConstants.SPECTROGRAM_COLUMNS, AudioConstants.SPECTROGRAM_ROWS);
         this.audioHandler = new AudioHandler(format, waveformChart::updateData);
+        audioHandler.getMetrics().register("main");
+        this.deviceManager = deviceManager;
+        this.deviceModel = new DefaultComboBoxModel<>();
+        this.deviceListener = createDeviceListener();
 
         // Initialize buttons
         this.recordButton = new JButton("Record");
         this.stopButton = new JButton("Stop Recording");
         this.lpfButton = new JButton("Apply LPF");
+        this.openButton = new JButton("Open Recording...");
 
         initializeUI();
-        setupDeviceSelector(deviceManager);
+        JPanel topPanel = setupDeviceSelector();
+        setupWaveformWindowSelector(topPanel, waveformWindowMillis);
         setupLPFControls();
         setupButtons();
+        setupSpectrumAnalyzer(format);
+        setupLoudnessMeter();
 
         // Start with first available device
-        List<Mixer.Info> devices = deviceManager.getInputDevices();
-        if (!devices.isEmpty()) {
-            audioHandler.startCapture(devices.getFirst());
+        if (deviceModel.getSize() > 0) {
+            audioHandler.startCapture(deviceModel.getElementAt(0).getMixerInfo());
         }
 
+        deviceManager.getRegistry().addListener(deviceListener);
+        deviceManager.getRegistry().startMonitoring(Duration.ofMillis(AudioConstants.DEVICE_REFRESH_INTERVAL_MS));
+
         frame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
         frame.addWindowListener(new java.awt.event.WindowAdapter() {
             @Override
@@ -83,33 +115,99 @@ public class MainWindow {
     }
 
     private void initializeUI() {
+        JPanel chartsPanel = new JPanel(new GridLayout(3, 1));
         ChartPanel chartPanel = waveformChart.createChartPanel();
-        frame.add(chartPanel, BorderLayout.CENTER);
+        chartsPanel.add(chartPanel);
+        chartsPanel.add(spectrumChart.createChartPanel());
+        spectrogramPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        chartsPanel.add(spectrogramPanel);
+        frame.add(chartsPanel, BorderLayout.CENTER);
 
         frame.setVisible(true);
     }
 
-    private void setupDeviceSelector(AudioDeviceManager deviceManager) {
+    private JPanel setupDeviceSelector() {
         JPanel topPanel = new JPanel(new FlowLayout());
 
         JLabel label = new JLabel("Select Input Device:");
 
-        List<Mixer.Info> inputDevices = deviceManager.getInputDevices();
+        for (DeviceInfo device : deviceManager.getRegistry().getCaptureDevices()) {
+            if (deviceManager.supportsFormat(device))
+                deviceModel.addElement(device);
+        }
 
-        JComboBox<String> deviceList = new JComboBox<>(inputDevices.stream()
-                .map(Mixer.Info::getName)
-                .toArray(String[]::new));
+        JComboBox<DeviceInfo> deviceList = new JComboBox<>(deviceModel);
 
         deviceList.addActionListener(e -> {
-            int selectedIndex = deviceList.getSelectedIndex();
+            DeviceInfo selected = (DeviceInfo) deviceList.getSelectedItem();
 
-            if (selectedIndex >= 0)
-                audioHandler.startCapture(inputDevices.get(selectedIndex));
+            if (selected != null)
+                audioHandler.startCapture(selected.getMixerInfo());
         });
 
         topPanel.add(label);
         topPanel.add(deviceList);
         frame.add(topPanel, BorderLayout.NORTH);
+        return topPanel;
+    }
+
+    // Registry events arrive on its monitor thread; the combo box is only touched on the EDT
+    private DeviceRegistry.DeviceListener createDeviceListener() {
+        return new DeviceRegistry.DeviceListener() {
+            @Override
+            public void deviceAdded(DeviceInfo device) {
+                if (deviceManager.supportsFormat(device))
+                    SwingUtilities.invokeLater(() -> deviceModel.addElement(device));
+            }
+
+            @Override
+            public void deviceRemoved(DeviceInfo device) {
+                SwingUtilities.invokeLater(() -> deviceModel.removeElement(device));
+            }
+        };
+    }
+
+    private void setupWaveformWindowSelector(JPanel topPanel, int initialWindowMillis) {
+        JComboBox<String> windowList = new JComboBox<>();
+        for (int millis : WAVEFORM_WINDOWS_MS)
+            windowList.addItem(millis < 1000 ? millis + " ms" : millis / 1000 + " s");
+
+        for (int i = 0; i < WAVEFORM_WINDOWS_MS.length; i++) {
+            if (WAVEFORM_WINDOWS_MS[i] == initialWindowMillis)
+                windowList.setSelectedIndex(i);
+        }
+
+        windowList.addActionListener(e -> {
+            int selectedIndex = windowList.getSelectedIndex();
+
+            if (selectedIndex >= 0)
+                waveformChart.setWindow(Duration.ofMillis(WAVEFORM_WINDOWS_MS[selectedIndex]));
+        });
+
+        topPanel.add(new JLabel("Waveform Window:"));
+        topPanel.add(windowList);
+    }
+
+    private void setupSpectrumAnalyzer(AudioFormat format) {
+        SpectrumAnalyzer analyzer = SpectrumAnalyzer.withOverlap(
+                AudioConstants.DEFAULT_FFT_SIZE,
+                AudioConstants.DEFAULT_FFT_OVERLAP,
+                WindowFunction.HANN,
+                format.getSampleRate(),
+                (magnitudes, binCount, binWidthHz) -> {
+                    spectrumChart.updateSpectrum(magnitudes, binCount, binWidthHz);
+                    spectrogramPanel.updateSpectrum(magnitudes, binCount, binWidthHz);
+                });
+
+        audioHandler.addConsumer("spectrum", AudioConstants.ANALYSIS_BLOCK_SIZE,
+                (block, length) -> analyzer.accept(block, 0, length));
+    }
+
+    private void setupLoudnessMeter() {
+        LoudnessMeterPanel meterPanel = new LoudnessMeterPanel(audioHandler.getLoudnessMeter());
+        meterPanel.setBorder(BorderFactory.createTitledBorder("Levels"));
+        frame.add(meterPanel, BorderLayout.WEST);
+        frame.revalidate();
     }
 
     // LPF Logic
@@ -187,14 +285,67 @@ public class MainWindow {
          * in the real world, alpha should never be 0, as it would be unusable as you can see
          * */
 
+        openButton.addActionListener(e -> openRecording());
+
         buttonPanel.add(recordButton);
         buttonPanel.add(stopButton);
         buttonPanel.add(lpfButton);
+        buttonPanel.add(openButton);
 
         frame.add(buttonPanel, BorderLayout.SOUTH);
         frame.revalidate();
     }
 
+    // Mapping is instant, but a first open also builds the overview index, so it runs off the EDT
+    private void openRecording() {
+        JFileChooser chooser = new JFileChooser(Path.of("").toAbsolutePath().toFile());
+        chooser.setFileFilter(new FileNameExtensionFilter("WAV recordings", "wav"));
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION)
+            return;
+
+        Path path = chooser.getSelectedFile().toPath();
+        openButton.setEnabled(false);
+        new SwingWorker<MappedRecording, Void>() {
+            @Override
+            protected MappedRecording doInBackground() throws IOException {
+                return MappedRecording.open(path);
+            }
+
+            @Override
+            protected void done() {
+                openButton.setEnabled(true);
+                try {
+                    showRecording(get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.WARNING, "Failed to open " + path, e.getCause());
+                    JOptionPane.showMessageDialog(frame, "Could not open " + path.getFileName() + ":\n"
+                            + e.getCause().getMessage(), "Open Recording", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private void showRecording(MappedRecording recording) {
+        JFrame viewer = new JFrame(recording.getPath().getFileName().toString());
+        viewer.setSize(AudioConstants.DEFAULT_WINDOW_WIDTH, AudioConstants.DEFAULT_WINDOW_HEIGHT / 2);
+        viewer.setLocationRelativeTo(frame);
+        viewer.add(new RecordingChart(recording, AudioConstants.FULL_SCALE).createChartPanel());
+        viewer.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        viewer.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent windowEvent) {
+                try {
+                    recording.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to close " + recording.getPath(), e);
+                }
+            }
+        });
+        viewer.setVisible(true);
+    }
+
     public void updateRecordButton(boolean isRecording) {
         recordButton.setText(isRecording ? "Recording..." : "Record");
         recordButton.setEnabled(!isRecording);
@@ -208,6 +359,9 @@ public class MainWindow {
 
         LOGGER.info("Shutting down the application... [From MW]");
 
+        deviceManager.getRegistry().removeListener(deviceListener);
+        deviceManager.getRegistry().stopMonitoring();
+
         // Stop capturing audio
         audioHandler.stopCapture();
         audioHandler.close();
@@ -0,0 +1,168 @@
+package org.bunnys.ui;
+
+/**
+ * Multi-resolution min/max/RMS summary of the most recent samples, built incrementally as audio arrives.
+ * <p>
+ * Level 0 summarises {@value #BASE_BUCKET_SIZE} samples per bucket and every level above combines
+ * {@value #LEVEL_FACTOR} buckets of the one below. Each level is a fixed ring covering the maximum window,
+ * so memory is bounded and a query only touches about one bucket per output column, whatever the window.
+ */
+public class PeakPyramid {
+    public static final int BASE_BUCKET_SIZE = 16;
+    public static final int LEVEL_FACTOR = 4;
+
+    private final Level[] levels;
+
+    public PeakPyramid(long maxWindowSamples) {
+        if (maxWindowSamples <= 0)
+            throw new IllegalArgumentException("Window must be positive: " + maxWindowSamples);
+
+        int levelCount = 1;
+        long bucketSize = BASE_BUCKET_SIZE;
+        while (maxWindowSamples / (bucketSize * LEVEL_FACTOR) >= 64) {
+            bucketSize *= LEVEL_FACTOR;
+            levelCount++;
+        }
+
+        this.levels = new Level[levelCount];
+        bucketSize = BASE_BUCKET_SIZE;
+        for (int i = 0; i < levelCount; i++) {
+            levels[i] = new Level(bucketSize, maxWindowSamples / bucketSize + 2);
+            bucketSize *= LEVEL_FACTOR;
+        }
+    }
+
+    public synchronized void append(float[] samples, int offset, int length) {
+        Level base = levels[0];
+        for (int i = offset; i < offset + length; i++) {
+            float sample = samples[i];
+            base.accumulate(sample, sample, sample * sample, 1);
+
+            if (base.pendingCount == base.bucketSize)
+                completeBucket(0);
+        }
+    }
+
+    private void completeBucket(int levelIndex) {
+        Level level = levels[levelIndex];
+        float min = level.pendingMin;
+        float max = level.pendingMax;
+        double sumSquares = level.pendingSumSquares;
+        level.push();
+
+        if (levelIndex + 1 < levels.length) {
+            Level parent = levels[levelIndex + 1];
+            parent.accumulate(min, max, sumSquares, level.bucketSize);
+            if (parent.pendingCount == parent.bucketSize)
+                completeBucket(levelIndex + 1);
+        }
+    }
+
+    /**
+     * Fills one min/max/RMS triple per column for the last {@code windowSamples} samples, oldest first.
+     * Columns with no data yet get NaN.
+     */
+    public synchronized void query(long windowSamples, int columns, float[] min, float[] max, float[] rms) {
+        double samplesPerColumn = (double) windowSamples / columns;
+
+        int chosen = 0;
+        for (int i = 1; i < levels.length; i++) {
+            if (levels[i].bucketSize <= samplesPerColumn)
+                chosen = i;
+        }
+
+        Level level = levels[chosen];
+        long bucketsInWindow = Math.min(Math.max(1, windowSamples / level.bucketSize), level.capacity);
+        long newest = level.completed;
+        long oldestAvailable = Math.max(0, newest - level.capacity);
+        double bucketsPerColumn = (double) bucketsInWindow / columns;
+        long windowStart = newest - bucketsInWindow;
+
+        for (int c = 0; c < columns; c++) {
+            long from = windowStart + (long) Math.floor(c * bucketsPerColumn);
+            long to = Math.max(from + 1, windowStart + (long) Math.floor((c + 1) * bucketsPerColumn));
+            from = Math.max(from, oldestAvailable);
+
+            if (from >= to) {
+                min[c] = Float.NaN;
+                max[c] = Float.NaN;
+                rms[c] = Float.NaN;
+                continue;
+            }
+
+            float columnMin = Float.POSITIVE_INFINITY;
+            float columnMax = Float.NEGATIVE_INFINITY;
+            double sumSquares = 0;
+            for (long b = from; b < to; b++) {
+                int index = level.index(b);
+                columnMin = Math.min(columnMin, level.min[index]);
+                columnMax = Math.max(columnMax, level.max[index]);
+                sumSquares += level.sumSquares[index];
+            }
+
+            min[c] = columnMin;
+            max[c] = columnMax;
+            rms[c] = (float) Math.sqrt(sumSquares / ((to - from) * level.bucketSize));
+        }
+    }
+
+    public synchronized void clear() {
+        for (Level level : levels)
+            level.clear();
+    }
+
+    private static final class Level {
+        final long bucketSize;
+        final int capacity;
+        final float[] min;
+        final float[] max;
+        final float[] sumSquares;
+        long completed;
+
+        float pendingMin;
+        float pendingMax;
+        double pendingSumSquares;
+        long pendingCount;
+
+        Level(long bucketSize, long buckets) {
+            this.bucketSize = bucketSize;
+            this.capacity = (int) buckets;
+            this.min = new float[capacity];
+            this.max = new float[capacity];
+            this.sumSquares = new float[capacity];
+            resetPending();
+        }
+
+        int index(long bucket) {
+            return (int) (bucket % capacity);
+        }
+
+        void accumulate(float bucketMin, float bucketMax, double bucketSumSquares, long samples) {
+            pendingMin = Math.min(pendingMin, bucketMin);
+            pendingMax = Math.max(pendingMax, bucketMax);
+            pendingSumSquares += bucketSumSquares;
+            pendingCount += samples;
+        }
+
+        void push() {
+            int index = index(completed);
+            min[index] = pendingMin;
+            max[index] = pendingMax;
+            sumSquares[index] = (float) pendingSumSquares;
+            completed++;
+            resetPending();
+        }
+
+        void resetPending() {
+            pendingMin = Float.POSITIVE_INFINITY;
+            pendingMax = Float.NEGATIVE_INFINITY;
+            pendingSumSquares = 0;
+            pendingCount = 0;
+        }
+
+        void clear() {
+            completed = 0;
+            resetPending();
+        }
+    }
+}
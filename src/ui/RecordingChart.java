@@ -0,0 +1,199 @@
+package org.bunnys.ui;
+
+import org.bunnys.audio.recording.MappedRecording;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.DeviationRenderer;
+import org.jfree.data.Range;
+import org.jfree.data.xy.AbstractIntervalXYDataset;
+
+import javax.swing.BorderFactory;
+import java.awt.Color;
+
+/**
+ * Browses a whole {@link MappedRecording}. Every zoom or pan re-queries just the visible range at one
+ * min/max pair per pixel column, so the cost of a repaint depends on the panel width, not the file size.
+ * Zoom with the mouse wheel or by dragging a box, pan with Ctrl+drag.
+ */
+public class RecordingChart {
+    private static final int MIN_COLUMNS = 64;
+
+    private final MappedRecording recording;
+    private final double durationSeconds;
+    private final EnvelopeDataset dataset;
+    private final JFreeChart chart;
+
+    private ChartPanel panel;
+
+    public RecordingChart(MappedRecording recording, float fullScale) {
+        this.recording = recording;
+        this.durationSeconds = recording.getFrameCount() / (double) recording.getSampleRate();
+        this.dataset = new EnvelopeDataset();
+        this.chart = createChart(fullScale);
+    }
+
+    private JFreeChart createChart(float fullScale) {
+        JFreeChart chart = ChartFactory.createXYLineChart(
+                recording.getPath().getFileName().toString(),
+                "Time (s)",
+                "Amplitude",
+                dataset,
+                PlotOrientation.VERTICAL,
+                false, true, false);
+
+        XYPlot plot = (XYPlot) chart.getPlot();
+        plot.getRangeAxis().setRange(-fullScale, fullScale);
+        plot.setDomainPannable(true);
+
+        ValueAxis domain = plot.getDomainAxis();
+        domain.setRange(0, Math.max(durationSeconds, 1e-3));
+        domain.addChangeListener(e -> refresh());
+
+        DeviationRenderer renderer = new DeviationRenderer(true, false);
+        renderer.setAlpha(1.0f);
+        renderer.setSeriesLinesVisible(0, false);
+        renderer.setSeriesFillPaint(0, new Color(70, 130, 180));
+        plot.setRenderer(renderer);
+        return chart;
+    }
+
+    public ChartPanel createChartPanel() {
+        panel = new ChartPanel(chart) {
+            // The dataset only ever holds the visible columns, so "auto" means the whole recording
+            @Override
+            public void restoreAutoDomainBounds() {
+                showAll();
+            }
+        };
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.setMouseWheelEnabled(true);
+        panel.setRangeZoomable(false);
+        panel.addComponentListener(new java.awt.event.ComponentAdapter() {
+            @Override
+            public void componentResized(java.awt.event.ComponentEvent e) {
+                refresh();
+            }
+        });
+
+        refresh();
+        return panel;
+    }
+
+    public void showAll() {
+        chart.getXYPlot().getDomainAxis().setRange(0, Math.max(durationSeconds, 1e-3));
+    }
+
+    private void refresh() {
+        int columns = Math.max(MIN_COLUMNS, panel != null ? panel.getWidth() : 0);
+        Range visible = chart.getXYPlot().getDomainAxis().getRange();
+        dataset.update(recording, visible.getLowerBound(), visible.getUpperBound(), columns);
+    }
+
+    private static class EnvelopeDataset extends AbstractIntervalXYDataset {
+        private float[] min = new float[0];
+        private float[] max = new float[0];
+        private double[] time = new double[0];
+        private int count;
+
+        void update(MappedRecording recording, double fromSeconds, double toSeconds, int columns) {
+            if (min.length < columns) {
+                min = new float[columns];
+                max = new float[columns];
+                time = new double[columns];
+            }
+
+            float sampleRate = recording.getSampleRate();
+            long from = Math.max(0, (long) Math.floor(fromSeconds * sampleRate));
+            long to = Math.min(recording.getFrameCount(), (long) Math.ceil(toSeconds * sampleRate));
+            if (to <= from) {
+                count = 0;
+                fireDatasetChanged();
+                return;
+            }
+
+            recording.query(from, to, columns, min, max);
+            double secondsPerColumn = (to - from) / (double) sampleRate / columns;
+            int valid = 0;
+            for (int c = 0; c < columns; c++) {
+                if (Float.isNaN(min[c]))
+                    continue;
+                min[valid] = min[c];
+                max[valid] = max[c];
+                time[valid] = from / (double) sampleRate + (c + 0.5) * secondsPerColumn;
+                valid++;
+            }
+
+            count = valid;
+            fireDatasetChanged();
+        }
+
+        @Override
+        public int getSeriesCount() {
+            return 1;
+        }
+
+        @Override
+        public Comparable<?> getSeriesKey(int series) {
+            return "Peak";
+        }
+
+        @Override
+        public int getItemCount(int series) {
+            return count;
+        }
+
+        @Override
+        public Number getX(int series, int item) {
+            return time[item];
+        }
+
+        @Override
+        public double getXValue(int series, int item) {
+            return time[item];
+        }
+
+        @Override
+        public Number getY(int series, int item) {
+            return getYValue(series, item);
+        }
+
+        @Override
+        public double getYValue(int series, int item) {
+            return (min[item] + max[item]) / 2.0;
+        }
+
+        @Override
+        public Number getStartX(int series, int item) {
+            return time[item];
+        }
+
+        @Override
+        public Number getEndX(int series, int item) {
+            return time[item];
+        }
+
+        @Override
+        public Number getStartY(int series, int item) {
+            return (double) min[item];
+        }
+
+        @Override
+        public double getStartYValue(int series, int item) {
+            return min[item];
+        }
+
+        @Override
+        public Number getEndY(int series, int item) {
+            return (double) max[item];
+        }
+
+        @Override
+        public double getEndYValue(int series, int item) {
+            return max[item];
+        }
+    }
+}
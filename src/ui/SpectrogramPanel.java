@@ -0,0 +1,229 @@
+package org.bunnys.ui;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Scrolling spectrogram drawn straight into an image, without JFreeChart.
+ * <p>
+ * The history is a fixed {@code columns x rows} RGB image used as a ring: each FFT frame overwrites the
+ * oldest column in place, on the analyser's thread, through the image's own {@code int[]} raster. Rows
+ * are spaced logarithmically in frequency and each takes the loudest bin it covers; levels are turned
+ * into colours through a precomputed table indexed by quantised dB. Painting is two blits, the older part
+ * of the ring and then the newer, scaled to the component, so the EDT's cost per frame depends only on
+ * the component's size and never on how much history is kept or how many bins each frame has.
+ */
+public class SpectrogramPanel extends JComponent {
+    private static final int REFRESH_INTERVAL_MS = 16;
+    private static final double MIN_DB = -120.0;
+    private static final double MIN_FREQUENCY = 20.0;
+    private static final int LUT_SIZE = 256;
+    private static final double[] LABEL_FREQUENCIES = { 50, 100, 200, 500, 1000, 2000, 5000, 10_000, 20_000 };
+
+    // Dark blue through purple and orange to pale yellow, interpolated into the LUT
+    private static final int[] GRADIENT = { 0x000004, 0x2c105c, 0x711f81, 0xb63679, 0xee605e, 0xfdae78, 0xfcfdbf };
+
+    private final float fullScale;
+    private final float sampleRate;
+    private final int columns;
+    private final int rows;
+    private final BufferedImage image;
+    private final int[] pixels;
+    private final int[] lut;
+    private final float lutScale;
+
+    // Row r covers bins rowLow[r]..rowHigh[r], rebuilt only when the analyser's resolution changes
+    private final int[] rowLow;
+    private final int[] rowHigh;
+    private int mappedBins;
+    private float mappedBinWidth;
+
+    // Guards the raster and the ring position between the analyser thread and the EDT
+    private final Object imageLock = new Object();
+    private int nextColumn;
+    private boolean dirty;
+    private final Timer refreshTimer;
+
+    public SpectrogramPanel(float fullScale, float sampleRate, int columns, int rows) {
+        if (columns <= 0 || rows <= 1)
+            throw new IllegalArgumentException("Spectrogram needs at least 1 column and 2 rows: "
+                    + columns + "x" + rows);
+
+        this.fullScale = fullScale;
+        this.sampleRate = sampleRate;
+        this.columns = columns;
+        this.rows = rows;
+        this.image = new BufferedImage(columns, rows, BufferedImage.TYPE_INT_RGB);
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        this.lut = buildLut();
+        this.lutScale = (float) ((LUT_SIZE - 1) / -MIN_DB);
+        this.rowLow = new int[rows];
+        this.rowHigh = new int[rows];
+
+        Arrays.fill(pixels, lut[0]);
+        setPreferredSize(new Dimension(columns, rows));
+        setOpaque(true);
+        this.refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> refresh());
+    }
+
+    private static int[] buildLut() {
+        int[] lut = new int[LUT_SIZE];
+        int segments = GRADIENT.length - 1;
+        for (int i = 0; i < LUT_SIZE; i++) {
+            double position = i / (double) (LUT_SIZE - 1) * segments;
+            int segment = Math.min(segments - 1, (int) position);
+            double t = position - segment;
+            int from = GRADIENT[segment];
+            int to = GRADIENT[segment + 1];
+            lut[i] = blend(from >> 16, to >> 16, t) << 16 | blend(from >> 8, to >> 8, t) << 8 | blend(from, to, t);
+        }
+        return lut;
+    }
+
+    private static int blend(int from, int to, double t) {
+        from &= 0xff;
+        to &= 0xff;
+        return (int) Math.round(from + (to - from) * t);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refreshTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+
+    /**
+     * Adds one frame as the newest column. Can be called from any thread, typically as a
+     * {@code SpectrumAnalyzer} listener, and does not allocate once the row map is built.
+     */
+    public void updateSpectrum(float[] magnitudes, int binCount, float binWidthHz) {
+        synchronized (imageLock) {
+            if (binCount != mappedBins || binWidthHz != mappedBinWidth)
+                mapRows(binCount, binWidthHz);
+
+            int column = nextColumn;
+            for (int row = 0; row < rows; row++) {
+                float peak = 0;
+                for (int bin = rowLow[row]; bin <= rowHigh[row]; bin++)
+                    peak = Math.max(peak, magnitudes[bin]);
+                pixels[row * columns + column] = colour(peak);
+            }
+
+            nextColumn = column + 1 == columns ? 0 : column + 1;
+            dirty = true;
+        }
+    }
+
+    private int colour(float magnitude) {
+        float ratio = magnitude / fullScale;
+        if (!(ratio > 0))
+            return lut[0];
+
+        int index = (int) ((20 * Math.log10(ratio) - MIN_DB) * lutScale);
+        return lut[Math.max(0, Math.min(LUT_SIZE - 1, index))];
+    }
+
+    // Row 0 is the top of the image, at Nyquist; each row spans half a row either side in log frequency
+    private void mapRows(int binCount, float binWidthHz) {
+        double nyquist = sampleRate / 2.0;
+        int lastBin = Math.max(0, binCount - 1);
+        for (int row = 0; row < rows; row++) {
+            double low = frequencyAt(row + 0.5, nyquist);
+            double high = frequencyAt(row - 0.5, nyquist);
+            // Bin 0 (DC) has no place on a log axis
+            rowLow[row] = clamp((int) Math.round(low / binWidthHz), Math.min(1, lastBin), lastBin);
+            rowHigh[row] = clamp((int) Math.round(high / binWidthHz), rowLow[row], lastBin);
+        }
+        mappedBins = binCount;
+        mappedBinWidth = binWidthHz;
+    }
+
+    private double frequencyAt(double row, double nyquist) {
+        double fraction = (rows - 1 - row) / (rows - 1);
+        return MIN_FREQUENCY * Math.pow(nyquist / MIN_FREQUENCY, fraction);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private void refresh() {
+        synchronized (imageLock) {
+            if (!dirty)
+                return;
+            dirty = false;
+        }
+        repaint();
+    }
+
+    /**
+     * Clears the history, e.g. when the source changes.
+     */
+    public void clear() {
+        synchronized (imageLock) {
+            Arrays.fill(pixels, lut[0]);
+            nextColumn = 0;
+            dirty = true;
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Insets insets = getInsets();
+        int width = getWidth() - insets.left - insets.right;
+        int height = getHeight() - insets.top - insets.bottom;
+        if (width <= 0 || height <= 0)
+            return;
+
+        Graphics2D g2 = (Graphics2D) g.create(insets.left, insets.top, width, height);
+        try {
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            synchronized (imageLock) {
+                // Oldest columns [nextColumn, columns) on the left, newest [0, nextColumn) on the right
+                int split = (int) ((long) (columns - nextColumn) * width / columns);
+                g2.drawImage(image, 0, 0, split, height, nextColumn, 0, columns, rows, null);
+                g2.drawImage(image, split, 0, width, height, 0, 0, nextColumn, rows, null);
+            }
+            paintFrequencyLabels(g2, height);
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private void paintFrequencyLabels(Graphics2D g2, int height) {
+        double nyquist = sampleRate / 2.0;
+        double span = Math.log(nyquist / MIN_FREQUENCY);
+        g2.setColor(Color.WHITE);
+        for (double frequency : LABEL_FREQUENCIES) {
+            if (frequency >= nyquist)
+                break;
+
+            int y = (int) Math.round(height * (1 - Math.log(frequency / MIN_FREQUENCY) / span));
+            g2.drawLine(0, y, 4, y);
+            g2.drawString(frequency >= 1000 ? (int) (frequency / 1000) + " kHz" : (int) frequency + " Hz", 6, y + 4);
+        }
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+}
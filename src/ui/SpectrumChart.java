@@ -0,0 +1,149 @@
+package org.bunnys.ui;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.LogAxis;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.data.xy.AbstractXYDataset;
+
+import javax.swing.BorderFactory;
+import javax.swing.Timer;
+
+public class SpectrumChart {
+    private static final int REFRESH_INTERVAL_MS = 33;
+    private static final double MIN_DB = -120.0;
+    private static final double MIN_FREQUENCY = 20.0;
+
+    private final SpectrumDataset dataset;
+    private final JFreeChart chart;
+    private final float fullScale;
+
+    // Written by the analyser thread, picked up by the EDT refresh timer
+    private final Object pendingLock = new Object();
+    private float[] pending = new float[0];
+    private int pendingBins;
+    private float pendingBinWidth;
+    private boolean dirty;
+
+    public SpectrumChart(float fullScale, float sampleRate) {
+        this.fullScale = fullScale;
+        this.dataset = new SpectrumDataset();
+        this.chart = createChart(sampleRate);
+    }
+
+    private JFreeChart createChart(float sampleRate) {
+        JFreeChart chart = ChartFactory.createXYLineChart(
+                "Spectrum",
+                "Frequency (Hz)",
+                "Level (dBFS)",
+                dataset,
+                PlotOrientation.VERTICAL,
+                false, true, false);
+
+        XYPlot plot = (XYPlot) chart.getPlot();
+        LogAxis frequencyAxis = new LogAxis("Frequency (Hz)");
+        frequencyAxis.setRange(MIN_FREQUENCY, sampleRate / 2);
+        plot.setDomainAxis(frequencyAxis);
+        plot.getRangeAxis().setRange(MIN_DB, 0);
+        return chart;
+    }
+
+    public ChartPanel createChartPanel() {
+        ChartPanel panel = new ChartPanel(chart);
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        Timer refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> refresh());
+        refreshTimer.start();
+        return panel;
+    }
+
+    /**
+     * Can be called from any thread, typically as a {@code SpectrumAnalyzer} listener.
+     */
+    public void updateSpectrum(float[] magnitudes, int binCount, float binWidthHz) {
+        synchronized (pendingLock) {
+            if (pending.length < binCount)
+                pending = new float[binCount];
+
+            System.arraycopy(magnitudes, 0, pending, 0, binCount);
+            pendingBins = binCount;
+            pendingBinWidth = binWidthHz;
+            dirty = true;
+        }
+    }
+
+    private void refresh() {
+        synchronized (pendingLock) {
+            if (!dirty)
+                return;
+
+            dataset.update(pending, pendingBins, pendingBinWidth, fullScale);
+            dirty = false;
+        }
+        dataset.changed();
+    }
+
+    private static class SpectrumDataset extends AbstractXYDataset {
+        private double[] frequencies = new double[0];
+        private double[] levels = new double[0];
+        private int count;
+
+        void update(float[] magnitudes, int binCount, float binWidth, float fullScale) {
+            // Bin 0 (DC) can't be drawn on a log axis
+            int points = Math.max(0, binCount - 1);
+            if (frequencies.length < points) {
+                frequencies = new double[points];
+                levels = new double[points];
+            }
+
+            for (int i = 0; i < points; i++) {
+                int bin = i + 1;
+                frequencies[i] = bin * binWidth;
+                double ratio = magnitudes[bin] / fullScale;
+                levels[i] = ratio > 0 ? Math.max(MIN_DB, 20 * Math.log10(ratio)) : MIN_DB;
+            }
+            count = points;
+        }
+
+        void changed() {
+            fireDatasetChanged();
+        }
+
+        @Override
+        public int getSeriesCount() {
+            return 1;
+        }
+
+        @Override
+        public Comparable<?> getSeriesKey(int series) {
+            return "Spectrum";
+        }
+
+        @Override
+        public int getItemCount(int series) {
+            return count;
+        }
+
+        @Override
+        public Number getX(int series, int item) {
+            return frequencies[item];
+        }
+
+        @Override
+        public double getXValue(int series, int item) {
+            return frequencies[item];
+        }
+
+        @Override
+        public Number getY(int series, int item) {
+            return levels[item];
+        }
+
+        @Override
+        public double getYValue(int series, int item) {
+            return levels[item];
+        }
+    }
+}
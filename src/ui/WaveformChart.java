@@ -3,53 +3,200 @@ package org.bunnys.ui;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
-import org.jfree.data.time.DynamicTimeSeriesCollection;
-import org.jfree.data.time.Millisecond;
+import org.jfree.chart.renderer.xy.DeviationRenderer;
+import org.jfree.data.xy.AbstractIntervalXYDataset;
 
 import javax.swing.BorderFactory;
+import javax.swing.Timer;
+import java.awt.Color;
+import java.time.Duration;
 
 public class WaveformChart {
-    private final DynamicTimeSeriesCollection dataset;
+    private static final int REFRESH_INTERVAL_MS = 33;
+    private static final int MIN_COLUMNS = 64;
+    private static final Duration MAX_WINDOW = Duration.ofMinutes(3);
+
+    private final float sampleRate;
+    private final float fullScale;
+    private final PeakPyramid pyramid;
+    private final EnvelopeDataset dataset;
     private final JFreeChart chart;
 
-    public WaveformChart(int sampleSize) {
-        this.dataset = createDataset(sampleSize);
+    private volatile long windowSamples;
+    private ChartPanel panel;
+
+    public WaveformChart(float sampleRate, float fullScale, Duration window) {
+        this.sampleRate = sampleRate;
+        this.fullScale = fullScale;
+        this.pyramid = new PeakPyramid(toSamples(MAX_WINDOW));
+        this.dataset = new EnvelopeDataset();
         this.chart = createChart();
+        applyWindow(window);
     }
 
-    private DynamicTimeSeriesCollection createDataset(int sampleSize) {
-        DynamicTimeSeriesCollection dataset = new DynamicTimeSeriesCollection(1, sampleSize, new Millisecond());
-
-        dataset.setTimeBase(new Millisecond());
-
-        dataset.addSeries(new float[sampleSize], 0, "Audio Waveform");
-        return dataset;
+    private long toSamples(Duration duration) {
+        return Math.max(1, (long) (duration.toNanos() / 1e9 * sampleRate));
     }
 
     private JFreeChart createChart() {
-        JFreeChart chart = ChartFactory.createTimeSeriesChart(
+        JFreeChart chart = ChartFactory.createXYLineChart(
                 "Real-Time Waveform",
-                "Time",
+                "Time (s)",
                 "Amplitude",
                 dataset,
+                PlotOrientation.VERTICAL,
                 false, true, false);
 
         XYPlot plot = (XYPlot) chart.getPlot();
-        plot.getRangeAxis().setRange(-32768, 32767);
+        plot.getRangeAxis().setRange(-fullScale, fullScale);
+
+        DeviationRenderer renderer = new DeviationRenderer(true, false);
+        renderer.setAlpha(1.0f);
+        renderer.setSeriesLinesVisible(EnvelopeDataset.PEAK_SERIES, false);
+        renderer.setSeriesLinesVisible(EnvelopeDataset.RMS_SERIES, false);
+        renderer.setSeriesFillPaint(EnvelopeDataset.PEAK_SERIES, new Color(70, 130, 180));
+        renderer.setSeriesFillPaint(EnvelopeDataset.RMS_SERIES, new Color(25, 60, 110));
+        plot.setRenderer(renderer);
         return chart;
     }
 
     public ChartPanel createChartPanel() {
-        ChartPanel panel = new ChartPanel(chart);
+        panel = new ChartPanel(chart);
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        // Repaints are coalesced onto the EDT at a fixed rate, however fast audio arrives
+        Timer refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> refresh());
+        refreshTimer.start();
         return panel;
     }
 
+    public void setWindow(Duration window) {
+        applyWindow(window);
+    }
+
+    private void applyWindow(Duration window) {
+        long samples = Math.min(toSamples(window), toSamples(MAX_WINDOW));
+        this.windowSamples = samples;
+
+        double seconds = samples / (double) sampleRate;
+        ((XYPlot) chart.getPlot()).getDomainAxis().setRange(-seconds, 0);
+    }
+
+    /**
+     * Called from the audio processing thread with each block; only feeds the pyramid.
+     */
     public void updateData(float[] samples) {
-        if (samples != null && samples.length > 0) {
-            dataset.advanceTime();
-            dataset.appendData(new float[] { samples[0] });
+        if (samples != null && samples.length > 0)
+            pyramid.append(samples, 0, samples.length);
+    }
+
+    private void refresh() {
+        int columns = Math.max(MIN_COLUMNS, panel != null ? panel.getWidth() : 0);
+        long window = windowSamples;
+
+        dataset.update(pyramid, window, columns, window / (double) sampleRate);
+    }
+
+    // Two bands per pixel column: the min/max envelope and +/- RMS around zero
+    private static class EnvelopeDataset extends AbstractIntervalXYDataset {
+        static final int PEAK_SERIES = 0;
+        static final int RMS_SERIES = 1;
+
+        private float[] min = new float[0];
+        private float[] max = new float[0];
+        private float[] rms = new float[0];
+        private double[] time = new double[0];
+        private int count;
+
+        void update(PeakPyramid pyramid, long windowSamples, int columns, double windowSeconds) {
+            if (min.length < columns) {
+                min = new float[columns];
+                max = new float[columns];
+                rms = new float[columns];
+                time = new double[columns];
+            }
+
+            pyramid.query(windowSamples, columns, min, max, rms);
+            for (int c = 0; c < columns; c++) {
+                time[c] = -windowSeconds + (c + 0.5) * windowSeconds / columns;
+
+                // Nothing captured that far back yet, draw it as silence
+                if (Float.isNaN(min[c])) {
+                    min[c] = 0;
+                    max[c] = 0;
+                    rms[c] = 0;
+                }
+            }
+
+            count = columns;
+            fireDatasetChanged();
+        }
+
+        @Override
+        public int getSeriesCount() {
+            return 2;
+        }
+
+        @Override
+        public Comparable<?> getSeriesKey(int series) {
+            return series == PEAK_SERIES ? "Peak" : "RMS";
+        }
+
+        @Override
+        public int getItemCount(int series) {
+            return count;
+        }
+
+        @Override
+        public Number getX(int series, int item) {
+            return time[item];
+        }
+
+        @Override
+        public double getXValue(int series, int item) {
+            return time[item];
+        }
+
+        @Override
+        public Number getY(int series, int item) {
+            return getYValue(series, item);
+        }
+
+        @Override
+        public double getYValue(int series, int item) {
+            return series == PEAK_SERIES ? (min[item] + max[item]) / 2.0 : 0.0;
+        }
+
+        @Override
+        public Number getStartX(int series, int item) {
+            return time[item];
+        }
+
+        @Override
+        public Number getEndX(int series, int item) {
+            return time[item];
+        }
+
+        @Override
+        public Number getStartY(int series, int item) {
+            return getStartYValue(series, item);
+        }
+
+        @Override
+        public double getStartYValue(int series, int item) {
+            return series == PEAK_SERIES ? min[item] : -rms[item];
+        }
+
+        @Override
+        public Number getEndY(int series, int item) {
+            return getEndYValue(series, item);
+        }
+
+        @Override
+        public double getEndYValue(int series, int item) {
+            return series == PEAK_SERIES ? max[item] : rms[item];
         }
     }
 }
\ No newline at end of file